@@ -4,31 +4,31 @@ import './App.css';
 
 // Use relative API path - preview environment handles routing
 const API_BASE = '/api';
+const TOP_USERS = 12;
 
 function App() {
-  const [users, setUsers] = useState([]);
-  const [transactions, setTransactions] = useState([]);
+  const [dashboard, setDashboard] = useState(null);
+  const [topUsers, setTopUsers] = useState([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
   const [selectedUser, setSelectedUser] = useState(null);
+  const [userTransactions, setUserTransactions] = useState([]);
   const [activeTab, setActiveTab] = useState('users');
 
   useEffect(() => {
     loadData();
   }, []);
 
+  // One precomputed summary plus the top balances; neither grows with the tables
   const loadData = async () => {
     try {
       setLoading(true);
-      console.log('API Base:', API_BASE);
-      console.log('Loading users from:', `${API_BASE}/users`);
-      
-      const [usersRes, transactionsRes] = await Promise.all([
-        axios.get(`${API_BASE}/users`),
-        axios.get(`${API_BASE}/transactions`)
+      const [dashboardRes, topRes] = await Promise.all([
+        axios.get(`${API_BASE}/dashboard`),
+        axios.get(`${API_BASE}/users/top`, { params: { by: 'balance', n: TOP_USERS } })
       ]);
-      setUsers(usersRes.data);
-      setTransactions(transactionsRes.data);
+      setDashboard(dashboardRes.data);
+      setTopUsers(topRes.data);
       setError(null);
     } catch (err) {
       setError('Failed to load data. Make sure the backend server is running.');
@@ -38,10 +38,28 @@ function App() {
     }
   };
 
-  const getUserTransactions = (userId) => {
-    return transactions.filter(t => t.userId === userId);
+  // A user's details and history are only fetched when their card is opened
+  const selectUser = async (userId) => {
+    if (selectedUser?.userId === userId) {
+      setSelectedUser(null);
+      return;
+    }
+    try {
+      const [userRes, transactionsRes] = await Promise.all([
+        axios.get(`${API_BASE}/users/${userId}/balance`),
+        axios.get(`${API_BASE}/transactions/user/${userId}`)
+      ]);
+      setSelectedUser(userRes.data);
+      setUserTransactions(transactionsRes.data);
+    } catch (err) {
+      console.error('Error loading user:', err);
+    }
   };
 
+  const todayCount = dashboard
+    ? Object.values(dashboard.todayByType).reduce((sum, total) => sum + total.count, 0)
+    : 0;
+
   if (loading) {
     return (
       <div className="container">
@@ -88,7 +106,7 @@ function App() {
           className={`tab ${activeTab === 'transactions' ? 'active' : ''}`}
           onClick={() => { setActiveTab('transactions'); setSelectedUser(null); }}
         >
-          All Transactions
+          Recent Transactions
         </button>
       </div>
 
@@ -96,43 +114,47 @@ function App() {
         <div className="content">
           <div className="stats">
             <div className="stat-card">
-              <div className="stat-value">{users.length}</div>
+              <div className="stat-value">{dashboard.userCount}</div>
               <div className="stat-label">Total Users</div>
             </div>
             <div className="stat-card">
-              <div className="stat-value">{transactions.length}</div>
-              <div className="stat-label">Total Transactions</div>
+              <div className="stat-value">{todayCount}</div>
+              <div className="stat-label">Transactions Today</div>
             </div>
             <div className="stat-card">
               <div className="stat-value">
-                ${users.reduce((sum, user) => sum + parseFloat(user.balance || 0), 0).toFixed(2)}
+                ${parseFloat(dashboard.totalBalance || 0).toFixed(2)}
               </div>
               <div className="stat-label">Total Balance</div>
             </div>
           </div>
 
+          <div className="stats">
+            {Object.entries(dashboard.todayByType).map(([type, total]) => (
+              <div key={type} className="stat-card">
+                <div className="stat-value">${parseFloat(total.amount || 0).toFixed(2)}</div>
+                <div className="stat-label">{type} today ({total.count})</div>
+              </div>
+            ))}
+          </div>
+
+          <h2>Top Balances</h2>
           <div className="users-grid">
-            {users.map(user => (
+            {topUsers.map(entry => (
               <div 
-                key={user.userId} 
-                className={`user-card ${selectedUser?.userId === user.userId ? 'selected' : ''}`}
-                onClick={() => setSelectedUser(selectedUser?.userId === user.userId ? null : user)}
+                key={entry.userId} 
+                className={`user-card ${selectedUser?.userId === entry.userId ? 'selected' : ''}`}
+                onClick={() => selectUser(entry.userId)}
               >
                 <div className="user-avatar">
-                  {user.username.charAt(0).toUpperCase()}
+                  #{entry.rank}
                 </div>
                 <div className="user-info">
-                  <h3>{user.username}</h3>
-                  <p className="user-email">{user.email}</p>
+                  <h3>User #{entry.userId}</h3>
                   <div className="user-balance">
                     <span className="balance-label">Balance:</span>
-                    <span className="balance-value">${parseFloat(user.balance || 0).toFixed(2)}</span>
+                    <span className="balance-value">${parseFloat(entry.value || 0).toFixed(2)}</span>
                   </div>
-                  {getUserTransactions(user.userId).length > 0 && (
-                    <div className="transaction-count">
-                      {getUserTransactions(user.userId).length} transaction(s)
-                    </div>
-                  )}
                 </div>
               </div>
             ))}
@@ -141,11 +163,12 @@ function App() {
           {selectedUser && (
             <div className="user-transactions">
               <h2>Transactions for {selectedUser.username}</h2>
-              {getUserTransactions(selectedUser.userId).length === 0 ? (
+              <p className="user-email">{selectedUser.email}</p>
+              {userTransactions.length === 0 ? (
                 <p className="no-data">No transactions found</p>
               ) : (
                 <div className="transactions-list">
-                  {getUserTransactions(selectedUser.userId).map(txn => (
+                  {userTransactions.map(txn => (
                     <div key={txn.id} className={`transaction-item ${txn.type.toLowerCase()}`}>
                       <div className="txn-header">
                         <span className={`txn-type ${txn.type.toLowerCase()}`}>
@@ -173,17 +196,16 @@ function App() {
 
       {activeTab === 'transactions' && (
         <div className="content">
-          <h2>All Transactions</h2>
-          {transactions.length === 0 ? (
+          <h2>Recent Transactions</h2>
+          {dashboard.recentTransactions.length === 0 ? (
             <p className="no-data">No transactions found</p>
           ) : (
             <div className="transactions-list">
-              {transactions.map(txn => {
-                const user = users.find(u => u.userId === txn.userId);
+              {dashboard.recentTransactions.map(txn => {
                 return (
                   <div key={txn.id} className={`transaction-item ${txn.type.toLowerCase()}`}>
                     <div className="txn-header">
-                      <span className="txn-user">{user?.username || `User #${txn.userId}`}</span>
+                      <span className="txn-user">User #{txn.userId}</span>
                       <span className={`txn-type ${txn.type.toLowerCase()}`}>
                         {txn.type === 'CREDIT' ? '↓' : '↑'} {txn.type}
                       </span>
@@ -2,13 +2,21 @@ package com.jpmorgan.transaction;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableKafka
+@EnableScheduling
 public class TransactionServiceApplication {
 
+    // Enough startup steps for every bean; read by StartupTimingReport and /actuator/startup
+    private static final int STARTUP_STEPS = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(TransactionServiceApplication.class, args);
+        SpringApplication application = new SpringApplication(TransactionServiceApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
-}
\ No newline at end of file
+}
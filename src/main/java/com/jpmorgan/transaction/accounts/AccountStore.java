@@ -0,0 +1,231 @@
+package com.jpmorgan.transaction.accounts;
+
+import com.jpmorgan.transaction.event.BalancesPostedEvent;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.event.UserCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Balance, version and last activity of every user in an {@link OffHeapAccountTable}, so millions
+ * of accounts cost neither heap nor GC time. Loaded from the DB on startup, moved along by commit
+ * and accrual events and re-read every {@code accounts.store.resync-ms} for changes made without
+ * one, such as scheduling and, with sharding, other instances' commits. Each commit bumps the
+ * entry's version as it bumps the row's, so an entry at the row's version holds the row's balance;
+ * {@link #balanceCents(Long, Long)} only answers for those, and callers that find one behind
+ * {@link #correct} it from the row. Off unless {@code accounts.store.enabled} is set.
+ */
+@Component
+@Slf4j
+public class AccountStore implements SmartInitializingSingleton {
+
+    public static final long ABSENT = OffHeapAccountTable.ABSENT;
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM users";
+
+    private static final String USERS_SQL = "SELECT id, CAST(balance * 100 AS BIGINT), version, updated_at FROM users";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Object reloading = new Object();
+    private final Counter correctedCounter;
+    private volatile OffHeapAccountTable table;
+
+    // Changes applied while a reload runs, replayed onto the new table; guarded by this
+    private List<Consumer<OffHeapAccountTable>> missed;
+
+    public AccountStore(
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${accounts.store.enabled:false}") boolean enabled,
+            @Value("${accounts.store.initial-capacity:1024}") int initialCapacity) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.enabled = enabled;
+        this.table = new OffHeapAccountTable(enabled ? initialCapacity : 1);
+        Gauge.builder("accounts.store.users", this, store -> store.table.size())
+            .description("Users held in the off-heap account store")
+            .register(meterRegistry);
+        Gauge.builder("accounts.store.bytes", this, store -> store.table.offHeapBytes())
+            .description("Direct memory used by the off-heap account store")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.correctedCounter = Counter.builder("accounts.store.corrections")
+            .description("Store entries found behind the users row and corrected from it")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            resync();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Balance in cents, or ABSENT when the store is off or has not seen the user
+    public long balanceCents(Long userId) {
+        return enabled && userId != null ? table.balance(userId) : ABSENT;
+    }
+
+    // Balance in cents if the user's entry is at the row's version, otherwise ABSENT
+    public long balanceCents(Long userId, Long version) {
+        return enabled && userId != null && version != null ? table.balanceAt(userId, version) : ABSENT;
+    }
+
+    public long version(Long userId) {
+        return enabled && userId != null ? table.version(userId) : ABSENT;
+    }
+
+    // Epoch millis of the user's last commit, or of the row's last update when loaded
+    public long lastActivity(Long userId) {
+        return enabled && userId != null ? table.lastActivity(userId) : ABSENT;
+    }
+
+    // Overwrites a stale entry with the row just read, unless a later commit has already moved it on
+    public void correct(Long userId, BigDecimal balance, Long version) {
+        if (!enabled || userId == null || balance == null || version == null) {
+            return;
+        }
+        long cents = toCents(balance);
+        if (tryApply(table -> putIfNewer(table, userId, cents, version, Math.max(0, table.lastActivity(userId))))) {
+            correctedCounter.increment();
+        }
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Loads every user into a new table and swaps it in. Commits landing during the load are
+     * replayed onto the new table afterwards; they carry the absolute balance, so one the load
+     * already saw is simply written again.
+     */
+    @Scheduled(fixedDelayString = "${accounts.store.resync-ms:60000}", initialDelayString = "${accounts.store.resync-ms:60000}")
+    public void resync() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (reloading) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                missed = new ArrayList<>();
+            }
+            Integer count = jdbcTemplate.queryForObject(COUNT_SQL, Integer.class);
+            OffHeapAccountTable loaded = new OffHeapAccountTable(count == null ? 0 : count);
+            jdbcTemplate.query(USERS_SQL, rs -> {
+                Timestamp updatedAt = rs.getTimestamp(4);
+                loaded.put(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                    updatedAt == null ? 0 : updatedAt.getTime());
+            });
+            synchronized (this) {
+                missed.forEach(change -> change.accept(loaded));
+                missed = null;
+                table = loaded;
+            }
+            log.info("Loaded {} users into the account store ({} MB off-heap) in {} ms",
+                loaded.size(), loaded.offHeapBytes() >> 20, System.currentTimeMillis() - start);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onTransactionCommitted(TransactionCommittedEvent event) {
+        if (!enabled || event.getNewBalance() == null) {
+            return;
+        }
+        long userId = event.getUserId();
+        long cents = toCents(event.getNewBalance());
+        long time = toMillis(event.getTimestamp());
+        apply(table -> table.update(userId, cents, time));
+    }
+
+    @TransactionalEventListener
+    public void onUserCreated(UserCreatedEvent event) {
+        if (!enabled || event.getBalance() == null) {
+            return;
+        }
+        long userId = event.getUserId();
+        long cents = toCents(event.getBalance());
+        long time = System.currentTimeMillis();
+        apply(table -> table.put(userId, cents, 0, time));
+    }
+
+    @TransactionalEventListener
+    public void onBalancesPosted(BalancesPostedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long time = toMillis(event.getTimestamp());
+        for (BalancesPostedEvent.PostedBalance posted : event.getBalances()) {
+            long userId = posted.userId();
+            long cents = toCents(posted.newBalance());
+            long version = posted.version();
+            tryApply(table -> putIfNewer(table, userId, cents, version, time));
+        }
+    }
+
+    @EventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        resync();
+    }
+
+    private void apply(Consumer<OffHeapAccountTable> change) {
+        tryApply(table -> {
+            change.accept(table);
+            return true;
+        });
+    }
+
+    // Whether the change took effect on the live table
+    private boolean tryApply(Predicate<OffHeapAccountTable> change) {
+        synchronized (this) {
+            if (missed != null) {
+                missed.add(change::test);
+            }
+        }
+        return change.test(table);
+    }
+
+    private static boolean putIfNewer(OffHeapAccountTable table, long userId, long cents, long version, long time) {
+        if (table.version(userId) > version) {
+            return false;
+        }
+        table.put(userId, cents, version, time);
+        return true;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp == null
+            ? System.currentTimeMillis()
+            : timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,230 @@
+package com.jpmorgan.transaction.accounts;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash table from user id to balance in cents, version and last activity, held in
+ * direct {@link ByteBuffer} slabs outside the Java heap. Each entry is four longs (32 bytes): the
+ * user id, with 0 marking a free slot, followed by the three values. Collisions probe linearly and
+ * the table doubles at 60% load. Users are never removed, so no tombstones are needed.
+ *
+ * <p>Lookups are optimistic reads that only fall back to the read lock when a write ran
+ * meanwhile, so they allocate nothing and never block each other. Slabs of 64K entries (2 MB)
+ * keep every buffer well under the 2 GB limit of a single ByteBuffer.
+ */
+final class OffHeapAccountTable {
+
+    static final long ABSENT = Long.MIN_VALUE;
+
+    private static final int ENTRY_BYTES = 32;
+    private static final int BALANCE = 8;
+    private static final int VERSION = 16;
+    private static final int ACTIVITY = 24;
+    private static final int MAX_SLAB_SHIFT = 16;
+    private static final double MAX_LOAD = 0.6;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Slabs slabs;
+    private volatile int size;
+
+    OffHeapAccountTable(int expectedUsers) {
+        this.slabs = Slabs.allocate(capacityFor(expectedUsers));
+    }
+
+    long balance(long userId) {
+        return read(userId, BALANCE);
+    }
+
+    long version(long userId) {
+        return read(userId, VERSION);
+    }
+
+    long lastActivity(long userId) {
+        return read(userId, ACTIVITY);
+    }
+
+    // The balance as of the given version, or ABSENT when the entry is missing or at another version
+    long balanceAt(long userId, long version) {
+        if (userId <= 0) {
+            return ABSENT;
+        }
+        long stamp = lock.tryOptimisticRead();
+        long value = balanceAt(slabs, userId, version);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return balanceAt(slabs, userId, version);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void put(long userId, long balance, long version, long lastActivity) {
+        requireId(userId);
+        long stamp = lock.writeLock();
+        try {
+            long slot = slotFor(userId);
+            Slabs table = slabs;
+            table.write(slot, VERSION, version);
+            table.write(slot, BALANCE, balance);
+            table.write(slot, ACTIVITY, lastActivity);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Sets the balance and bumps the version; a user not seen before starts at version 1
+    void update(long userId, long balance, long lastActivity) {
+        requireId(userId);
+        long stamp = lock.writeLock();
+        try {
+            long slot = slotFor(userId);
+            Slabs table = slabs;
+            table.write(slot, VERSION, table.read(slot, VERSION) + 1);
+            table.write(slot, BALANCE, balance);
+            table.write(slot, ACTIVITY, lastActivity);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long capacity() {
+        return slabs.mask + 1;
+    }
+
+    long offHeapBytes() {
+        return capacity() * ENTRY_BYTES;
+    }
+
+    private long read(long userId, int field) {
+        if (userId <= 0) {
+            return ABSENT;
+        }
+        long stamp = lock.tryOptimisticRead();
+        long value = find(slabs, userId, field);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(slabs, userId, field);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long balanceAt(Slabs table, long userId, long version) {
+        return find(table, userId, VERSION) == version ? find(table, userId, BALANCE) : ABSENT;
+    }
+
+    // The field of the user's entry, or ABSENT; a probe always ends because the table is never full
+    private static long find(Slabs table, long userId, int field) {
+        long slot = hash(userId) & table.mask;
+        while (true) {
+            long key = table.read(slot, 0);
+            if (key == userId) {
+                return table.read(slot, field);
+            }
+            if (key == 0) {
+                return ABSENT;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+    }
+
+    // Called with the write lock held; claims a zeroed slot for a new user
+    private long slotFor(long userId) {
+        Slabs table = slabs;
+        long slot = hash(userId) & table.mask;
+        while (true) {
+            long key = table.read(slot, 0);
+            if (key == userId) {
+                return slot;
+            }
+            if (key == 0) {
+                break;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+        if (size + 1 > (table.mask + 1) * MAX_LOAD) {
+            grow();
+            return slotFor(userId);
+        }
+        table.write(slot, 0, userId);
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        Slabs old = slabs;
+        Slabs grown = Slabs.allocate((old.mask + 1) * 2);
+        for (long slot = 0; slot <= old.mask; slot++) {
+            long key = old.read(slot, 0);
+            if (key == 0) {
+                continue;
+            }
+            long target = hash(key) & grown.mask;
+            while (grown.read(target, 0) != 0) {
+                target = (target + 1) & grown.mask;
+            }
+            for (int field = 0; field < ENTRY_BYTES; field += Long.BYTES) {
+                grown.write(target, field, old.read(slot, field));
+            }
+        }
+        // Readers still probing the old slabs fail validation and retry; the buffers are freed once unreachable
+        slabs = grown;
+    }
+
+    private static void requireId(long userId) {
+        if (userId <= 0) {
+            throw new IllegalArgumentException("User id must be positive: " + userId);
+        }
+    }
+
+    // Murmur3's 64-bit finaliser, so sequential ids spread over the whole table
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static long capacityFor(int expectedUsers) {
+        long needed = (long) Math.ceil(Math.max(expectedUsers, 1) / MAX_LOAD);
+        return Math.max(16, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private record Slabs(ByteBuffer[] buffers, long mask, int shift) {
+
+        static Slabs allocate(long capacity) {
+            int shift = Math.min(MAX_SLAB_SHIFT, Long.numberOfTrailingZeros(capacity));
+            ByteBuffer[] buffers = new ByteBuffer[(int) (capacity >>> shift)];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = ByteBuffer.allocateDirect((1 << shift) * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+            }
+            return new Slabs(buffers, capacity - 1, shift);
+        }
+
+        long read(long slot, int field) {
+            return buffers[(int) (slot >>> shift)].getLong(offset(slot) + field);
+        }
+
+        void write(long slot, int field, long value) {
+            buffers[(int) (slot >>> shift)].putLong(offset(slot) + field, value);
+        }
+
+        private int offset(long slot) {
+            return (int) (slot & ((1L << shift) - 1)) * ENTRY_BYTES;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.jpmorgan.transaction.accrual;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/accrual shows the last run; POST starts one (kind INTEREST or FEE, default yesterday's interest)
+@Component
+@Endpoint(id = "accrual")
+@RequiredArgsConstructor
+public class AccrualEndpoint {
+
+    private final AccrualJob job;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", job.isRunning());
+        status.put("lastResult", job.getLastResult());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable String kind, @Nullable String date) {
+        AccrualKind accrualKind = kind == null ? AccrualKind.INTEREST : AccrualKind.valueOf(kind.toUpperCase());
+        LocalDate day = date == null ? LocalDate.now().minusDays(1) : LocalDate.parse(date);
+        Map<String, Object> status = status();
+        status.put("started", job.start(accrualKind, day));
+        status.put("kind", accrualKind.name());
+        status.put("date", day.toString());
+        return status;
+    }
+}
@@ -0,0 +1,381 @@
+package com.jpmorgan.transaction.accrual;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.archive.TransactionArchive;
+import com.jpmorgan.transaction.dto.AccrualResult;
+import com.jpmorgan.transaction.dto.BalanceChangedEvent;
+import com.jpmorgan.transaction.dto.TransactionProcessedEvent;
+import com.jpmorgan.transaction.event.BalancesPostedEvent;
+import com.jpmorgan.transaction.model.OutboxEvent;
+import com.jpmorgan.transaction.model.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Posts daily interest and monthly fees to every user. Users are split into id-range partitions
+ * worked in parallel, and each chunk of users is read, priced and applied in one short DB
+ * transaction using batched statements. A balance update only applies if the user's version is
+ * unchanged since the read, so a transaction committed by the Kafka consumer in between is never
+ * overwritten; such users are retried in a later pass. Each posting's transactionId is derived
+ * from the kind, period and user, and users that already have theirs, in the table or the archive,
+ * are skipped, so reruns only fill in what is missing.
+ */
+@Component
+@Slf4j
+public class AccrualJob {
+
+    private static final String CANDIDATES_SQL =
+        "SELECT u.id, u.balance, u.version, u.tier FROM users u "
+            + "WHERE u.id >= ? AND u.id < ? AND u.created_at < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM transactions t WHERE t.transaction_id = CONCAT(?, u.id)) "
+            + "ORDER BY u.id LIMIT ?";
+
+    private static final String UPDATE_BALANCE_SQL =
+        "UPDATE users SET balance = balance + ?, version = version + 1, updated_at = ? WHERE id = ? AND version = ?";
+
+    private static final String INSERT_TRANSACTION_SQL =
+        "INSERT INTO transactions (transaction_id, user_id, type, amount, description, incentive_applied, "
+            + "incentive_amount, status, timestamp, updated_at) VALUES (?, ?, ?, ?, ?, FALSE, 0, 'COMPLETED', ?, ?)";
+
+    private static final String INSERT_OUTBOX_SQL =
+        "INSERT INTO outbox_events (aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private final AccrualProperties properties;
+    private final TransactionArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<AccrualKind, Counter> postingCounters = new EnumMap<>(AccrualKind.class);
+    private final Timer runTimer;
+    private volatile AccrualResult lastResult;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "accrual");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AccrualJob(
+            AccrualProperties properties,
+            TransactionArchive archive,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.archive = archive;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        for (AccrualKind kind : AccrualKind.values()) {
+            postingCounters.put(kind, Counter.builder("accrual.postings")
+                .description("Interest and fee transactions posted")
+                .tag("kind", kind.name())
+                .register(meterRegistry));
+        }
+        this.runTimer = Timer.builder("accrual.run.duration")
+            .description("Time taken by an accrual run")
+            .register(meterRegistry);
+    }
+
+    // Yesterday's interest, early each morning
+    @Scheduled(cron = "${accrual.interest-cron:0 30 1 * * *}")
+    public void accrueDailyInterest() {
+        if (properties.isScheduleEnabled()) {
+            start(AccrualKind.INTEREST, LocalDate.now().minusDays(1));
+        }
+    }
+
+    // Fees for the month just ended, on the first of each month
+    @Scheduled(cron = "${accrual.fee-cron:0 0 3 1 * *}")
+    public void chargeMonthlyFees() {
+        if (properties.isScheduleEnabled()) {
+            start(AccrualKind.FEE, LocalDate.now().minusMonths(1));
+        }
+    }
+
+    // Starts a run in the background; returns false if one is already in progress
+    public boolean start(AccrualKind kind, LocalDate date) {
+        if (running.get()) {
+            return false;
+        }
+        runner.submit(() -> {
+            try {
+                run(kind, date);
+            } catch (Exception e) {
+                log.error("{} accrual for {} failed: {}", kind, date, e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    public AccrualResult run(AccrualKind kind, LocalDate date) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An accrual run is already in progress");
+        }
+        ExecutorService workers = null;
+        try {
+            long started = System.nanoTime();
+            List<long[]> ranges = planPartitions();
+            AtomicInteger workerIndex = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(Math.max(1, ranges.size()),
+                r -> new Thread(r, "accrual-worker-" + workerIndex.incrementAndGet()));
+            List<Future<Tally>> futures = new ArrayList<>();
+            for (long[] range : ranges) {
+                futures.add(workers.submit(() -> accruePartition(kind, date, range[0], range[1])));
+            }
+            Tally total = new Tally();
+            for (Future<Tally> future : futures) {
+                total.add(future.get());
+            }
+
+            long elapsedNanos = System.nanoTime() - started;
+            runTimer.record(Duration.ofNanos(elapsedNanos));
+            lastResult = AccrualResult.builder()
+                .kind(kind.name())
+                .date(date)
+                .partitions(ranges.size())
+                .usersScanned(total.scanned)
+                .postings(total.postings)
+                .totalAmount(BigDecimal.valueOf(total.cents, 2))
+                .conflicts(total.conflicts)
+                .unresolved(total.unresolved)
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .build();
+            log.info("{} accrual for {} posted {} transactions totalling {} in {} ms ({} conflicts, {} unresolved)",
+                kind, date, total.postings, lastResult.getTotalAmount(), lastResult.getElapsedMs(),
+                total.conflicts, total.unresolved);
+            return lastResult;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Accrual partition failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Accrual run interrupted", e);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+            running.set(false);
+        }
+    }
+
+    private List<long[]> planPartitions() {
+        Long min = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+        List<long[]> ranges = new ArrayList<>();
+        if (min == null || max == null) {
+            return ranges;
+        }
+        long span = max - min + 1;
+        int count = (int) Math.max(1, Math.min(properties.getPartitions(), span));
+        long width = (span + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            long from = min + i * width;
+            ranges.add(new long[]{from, Math.min(max + 1, from + width)});
+        }
+        return ranges;
+    }
+
+    // Sweeps the range chunk by chunk, then sweeps again while users were skipped for conflicts
+    private Tally accruePartition(AccrualKind kind, LocalDate date, long fromUserId, long toUserId) {
+        Tally partition = new Tally();
+        for (int pass = 0; pass <= properties.getMaxRetries(); pass++) {
+            long conflicts = 0;
+            long next = fromUserId;
+            while (next < toUserId) {
+                long cursor = next;
+                Tally chunk = transactionTemplate.execute(status -> accrueChunk(kind, date, cursor, toUserId));
+                partition.add(chunk);
+                conflicts += chunk.conflicts;
+                if (chunk.lastUserId < 0) {
+                    break;
+                }
+                next = chunk.lastUserId + 1;
+            }
+            partition.unresolved = conflicts;
+            if (conflicts == 0) {
+                break;
+            }
+        }
+        return partition;
+    }
+
+    private Tally accrueChunk(AccrualKind kind, LocalDate date, long fromUserId, long toUserId) {
+        String prefix = kind.transactionIdPrefix(date);
+        Timestamp createdBefore = Timestamp.valueOf(date.plusDays(1).atStartOfDay());
+        // Postings are stamped when they run, so one for this date can only be archived if the archive reaches past it
+        LocalDateTime horizon = archive.horizon();
+        boolean checkArchive = horizon != null && !horizon.isBefore(date.atStartOfDay());
+        List<Posting> postings = new ArrayList<>();
+        Tally chunk = new Tally();
+        jdbcTemplate.query(CANDIDATES_SQL, rs -> {
+            long userId = rs.getLong(1);
+            BigDecimal balance = rs.getBigDecimal(2);
+            chunk.scanned++;
+            chunk.lastUserId = userId;
+            if (checkArchive && archive.contains(prefix + userId)) {
+                return;
+            }
+            BigDecimal change = price(kind, date, balance, properties.ratesFor(rs.getString(4)));
+            if (change.signum() != 0) {
+                postings.add(new Posting(userId, rs.getLong(3), change, balance.add(change)));
+            }
+        }, fromUserId, toUserId, createdBefore, prefix, properties.getChunkSize());
+        if (postings.isEmpty()) {
+            return chunk;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, postings, postings.size(), (ps, posting) -> {
+            ps.setBigDecimal(1, posting.change());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, posting.userId());
+            ps.setLong(4, posting.version());
+        })[0];
+
+        List<Posting> applied = new ArrayList<>(postings.size());
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                chunk.conflicts++;
+            } else {
+                applied.add(postings.get(i));
+            }
+        }
+        if (applied.isEmpty()) {
+            return chunk;
+        }
+
+        String description = kind == AccrualKind.INTEREST ? "Interest accrual " + date : "Monthly fee " + YearMonth.from(date);
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, applied, applied.size(), (ps, posting) -> {
+            ps.setString(1, prefix + posting.userId());
+            ps.setLong(2, posting.userId());
+            ps.setString(3, kind.getType().name());
+            ps.setBigDecimal(4, posting.change().abs());
+            ps.setString(5, description);
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+        List<Object[]> events = new ArrayList<>(applied.size() * 2);
+        List<BalancesPostedEvent.PostedBalance> balances = new ArrayList<>(applied.size());
+        for (Posting posting : applied) {
+            events.addAll(outboxRows(kind, prefix + posting.userId(), posting, now));
+            balances.add(new BalancesPostedEvent.PostedBalance(posting.userId(), posting.newBalance(), posting.version() + 1));
+            chunk.postings++;
+            chunk.cents += posting.change().movePointRight(2).longValueExact();
+        }
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, events);
+        eventPublisher.publishEvent(new BalancesPostedEvent(balances, now.toLocalDateTime()));
+        postingCounters.get(kind).increment(applied.size());
+        return chunk;
+    }
+
+    // Signed balance change for one user: interest is a day's share of the annual rate, fees never overdraw
+    private static BigDecimal price(AccrualKind kind, LocalDate date, BigDecimal balance, AccrualProperties.Rates rates) {
+        if (balance.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        if (kind == AccrualKind.INTEREST) {
+            return balance.multiply(rates.getAnnualInterestRate())
+                .divide(BigDecimal.valueOf(date.lengthOfYear()), 2, RoundingMode.HALF_EVEN);
+        }
+        return rates.getMonthlyFee().min(balance).setScale(2, RoundingMode.HALF_EVEN).negate();
+    }
+
+    // Same events the Kafka path writes, so downstream consumers and shard caches see accruals too
+    private List<Object[]> outboxRows(AccrualKind kind, String transactionId, Posting posting, Timestamp now) {
+        LocalDateTime timestamp = now.toLocalDateTime();
+        TransactionProcessedEvent processed = TransactionProcessedEvent.builder()
+            .eventType(OutboxEvent.EventType.TRANSACTION_PROCESSED.name())
+            .transactionId(transactionId)
+            .userId(posting.userId())
+            .type(kind.getType().name())
+            .amount(posting.change().abs())
+            .incentiveAmount(BigDecimal.ZERO)
+            .status(Transaction.TransactionStatus.COMPLETED.name())
+            .timestamp(timestamp)
+            .build();
+        BalanceChangedEvent balanceChanged = BalanceChangedEvent.builder()
+            .eventType(OutboxEvent.EventType.BALANCE_CHANGED.name())
+            .userId(posting.userId())
+            .transactionId(transactionId)
+            .balanceChange(posting.change())
+            .newBalance(posting.newBalance())
+            .timestamp(timestamp)
+            .build();
+        try {
+            return List.of(
+                new Object[]{posting.userId(), OutboxEvent.EventType.TRANSACTION_PROCESSED.name(),
+                    objectMapper.writeValueAsString(processed), now},
+                new Object[]{posting.userId(), OutboxEvent.EventType.BALANCE_CHANGED.name(),
+                    objectMapper.writeValueAsString(balanceChanged), now});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize accrual events for user " + posting.userId(), e);
+        }
+    }
+
+    public AccrualResult getLastResult() {
+        return lastResult;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private record Posting(long userId, long version, BigDecimal change, BigDecimal newBalance) {
+    }
+
+    private static final class Tally {
+        long lastUserId = -1;
+        long scanned;
+        long postings;
+        long cents;
+        long conflicts;
+        long unresolved;
+
+        void add(Tally other) {
+            scanned += other.scanned;
+            postings += other.postings;
+            cents += other.cents;
+            conflicts += other.conflicts;
+            unresolved += other.unresolved;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.jpmorgan.transaction.accrual;
+
+import com.jpmorgan.transaction.model.Transaction;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+// Interest accrues once per day and fees once per month; the period is part of each posting's transactionId
+public enum AccrualKind {
+    INTEREST(Transaction.TransactionType.INTEREST, "INT-", DateTimeFormatter.BASIC_ISO_DATE),
+    FEE(Transaction.TransactionType.FEE, "FEE-", DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final Transaction.TransactionType type;
+    private final String prefix;
+    private final DateTimeFormatter period;
+
+    AccrualKind(Transaction.TransactionType type, String prefix, DateTimeFormatter period) {
+        this.type = type;
+        this.prefix = prefix;
+        this.period = period;
+    }
+
+    public Transaction.TransactionType getType() {
+        return type;
+    }
+
+    // e.g. INT-20240131- or FEE-202401-, followed by the user id
+    public String transactionIdPrefix(LocalDate date) {
+        return prefix + period.format(date) + "-";
+    }
+}
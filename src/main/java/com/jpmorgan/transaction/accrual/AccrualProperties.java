@@ -0,0 +1,41 @@
+package com.jpmorgan.transaction.accrual;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Interest and fee rates per user tier, bound from accrual.*
+@Component
+@ConfigurationProperties(prefix = "accrual")
+@Data
+public class AccrualProperties {
+
+    private boolean scheduleEnabled = false;
+
+    private int partitions = 4;
+
+    // Users per DB transaction; keeps row locks short so live processing is not held up
+    private int chunkSize = 500;
+
+    // Extra passes over a partition for users whose balance changed while their chunk was applied
+    private int maxRetries = 3;
+
+    private String defaultTier = "STANDARD";
+
+    private Map<String, Rates> tiers = new LinkedHashMap<>();
+
+    @Data
+    public static class Rates {
+        private BigDecimal annualInterestRate = BigDecimal.ZERO; // 0.02 = 2% a year, accrued daily
+        private BigDecimal monthlyFee = BigDecimal.ZERO;
+    }
+
+    public Rates ratesFor(String tier) {
+        Rates rates = tiers.get(tier);
+        return rates != null ? rates : tiers.getOrDefault(defaultTier, new Rates());
+    }
+}
@@ -0,0 +1,38 @@
+package com.jpmorgan.transaction.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/archive shows the catalog and the last run; POST starts a run
+@Component
+@Endpoint(id = "archive")
+@RequiredArgsConstructor
+public class ArchiveEndpoint {
+
+    private final TransactionArchiveJob job;
+    private final TransactionArchive archive;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", job.isRunning());
+        status.put("segments", archive.segmentCount());
+        status.put("archivedRecords", archive.archivedRecords());
+        status.put("horizon", archive.horizon());
+        status.put("lastResult", job.getLastResult());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> start() {
+        Map<String, Object> status = status();
+        status.put("started", job.start());
+        return status;
+    }
+}
@@ -0,0 +1,25 @@
+package com.jpmorgan.transaction.archive;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// Retention and segment sizing, bound from archive.*
+@Component
+@ConfigurationProperties(prefix = "archive")
+@Data
+public class ArchiveProperties {
+
+    private boolean scheduleEnabled = false;
+
+    // Transactions older than this many days (at midnight) move to segment files; must cover the longest velocity window
+    private int retentionDays = 90;
+
+    private String dir = System.getProperty("java.io.tmpdir") + "/transaction-archive";
+
+    // Most transactions written to one segment, and deleted from the table in one DB transaction
+    private int segmentSize = 50_000;
+
+    // How long a reader may use its cached catalog before checking for new segments; history reads always check
+    private long catalogRefreshMs = 1_000;
+}
@@ -0,0 +1,263 @@
+package com.jpmorgan.transaction.archive;
+
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of one segment file, memory-mapped so lookups touch only the pages they need.
+ * Layout: an 8-byte header (magic, version); one Deflate block per user holding that user's rows
+ * in (timestamp, id) order; the user index, fixed-width entries of (userId, offset, compressed
+ * length, raw length, records) sorted by user; the transactionId index, (hash, userId) pairs
+ * sorted by hash; and a fixed-size footer with the timestamp and user id ranges, the counts and
+ * both index offsets. Both indexes are binary searched in place.
+ */
+final class Segment {
+
+    static final int MAGIC = 0x54584152; // "TXAR"
+    static final int VERSION = 1;
+    static final int USER_ENTRY_BYTES = 28;
+    static final int ID_ENTRY_BYTES = 16;
+    static final int FOOTER_BYTES = 68;
+
+    private static final int INCENTIVE_APPLIED = 1;
+    private static final int HAS_DESCRIPTION = 1 << 1;
+    private static final int HAS_LINKED = 1 << 2;
+    private static final int HAS_TARGET = 1 << 3;
+    private static final int HAS_EXECUTE_AT = 1 << 4;
+    private static final int HAS_INCENTIVE_AMOUNT = 1 << 5;
+    private static final int HAS_FAILURE_REASON = 1 << 6;
+
+    private final String fileName;
+    private final MappedByteBuffer buffer;
+    private final long minUserId;
+    private final long maxUserId;
+    private final long records;
+    private final int users;
+    private final int ids;
+    private final int userIndexOffset;
+    private final int idIndexOffset;
+
+    private Segment(String fileName, MappedByteBuffer buffer) {
+        this.fileName = fileName;
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_BYTES;
+        if (buffer.capacity() < 8 + FOOTER_BYTES || buffer.getInt(0) != MAGIC
+                || buffer.getInt(footer + FOOTER_BYTES - 4) != MAGIC) {
+            throw new IllegalStateException("Not a transaction archive segment: " + fileName);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Unsupported segment version " + buffer.getInt(4) + ": " + fileName);
+        }
+        this.minUserId = buffer.getLong(footer + 16);
+        this.maxUserId = buffer.getLong(footer + 24);
+        this.records = buffer.getLong(footer + 32);
+        this.users = buffer.getInt(footer + 40);
+        this.ids = buffer.getInt(footer + 44);
+        this.userIndexOffset = Math.toIntExact(buffer.getLong(footer + 48));
+        this.idIndexOffset = Math.toIntExact(buffer.getLong(footer + 56));
+    }
+
+    // The mapping stays valid after the channel is closed
+    static Segment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Segment(file.getFileName().toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    String fileName() {
+        return fileName;
+    }
+
+    long records() {
+        return records;
+    }
+
+    // The user's archived rows in (timestamp, id) order; empty if the segment has none
+    List<Transaction> forUser(long userId) {
+        if (userId < minUserId || userId > maxUserId) {
+            return List.of();
+        }
+        int entry = findUser(userId);
+        return entry < 0 ? List.of() : readBlock(entry);
+    }
+
+    boolean contains(String transactionId) {
+        long hash = hash(transactionId);
+        int low = 0;
+        int high = ids - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(idIndexOffset + mid * ID_ENTRY_BYTES) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // Hashes can collide, so every candidate is confirmed against its user's block
+        for (int i = low; i < ids && buffer.getLong(idIndexOffset + i * ID_ENTRY_BYTES) == hash; i++) {
+            long userId = buffer.getLong(idIndexOffset + i * ID_ENTRY_BYTES + 8);
+            for (Transaction transaction : forUser(userId)) {
+                if (transaction.getTransactionId().equals(transactionId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Every row, user by user; blocks are inflated one at a time as the stream is consumed
+    Stream<Transaction> stream() {
+        return IntStream.range(0, users).mapToObj(this::readBlock).flatMap(List::stream);
+    }
+
+    private int findUser(long userId) {
+        int low = 0;
+        int high = users - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long candidate = buffer.getLong(userIndexOffset + mid * USER_ENTRY_BYTES);
+            if (candidate < userId) {
+                low = mid + 1;
+            } else if (candidate > userId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private List<Transaction> readBlock(int entry) {
+        int position = userIndexOffset + entry * USER_ENTRY_BYTES;
+        long userId = buffer.getLong(position);
+        int offset = Math.toIntExact(buffer.getLong(position + 8));
+        int length = buffer.getInt(position + 16);
+        byte[] raw = new byte[buffer.getInt(position + 20)];
+        int count = buffer.getInt(position + 24);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset, length));
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block for user " + userId + " in " + fileName, e);
+        } finally {
+            inflater.end();
+        }
+
+        User user = User.builder().id(userId).build();
+        List<Transaction> rows = new ArrayList<>(count);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            for (int i = 0; i < count; i++) {
+                rows.add(readRecord(in, user));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt block for user " + userId + " in " + fileName, e);
+        }
+        return rows;
+    }
+
+    static void writeRecord(DataOutputStream out, Transaction transaction) throws IOException {
+        int flags = (Boolean.TRUE.equals(transaction.getIncentiveApplied()) ? INCENTIVE_APPLIED : 0)
+            | (transaction.getDescription() != null ? HAS_DESCRIPTION : 0)
+            | (transaction.getLinkedTransactionId() != null ? HAS_LINKED : 0)
+            | (transaction.getTargetUserId() != null ? HAS_TARGET : 0)
+            | (transaction.getExecuteAt() != null ? HAS_EXECUTE_AT : 0)
+            | (transaction.getIncentiveAmount() != null ? HAS_INCENTIVE_AMOUNT : 0)
+            | (transaction.getFailureReason() != null ? HAS_FAILURE_REASON : 0);
+        out.writeLong(transaction.getId());
+        out.writeUTF(transaction.getTransactionId());
+        out.writeUTF(transaction.getType().name());
+        out.writeUTF(transaction.getStatus().name());
+        out.writeByte(flags);
+        out.writeLong(cents(transaction.getAmount()));
+        out.writeLong(micros(transaction.getTimestamp()));
+        out.writeLong(micros(transaction.getUpdatedAt()));
+        if ((flags & HAS_INCENTIVE_AMOUNT) != 0) {
+            out.writeLong(cents(transaction.getIncentiveAmount()));
+        }
+        if ((flags & HAS_DESCRIPTION) != 0) {
+            out.writeUTF(transaction.getDescription());
+        }
+        if ((flags & HAS_LINKED) != 0) {
+            out.writeUTF(transaction.getLinkedTransactionId());
+        }
+        if ((flags & HAS_TARGET) != 0) {
+            out.writeLong(transaction.getTargetUserId());
+        }
+        if ((flags & HAS_EXECUTE_AT) != 0) {
+            out.writeLong(micros(transaction.getExecuteAt()));
+        }
+        if ((flags & HAS_FAILURE_REASON) != 0) {
+            out.writeUTF(transaction.getFailureReason().name());
+        }
+    }
+
+    private static Transaction readRecord(DataInputStream in, User user) throws IOException {
+        Transaction transaction = new Transaction();
+        transaction.setUser(user);
+        transaction.setId(in.readLong());
+        transaction.setTransactionId(in.readUTF());
+        transaction.setType(Transaction.TransactionType.valueOf(in.readUTF()));
+        transaction.setStatus(Transaction.TransactionStatus.valueOf(in.readUTF()));
+        int flags = in.readUnsignedByte();
+        transaction.setIncentiveApplied((flags & INCENTIVE_APPLIED) != 0);
+        transaction.setAmount(BigDecimal.valueOf(in.readLong(), 2));
+        transaction.setTimestamp(dateTime(in.readLong()));
+        transaction.setUpdatedAt(dateTime(in.readLong()));
+        transaction.setIncentiveAmount((flags & HAS_INCENTIVE_AMOUNT) != 0 ? BigDecimal.valueOf(in.readLong(), 2) : null);
+        transaction.setDescription((flags & HAS_DESCRIPTION) != 0 ? in.readUTF() : null);
+        transaction.setLinkedTransactionId((flags & HAS_LINKED) != 0 ? in.readUTF() : null);
+        transaction.setTargetUserId((flags & HAS_TARGET) != 0 ? in.readLong() : null);
+        transaction.setExecuteAt((flags & HAS_EXECUTE_AT) != 0 ? dateTime(in.readLong()) : null);
+        transaction.setFailureReason((flags & HAS_FAILURE_REASON) != 0
+            ? Transaction.FailureReason.valueOf(in.readUTF()) : null);
+        return transaction;
+    }
+
+    // FNV-1a over the UTF-16 chars
+    static long hash(String transactionId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < transactionId.length(); i++) {
+            hash ^= transactionId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime dateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+            (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    // Amounts are stored at scale 2, matching the columns
+    private static long cents(BigDecimal amount) {
+        return amount.setScale(2).unscaledValue().longValueExact();
+    }
+}
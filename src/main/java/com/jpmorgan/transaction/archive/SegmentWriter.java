@@ -0,0 +1,160 @@
+package com.jpmorgan.transaction.archive;
+
+import com.jpmorgan.transaction.model.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes one segment file. Rows must arrive ordered by (userId, timestamp, id); each user's rows
+ * become one Deflate-compressed block, followed by the user index, the transactionId hash index
+ * and the fixed-size footer described in {@link Segment}. The file is forced to disk by
+ * {@link #finish()}; it is the caller's job to write to a temporary name and rename it.
+ */
+final class SegmentWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(64 * 1024);
+    private final DataOutputStream block = new DataOutputStream(blockBytes);
+    private final byte[] deflateBuffer = new byte[64 * 1024];
+    private final List<long[]> userIndex = new ArrayList<>();
+    private final List<long[]> idIndex = new ArrayList<>();
+
+    private long offset;
+    private long blockUserId = -1;
+    private int blockRecords;
+    private long records;
+    private LocalDateTime minTimestamp;
+    private LocalDateTime maxTimestamp;
+
+    SegmentWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        out.writeInt(Segment.MAGIC);
+        out.writeInt(Segment.VERSION);
+        offset = 8;
+    }
+
+    void add(Transaction transaction) throws IOException {
+        long userId = transaction.getUser().getId();
+        if (userId != blockUserId) {
+            if (userId < blockUserId) {
+                throw new IllegalArgumentException("Rows must be ordered by user id: " + userId + " after " + blockUserId);
+            }
+            flushBlock();
+            blockUserId = userId;
+        }
+        Segment.writeRecord(block, transaction);
+        idIndex.add(new long[]{Segment.hash(transaction.getTransactionId()), userId});
+        blockRecords++;
+        records++;
+        LocalDateTime timestamp = transaction.getTimestamp();
+        if (minTimestamp == null || timestamp.isBefore(minTimestamp)) {
+            minTimestamp = timestamp;
+        }
+        if (maxTimestamp == null || timestamp.isAfter(maxTimestamp)) {
+            maxTimestamp = timestamp;
+        }
+    }
+
+    // Writes the indexes and footer and forces the file to disk; returns the file size
+    long finish() throws IOException {
+        if (records == 0) {
+            throw new IllegalStateException("A segment needs at least one record");
+        }
+        flushBlock();
+        long userIndexOffset = offset;
+        for (long[] entry : userIndex) {
+            out.writeLong(entry[0]);
+            out.writeLong(entry[1]);
+            out.writeInt((int) entry[2]);
+            out.writeInt((int) entry[3]);
+            out.writeInt((int) entry[4]);
+        }
+        offset += (long) userIndex.size() * Segment.USER_ENTRY_BYTES;
+
+        long idIndexOffset = offset;
+        idIndex.sort(Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]));
+        for (long[] entry : idIndex) {
+            out.writeLong(entry[0]);
+            out.writeLong(entry[1]);
+        }
+        offset += (long) idIndex.size() * Segment.ID_ENTRY_BYTES;
+
+        out.writeLong(Segment.micros(minTimestamp));
+        out.writeLong(Segment.micros(maxTimestamp));
+        out.writeLong(userIndex.get(0)[0]);
+        out.writeLong(userIndex.get(userIndex.size() - 1)[0]);
+        out.writeLong(records);
+        out.writeInt(userIndex.size());
+        out.writeInt(idIndex.size());
+        out.writeLong(userIndexOffset);
+        out.writeLong(idIndexOffset);
+        out.writeInt(Segment.MAGIC);
+        offset += Segment.FOOTER_BYTES;
+        out.flush();
+        channel.force(true);
+        return offset;
+    }
+
+    long records() {
+        return records;
+    }
+
+    LocalDateTime minTimestamp() {
+        return minTimestamp;
+    }
+
+    LocalDateTime maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    long minUserId() {
+        return userIndex.isEmpty() ? blockUserId : userIndex.get(0)[0];
+    }
+
+    long maxUserId() {
+        return blockUserId;
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRecords == 0) {
+            return;
+        }
+        block.flush();
+        byte[] raw = blockBytes.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(deflateBuffer);
+            out.write(deflateBuffer, 0, n);
+            compressed += n;
+        }
+        userIndex.add(new long[]{blockUserId, offset, compressed, raw.length, blockRecords});
+        offset += compressed;
+        blockBytes.reset();
+        blockRecords = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+}
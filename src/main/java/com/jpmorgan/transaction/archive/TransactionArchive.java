@@ -0,0 +1,205 @@
+package com.jpmorgan.transaction.archive;
+
+import com.jpmorgan.transaction.model.ArchiveSegment;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.repository.ArchiveSegmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the transaction archive: the segments listed in the {@code archive_segments}
+ * catalog, each memory-mapped once and kept open. Segment files are immutable and only become
+ * visible through the catalog row written in the same DB transaction that deletes their rows from
+ * the table, so a file left behind by a failed run is never read. The catalog is re-checked at
+ * most every {@code archive.catalog-refresh-ms} on the dedupe path and on every history read.
+ * The catalog is shared by every instance, so {@code archive.dir} must be too; startup fails
+ * when a cataloged segment is missing from it.
+ */
+@Component
+@Slf4j
+public class TransactionArchive implements SmartInitializingSingleton {
+
+    private final ArchiveSegmentRepository catalog;
+    private final Path dir;
+    private final long refreshMs;
+    private volatile Snapshot snapshot = new Snapshot(null, List.of(), null, 0);
+
+    private record Snapshot(Long maxId, List<Segment> segments, LocalDateTime horizon, long checkedAt) {
+    }
+
+    public TransactionArchive(ArchiveSegmentRepository catalog, ArchiveProperties properties) {
+        this.catalog = catalog;
+        this.dir = Paths.get(properties.getDir());
+        this.refreshMs = properties.getCatalogRefreshMs();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            current(true);
+        } catch (UncheckedIOException e) {
+            throw new IllegalStateException("The archive catalog lists segments missing from " + dir
+                + "; archive.dir must be storage shared by every instance", e);
+        }
+    }
+
+    // Archived rows for the user, oldest first
+    public List<Transaction> findByUserId(Long userId) {
+        List<Transaction> rows = new ArrayList<>();
+        for (Segment segment : current(true).segments()) {
+            rows.addAll(segment.forUser(userId));
+        }
+        return rows;
+    }
+
+    // Every archived row, segment by segment; blocks are inflated lazily
+    public Stream<Transaction> streamAll() {
+        return current(true).segments().stream().flatMap(Segment::stream);
+    }
+
+    // Archived rows followed by the table's cursor, with no row missed or seen twice: if a segment
+    // commits while the table query is opening, the query is run again
+    public Stream<Transaction> streamAllWith(Supplier<Stream<Transaction>> table) {
+        while (true) {
+            Snapshot before = current(true);
+            Stream<Transaction> rows = table.get();
+            if (Objects.equals(current(true).maxId(), before.maxId())) {
+                return Stream.concat(before.segments().stream().flatMap(Segment::stream), rows);
+            }
+            rows.close();
+        }
+    }
+
+    // Runs the read with the user's archived rows timestamped after the given time, none being read when
+    // the archive ends before it; run again if a segment commits meanwhile, as its rows left the table
+    public <T> T withUserArchive(Long userId, LocalDateTime after, Function<List<Transaction>, T> read) {
+        while (true) {
+            Snapshot before = current(true);
+            List<Transaction> rows = new ArrayList<>();
+            if (before.horizon() != null && before.horizon().isAfter(after)) {
+                for (Segment segment : before.segments()) {
+                    for (Transaction transaction : segment.forUser(userId)) {
+                        if (transaction.getTimestamp().isAfter(after)) {
+                            rows.add(transaction);
+                        }
+                    }
+                }
+            }
+            T result = read.apply(rows);
+            if (Objects.equals(current(true).maxId(), before.maxId())) {
+                return result;
+            }
+        }
+    }
+
+    public boolean contains(String transactionId) {
+        return contains(transactionId, false);
+    }
+
+    // Fresh forces a catalog check, for callers that cannot tolerate a segment added moments ago going unseen
+    public boolean contains(String transactionId, boolean fresh) {
+        for (Segment segment : current(fresh).segments()) {
+            if (segment.contains(transactionId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The subset of the ids that are archived, checking the catalog once for the whole batch
+    public Set<String> containing(Collection<String> transactionIds) {
+        List<Segment> segments = current(true).segments();
+        Set<String> archived = new HashSet<>();
+        if (segments.isEmpty()) {
+            return archived;
+        }
+        for (String transactionId : transactionIds) {
+            for (Segment segment : segments) {
+                if (segment.contains(transactionId)) {
+                    archived.add(transactionId);
+                    break;
+                }
+            }
+        }
+        return archived;
+    }
+
+    // Latest archived timestamp; history before it is only complete when merged with the archive
+    public LocalDateTime horizon() {
+        return current(true).horizon();
+    }
+
+    public int segmentCount() {
+        return current(false).segments().size();
+    }
+
+    public long archivedRecords() {
+        return current(false).segments().stream().mapToLong(Segment::records).sum();
+    }
+
+    // Called by the archive job after its catalog row commits
+    void refresh() {
+        current(true);
+    }
+
+    private Snapshot current(boolean fresh) {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (!fresh && now - current.checkedAt() < refreshMs) {
+            return current;
+        }
+        Long maxId = catalog.findMaxId();
+        if (Objects.equals(maxId, current.maxId())) {
+            current = new Snapshot(current.maxId(), current.segments(), current.horizon(), now);
+            snapshot = current;
+            return current;
+        }
+        return reload(now);
+    }
+
+    // Already-mapped segments are reused; only new catalog rows are opened
+    private synchronized Snapshot reload(long now) {
+        List<ArchiveSegment> rows = catalog.findAllByOrderByIdAsc();
+        List<Segment> segments = new ArrayList<>(rows.size());
+        LocalDateTime horizon = null;
+        for (ArchiveSegment row : rows) {
+            Segment segment = snapshot.segments().stream()
+                .filter(open -> open.fileName().equals(row.getFileName()))
+                .findFirst()
+                .orElseGet(() -> open(row.getFileName()));
+            segments.add(segment);
+            if (horizon == null || row.getMaxTimestamp().isAfter(horizon)) {
+                horizon = row.getMaxTimestamp();
+            }
+        }
+        Snapshot reloaded = new Snapshot(rows.isEmpty() ? null : rows.get(rows.size() - 1).getId(),
+            List.copyOf(segments), horizon, now);
+        snapshot = reloaded;
+        log.debug("Archive catalog has {} segments up to {}", segments.size(), horizon);
+        return reloaded;
+    }
+
+    private Segment open(String fileName) {
+        try {
+            return Segment.open(dir.resolve(fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open archive segment " + fileName + " in " + dir, e);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.jpmorgan.transaction.archive;
+
+import com.jpmorgan.transaction.dto.ArchiveResult;
+import com.jpmorgan.transaction.model.ArchiveSegment;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.ArchiveSegmentRepository;
+import com.jpmorgan.transaction.velocity.VelocityProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves settled transactions older than the retention window out of the {@code transactions}
+ * table into immutable segment files (see {@link Segment}). Each segment is one DB transaction:
+ * up to {@code archive.segment-size} rows are read in (user, timestamp, id) order and written to
+ * a temporary file, which is forced to disk and renamed; then the rows are deleted, each user's
+ * completed amounts and incentives are folded into its opening balance (so reconciliation and
+ * statements still add up) and the catalog row is inserted. A rollback deletes the file again.
+ * The rows are locked as they are read, so runs on several instances take turns; a segment whose
+ * rows were taken by another run meanwhile is rolled back and the run stops there.
+ * PENDING rows stay in the table until they settle, and the cutoff never reaches into the
+ * longest velocity window or today, which the limiter and leaderboard rebuild from the table.
+ */
+@Component
+@Slf4j
+public class TransactionArchiveJob {
+
+    private static final String CANDIDATES_SQL =
+        "SELECT id, transaction_id, user_id, type, amount, description, linked_transaction_id, target_user_id, "
+            + "execute_at, incentive_applied, incentive_amount, status, failure_reason, timestamp, updated_at FROM transactions "
+            + "WHERE timestamp < ? AND status <> 'PENDING' ORDER BY user_id, timestamp, id LIMIT ? FOR UPDATE";
+
+    private static final String DELETE_SQL = "DELETE FROM transactions WHERE id = ?";
+
+    // The version bump makes a concurrent JPA update of the same user fail and retry instead of
+    // writing back the opening balance it read before this commit
+    private static final String FOLD_SQL =
+        "UPDATE users SET opening_balance = opening_balance + ?, version = version + 1 WHERE id = ?";
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final ArchiveProperties properties;
+    private final TransactionArchive archive;
+    private final ArchiveSegmentRepository catalog;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration longestVelocityWindow;
+    private final Counter archivedCounter;
+    private final Timer runTimer;
+    private volatile ArchiveResult lastResult;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "transaction-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TransactionArchiveJob(
+            ArchiveProperties properties,
+            TransactionArchive archive,
+            ArchiveSegmentRepository catalog,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            VelocityProperties velocityProperties,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.archive = archive;
+        this.catalog = catalog;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Duration> windows = velocityProperties.windows();
+        this.longestVelocityWindow = windows.isEmpty() ? Duration.ZERO : windows.get(windows.size() - 1);
+        this.archivedCounter = Counter.builder("archive.records")
+            .description("Transactions moved from the table to archive segments")
+            .register(meterRegistry);
+        this.runTimer = Timer.builder("archive.run.duration")
+            .description("Time taken by an archive run")
+            .register(meterRegistry);
+        Gauge.builder("archive.segments", archive, TransactionArchive::segmentCount)
+            .description("Segment files in the archive catalog")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${archive.cron:0 15 3 * * *}")
+    public void archiveExpired() {
+        if (properties.isScheduleEnabled()) {
+            start();
+        }
+    }
+
+    // Starts a run in the background; returns false if one is already in progress
+    public boolean start() {
+        if (running.get()) {
+            return false;
+        }
+        runner.submit(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                log.error("Transaction archive run failed: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    public ArchiveResult run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An archive run is already in progress");
+        }
+        try {
+            long started = System.nanoTime();
+            LocalDateTime cutoff = cutoff();
+            Path dir = Paths.get(properties.getDir());
+            Files.createDirectories(dir);
+
+            int segments = 0;
+            long records = 0;
+            long users = 0;
+            long bytes = 0;
+            while (true) {
+                SegmentTally tally;
+                try {
+                    tally = transactionTemplate.execute(status -> archiveSegment(dir, cutoff));
+                } catch (ConcurrencyFailureException e) {
+                    log.info("Stopping the archive run: another instance is archiving the same rows ({})", e.getMessage());
+                    break;
+                }
+                if (tally == null) {
+                    break;
+                }
+                archive.refresh();
+                archivedCounter.increment(tally.records());
+                segments++;
+                records += tally.records();
+                users += tally.users();
+                bytes += tally.bytes();
+                log.info("Archived {} transactions into {} ({} bytes, {} opening balances updated)",
+                    tally.records(), tally.fileName(), tally.bytes(), tally.users());
+                if (tally.records() < properties.getSegmentSize()) {
+                    break;
+                }
+            }
+
+            long elapsedNanos = System.nanoTime() - started;
+            runTimer.record(Duration.ofNanos(elapsedNanos));
+            lastResult = ArchiveResult.builder()
+                .cutoff(cutoff)
+                .segments(segments)
+                .records(records)
+                .users(users)
+                .bytes(bytes)
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .build();
+            log.info("Archive run moved {} transactions older than {} into {} segments in {} ms",
+                records, cutoff, segments, lastResult.getElapsedMs());
+            return lastResult;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Midnight retention-days ago, pulled back so nothing the in-memory rebuilds read is archived
+    LocalDateTime cutoff() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime cutoff = today.minusDays(properties.getRetentionDays()).atStartOfDay();
+        LocalDateTime floor = today.atStartOfDay().minus(longestVelocityWindow);
+        if (cutoff.isAfter(floor)) {
+            log.warn("archive.retention-days={} is inside the longest velocity window {}; archiving before {} instead",
+                properties.getRetentionDays(), longestVelocityWindow, floor);
+            return floor;
+        }
+        return cutoff;
+    }
+
+    // Returns null once nothing older than the cutoff is left
+    private SegmentTally archiveSegment(Path dir, LocalDateTime cutoff) {
+        Path temp = dir.resolve("segment-" + UUID.randomUUID() + ".tmp");
+        List<Object[]> deletes = new ArrayList<>();
+        Map<Long, BigDecimal> folds = new LinkedHashMap<>();
+        long size;
+        long firstId;
+        ArchiveSegment segment;
+        try {
+            try (SegmentWriter writer = new SegmentWriter(temp)) {
+                jdbcTemplate.query(CANDIDATES_SQL, rs -> {
+                    Transaction transaction = toTransaction(rs);
+                    try {
+                        writer.add(transaction);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    deletes.add(new Object[]{transaction.getId()});
+                    if (transaction.getStatus() == Transaction.TransactionStatus.COMPLETED) {
+                        folds.merge(transaction.getUser().getId(), signedAmount(transaction), BigDecimal::add);
+                    }
+                }, Timestamp.valueOf(cutoff), properties.getSegmentSize());
+                if (writer.records() == 0) {
+                    return null;
+                }
+                size = writer.finish();
+                firstId = (Long) deletes.get(0)[0];
+                segment = ArchiveSegment.builder()
+                    .cutoff(cutoff)
+                    .minTimestamp(writer.minTimestamp())
+                    .maxTimestamp(writer.maxTimestamp())
+                    .minUserId(writer.minUserId())
+                    .maxUserId(writer.maxUserId())
+                    .records(writer.records())
+                    .bytes(size)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            }
+            String fileName = "segment-" + FILE_DATE.format(cutoff) + "-" + firstId + ".txa";
+            Path file = Files.move(temp, dir.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+            segment.setFileName(fileName);
+            deleteOnRollback(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("Could not delete {}: {}", temp, e.getMessage());
+            }
+        }
+
+        // Only rows this run deleted may be folded or archived; anything less means another run got there first
+        for (int count : jdbcTemplate.batchUpdate(DELETE_SQL, deletes)) {
+            if (count == 0) {
+                throw new OptimisticLockingFailureException(
+                    "Transactions of segment " + segment.getFileName() + " were deleted by another run");
+            }
+        }
+        List<Object[]> updates = new ArrayList<>(folds.size());
+        folds.forEach((userId, amount) -> {
+            if (amount.signum() != 0) {
+                updates.add(new Object[]{amount, userId});
+            }
+        });
+        jdbcTemplate.batchUpdate(FOLD_SQL, updates);
+        catalog.save(segment);
+        return new SegmentTally(segment.getFileName(), segment.getRecords(), updates.size(), size);
+    }
+
+    // Same sign rule as reconciliation: outgoing types subtract, incentives always add
+    private static BigDecimal signedAmount(Transaction transaction) {
+        BigDecimal amount = transaction.getType().isOutgoing() ? transaction.getAmount().negate() : transaction.getAmount();
+        return transaction.getIncentiveAmount() == null ? amount : amount.add(transaction.getIncentiveAmount());
+    }
+
+    private static void deleteOnRollback(Path file) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Not in the catalog, so never read; logged for manual cleanup
+                        log.warn("Could not delete uncommitted segment {}: {}", file, e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private static Transaction toTransaction(ResultSet rs) throws SQLException {
+        Timestamp executeAt = rs.getTimestamp("execute_at");
+        long targetUserId = rs.getLong("target_user_id");
+        boolean hasTarget = !rs.wasNull();
+        return Transaction.builder()
+            .id(rs.getLong("id"))
+            .transactionId(rs.getString("transaction_id"))
+            .user(User.builder().id(rs.getLong("user_id")).build())
+            .type(Transaction.TransactionType.valueOf(rs.getString("type")))
+            .amount(rs.getBigDecimal("amount"))
+            .description(rs.getString("description"))
+            .linkedTransactionId(rs.getString("linked_transaction_id"))
+            .targetUserId(hasTarget ? targetUserId : null)
+            .executeAt(executeAt == null ? null : executeAt.toLocalDateTime())
+            .incentiveApplied(rs.getBoolean("incentive_applied"))
+            .incentiveAmount(rs.getBigDecimal("incentive_amount"))
+            .status(Transaction.TransactionStatus.valueOf(rs.getString("status")))
+            .failureReason(rs.getString("failure_reason") == null
+                ? null : Transaction.FailureReason.valueOf(rs.getString("failure_reason")))
+            .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+            .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+            .build();
+    }
+
+    public ArchiveResult getLastResult() {
+        return lastResult;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private record SegmentTally(String fileName, long records, long users, long bytes) {
+    }
+}
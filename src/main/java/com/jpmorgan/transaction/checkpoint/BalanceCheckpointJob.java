@@ -0,0 +1,193 @@
+package com.jpmorgan.transaction.checkpoint;
+
+import com.jpmorgan.transaction.archive.TransactionArchive;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the balance checkpoints {@link BalanceHistory} starts from, so a point-in-time query never
+ * replays more than a day or {@code checkpoints.every-transactions} of a user's transactions. A
+ * checkpoint is taken {@code checkpoints.settle-ms} in the past, so transactions still committing
+ * with an earlier timestamp are not left out, and is computed from the previous one. Every day the
+ * users with new activity, or with no checkpoint yet, get one. A ledger replay rewrites history, so
+ * it drops all checkpoints.
+ */
+@Component
+@Slf4j
+public class BalanceCheckpointJob {
+
+    private static final String USERS_SQL =
+        "SELECT u.id, (SELECT MAX(c.as_of) FROM balance_checkpoints c WHERE c.user_id = u.id) FROM users u "
+            + "WHERE u.id > ? AND u.created_at <= ? ORDER BY u.id LIMIT ?";
+
+    private static final String ACTIVITY_SQL =
+        "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND timestamp > ? AND timestamp <= ? AND status = 'COMPLETED'";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO balance_checkpoints (user_id, as_of, balance, created_at) SELECT u.id, ?, ?, CURRENT_TIMESTAMP "
+            + "FROM users u WHERE u.id = ? AND NOT EXISTS (SELECT 1 FROM balance_checkpoints c WHERE c.user_id = u.id AND c.as_of = ?)";
+
+    private final BalanceHistory history;
+    private final TransactionArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int everyTransactions;
+    private final long settleMs;
+    private final int batchSize;
+    private final Map<Long, Integer> sinceCheckpoint = new ConcurrentHashMap<>();
+    private final Counter writtenCounter;
+    private final Timer runTimer;
+    private final ScheduledExecutorService runner = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "balance-checkpoints");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BalanceCheckpointJob(
+            BalanceHistory history,
+            TransactionArchive archive,
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${checkpoints.enabled:true}") boolean enabled,
+            @Value("${checkpoints.every-transactions:1000}") int everyTransactions,
+            @Value("${checkpoints.settle-ms:60000}") long settleMs,
+            @Value("${checkpoints.batch-size:1000}") int batchSize) {
+        this.history = history;
+        this.archive = archive;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.enabled = enabled;
+        this.everyTransactions = everyTransactions;
+        this.settleMs = settleMs;
+        this.batchSize = batchSize;
+        this.writtenCounter = Counter.builder("balance.checkpoints.written")
+            .description("Balance checkpoints written")
+            .register(meterRegistry);
+        this.runTimer = Timer.builder("balance.checkpoints.run.duration")
+            .description("Time taken by a daily checkpoint run")
+            .register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionCommitted(TransactionCommittedEvent event) {
+        if (!enabled || everyTransactions <= 0) {
+            return;
+        }
+        Long userId = event.getUserId();
+        if (sinceCheckpoint.merge(userId, 1, Integer::sum) < everyTransactions) {
+            return;
+        }
+        sinceCheckpoint.remove(userId);
+        // Taken once the transactions up to now have settled
+        LocalDateTime asOf = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        runner.schedule(() -> {
+            try {
+                checkpoint(userId, asOf);
+            } catch (RuntimeException e) {
+                log.warn("Could not checkpoint the balance of user {}: {}", userId, e.getMessage());
+            }
+        }, settleMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Scheduled(cron = "${checkpoints.cron:0 30 2 * * *}")
+    public void checkpointDaily() {
+        if (enabled) {
+            runner.execute(() -> {
+                try {
+                    checkpointAll(LocalDateTime.now().minus(Duration.ofMillis(settleMs)));
+                } catch (RuntimeException e) {
+                    log.error("Balance checkpoint run failed: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    // Checkpoints every user that has none yet or has completed transactions since its last one; returns how many
+    public int checkpointAll(LocalDateTime asOf) {
+        LocalDateTime at = asOf.truncatedTo(ChronoUnit.SECONDS);
+        long started = System.nanoTime();
+        int written = 0;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> users = new ArrayList<>(batchSize);
+            jdbcTemplate.query(USERS_SQL, rs -> {
+                users.add(new Object[]{rs.getLong(1), rs.getTimestamp(2)});
+            }, lastId, Timestamp.valueOf(at), batchSize);
+            LocalDateTime horizon = archive.horizon();
+            for (Object[] user : users) {
+                Long userId = (Long) user[0];
+                Timestamp last = (Timestamp) user[1];
+                if (last == null || last.toLocalDateTime().isBefore(at) && (isArchivedSince(horizon, last)
+                        || jdbcTemplate.queryForObject(ACTIVITY_SQL, Long.class, userId, last, Timestamp.valueOf(at)) > 0)) {
+                    written += checkpoint(userId, at) ? 1 : 0;
+                }
+            }
+            if (users.size() < batchSize) {
+                break;
+            }
+            lastId = (Long) users.get(users.size() - 1)[0];
+        }
+        runTimer.record(Duration.ofNanos(System.nanoTime() - started));
+        log.info("Wrote {} balance checkpoints as of {}", written, at);
+        return written;
+    }
+
+    // Activity since then may have moved to the archive already; such users are checkpointed without looking
+    private static boolean isArchivedSince(LocalDateTime horizon, Timestamp last) {
+        return horizon != null && horizon.isAfter(last.toLocalDateTime());
+    }
+
+    // Returns false if the user already has a checkpoint at that time
+    public boolean checkpoint(Long userId, LocalDateTime asOf) {
+        LocalDateTime at = asOf.truncatedTo(ChronoUnit.SECONDS);
+        BigDecimal balance = history.balanceAt(userId, at);
+        Timestamp timestamp = Timestamp.valueOf(at);
+        try {
+            if (jdbcTemplate.update(INSERT_SQL, timestamp, balance, userId, timestamp) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            // Written by the daily run and a transaction count at the same moment
+            return false;
+        }
+        writtenCounter.increment();
+        return true;
+    }
+
+    @EventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        sinceCheckpoint.clear();
+        int deleted = jdbcTemplate.update("DELETE FROM balance_checkpoints");
+        log.info("Dropped {} balance checkpoints after a ledger replay", deleted);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
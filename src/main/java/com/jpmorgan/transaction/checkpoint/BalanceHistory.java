@@ -0,0 +1,98 @@
+package com.jpmorgan.transaction.checkpoint;
+
+import com.jpmorgan.transaction.archive.TransactionArchive;
+import com.jpmorgan.transaction.dto.UserBalanceResponse;
+import com.jpmorgan.transaction.model.BalanceCheckpoint;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.BalanceCheckpointRepository;
+import com.jpmorgan.transaction.service.UserService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Balances at a point in time: the nearest earlier checkpoint plus the COMPLETED transactions after
+ * it, read from the {@code (user_id, timestamp)} index and, when the delta reaches back into the
+ * archive, from the user's archived rows. With no checkpoint yet, the start is the opening balance
+ * with the archived amounts folded into it taken out again.
+ */
+@Component
+public class BalanceHistory {
+
+    // Before any transaction, for users without a checkpoint
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String OPENING_SQL = "SELECT opening_balance FROM users WHERE id = ?";
+
+    private static final String DELTA_SQL =
+        "SELECT COALESCE(SUM(CASE WHEN type IN ('DEBIT', 'TRANSFER_OUT', 'FEE') THEN -amount ELSE amount END "
+            + "+ COALESCE(incentive_amount, 0)), 0) FROM transactions "
+            + "WHERE user_id = ? AND timestamp > ? AND timestamp <= ? AND status = 'COMPLETED'";
+
+    private final BalanceCheckpointRepository checkpoints;
+    private final TransactionArchive archive;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceHistory(
+            BalanceCheckpointRepository checkpoints,
+            TransactionArchive archive,
+            UserService userService,
+            DataSource dataSource) {
+        this.checkpoints = checkpoints;
+        this.archive = archive;
+        this.userService = userService;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public UserBalanceResponse getUserBalanceAsOf(Long userId, LocalDateTime asOf) {
+        User user = userService.findById(userId);
+        if (asOf.isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("asOf must not be in the future");
+        }
+        if (asOf.isBefore(user.getCreatedAt())) {
+            throw new IllegalArgumentException("User " + userId + " did not exist at " + asOf);
+        }
+        return UserBalanceResponse.builder()
+            .userId(user.getId())
+            .username(user.getUsername())
+            .email(user.getEmail())
+            .balance(balanceAt(userId, asOf))
+            .asOf(asOf)
+            .build();
+    }
+
+    public BigDecimal balanceAt(Long userId, LocalDateTime asOf) {
+        BalanceCheckpoint checkpoint = checkpoints.findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(userId, asOf)
+            .orElse(null);
+        LocalDateTime after = checkpoint == null ? BEGINNING : checkpoint.getAsOf();
+        return archive.withUserArchive(userId, after, archived -> {
+            BigDecimal balance = checkpoint == null
+                ? jdbcTemplate.queryForObject(OPENING_SQL, BigDecimal.class, userId)
+                : checkpoint.getBalance();
+            // The opening balance has every archived row folded in, so there the rows after asOf come out again
+            for (Transaction transaction : archived) {
+                if (transaction.getStatus() != Transaction.TransactionStatus.COMPLETED) {
+                    continue;
+                }
+                if (checkpoint == null && transaction.getTimestamp().isAfter(asOf)) {
+                    balance = balance.subtract(signedAmount(transaction));
+                } else if (checkpoint != null && !transaction.getTimestamp().isAfter(asOf)) {
+                    balance = balance.add(signedAmount(transaction));
+                }
+            }
+            return balance.add(jdbcTemplate.queryForObject(DELTA_SQL, BigDecimal.class,
+                userId, Timestamp.valueOf(after), Timestamp.valueOf(asOf)));
+        });
+    }
+
+    private static BigDecimal signedAmount(Transaction transaction) {
+        BigDecimal amount = transaction.getType().isOutgoing() ? transaction.getAmount().negate() : transaction.getAmount();
+        return transaction.getIncentiveAmount() == null ? amount : amount.add(transaction.getIncentiveAmount());
+    }
+}
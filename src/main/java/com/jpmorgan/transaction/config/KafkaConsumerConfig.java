@@ -1,6 +1,9 @@
 package com.jpmorgan.transaction.config;
 
 import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.sharding.ConsistentHashAssignor;
+import com.jpmorgan.transaction.sharding.ShardRegistry;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,8 +20,11 @@ import java.util.Map;
 
 @Configuration
 @EnableKafka
+@RequiredArgsConstructor
 public class KafkaConsumerConfig {
 
+    private final ShardRegistry shardRegistry;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
@@ -36,6 +42,12 @@ public class KafkaConsumerConfig {
         config.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, TransactionMessage.class.getName());
         config.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+
+        // Give each instance a stable set of partitions (and therefore users) from the consistent-hash ring
+        if (shardRegistry.isEnabled()) {
+            config.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, ConsistentHashAssignor.class.getName());
+            config.put(ConsistentHashAssignor.REGISTRY_CONFIG, shardRegistry);
+        }
         
         return new DefaultKafkaConsumerFactory<>(
             config,
@@ -52,4 +64,17 @@ public class KafkaConsumerConfig {
         factory.setConcurrency(3); // Parallel processing
         return factory;
     }
-}
\ No newline at end of file
+
+    // Plain String records of the outbox events topic, read by per-instance listeners such as ShardCache
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> eventKafkaListenerContainerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(
+            config, new StringDeserializer(), new StringDeserializer()));
+        return factory;
+    }
+}
@@ -0,0 +1,101 @@
+package com.jpmorgan.transaction.config;
+
+import com.jpmorgan.transaction.datasource.DataSourceRole;
+import com.jpmorgan.transaction.datasource.ReadRoutingInterceptor;
+import com.jpmorgan.transaction.datasource.ReadWriteRoutingDataSource;
+import com.jpmorgan.transaction.datasource.RecentWriteTracker;
+import com.jpmorgan.transaction.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig implements WebMvcConfigurer {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password}}") String password,
+            @Value("${datasource.replica.driver-class-name:${spring.datasource.driver-class-name}}") String driver,
+            @Value("${datasource.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(url)
+            .username(username)
+            .password(password)
+            .driverClassName(driver)
+            .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMs,
+            MeterRegistry meterRegistry) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(primary, replica, maxLagMs);
+        Gauge.builder("datasource.replica.lag", monitor, m -> m.getLagMs() == Long.MAX_VALUE ? -1 : m.getLagMs())
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        return monitor;
+    }
+
+    @Bean
+    public RecentWriteTracker recentWriteTracker(
+            @Value("${datasource.replica.read-your-writes-ms:2000}") long readYourWritesMs) {
+        return new RecentWriteTracker(readYourWritesMs);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            ReplicaLagMonitor replicaLagMonitor,
+            RecentWriteTracker recentWriteTracker) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaLagMonitor, recentWriteTracker);
+        routing.setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        return routing;
+    }
+
+    // Lazy proxy so the physical connection is chosen after the transaction's readOnly flag is bound
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadRoutingInterceptor()).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,23 @@
+package com.jpmorgan.transaction.config;
+
+import com.jpmorgan.transaction.sharding.ShardRegistry;
+import com.jpmorgan.transaction.sharding.ShardRoutingInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardingWebConfig implements WebMvcConfigurer {
+
+    private final ShardRegistry shardRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ShardRoutingInterceptor(shardRegistry))
+                .addPathPatterns("/api/users/*/**", "/api/transactions/user/*");
+    }
+}
@@ -0,0 +1,51 @@
+package com.jpmorgan.transaction.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+// Conditional GET support: the ETag is computed first and the body is only loaded when it changed
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    static <T> ResponseEntity<T> withETag(String etag, String ifNoneMatch, Supplier<T> body) {
+        if (matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok()
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .body(body.get());
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .build();
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            // Weak comparison, as If-None-Match requires
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
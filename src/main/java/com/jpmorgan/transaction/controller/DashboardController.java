@@ -0,0 +1,30 @@
+package com.jpmorgan.transaction.controller;
+
+import com.jpmorgan.transaction.dashboard.DashboardSnapshot;
+import com.jpmorgan.transaction.dto.DashboardResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+@Tag(name = "Dashboard", description = "Aggregated figures for the dashboard, served from memory")
+public class DashboardController {
+
+    private final DashboardSnapshot snapshot;
+
+    @GetMapping
+    @Operation(summary = "Get dashboard",
+        description = "User count, total balance, today's totals by type and the most recent transactions")
+    public ResponseEntity<DashboardResponse> getDashboard(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.withETag(snapshot.etag(), ifNoneMatch, snapshot::current);
+    }
+}
@@ -0,0 +1,94 @@
+package com.jpmorgan.transaction.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Streamed JSON bodies with gzip/deflate chosen from Accept-Encoding
+final class StreamingResponses {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private StreamingResponses() {
+    }
+
+    interface BodyWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(String etag, String acceptEncoding, BodyWriter writer) {
+        String encoding = negotiate(acceptEncoding);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding != null) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+
+        return builder.body(out -> {
+            if (encoding == null) {
+                writer.write(out);
+                out.flush();
+                return;
+            }
+            // Sync flush so each generator flush reaches the client instead of waiting in the deflater
+            DeflaterOutputStream compressed = GZIP.equals(encoding)
+                ? new GZIPOutputStream(out, BUFFER_SIZE, true)
+                : new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE, true);
+            writer.write(compressed);
+            compressed.finish();
+            out.flush();
+        });
+    }
+
+    // Prefers gzip, then deflate; honours q=0 exclusions. Returns null for identity.
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = 0;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.trim().split(";");
+            double quality = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            switch (tokens[0].trim()) {
+                case GZIP -> gzip = quality;
+                case DEFLATE -> deflate = quality;
+                case "*" -> wildcard = quality;
+                default -> { }
+            }
+        }
+        // Codings not listed explicitly inherit the wildcard's quality
+        gzip = gzip < 0 ? wildcard : gzip;
+        deflate = deflate < 0 ? wildcard : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+}
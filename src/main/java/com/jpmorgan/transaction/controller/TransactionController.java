@@ -1,14 +1,18 @@
 package com.jpmorgan.transaction.controller;
 
 import com.jpmorgan.transaction.dto.TransactionResponse;
+import com.jpmorgan.transaction.dto.TransactionSearchResponse;
+import com.jpmorgan.transaction.service.StreamingExportService;
 import com.jpmorgan.transaction.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -20,22 +24,53 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final StreamingExportService streamingExportService;
 
     @GetMapping
     @Operation(summary = "Get all transactions", description = "Retrieve all transactions in the system")
-    public ResponseEntity<List<TransactionResponse>> getAllTransactions() {
+    public ResponseEntity<List<TransactionResponse>> getAllTransactions(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Received request to get all transactions");
-        List<TransactionResponse> transactions = transactionService.getAllTransactions();
-        return ResponseEntity.ok(transactions);
+        return ConditionalResponses.withETag(transactionService.getAllTransactionsETag(), ifNoneMatch,
+            transactionService::getAllTransactions);
+    }
+
+    @GetMapping(params = "stream=true")
+    @Operation(summary = "Stream all transactions",
+        description = "Stream all transactions as a JSON array from a DB cursor, gzip/deflate compressed when accepted")
+    public ResponseEntity<StreamingResponseBody> streamAllTransactions(
+            @Parameter(description = "Use short field names") @RequestParam(defaultValue = "false") boolean compact,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("Received request to stream all transactions");
+        String etag = transactionService.getAllTransactionsETag();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag);
+        }
+        return StreamingResponses.stream(etag, acceptEncoding,
+            out -> streamingExportService.writeTransactions(out, compact));
     }
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get user transactions", description = "Retrieve all transactions for a specific user")
     public ResponseEntity<List<TransactionResponse>> getUserTransactions(
             @Parameter(description = "User ID", required = true)
-            @PathVariable Long userId) {
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Received request to get transactions for user: {}", userId);
-        List<TransactionResponse> transactions = transactionService.getTransactionsByUserId(userId);
-        return ResponseEntity.ok(transactions);
+        return ConditionalResponses.withETag(transactionService.getUserTransactionsETag(userId), ifNoneMatch,
+            () -> transactionService.getTransactionsByUserId(userId));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search transactions",
+        description = "Find transactions whose description contains every word of the query, newest first")
+    public ResponseEntity<TransactionSearchResponse> searchTransactions(
+            @Parameter(description = "Words to match", required = true) @RequestParam String q,
+            @Parameter(description = "Only this user's transactions") @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        log.debug("Received search for '{}' (user {}, page {})", q, userId, page);
+        return ResponseEntity.ok(transactionService.searchTransactions(q, userId, page, size));
     }
 }
\ No newline at end of file
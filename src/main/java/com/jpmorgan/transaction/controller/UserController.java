@@ -1,15 +1,23 @@
 package com.jpmorgan.transaction.controller;
 
+import com.jpmorgan.transaction.checkpoint.BalanceHistory;
+import com.jpmorgan.transaction.dto.LeaderboardEntry;
 import com.jpmorgan.transaction.dto.UserBalanceResponse;
+import com.jpmorgan.transaction.leaderboard.AccountLeaderboard;
+import com.jpmorgan.transaction.service.StreamingExportService;
 import com.jpmorgan.transaction.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -20,22 +28,70 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final StreamingExportService streamingExportService;
+    private final AccountLeaderboard leaderboard;
+    private final BalanceHistory balanceHistory;
 
     @GetMapping("/{userId}/balance")
     @Operation(summary = "Get user balance", description = "Retrieve the current balance for a specific user")
     public ResponseEntity<UserBalanceResponse> getUserBalance(
             @Parameter(description = "User ID", required = true)
-            @PathVariable Long userId) {
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Received request to get balance for user: {}", userId);
-        UserBalanceResponse response = userService.getUserBalance(userId);
-        return ResponseEntity.ok(response);
+        return ConditionalResponses.withETag(userService.getBalanceETag(userId), ifNoneMatch,
+            () -> userService.getUserBalance(userId));
+    }
+
+    @GetMapping(value = "/{userId}/balance", params = "asOf")
+    @Operation(summary = "Get user balance at a point in time",
+        description = "The balance counting completed transactions up to asOf, from the nearest earlier checkpoint")
+    public ResponseEntity<UserBalanceResponse> getUserBalanceAsOf(
+            @Parameter(description = "User ID", required = true)
+            @PathVariable Long userId,
+            @Parameter(description = "ISO local date-time, e.g. 2026-09-30T23:59:59")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        log.info("Received request to get balance for user {} as of {}", userId, asOf);
+        return ResponseEntity.ok(balanceHistory.getUserBalanceAsOf(userId, asOf));
+    }
+
+    @GetMapping("/top")
+    @Operation(summary = "Get top users",
+        description = "Top n users by current balance or by today's transaction volume, served from memory")
+    public ResponseEntity<List<LeaderboardEntry>> getTopUsers(
+            @Parameter(description = "balance or volume") @RequestParam(defaultValue = "balance") String by,
+            @Parameter(description = "Number of users") @RequestParam(defaultValue = "100") int n) {
+        AccountLeaderboard.Metric metric;
+        try {
+            metric = AccountLeaderboard.Metric.valueOf(by.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("by must be balance or volume");
+        }
+        return ResponseEntity.ok(leaderboard.top(metric, n));
     }
 
     @GetMapping
     @Operation(summary = "Get all users", description = "Retrieve all users with their balances")
-    public ResponseEntity<List<UserBalanceResponse>> getAllUsers() {
+    public ResponseEntity<List<UserBalanceResponse>> getAllUsers(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Received request to get all users");
-        List<UserBalanceResponse> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+        return ConditionalResponses.withETag(userService.getAllUsersETag(), ifNoneMatch,
+            userService::getAllUsers);
+    }
+
+    @GetMapping(params = "stream=true")
+    @Operation(summary = "Stream all users",
+        description = "Stream all users as a JSON array from a DB cursor, gzip/deflate compressed when accepted")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(
+            @Parameter(description = "Use short field names") @RequestParam(defaultValue = "false") boolean compact,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("Received request to stream all users");
+        String etag = userService.getAllUsersETag();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag);
+        }
+        return StreamingResponses.stream(etag, acceptEncoding,
+            out -> streamingExportService.writeUsers(out, compact));
     }
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+package com.jpmorgan.transaction.dashboard;
+
+import com.jpmorgan.transaction.dto.DashboardResponse;
+import com.jpmorgan.transaction.dto.TransactionResponse;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.event.UserCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The dashboard figures (user count, total balance, today's totals by type and the most recent
+ * transactions) kept in memory, so a request costs the same however large the tables are. Loaded
+ * from the DB on startup and then moved along by commit events. The DB is re-read every
+ * {@code dashboard.resync-ms} to pick up what arrives without an event here, such as accrual
+ * postings and, with sharding, other instances' commits.
+ */
+@Component
+@Slf4j
+public class DashboardSnapshot implements SmartInitializingSingleton {
+
+    private static final String USERS_SQL = "SELECT COUNT(*), COALESCE(SUM(balance), 0) FROM users";
+
+    private static final String TODAY_SQL =
+        "SELECT type, COUNT(*), SUM(amount) FROM transactions WHERE status = 'COMPLETED' AND timestamp >= ? GROUP BY type";
+
+    private static final String RECENT_SQL =
+        "SELECT id, transaction_id, user_id, type, amount, description, linked_transaction_id, incentive_applied, "
+            + "incentive_amount, status, timestamp, execute_at FROM transactions WHERE status = 'COMPLETED' "
+            + "ORDER BY id DESC LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int recentSize;
+
+    // Guarded by this
+    private long userCount;
+    private BigDecimal totalBalance = BigDecimal.ZERO;
+    private LocalDate today = LocalDate.now();
+    private Map<String, DashboardResponse.TypeTotal> todayByType = new TreeMap<>();
+    private final Deque<TransactionResponse> recent = new ArrayDeque<>();
+    private LocalDateTime resyncedAt;
+
+    // Rebuilt on the first request after a change
+    private volatile DashboardResponse cached;
+    private volatile long version;
+
+    public DashboardSnapshot(
+            DataSource dataSource,
+            @Value("${dashboard.recent-size:20}") int recentSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.recentSize = recentSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        resync();
+    }
+
+    public DashboardResponse current() {
+        DashboardResponse response = cached;
+        if (response != null && response.getToday().equals(LocalDate.now())) {
+            return response;
+        }
+        synchronized (this) {
+            rollTo(LocalDate.now());
+            if (cached == null) {
+                cached = DashboardResponse.builder()
+                    .userCount(userCount)
+                    .totalBalance(totalBalance)
+                    .today(today)
+                    .todayByType(Collections.unmodifiableMap(new TreeMap<>(todayByType)))
+                    .recentTransactions(List.copyOf(recent))
+                    .resyncedAt(resyncedAt)
+                    .build();
+            }
+            return cached;
+        }
+    }
+
+    // Changes with every update the snapshot applies, and at midnight
+    public String etag() {
+        return "\"dashboard-" + LocalDate.now() + "-" + version + "\"";
+    }
+
+    /**
+     * Re-reads everything from the DB. The queries run outside the lock so commits are never held
+     * up; a commit that lands between a query and the swap is counted twice or not at all until
+     * the next resync.
+     */
+    @Scheduled(fixedDelayString = "${dashboard.resync-ms:60000}", initialDelayString = "${dashboard.resync-ms:60000}")
+    public void resync() {
+        long start = System.currentTimeMillis();
+        LocalDate day = LocalDate.now();
+        long[] users = new long[1];
+        BigDecimal[] balance = {BigDecimal.ZERO};
+        jdbcTemplate.query(USERS_SQL, rs -> {
+            users[0] = rs.getLong(1);
+            balance[0] = rs.getBigDecimal(2);
+        });
+        Map<String, DashboardResponse.TypeTotal> totals = new TreeMap<>();
+        jdbcTemplate.query(TODAY_SQL, rs -> {
+            totals.put(rs.getString(1), new DashboardResponse.TypeTotal(rs.getLong(2), rs.getBigDecimal(3)));
+        }, Timestamp.valueOf(day.atStartOfDay()));
+        List<TransactionResponse> rows = jdbcTemplate.query(RECENT_SQL, (rs, i) -> TransactionResponse.builder()
+            .id(rs.getLong("id"))
+            .transactionId(rs.getString("transaction_id"))
+            .userId(rs.getLong("user_id"))
+            .type(rs.getString("type"))
+            .amount(rs.getBigDecimal("amount"))
+            .description(rs.getString("description"))
+            .linkedTransactionId(rs.getString("linked_transaction_id"))
+            .incentiveApplied(rs.getBoolean("incentive_applied"))
+            .incentiveAmount(rs.getBigDecimal("incentive_amount"))
+            .status(rs.getString("status"))
+            .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+            .executeAt(rs.getTimestamp("execute_at") == null ? null : rs.getTimestamp("execute_at").toLocalDateTime())
+            .build(), recentSize);
+
+        synchronized (this) {
+            userCount = users[0];
+            totalBalance = balance[0];
+            today = day;
+            todayByType = totals;
+            recent.clear();
+            recent.addAll(rows);
+            resyncedAt = LocalDateTime.now();
+            changed();
+        }
+        log.debug("Resynced dashboard ({} users, {} types today) in {} ms",
+            users[0], totals.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onTransactionCommitted(TransactionCommittedEvent event) {
+        if (event.getBalanceChange() != null) {
+            totalBalance = totalBalance.add(event.getBalanceChange());
+        }
+        LocalDate day = event.getTimestamp() == null ? LocalDate.now() : event.getTimestamp().toLocalDate();
+        rollTo(day);
+        if (day.equals(today)) {
+            todayByType.merge(event.getType().name(), new DashboardResponse.TypeTotal(1, event.getAmount()),
+                (total, one) -> new DashboardResponse.TypeTotal(total.getCount() + 1, total.getAmount().add(one.getAmount())));
+        }
+        recent.addFirst(TransactionResponse.builder()
+            .id(event.getId())
+            .transactionId(event.getTransactionId())
+            .userId(event.getUserId())
+            .type(event.getType().name())
+            .amount(event.getAmount())
+            .description(event.getDescription())
+            .linkedTransactionId(event.getLinkedTransactionId())
+            .incentiveApplied(event.getIncentiveAmount() != null && event.getIncentiveAmount().signum() > 0)
+            .incentiveAmount(event.getIncentiveAmount())
+            .status("COMPLETED")
+            .timestamp(event.getTimestamp())
+            .build());
+        while (recent.size() > recentSize) {
+            recent.removeLast();
+        }
+        changed();
+    }
+
+    @TransactionalEventListener
+    public synchronized void onUserCreated(UserCreatedEvent event) {
+        userCount++;
+        if (event.getBalance() != null) {
+            totalBalance = totalBalance.add(event.getBalance());
+        }
+        changed();
+    }
+
+    @EventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        resync();
+    }
+
+    // Called with the lock held; starts a new day's totals when the date moves on
+    private void rollTo(LocalDate day) {
+        if (day.isAfter(today)) {
+            today = day;
+            todayByType = new TreeMap<>();
+            changed();
+        }
+    }
+
+    private void changed() {
+        version++;
+        cached = null;
+    }
+}
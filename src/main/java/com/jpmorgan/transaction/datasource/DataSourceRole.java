@@ -0,0 +1,5 @@
+package com.jpmorgan.transaction.datasource;
+
+public enum DataSourceRole {
+    PRIMARY, REPLICA
+}
@@ -0,0 +1,22 @@
+package com.jpmorgan.transaction.datasource;
+
+// Thread-bound user of the current read request, used for read-your-writes routing
+public final class ReadRoutingContext {
+
+    private static final ThreadLocal<Long> CURRENT_USER = new ThreadLocal<>();
+
+    private ReadRoutingContext() {
+    }
+
+    public static void setUserId(Long userId) {
+        CURRENT_USER.set(userId);
+    }
+
+    public static Long getUserId() {
+        return CURRENT_USER.get();
+    }
+
+    public static void clear() {
+        CURRENT_USER.remove();
+    }
+}
@@ -0,0 +1,33 @@
+package com.jpmorgan.transaction.datasource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+// Binds the {userId} path variable to the request thread so routing can honour read-your-writes
+public class ReadRoutingInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+            HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null && variables.containsKey("userId")) {
+            try {
+                ReadRoutingContext.setUserId(Long.valueOf(variables.get("userId")));
+            } catch (NumberFormatException e) {
+                ReadRoutingContext.clear();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        ReadRoutingContext.clear();
+    }
+}
@@ -0,0 +1,35 @@
+package com.jpmorgan.transaction.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Sends @Transactional(readOnly = true) work to the replica unless it is lagging or the user just wrote
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final RecentWriteTracker recentWriteTracker;
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor, RecentWriteTracker recentWriteTracker) {
+        this.lagMonitor = lagMonitor;
+        this.recentWriteTracker = recentWriteTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRole();
+    }
+
+    public DataSourceRole currentRole() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !lagMonitor.isHealthy()) {
+            return DataSourceRole.PRIMARY;
+        }
+
+        Long userId = ReadRoutingContext.getUserId();
+        if (userId != null && recentWriteTracker.hasRecentWrite(userId, lagMonitor.getLagMs())) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+}
@@ -0,0 +1,41 @@
+package com.jpmorgan.transaction.datasource;
+
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Remembers when each user last had a committed write on this instance
+public class RecentWriteTracker {
+
+    private final Map<Long, Long> lastWriteMillis = new ConcurrentHashMap<>();
+    private final long windowMs;
+
+    public RecentWriteTracker(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @TransactionalEventListener
+    public void onTransactionCommitted(TransactionCommittedEvent event) {
+        recordWrite(event.getUserId());
+    }
+
+    public void recordWrite(Long userId) {
+        lastWriteMillis.put(userId, System.currentTimeMillis());
+    }
+
+    // True when the replica may not have this user's latest write yet
+    public boolean hasRecentWrite(Long userId, long replicaLagMs) {
+        Long lastWrite = lastWriteMillis.get(userId);
+        return lastWrite != null
+            && System.currentTimeMillis() - lastWrite <= Math.max(windowMs, replicaLagMs);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.read-your-writes-ms:2000}")
+    public void purge() {
+        long cutoff = System.currentTimeMillis() - windowMs;
+        lastWriteMillis.values().removeIf(lastWrite -> lastWrite < cutoff);
+    }
+}
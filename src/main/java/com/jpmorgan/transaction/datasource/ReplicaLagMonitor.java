@@ -0,0 +1,78 @@
+package com.jpmorgan.transaction.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Measures replica lag with a heartbeat row: the primary's beat is stamped on every check and the
+ * replica's copy of it tells how far behind the replica is. Reads fall back to the primary while
+ * the lag is above the tolerance or the replica cannot be reached.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+
+    private volatile long lagMs = Long.MAX_VALUE;
+    private volatile boolean healthy;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMs) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMs = maxLagMs;
+        // A tolerance of 0 or less turns lag checking off and trusts the replica
+        this.healthy = maxLagMs <= 0;
+        if (maxLagMs <= 0) {
+            this.lagMs = 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.heartbeat-interval-ms:1000}")
+    public void checkLag() {
+        if (maxLagMs <= 0) {
+            return;
+        }
+        try {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            if (primary.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", now) == 0) {
+                primary.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, ?)", now);
+            }
+
+            Timestamp replicated = replica.queryForObject(
+                "SELECT beat_at FROM replica_heartbeat WHERE id = 1", Timestamp.class);
+            long lag = replicated == null ? Long.MAX_VALUE : Math.max(0, now.getTime() - replicated.getTime());
+            updateState(lag);
+        } catch (Exception e) {
+            if (healthy) {
+                log.warn("Replica lag check failed, routing reads to primary: {}", e.getMessage());
+            }
+            lagMs = Long.MAX_VALUE;
+            healthy = false;
+        }
+    }
+
+    private void updateState(long lag) {
+        boolean nowHealthy = lag <= maxLagMs;
+        if (nowHealthy != healthy) {
+            log.warn("Replica lag {} ms is {} tolerance of {} ms, routing reads to {}",
+                lag, nowHealthy ? "within" : "above", maxLagMs, nowHealthy ? "replica" : "primary");
+        }
+        lagMs = lag;
+        healthy = nowHealthy;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+}
@@ -0,0 +1,26 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccrualResult {
+
+    private String kind;
+    private LocalDate date;
+    private int partitions;
+    private long usersScanned;
+    private long postings;          // transactions written by this run
+    private BigDecimal totalAmount;
+    private long conflicts;         // users retried because live processing changed their balance mid-chunk
+    private long unresolved;        // users still conflicting after the last retry; a rerun picks them up
+    private long elapsedMs;
+}
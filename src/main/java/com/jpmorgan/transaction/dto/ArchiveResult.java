@@ -0,0 +1,22 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveResult {
+
+    private LocalDateTime cutoff;   // non-PENDING transactions older than this were moved
+    private int segments;           // files written by this run
+    private long records;
+    private long users;             // users whose opening balance absorbed archived amounts
+    private long bytes;
+    private long elapsedMs;
+}
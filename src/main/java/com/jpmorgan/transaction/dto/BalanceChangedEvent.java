@@ -0,0 +1,23 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceChangedEvent {
+
+    private String eventType;
+    private Long userId;
+    private String transactionId;
+    private BigDecimal balanceChange;
+    private BigDecimal newBalance;
+    private LocalDateTime timestamp;
+}
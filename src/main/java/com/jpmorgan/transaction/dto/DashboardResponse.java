@@ -0,0 +1,34 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardResponse {
+
+    private long userCount;
+    private BigDecimal totalBalance;
+    private LocalDate today;
+    private Map<String, TypeTotal> todayByType;             // completed transactions since midnight, by type
+    private List<TransactionResponse> recentTransactions;   // newest first
+    private LocalDateTime resyncedAt;                       // last full reload from the DB
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TypeTotal {
+        private long count;
+        private BigDecimal amount;
+    }
+}
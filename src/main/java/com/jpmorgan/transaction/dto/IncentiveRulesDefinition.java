@@ -0,0 +1,60 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// JSON shape of the incentive rules file loaded by IncentiveRuleEngine
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IncentiveRulesDefinition {
+
+    @Builder.Default
+    private List<Segment> segments = new ArrayList<>();
+
+    @Builder.Default
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Segment {
+        private String name;
+        @Builder.Default
+        private List<Long> userIds = new ArrayList<>();
+        @Builder.Default
+        private List<List<Long>> userIdRanges = new ArrayList<>(); // inclusive [from, to] pairs
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Rule {
+        @Builder.Default
+        private String segment = "DEFAULT";
+        private String type; // CREDIT or DEBIT
+        @Builder.Default
+        private List<Tier> tiers = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Tier {
+        private BigDecimal above;   // applies to amounts strictly greater than this
+        private BigDecimal percent;
+        private BigDecimal cap;     // optional maximum incentive
+        @Builder.Default
+        private String incentiveType = "PERCENTAGE";
+    }
+}
@@ -0,0 +1,19 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LeaderboardEntry {
+
+    private int rank;
+    private Long userId;
+    private BigDecimal value;   // balance, or today's transaction volume
+}
@@ -0,0 +1,40 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationReport {
+
+    private String runId;
+    private String status;
+    private boolean running;
+    private Long lastUserId;
+    private Long maxUserId;
+    private Long usersChecked;
+    private Long mismatchCount;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+    private List<Mismatch> mismatches;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Mismatch {
+        private Long userId;
+        private BigDecimal storedBalance;
+        private BigDecimal expectedBalance;
+        private BigDecimal difference;
+    }
+}
@@ -0,0 +1,35 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplayProgress {
+
+    public enum State {
+        IDLE, REPLAYING, CATCHING_UP, LIVE, FAILED
+    }
+
+    private State state;
+    private String topic;
+    private int partitions;
+    private long target;            // records between the start positions and the end offsets seen so far
+    private long consumed;
+    private long applied;           // messages written; a transfer counts once
+    private long duplicates;        // already in the ledger
+    private long rejected;          // failed validation, as they did when first processed
+    private long lag;
+    private double recordsPerSecond;
+    private double percentComplete;
+    private Long etaSeconds;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,24 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SlowTransaction {
+
+    private String transactionId;
+    private int partition;
+    private long offset;
+    private String outcome;             // COMPLETED, or the exception that failed it
+    private LocalDateTime finishedAt;
+    private double totalMs;
+    private Map<String, Double> stagesMs;   // time per stage; the rest is consumer and framework overhead
+}
@@ -0,0 +1,22 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatementBatchResult {
+
+    private String period;
+    private String format;
+    private String outputDir;
+    private int partitions;
+    private long statements;        // written by this run
+    private long totalStatements;   // across all runs of the period, including resumed ones
+    private long elapsedMs;
+    private double statementsPerSecond;
+}
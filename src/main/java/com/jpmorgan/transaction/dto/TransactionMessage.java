@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
@@ -21,11 +22,17 @@ public class TransactionMessage {
     private Long userId;
     
     @JsonProperty("type")
-    private String type; // CREDIT or DEBIT
+    private String type; // CREDIT, DEBIT or TRANSFER
     
     @JsonProperty("amount")
     private BigDecimal amount;
     
     @JsonProperty("description")
     private String description;
+
+    @JsonProperty("targetUserId")
+    private Long targetUserId; // destination of a TRANSFER; userId is the source
+
+    @JsonProperty("executeAt")
+    private LocalDateTime executeAt; // future time to run at; omitted or past means now
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionProcessedEvent {
+
+    private String eventType;
+    private String transactionId;
+    private Long userId;
+    private String type;
+    private BigDecimal amount;
+    private BigDecimal incentiveAmount;
+    private String status;
+    private LocalDateTime timestamp;
+}
@@ -20,8 +20,11 @@ public class TransactionResponse {
     private String type;
     private BigDecimal amount;
     private String description;
+    private String linkedTransactionId;
     private Boolean incentiveApplied;
     private BigDecimal incentiveAmount;
     private String status;
+    private String failureReason;           // FAILED transactions only
     private LocalDateTime timestamp;
+    private LocalDateTime executeAt;
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.jpmorgan.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionSearchResponse {
+
+    private String query;
+    private Long userId;
+    private int page;
+    private int size;
+    private long total;
+    private boolean approximate;    // total is an upper bound; substring matches are only checked for the returned page
+    private boolean indexed;        // false when answered by a table scan (index disabled or still loading)
+    private List<TransactionResponse> results;  // newest first
+}
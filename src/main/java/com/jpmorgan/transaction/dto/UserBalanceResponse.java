@@ -1,11 +1,13 @@
 package com.jpmorgan.transaction.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
@@ -17,4 +19,8 @@ public class UserBalanceResponse {
     private String username;
     private String email;
     private BigDecimal balance;
+
+    // Only for point-in-time queries
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDateTime asOf;
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.jpmorgan.transaction.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Published inside a batch of postings written with plain JDBC, such as an accrual chunk, which
+// publishes no TransactionCommittedEvent; listeners use @TransactionalEventListener to react after commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalancesPostedEvent {
+
+    private List<PostedBalance> balances;
+    private LocalDateTime timestamp;
+
+    public record PostedBalance(Long userId, BigDecimal newBalance, long version) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.jpmorgan.transaction.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Published after a bulk replay rewrote balances and transactions outside the per-message path;
+// in-memory views built from the DB should reload
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerRebuiltEvent {
+
+    private long transactionsApplied;
+}
@@ -0,0 +1,30 @@
+package com.jpmorgan.transaction.event;
+
+import com.jpmorgan.transaction.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Published inside processTransaction; listeners use @TransactionalEventListener to react after commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionCommittedEvent {
+
+    private Long id;
+    private String transactionId;
+    private Long userId;
+    private Transaction.TransactionType type;
+    private BigDecimal amount;
+    private BigDecimal incentiveAmount;
+    private BigDecimal balanceChange;
+    private BigDecimal newBalance;
+    private String description;
+    private String linkedTransactionId;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,17 @@
+package com.jpmorgan.transaction.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Published when a future-dated transaction is stored as PENDING; the dispatcher picks it up after commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionScheduledEvent {
+
+    private Long id;
+    private LocalDateTime executeAt;
+}
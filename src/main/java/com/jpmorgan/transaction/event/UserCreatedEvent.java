@@ -0,0 +1,17 @@
+package com.jpmorgan.transaction.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Published inside createUser; listeners use @TransactionalEventListener to react after commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCreatedEvent {
+
+    private Long userId;
+    private BigDecimal balance;
+}
@@ -0,0 +1,7 @@
+package com.jpmorgan.transaction.exception;
+
+public class VelocityLimitExceededException extends RuntimeException {
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,125 @@
+package com.jpmorgan.transaction.kafka;
+
+import com.jpmorgan.transaction.model.OutboxEvent;
+import com.jpmorgan.transaction.service.OutboxService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    public static final String EVENT_TYPE_HEADER = "eventType";
+
+    private final OutboxService outboxService;
+    private final KafkaTemplate<String, String> eventKafkaTemplate;
+    private final String topic;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration lease;
+    private final long sendTimeoutMs;
+    private final Duration retention;
+    private final String instanceId;
+
+    public OutboxRelay(
+            OutboxService outboxService,
+            KafkaTemplate<String, String> eventKafkaTemplate,
+            @Value("${kafka.topic.events}") String topic,
+            @Value("${outbox.relay.enabled:true}") boolean enabled,
+            @Value("${outbox.relay.batch-size:500}") int batchSize,
+            @Value("${outbox.relay.lease-ms:30000}") long leaseMs,
+            @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${outbox.cleanup.retention-hours:24}") long retentionHours,
+            @Value("${outbox.relay.instance-id:}") String instanceId) {
+        this.outboxService = outboxService;
+        this.eventKafkaTemplate = eventKafkaTemplate;
+        this.topic = topic;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.retention = Duration.ofHours(retentionHours);
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.linger-ms:100}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Keep draining while full batches come back so a backlog is not throttled by the linger delay
+            int published;
+            do {
+                published = publishBatch();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public int publishBatch() {
+        List<OutboxEvent> batch = outboxService.claimBatch(instanceId, batchSize, lease);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            ProducerRecord<String, String> record = new ProducerRecord<>(
+                topic, String.valueOf(event.getAggregateId()), event.getPayload());
+            record.headers().add(EVENT_TYPE_HEADER, event.getEventType().name().getBytes(StandardCharsets.UTF_8));
+            futures.add(eventKafkaTemplate.send(record));
+        }
+        eventKafkaTemplate.flush();
+
+        List<Long> published = new ArrayList<>(batch.size());
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Long id = batch.get(i).getId();
+            try {
+                futures.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                published.add(id);
+            } catch (Exception e) {
+                failed.add(id);
+            }
+        }
+
+        outboxService.markPublished(instanceId, published);
+        if (!failed.isEmpty()) {
+            log.warn("Failed to publish {} of {} outbox events, releasing them for retry", failed.size(), batch.size());
+            outboxService.release(instanceId, failed);
+        }
+        log.debug("Published {} outbox events to {}", published.size(), topic);
+        return published.size();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanup.interval-ms:600000}")
+    public void cleanup() {
+        if (!enabled) {
+            return;
+        }
+        int deleted = outboxService.deletePublishedBefore(LocalDateTime.now().minus(retention), batchSize);
+        if (deleted > 0) {
+            log.info("Deleted {} published outbox events older than {}", deleted, retention);
+        }
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+}
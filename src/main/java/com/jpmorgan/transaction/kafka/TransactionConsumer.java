@@ -1,6 +1,8 @@
 package com.jpmorgan.transaction.kafka;
 
 import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.profiling.TransactionProfiler;
+import com.jpmorgan.transaction.service.TransactionResult;
 import com.jpmorgan.transaction.service.TransactionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,12 +17,19 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class TransactionConsumer {
 
+    // Lets the ledger replay and the warm-up stop and start this listener
+    public static final String LISTENER_ID = "transactions";
+
     private final TransactionService transactionService;
+    private final TransactionProfiler profiler;
 
     @KafkaListener(
+        id = LISTENER_ID,
         topics = "${kafka.topic.transactions}",
         groupId = "${spring.kafka.consumer.group-id}",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory",
+        // With warm-up enabled, TransactionWarmUp starts the listener once it has finished
+        autoStartup = "#{${kafka.listener.auto-startup:true} and !${warmup.enabled:false}}"
     )
     public void consumeTransaction(
             @Payload TransactionMessage message,
@@ -28,22 +37,29 @@ public class TransactionConsumer {
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
             @Header(KafkaHeaders.OFFSET) long offset) {
         
-        log.info("Received transaction message from topic: {}, partition: {}, offset: {}",
-            topic, partition, offset);
-        log.info("Transaction details - ID: {}, User: {}, Type: {}, Amount: {}",
-            message.getTransactionId(),
-            message.getUserId(),
-            message.getType(),
-            message.getAmount());
+        // Per-message detail is DEBUG; TransactionService logs the outcome once at INFO
+        log.debug("Received transaction {} from {}-{}@{} - User: {}, Type: {}, Amount: {}",
+            message.getTransactionId(), topic, partition, offset,
+            message.getUserId(), message.getType(), message.getAmount());
 
+        profiler.start(message.getTransactionId(), partition, offset);
+        String outcome = "COMPLETED";
         try {
-            transactionService.processTransaction(message);
-            log.info("Successfully processed transaction: {}", message.getTransactionId());
+            TransactionResult result = transactionService.submit(message);
+            if (result.isRejected()) {
+                // Recorded as a FAILED row; returning normally acknowledges the offset, as redelivery would fail the same way
+                outcome = result.failureReason().name();
+            } else {
+                log.debug("Successfully processed transaction: {}", message.getTransactionId());
+            }
         } catch (Exception e) {
+            outcome = e.getClass().getSimpleName();
             log.error("Failed to process transaction {}: {}",
                 message.getTransactionId(), e.getMessage(), e);
             // In production, you might want to send to a dead letter queue
             throw e; // Re-throw to trigger retry mechanism
+        } finally {
+            profiler.finish(outcome);
         }
     }
 }
\ No newline at end of file
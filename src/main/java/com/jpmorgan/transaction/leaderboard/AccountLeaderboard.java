@@ -0,0 +1,199 @@
+package com.jpmorgan.transaction.leaderboard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.BalanceChangedEvent;
+import com.jpmorgan.transaction.dto.LeaderboardEntry;
+import com.jpmorgan.transaction.dto.TransactionProcessedEvent;
+import com.jpmorgan.transaction.event.BalancesPostedEvent;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.kafka.OutboxRelay;
+import com.jpmorgan.transaction.model.OutboxEvent;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.sharding.ShardRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Top users by balance and by today's transaction volume, answered from memory. Both rankings
+ * are loaded from the DB before Kafka listeners start and then follow committed transactions
+ * and accrual postings.
+ * With sharding enabled, other instances' commits arrive through the event stream. Interest
+ * and fee postings do not count as volume.
+ */
+@Component
+@Slf4j
+public class AccountLeaderboard implements SmartInitializingSingleton {
+
+    public enum Metric {
+        BALANCE, VOLUME
+    }
+
+    private static final String BALANCES_SQL = "SELECT id, CAST(balance * 100 AS BIGINT) FROM users";
+
+    private static final String VOLUMES_SQL =
+        "SELECT user_id, CAST(SUM(amount) * 100 AS BIGINT) FROM transactions "
+            + "WHERE status = 'COMPLETED' AND timestamp >= ? AND type NOT IN ('INTEREST', 'FEE') GROUP BY user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRegistry shardRegistry;
+    private final ObjectMapper objectMapper;
+    private final int maxN;
+    private final RankedIndex balances = new RankedIndex();
+    private final RankedIndex volumes = new RankedIndex();
+    private volatile LocalDate volumeDay = LocalDate.now();
+
+    public AccountLeaderboard(
+            DataSource dataSource,
+            ShardRegistry shardRegistry,
+            ObjectMapper objectMapper,
+            @Value("${leaderboard.max-n:1000}") int maxN) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.shardRegistry = shardRegistry;
+        this.objectMapper = objectMapper;
+        this.maxN = maxN;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        balances.clear();
+        volumes.clear();
+        volumeDay = today;
+        jdbcTemplate.query(BALANCES_SQL, rs -> {
+            balances.set(rs.getLong(1), rs.getLong(2));
+        });
+        jdbcTemplate.query(VOLUMES_SQL, rs -> {
+            volumes.set(rs.getLong(1), rs.getLong(2));
+        }, Timestamp.valueOf(today.atStartOfDay()));
+        log.info("Rebuilt leaderboard for {} users ({} active today) in {} ms",
+            balances.size(), volumes.size(), System.currentTimeMillis() - start);
+    }
+
+    public List<LeaderboardEntry> top(Metric metric, int n) {
+        if (n <= 0 || n > maxN) {
+            throw new IllegalArgumentException("n must be between 1 and " + maxN);
+        }
+        RankedIndex index = metric == Metric.BALANCE ? balances : volumes;
+        if (metric == Metric.VOLUME) {
+            rollVolumeTo(LocalDate.now());
+        }
+        List<RankedIndex.Entry> top = index.top(n);
+        List<LeaderboardEntry> entries = new ArrayList<>(top.size());
+        for (RankedIndex.Entry entry : top) {
+            entries.add(LeaderboardEntry.builder()
+                .rank(entries.size() + 1)
+                .userId(entry.userId())
+                .value(BigDecimal.valueOf(entry.score(), 2))
+                .build());
+        }
+        return entries;
+    }
+
+    @TransactionalEventListener
+    public void onTransactionCommitted(TransactionCommittedEvent event) {
+        if (event.getNewBalance() != null) {
+            balances.set(event.getUserId(), toCents(event.getNewBalance()));
+        }
+        addVolume(event.getUserId(), event.getType(), event.getAmount(), event.getTimestamp());
+    }
+
+    // Accrual postings; interest and fees never count as volume
+    @TransactionalEventListener
+    public void onBalancesPosted(BalancesPostedEvent event) {
+        for (BalancesPostedEvent.PostedBalance posted : event.getBalances()) {
+            balances.set(posted.userId(), toCents(posted.newBalance()));
+        }
+    }
+
+    @EventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        rebuild();
+    }
+
+    // Commits made by the instances owning other shards; this instance's own commits arrive above
+    @KafkaListener(
+        topics = "${kafka.topic.events}",
+        groupId = "leaderboard-#{@shardRegistry.instanceId}",
+        containerFactory = "eventKafkaListenerContainerFactory",
+        autoStartup = "${sharding.enabled:false}"
+    )
+    public void onEvent(ConsumerRecord<String, String> record) {
+        Header eventType = record.headers().lastHeader(OutboxRelay.EVENT_TYPE_HEADER);
+        if (eventType == null) {
+            return;
+        }
+        try {
+            String type = new String(eventType.value(), StandardCharsets.UTF_8);
+            if (OutboxEvent.EventType.BALANCE_CHANGED.name().equals(type)) {
+                BalanceChangedEvent event = objectMapper.readValue(record.value(), BalanceChangedEvent.class);
+                if (!shardRegistry.isLocal(event.getUserId())) {
+                    balances.set(event.getUserId(), toCents(event.getNewBalance()));
+                }
+            } else if (OutboxEvent.EventType.TRANSACTION_PROCESSED.name().equals(type)) {
+                TransactionProcessedEvent event = objectMapper.readValue(record.value(), TransactionProcessedEvent.class);
+                if (!shardRegistry.isLocal(event.getUserId())
+                        && Transaction.TransactionStatus.COMPLETED.name().equals(event.getStatus())) {
+                    addVolume(event.getUserId(), Transaction.TransactionType.valueOf(event.getType()),
+                        event.getAmount(), event.getTimestamp());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable leaderboard event at offset {}: {}", record.offset(), e.getMessage());
+        }
+    }
+
+    private void addVolume(Long userId, Transaction.TransactionType type, BigDecimal amount, LocalDateTime timestamp) {
+        if (amount == null || type == Transaction.TransactionType.INTEREST || type == Transaction.TransactionType.FEE) {
+            return;
+        }
+        LocalDate day = timestamp == null ? LocalDate.now() : timestamp.toLocalDate();
+        if (rollVolumeTo(day)) {
+            volumes.add(userId, toCents(amount));
+        }
+    }
+
+    // Starts a new day's volume ranking when the date moves on; false for activity from an earlier day
+    private boolean rollVolumeTo(LocalDate day) {
+        if (day.isBefore(volumeDay)) {
+            return false;
+        }
+        if (day.isAfter(volumeDay)) {
+            synchronized (this) {
+                if (day.isAfter(volumeDay)) {
+                    volumes.clear();
+                    volumeDay = day;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
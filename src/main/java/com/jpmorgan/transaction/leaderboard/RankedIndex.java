@@ -0,0 +1,68 @@
+package com.jpmorgan.transaction.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * One score per user, kept in a skip list ordered by score (highest first) and then user id.
+ * Updates remove the user's old entry and insert the new one in O(log n); the top k are the
+ * first k entries of the list. Updates to one user are serialised by the score map, and readers
+ * never block writers.
+ */
+final class RankedIndex {
+
+    record Entry(long score, long userId) {
+    }
+
+    private static final Comparator<Entry> ORDER =
+        Comparator.comparingLong(Entry::score).reversed().thenComparingLong(Entry::userId);
+
+    private final ConcurrentHashMap<Long, Long> scores = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+    void set(long userId, long score) {
+        scores.compute(userId, (id, previous) -> {
+            if (previous != null) {
+                if (previous == score) {
+                    return previous;
+                }
+                ranking.remove(new Entry(previous, id));
+            }
+            ranking.add(new Entry(score, id));
+            return score;
+        });
+    }
+
+    void add(long userId, long delta) {
+        scores.compute(userId, (id, previous) -> {
+            long score = previous == null ? delta : previous + delta;
+            if (previous != null) {
+                ranking.remove(new Entry(previous, id));
+            }
+            ranking.add(new Entry(score, id));
+            return score;
+        });
+    }
+
+    List<Entry> top(int n) {
+        List<Entry> top = new ArrayList<>(Math.min(n, scores.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (top.size() < n && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    void clear() {
+        scores.clear();
+        ranking.clear();
+    }
+
+    int size() {
+        return scores.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.jpmorgan.transaction.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most {@code maxPerSecond} INFO-and-below events through per logger in each second, for
+ * loggers under one of the comma-separated {@code categories}. WARN and ERROR always pass. Being a
+ * turbo filter it runs before the event, its message or its arguments are built, so a sampled-out
+ * call costs a map lookup and an increment. Level checks ({@code isDebugEnabled()}) are not counted.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private String[] categories = new String[0];
+    private int maxPerSecond = 100;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    // The current second and how many events it has let through, packed as second << 20 | count
+    private static final class Window {
+        final AtomicLong state = new AtomicLong();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || level.isGreaterOrEqual(Level.WARN) || !sampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(logger.getName(), name -> new Window());
+        long second = System.currentTimeMillis() / 1000;
+        while (true) {
+            long state = window.state.get();
+            long count = (state >>> 20) == second ? state & 0xFFFFF : 0;
+            if (count >= maxPerSecond) {
+                dropped.incrementAndGet();
+                return FilterReply.DENY;
+            }
+            if (window.state.compareAndSet(state, second << 20 | (count + 1))) {
+                return FilterReply.NEUTRAL;
+            }
+        }
+    }
+
+    private boolean sampled(String loggerName) {
+        for (String category : categories) {
+            if (loggerName.startsWith(category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setCategories(String categories) {
+        this.categories = Arrays.stream(categories.split(","))
+            .map(String::trim)
+            .filter(category -> !category.isEmpty())
+            .toArray(String[]::new);
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = Math.min(maxPerSecond, 0xFFFFF);
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
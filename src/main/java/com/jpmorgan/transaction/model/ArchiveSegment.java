@@ -0,0 +1,51 @@
+package com.jpmorgan.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Catalog entry for one immutable segment file of archived transactions; files without a row are ignored
+@Entity
+@Table(name = "archive_segments")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 100)
+    private String fileName;
+
+    // Every non-PENDING transaction older than this had been archived when the segment was written
+    @Column(nullable = false)
+    private LocalDateTime cutoff;
+
+    @Column(nullable = false)
+    private LocalDateTime minTimestamp;
+
+    @Column(nullable = false)
+    private LocalDateTime maxTimestamp;
+
+    @Column(nullable = false)
+    private Long minUserId;
+
+    @Column(nullable = false)
+    private Long maxUserId;
+
+    @Column(nullable = false)
+    private Long records;
+
+    @Column(nullable = false)
+    private Long bytes;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
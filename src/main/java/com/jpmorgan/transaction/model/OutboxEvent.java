@@ -0,0 +1,51 @@
+package com.jpmorgan.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_published_at", columnList = "publishedAt"),
+    @Index(name = "idx_outbox_claimed_until", columnList = "claimedUntil")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long aggregateId; // userId, used as the Kafka record key
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private EventType eventType;
+
+    @Column(nullable = false, length = 4000)
+    private String payload;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime publishedAt;
+
+    @Column(length = 100)
+    private String claimedBy;
+
+    private LocalDateTime claimedUntil;
+
+    public enum EventType {
+        TRANSACTION_PROCESSED, BALANCE_CHANGED
+    }
+}
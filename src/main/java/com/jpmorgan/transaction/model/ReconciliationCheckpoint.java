@@ -0,0 +1,53 @@
+package com.jpmorgan.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reconciliation_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationCheckpoint {
+
+    @Id
+    @Column(length = 50)
+    private String jobName;
+
+    @Column(nullable = false, length = 36)
+    private String runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    // Every user id up to and including this one has been reconciled in this run
+    private Long lastUserId;
+
+    @Column(nullable = false)
+    private Long maxUserId;
+
+    @Column(nullable = false)
+    private Long usersChecked;
+
+    @Column(nullable = false)
+    private Long mismatches;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+}
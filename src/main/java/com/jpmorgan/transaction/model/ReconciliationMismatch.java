@@ -0,0 +1,42 @@
+package com.jpmorgan.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reconciliation_mismatches", indexes = {
+    @Index(name = "idx_reconciliation_mismatch_run", columnList = "runId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationMismatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String runId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal storedBalance;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal expectedBalance;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,26 @@
+package com.jpmorgan.transaction.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Single-row table stamped on the primary by ReplicaLagMonitor; mapped so the schema is generated with the rest
+@Entity
+@Table(name = "replica_heartbeat")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaHeartbeat {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private LocalDateTime beatAt;
+}
@@ -0,0 +1,49 @@
+package com.jpmorgan.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Progress of one partition of a statement batch; partitions are [fromUserId, toUserId) id ranges
+@Entity
+@Table(name = "statement_checkpoints", indexes = {
+    @Index(name = "idx_statement_checkpoint_period", columnList = "period")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatementCheckpoint {
+
+    @Id
+    @Column(length = 40)
+    private String id; // period:partition
+
+    @Column(nullable = false, length = 7)
+    private String period; // yyyy-MM
+
+    @Column(nullable = false)
+    private Integer partitionIndex;
+
+    @Column(nullable = false)
+    private Long fromUserId;
+
+    @Column(nullable = false)
+    private Long toUserId;
+
+    // Every statement for a user id up to and including this one has been written
+    private Long lastUserId;
+
+    @Column(nullable = false)
+    private Long statements;
+
+    @Column(nullable = false)
+    private Boolean completed;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
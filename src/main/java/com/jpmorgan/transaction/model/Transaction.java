@@ -6,12 +6,17 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_user_timestamp", columnList = "user_id, timestamp"),
+    @Index(name = "idx_transactions_status_execute_at", columnList = "status, executeAt"),
+    @Index(name = "idx_transactions_updated_at", columnList = "updatedAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,7 +35,7 @@ public class Transaction {
     private String transactionId;
 
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 10)
+    @Column(nullable = false, length = 20)
     private TransactionType type;
 
     @Column(nullable = false, precision = 19, scale = 2)
@@ -39,6 +44,16 @@ public class Transaction {
     @Column(length = 500)
     private String description;
 
+    // For transfers, the transactionId of the other side's row
+    @Column(length = 100)
+    private String linkedTransactionId;
+
+    // Destination user of a scheduled transfer that has not run yet
+    private Long targetUserId;
+
+    // When set, the transaction stays PENDING until the scheduler runs it at this time
+    private LocalDateTime executeAt;
+
     @Builder.Default
     @Column(nullable = false)
     private Boolean incentiveApplied = false;
@@ -52,15 +67,36 @@ public class Transaction {
     @Builder.Default
     private TransactionStatus status = TransactionStatus.PENDING;
 
+    // Why a FAILED transaction was turned away
+    @Enumerated(EnumType.STRING)
+    @Column(length = 30)
+    private FailureReason failureReason;
+
+    // Creation time, moved to the execution time when a scheduled transaction settles
     @CreationTimestamp
-    @Column(nullable = false, updatable = false)
+    @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
     public enum TransactionType {
-        CREDIT, DEBIT
+        CREDIT, DEBIT, TRANSFER_IN, TRANSFER_OUT, INTEREST, FEE;
+
+        // Types that take money out of the user's balance
+        public boolean isOutgoing() {
+            return this == DEBIT || this == TRANSFER_OUT || this == FEE;
+        }
     }
 
     public enum TransactionStatus {
         PENDING, COMPLETED, FAILED
     }
+
+    public enum FailureReason {
+        DUPLICATE, UNKNOWN_USER, INVALID_TYPE, INVALID_AMOUNT, INVALID_TRANSFER, INSUFFICIENT_BALANCE, VELOCITY_LIMIT,
+        // Scheduled transactions only: missed their execution time, or failed for an unexpected reason
+        EXPIRED, ERROR
+    }
 }
\ No newline at end of file
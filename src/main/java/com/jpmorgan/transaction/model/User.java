@@ -14,7 +14,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_updated_at", columnList = "updatedAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,6 +37,17 @@ public class User {
     @Builder.Default
     private BigDecimal balance = BigDecimal.ZERO;
 
+    // Balance the account was opened with, plus the net of its archived transactions;
+    // reconciliation checks balance = openingBalance + transactions still in the table
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Builder.Default
+    private BigDecimal openingBalance = BigDecimal.ZERO;
+
+    // Velocity limit tier, see velocity.tiers
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String tier = "STANDARD";
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Transaction> transactions = new ArrayList<>();
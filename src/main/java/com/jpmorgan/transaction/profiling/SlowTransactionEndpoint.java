@@ -0,0 +1,32 @@
+package com.jpmorgan.transaction.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/slowtransactions lists the slowest recent messages with their stage timings; DELETE clears them
+@Component
+@Endpoint(id = "slowtransactions")
+@RequiredArgsConstructor
+public class SlowTransactionEndpoint {
+
+    private final TransactionProfiler profiler;
+
+    @ReadOperation
+    public Map<String, Object> slowest() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("thresholdMs", profiler.getSlowThresholdMs());
+        body.put("transactions", profiler.slowest());
+        return body;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        profiler.clearSlowest();
+    }
+}
@@ -0,0 +1,81 @@
+package com.jpmorgan.transaction.profiling;
+
+import com.jpmorgan.transaction.dto.SlowTransaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The slowest transactions seen within a recent window, in a fixed array of slots updated by
+ * compare-and-set. An offer replaces an empty or expired slot, or else the fastest entry if the
+ * offer is slower; writers never block each other, and an offer that keeps losing races is
+ * dropped rather than retried forever.
+ */
+class SlowTransactionLog {
+
+    private static final int MAX_ATTEMPTS = 4;
+
+    private record Entry(long recordedAtMs, SlowTransaction transaction) {
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final long windowMs;
+
+    SlowTransactionLog(int capacity, long windowMs) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.windowMs = windowMs;
+    }
+
+    boolean offer(SlowTransaction transaction, long nowMs) {
+        Entry entry = new Entry(nowMs, transaction);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int victim = -1;
+            Entry victimEntry = null;
+            for (int i = 0; i < slots.length(); i++) {
+                Entry current = slots.get(i);
+                if (current == null || expired(current, nowMs)) {
+                    victim = i;
+                    victimEntry = current;
+                    break;
+                }
+                if (victimEntry == null || current.transaction().getTotalMs() < victimEntry.transaction().getTotalMs()) {
+                    victim = i;
+                    victimEntry = current;
+                }
+            }
+            if (victimEntry != null && !expired(victimEntry, nowMs)
+                    && victimEntry.transaction().getTotalMs() >= transaction.getTotalMs()) {
+                return false;
+            }
+            if (slots.compareAndSet(victim, victimEntry, entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Slowest first
+    List<SlowTransaction> snapshot(long nowMs) {
+        List<SlowTransaction> transactions = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            Entry entry = slots.get(i);
+            if (entry != null && !expired(entry, nowMs)) {
+                transactions.add(entry.transaction());
+            }
+        }
+        transactions.sort(Comparator.comparingDouble(SlowTransaction::getTotalMs).reversed());
+        return transactions;
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    private boolean expired(Entry entry, long nowMs) {
+        return nowMs - entry.recordedAtMs() > windowMs;
+    }
+}
@@ -0,0 +1,28 @@
+package com.jpmorgan.transaction.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event spanning one Kafka message, from receipt until its DB transaction completed
+@Name("com.jpmorgan.transaction.TransactionProcessed")
+@Label("Transaction Processed")
+@Description("One transaction message consumed from Kafka")
+@Category({"Transaction Service", "Kafka"})
+@StackTrace(false)
+class TransactionProcessedEvent extends jdk.jfr.Event {
+
+    @Label("Transaction Id")
+    String transactionId;
+
+    @Label("Partition")
+    int partition;
+
+    @Label("Offset")
+    long offset;
+
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,202 @@
+package com.jpmorgan.transaction.profiling;
+
+import com.jpmorgan.transaction.dto.SlowTransaction;
+import jdk.jfr.EventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each consumed message and its stages. The consumer thread's trace is a reused set of
+ * primitive counters, so a message that is not slow costs a few {@code nanoTime} calls and no
+ * allocation; JFR events are only created while a recording has them enabled. Messages slower
+ * than {@code profiling.slow-threshold-ms} go to a {@link SlowTransactionLog} with their stage
+ * breakdown. Outside a consumed message (REST, scheduled runs, replay) every call is a no-op.
+ */
+@Component
+public class TransactionProfiler {
+
+    public enum Stage {
+        DEDUPE, USER_LOAD, INCENTIVE, BALANCE_UPDATE, SAVE, COMMIT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final EventType PROCESSED_EVENT = EventType.getEventType(TransactionProcessedEvent.class);
+    private static final EventType STAGE_EVENT = EventType.getEventType(TransactionStageEvent.class);
+
+    private static final class Trace {
+        boolean active;
+        String transactionId;
+        int partition;
+        long offset;
+        long startNanos;
+        TransactionProcessedEvent event;
+        final long[] stageStart = new long[STAGES.length];
+        final long[] stageNanos = new long[STAGES.length];
+        final TransactionStageEvent[] stageEvents = new TransactionStageEvent[STAGES.length];
+    }
+
+    private final ThreadLocal<Trace> traces = ThreadLocal.withInitial(Trace::new);
+    private final SlowTransactionLog slowLog;
+    private final long slowThresholdNanos;
+
+    public TransactionProfiler(
+            @Value("${profiling.slow-threshold-ms:500}") long slowThresholdMs,
+            @Value("${profiling.slow-capacity:32}") int slowCapacity,
+            @Value("${profiling.slow-window-ms:900000}") long slowWindowMs) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.slowLog = new SlowTransactionLog(slowCapacity, slowWindowMs);
+    }
+
+    public void start(String transactionId, int partition, long offset) {
+        Trace trace = traces.get();
+        trace.active = true;
+        trace.transactionId = transactionId;
+        trace.partition = partition;
+        trace.offset = offset;
+        for (int i = 0; i < STAGES.length; i++) {
+            trace.stageStart[i] = 0;
+            trace.stageNanos[i] = 0;
+            trace.stageEvents[i] = null;
+        }
+        if (PROCESSED_EVENT.isEnabled()) {
+            trace.event = new TransactionProcessedEvent();
+            trace.event.begin();
+        } else {
+            trace.event = null;
+        }
+        trace.startNanos = System.nanoTime();
+    }
+
+    public void begin(Stage stage) {
+        Trace trace = traces.get();
+        if (!trace.active) {
+            return;
+        }
+        int i = stage.ordinal();
+        if (STAGE_EVENT.isEnabled()) {
+            trace.stageEvents[i] = new TransactionStageEvent();
+            trace.stageEvents[i].begin();
+        }
+        trace.stageStart[i] = System.nanoTime();
+    }
+
+    // A stage entered more than once (e.g. both users of a transfer) accumulates
+    public void end(Stage stage) {
+        Trace trace = traces.get();
+        if (trace.active) {
+            end(trace, stage.ordinal(), System.nanoTime());
+        }
+    }
+
+    // Times the flush and commit of the caller's DB transaction as the COMMIT stage
+    public void traceCommit() {
+        if (!traces.get().active || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                // Ahead of @TransactionalEventListener callbacks, which are not part of the commit
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                begin(Stage.COMMIT);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                end(Stage.COMMIT);
+            }
+        });
+    }
+
+    public void finish(String outcome) {
+        Trace trace = traces.get();
+        if (!trace.active) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < STAGES.length; i++) {
+            end(trace, i, now);
+        }
+        trace.active = false;
+        long total = now - trace.startNanos;
+
+        TransactionProcessedEvent event = trace.event;
+        trace.event = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.transactionId = trace.transactionId;
+                event.partition = trace.partition;
+                event.offset = trace.offset;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+        if (total >= slowThresholdNanos) {
+            Map<String, Double> stages = new LinkedHashMap<>();
+            for (int i = 0; i < STAGES.length; i++) {
+                if (trace.stageNanos[i] > 0) {
+                    stages.put(STAGES[i].name(), toMillis(trace.stageNanos[i]));
+                }
+            }
+            slowLog.offer(SlowTransaction.builder()
+                .transactionId(trace.transactionId)
+                .partition(trace.partition)
+                .offset(trace.offset)
+                .outcome(outcome)
+                .finishedAt(LocalDateTime.now())
+                .totalMs(toMillis(total))
+                .stagesMs(stages)
+                .build(), System.currentTimeMillis());
+        }
+    }
+
+    public List<SlowTransaction> slowest() {
+        return slowLog.snapshot(System.currentTimeMillis());
+    }
+
+    public void clearSlowest() {
+        slowLog.clear();
+    }
+
+    public long getSlowThresholdMs() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    private static void end(Trace trace, int i, long now) {
+        if (trace.stageStart[i] == 0) {
+            return;
+        }
+        trace.stageNanos[i] += now - trace.stageStart[i];
+        trace.stageStart[i] = 0;
+        TransactionStageEvent event = trace.stageEvents[i];
+        if (event != null) {
+            trace.stageEvents[i] = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.transactionId = trace.transactionId;
+                event.partition = trace.partition;
+                event.offset = trace.offset;
+                event.stage = STAGES[i].name();
+                event.commit();
+            }
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
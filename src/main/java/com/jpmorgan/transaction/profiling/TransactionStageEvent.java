@@ -0,0 +1,28 @@
+package com.jpmorgan.transaction.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event for one stage of processing a message, nested inside its TransactionProcessedEvent
+@Name("com.jpmorgan.transaction.TransactionStage")
+@Label("Transaction Stage")
+@Description("Dedupe, user load, incentive call, balance update, save or commit of one transaction")
+@Category({"Transaction Service", "Kafka"})
+@StackTrace(false)
+class TransactionStageEvent extends jdk.jfr.Event {
+
+    @Label("Transaction Id")
+    String transactionId;
+
+    @Label("Partition")
+    int partition;
+
+    @Label("Offset")
+    long offset;
+
+    @Label("Stage")
+    String stage;
+}
@@ -0,0 +1,316 @@
+package com.jpmorgan.transaction.reconciliation;
+
+import com.jpmorgan.transaction.dto.ReconciliationReport;
+import com.jpmorgan.transaction.model.ReconciliationCheckpoint;
+import com.jpmorgan.transaction.model.ReconciliationMismatch;
+import com.jpmorgan.transaction.repository.ReconciliationCheckpointRepository;
+import com.jpmorgan.transaction.repository.ReconciliationMismatchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks that every user's stored balance equals its opening balance plus the signed amounts and
+ * incentives of its completed transactions. Users are walked in id ranges; each range is split
+ * across a fork/join pool whose leaves stream the range's transactions into primitive cent
+ * accumulators. Only plain reads are used, so the job runs online; users whose balance changed
+ * between the leaf's two reads are re-checked with a single statement before being reported.
+ * Progress is checkpointed after every range so an interrupted run resumes where it stopped.
+ */
+@Component
+@Slf4j
+public class BalanceReconciliationJob {
+
+    static final String JOB_NAME = "balance";
+
+    private static final String USERS_SQL =
+        "SELECT id, CAST(balance * 100 AS BIGINT), CAST(opening_balance * 100 AS BIGINT) "
+            + "FROM users WHERE id >= ? AND id < ?";
+
+    private static final String TRANSACTIONS_SQL =
+        "SELECT user_id, CAST((CASE WHEN type IN ('DEBIT', 'TRANSFER_OUT', 'FEE') THEN -amount ELSE amount END "
+            + "+ COALESCE(incentive_amount, 0)) * 100 AS BIGINT) "
+            + "FROM transactions WHERE user_id >= ? AND user_id < ? AND status = 'COMPLETED'";
+
+    private static final String VERIFY_SQL =
+        "SELECT u.balance, u.opening_balance + COALESCE((SELECT SUM(CASE WHEN t.type IN ('DEBIT', 'TRANSFER_OUT', 'FEE') "
+            + "THEN -t.amount ELSE t.amount END + COALESCE(t.incentive_amount, 0)) FROM transactions t "
+            + "WHERE t.user_id = u.id AND t.status = 'COMPLETED'), 0) FROM users u WHERE u.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReconciliationCheckpointRepository checkpointRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final int parallelism;
+    private final int leafSize;
+    private final int checkpointEvery;
+    private final int reportLimit;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "balance-reconciliation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BalanceReconciliationJob(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ReconciliationCheckpointRepository checkpointRepository,
+            ReconciliationMismatchRepository mismatchRepository,
+            @Value("${reconciliation.parallelism:4}") int parallelism,
+            @Value("${reconciliation.leaf-size:1024}") int leafSize,
+            @Value("${reconciliation.checkpoint-every:65536}") int checkpointEvery,
+            @Value("${reconciliation.fetch-size:1000}") int fetchSize,
+            @Value("${reconciliation.report-limit:100}") int reportLimit) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.parallelism = parallelism;
+        this.leafSize = leafSize;
+        this.checkpointEvery = checkpointEvery;
+        this.reportLimit = reportLimit;
+    }
+
+    // Starts a run in the background; returns false if one is already in progress
+    public boolean start(boolean resume) {
+        if (running.get()) {
+            return false;
+        }
+        runner.submit(() -> {
+            try {
+                run(resume);
+            } catch (Exception e) {
+                log.error("Balance reconciliation failed: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    public ReconciliationCheckpoint run(boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Balance reconciliation is already running");
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ReconciliationCheckpoint checkpoint = null;
+        try {
+            checkpoint = openCheckpoint(resume);
+            long next = checkpoint.getLastUserId() != null
+                ? checkpoint.getLastUserId() + 1
+                : nullToZero(jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class));
+
+            while (next <= checkpoint.getMaxUserId()) {
+                long end = Math.min(checkpoint.getMaxUserId(), next + checkpointEvery - 1);
+                RangeResult result = pool.invoke(new RangeTask(next, end + 1));
+                List<ReconciliationMismatch> mismatches = verify(checkpoint.getRunId(), result.suspects);
+
+                checkpoint.setLastUserId(end);
+                checkpoint.setUsersChecked(checkpoint.getUsersChecked() + result.users);
+                checkpoint.setMismatches(checkpoint.getMismatches() + mismatches.size());
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                ReconciliationCheckpoint progress = checkpoint;
+                // Mismatches and the checkpoint commit together so a resumed run never reports a range twice
+                checkpoint = transactionTemplate.execute(status -> {
+                    mismatchRepository.saveAll(mismatches);
+                    return checkpointRepository.save(progress);
+                });
+                next = end + 1;
+            }
+
+            checkpoint.setStatus(ReconciliationCheckpoint.Status.COMPLETED);
+            checkpoint.setCompletedAt(LocalDateTime.now());
+            checkpoint.setUpdatedAt(checkpoint.getCompletedAt());
+            checkpoint = checkpointRepository.save(checkpoint);
+            log.info("Balance reconciliation {} completed: {} users checked, {} mismatches",
+                checkpoint.getRunId(), checkpoint.getUsersChecked(), checkpoint.getMismatches());
+            return checkpoint;
+        } catch (RuntimeException e) {
+            if (checkpoint != null) {
+                checkpoint.setStatus(ReconciliationCheckpoint.Status.FAILED);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+            running.set(false);
+        }
+    }
+
+    private ReconciliationCheckpoint openCheckpoint(boolean resume) {
+        ReconciliationCheckpoint previous = checkpointRepository.findById(JOB_NAME).orElse(null);
+        if (resume && previous != null && previous.getStatus() != ReconciliationCheckpoint.Status.COMPLETED) {
+            log.info("Resuming balance reconciliation {} after user {}", previous.getRunId(), previous.getLastUserId());
+            previous.setStatus(ReconciliationCheckpoint.Status.RUNNING);
+            previous.setUpdatedAt(LocalDateTime.now());
+            return checkpointRepository.save(previous);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        ReconciliationCheckpoint checkpoint = ReconciliationCheckpoint.builder()
+            .jobName(JOB_NAME)
+            .runId(UUID.randomUUID().toString())
+            .status(ReconciliationCheckpoint.Status.RUNNING)
+            .maxUserId(nullToZero(jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class)))
+            .usersChecked(0L)
+            .mismatches(0L)
+            .startedAt(now)
+            .updatedAt(now)
+            .build();
+        log.info("Starting balance reconciliation {} up to user {}", checkpoint.getRunId(), checkpoint.getMaxUserId());
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private List<ReconciliationMismatch> verify(String runId, long[] suspects) {
+        List<ReconciliationMismatch> mismatches = new ArrayList<>();
+        for (long userId : suspects) {
+            jdbcTemplate.query(VERIFY_SQL, rs -> {
+                BigDecimal stored = rs.getBigDecimal(1);
+                BigDecimal expected = rs.getBigDecimal(2);
+                if (stored.compareTo(expected) != 0) {
+                    log.warn("Balance mismatch for user {}: stored {}, expected {}", userId, stored, expected);
+                    mismatches.add(ReconciliationMismatch.builder()
+                        .runId(runId)
+                        .userId(userId)
+                        .storedBalance(stored)
+                        .expectedBalance(expected)
+                        .build());
+                }
+            }, userId);
+        }
+        return mismatches;
+    }
+
+    public ReconciliationReport report() {
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElse(null);
+        if (checkpoint == null) {
+            return ReconciliationReport.builder().status("NEVER_RUN").running(running.get()).mismatches(List.of()).build();
+        }
+        List<ReconciliationReport.Mismatch> mismatches = mismatchRepository
+            .findByRunIdOrderByUserIdAsc(checkpoint.getRunId(), PageRequest.of(0, reportLimit)).stream()
+            .map(m -> ReconciliationReport.Mismatch.builder()
+                .userId(m.getUserId())
+                .storedBalance(m.getStoredBalance())
+                .expectedBalance(m.getExpectedBalance())
+                .difference(m.getStoredBalance().subtract(m.getExpectedBalance()))
+                .build())
+            .toList();
+        return ReconciliationReport.builder()
+            .runId(checkpoint.getRunId())
+            .status(checkpoint.getStatus().name())
+            .running(running.get())
+            .lastUserId(checkpoint.getLastUserId())
+            .maxUserId(checkpoint.getMaxUserId())
+            .usersChecked(checkpoint.getUsersChecked())
+            .mismatchCount(checkpoint.getMismatches())
+            .startedAt(checkpoint.getStartedAt())
+            .updatedAt(checkpoint.getUpdatedAt())
+            .completedAt(checkpoint.getCompletedAt())
+            .mismatches(mismatches)
+            .build();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static final class RangeResult {
+        final long users;
+        final long[] suspects;
+
+        RangeResult(long users, long[] suspects) {
+            this.users = users;
+            this.suspects = suspects;
+        }
+    }
+
+    // Splits [from, to) user ids in half until a range fits in one leaf
+    private final class RangeTask extends RecursiveTask<RangeResult> {
+
+        private final long from;
+        private final long to;
+
+        RangeTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected RangeResult compute() {
+            if (to - from <= leafSize) {
+                return leaf();
+            }
+            long mid = from + (to - from) / 2;
+            RangeTask left = new RangeTask(from, mid);
+            left.fork();
+            RangeResult right = new RangeTask(mid, to).compute();
+            RangeResult leftResult = left.join();
+            long[] suspects = Arrays.copyOf(leftResult.suspects, leftResult.suspects.length + right.suspects.length);
+            System.arraycopy(right.suspects, 0, suspects, leftResult.suspects.length, right.suspects.length);
+            return new RangeResult(leftResult.users + right.users, suspects);
+        }
+
+        private RangeResult leaf() {
+            int size = (int) (to - from);
+            boolean[] present = new boolean[size];
+            long[] stored = new long[size];
+            long[] expected = new long[size];
+
+            jdbcTemplate.query(USERS_SQL, rs -> {
+                int i = (int) (rs.getLong(1) - from);
+                present[i] = true;
+                stored[i] = rs.getLong(2);
+                expected[i] += rs.getLong(3);
+            }, from, to);
+            jdbcTemplate.query(TRANSACTIONS_SQL, rs -> {
+                expected[(int) (rs.getLong(1) - from)] += rs.getLong(2);
+            }, from, to);
+
+            long users = 0;
+            long[] suspects = new long[0];
+            int suspectCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (!present[i]) {
+                    continue;
+                }
+                users++;
+                if (stored[i] != expected[i]) {
+                    if (suspectCount == suspects.length) {
+                        suspects = Arrays.copyOf(suspects, Math.max(4, suspectCount * 2));
+                    }
+                    suspects[suspectCount++] = from + i;
+                }
+            }
+            return new RangeResult(users, Arrays.copyOf(suspects, suspectCount));
+        }
+    }
+}
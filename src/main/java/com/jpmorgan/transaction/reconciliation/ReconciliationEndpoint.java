@@ -0,0 +1,29 @@
+package com.jpmorgan.transaction.reconciliation;
+
+import com.jpmorgan.transaction.dto.ReconciliationReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+// GET /actuator/reconciliation shows the latest run; POST starts one (resuming an unfinished run by default)
+@Component
+@Endpoint(id = "reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationEndpoint {
+
+    private final BalanceReconciliationJob job;
+
+    @ReadOperation
+    public ReconciliationReport report() {
+        return job.report();
+    }
+
+    @WriteOperation
+    public ReconciliationReport start(@Nullable Boolean resume) {
+        job.start(resume == null || resume);
+        return job.report();
+    }
+}
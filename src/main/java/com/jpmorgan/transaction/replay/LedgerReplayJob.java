@@ -0,0 +1,441 @@
+package com.jpmorgan.transaction.replay;
+
+import com.jpmorgan.transaction.dto.ReplayProgress;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.kafka.TransactionConsumer;
+import com.jpmorgan.transaction.service.TransactionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.GroupIdNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebuilds ledger state by reading the transactions topic from a chosen offset or timestamp at
+ * full speed. The live listener is stopped, records are applied in large batches through
+ * {@link LedgerReplayWriter} and, optionally, the secondary transaction indexes are dropped for
+ * the bulk load and rebuilt once the replay has reached the end offsets seen at the start.
+ * Reading then continues until the remaining lag is small, the reached positions are committed
+ * for the live consumer group and the live listener is started again, so it resumes exactly
+ * where the replay stopped. Only this instance's listener is stopped, so a replay is refused
+ * while other instances' listeners are still members of the group.
+ */
+@Component
+@Slf4j
+public class LedgerReplayJob {
+
+    // Secondary indexes of the transactions table; the unique transaction_id index stays for dedup
+    private static final Map<String, String> DEFERRABLE_INDEXES = Map.of(
+        "idx_transactions_user_timestamp", "transactions (user_id, timestamp)",
+        "idx_transactions_status_execute_at", "transactions (status, execute_at)",
+        "idx_transactions_updated_at", "transactions (updated_at)");
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration GROUP_CHECK_BACKOFF = Duration.ofMillis(500);
+
+    private final ConsumerFactory<String, TransactionMessage> consumerFactory;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final LedgerReplayWriter writer;
+    private final TransactionService transactionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final String topic;
+    private final String groupId;
+    private final int batchSize;
+    private final int pollRecords;
+    private final boolean deferIndexes;
+    private final long catchUpLag;
+    private final long groupEmptyTimeoutMs;
+    private volatile ReplayProgress progress = ReplayProgress.builder().state(ReplayProgress.State.IDLE).build();
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ledger-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public LedgerReplayJob(
+            ConsumerFactory<String, TransactionMessage> consumerFactory,
+            KafkaListenerEndpointRegistry listenerRegistry,
+            KafkaAdmin kafkaAdmin,
+            LedgerReplayWriter writer,
+            TransactionService transactionService,
+            ApplicationEventPublisher eventPublisher,
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.topic.transactions}") String topic,
+            @Value("${spring.kafka.consumer.group-id}") String groupId,
+            @Value("${replay.batch-size:5000}") int batchSize,
+            @Value("${replay.poll-records:2000}") int pollRecords,
+            @Value("${replay.defer-indexes:true}") boolean deferIndexes,
+            @Value("${replay.catch-up-lag:1000}") long catchUpLag,
+            @Value("${replay.group-empty-timeout-ms:30000}") long groupEmptyTimeoutMs) {
+        this.consumerFactory = consumerFactory;
+        this.listenerRegistry = listenerRegistry;
+        this.kafkaAdmin = kafkaAdmin;
+        this.writer = writer;
+        this.transactionService = transactionService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.topic = topic;
+        this.groupId = groupId;
+        this.batchSize = batchSize;
+        this.pollRecords = pollRecords;
+        this.deferIndexes = deferIndexes;
+        this.catchUpLag = catchUpLag;
+        this.groupEmptyTimeoutMs = groupEmptyTimeoutMs;
+        Gauge.builder("replay.lag", this, job -> job.progress.getLag())
+            .description("Records left to replay before switching back to live consumption")
+            .register(meterRegistry);
+    }
+
+    public ReplayProgress getProgress() {
+        return progress;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Starts a replay in the background; returns false if one is already in progress
+    public boolean start(Long fromOffset, Instant fromTimestamp) {
+        if (running.get()) {
+            return false;
+        }
+        runner.submit(() -> {
+            try {
+                run(fromOffset, fromTimestamp);
+            } catch (Exception e) {
+                log.error("Ledger replay failed: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    // Replays from fromOffset in every partition, else from fromTimestamp, else from the beginning
+    public ReplayProgress run(Long fromOffset, Instant fromTimestamp) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A ledger replay is already in progress");
+        }
+        MessageListenerContainer live = listenerRegistry.getListenerContainer(TransactionConsumer.LISTENER_ID);
+        Tracker tracker = new Tracker();
+        boolean indexesDropped = false;
+        try (Admin admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            boolean wasRunning = live != null && live.isRunning();
+            if (wasRunning) {
+                live.stop();
+            }
+            int members = awaitEmptyGroup(admin);
+            if (members > 0) {
+                if (wasRunning) {
+                    live.start();
+                }
+                throw new IllegalStateException("Consumer group " + groupId + " is not empty (" + members
+                    + " members); stop the transactions listener on every instance before replaying");
+            }
+            try (Consumer<String, TransactionMessage> consumer = createConsumer()) {
+                List<TopicPartition> partitions = partitionsOf(consumer);
+                consumer.assign(partitions);
+                seek(consumer, partitions, fromOffset, fromTimestamp);
+                Map<TopicPartition, Long> target = consumer.endOffsets(partitions);
+                tracker.begin(partitions.size(), lag(consumer, target));
+                log.info("Replaying {} records of {} from {} partitions", tracker.target, topic, partitions.size());
+
+                if (deferIndexes) {
+                    dropIndexes();
+                    indexesDropped = true;
+                }
+                replayUntil(consumer, target, 0, tracker);
+                if (indexesDropped) {
+                    tracker.publish(ReplayProgress.State.CATCHING_UP, lag(consumer, target), null);
+                    createIndexes();
+                    indexesDropped = false;
+                }
+
+                // Records keep arriving while replaying; follow them until the live listener can take over
+                long lag;
+                while ((lag = lag(consumer, consumer.endOffsets(partitions))) > catchUpLag) {
+                    tracker.publish(ReplayProgress.State.CATCHING_UP, lag, null);
+                    replayUntil(consumer, consumer.endOffsets(partitions), catchUpLag, tracker);
+                }
+                commitPositions(admin, consumer, partitions);
+                tracker.publish(ReplayProgress.State.CATCHING_UP, lag, null);
+            }
+            eventPublisher.publishEvent(new LedgerRebuiltEvent(tracker.applied));
+            if (live != null) {
+                live.start();
+            }
+            tracker.publish(ReplayProgress.State.LIVE, 0, null);
+            log.info("Ledger replay finished: {} applied, {} duplicates, {} rejected in {} s",
+                tracker.applied, tracker.duplicates, tracker.rejected, tracker.elapsedSeconds());
+            return progress;
+        } catch (RuntimeException e) {
+            if (indexesDropped) {
+                createIndexes();
+            }
+            // The live listener stays stopped: starting it on a half-rebuilt ledger would only add to it.
+            // A refused replay has already restarted it
+            tracker.publish(ReplayProgress.State.FAILED, progress.getLag(), e.getMessage());
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private Consumer<String, TransactionMessage> createConsumer() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(pollRecords));
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        return consumerFactory.createConsumer(groupId, null, "-replay", overrides);
+    }
+
+    private List<TopicPartition> partitionsOf(Consumer<String, TransactionMessage> consumer) {
+        List<PartitionInfo> infos = consumer.partitionsFor(topic);
+        if (infos == null || infos.isEmpty()) {
+            throw new IllegalStateException("Topic " + topic + " has no partitions");
+        }
+        List<TopicPartition> partitions = new ArrayList<>(infos.size());
+        for (PartitionInfo info : infos) {
+            partitions.add(new TopicPartition(info.topic(), info.partition()));
+        }
+        return partitions;
+    }
+
+    private void seek(Consumer<String, TransactionMessage> consumer, List<TopicPartition> partitions,
+                      Long fromOffset, Instant fromTimestamp) {
+        if (fromOffset != null) {
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            for (TopicPartition partition : partitions) {
+                consumer.seek(partition, Math.max(fromOffset, beginning.get(partition)));
+            }
+        } else if (fromTimestamp != null) {
+            Map<TopicPartition, Long> query = new HashMap<>();
+            partitions.forEach(partition -> query.put(partition, fromTimestamp.toEpochMilli()));
+            Map<TopicPartition, OffsetAndTimestamp> found = consumer.offsetsForTimes(query);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            for (TopicPartition partition : partitions) {
+                OffsetAndTimestamp offset = found.get(partition);
+                // No record at or after the timestamp: nothing to replay in this partition
+                consumer.seek(partition, offset == null ? end.get(partition) : offset.offset());
+            }
+        } else {
+            consumer.seekToBeginning(partitions);
+        }
+    }
+
+    // Polls and applies batches until the total lag behind target is at most maxLag
+    private void replayUntil(Consumer<String, TransactionMessage> consumer, Map<TopicPartition, Long> target,
+                             long maxLag, Tracker tracker) {
+        List<LedgerReplayWriter.ReplayRecord> batch = new ArrayList<>(batchSize);
+        long lag = lag(consumer, target);
+        while (lag > maxLag) {
+            ConsumerRecords<String, TransactionMessage> records = consumer.poll(POLL_TIMEOUT);
+            for (ConsumerRecord<String, TransactionMessage> record : records) {
+                tracker.consumed++;
+                if (record.value() == null) {
+                    tracker.rejected++;
+                    continue;
+                }
+                batch.add(new LedgerReplayWriter.ReplayRecord(record.value(),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault())));
+            }
+            lag = lag(consumer, target);
+            if (batch.size() >= batchSize || (!batch.isEmpty() && lag <= maxLag)) {
+                flush(batch, tracker);
+                batch.clear();
+            }
+            tracker.publish(tracker.state, lag, null);
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, tracker);
+        }
+    }
+
+    private void flush(List<LedgerReplayWriter.ReplayRecord> batch, Tracker tracker) {
+        LedgerReplayWriter.BatchResult result = writer.apply(batch);
+        tracker.applied += result.getApplied();
+        tracker.duplicates += result.getDuplicates();
+        tracker.rejected += result.getRejected();
+        // Still-future messages go through the normal path so they are scheduled as usual
+        for (TransactionMessage message : result.getDeferred()) {
+            try {
+                transactionService.processTransaction(message);
+                tracker.applied++;
+            } catch (RuntimeException e) {
+                tracker.rejected++;
+                log.debug("Replay rejected scheduled {}: {}", message.getTransactionId(), e.getMessage());
+            }
+        }
+    }
+
+    private static long lag(Consumer<String, TransactionMessage> consumer, Map<TopicPartition, Long> target) {
+        long lag = 0;
+        for (Map.Entry<TopicPartition, Long> entry : target.entrySet()) {
+            lag += Math.max(0, entry.getValue() - consumer.position(entry.getKey()));
+        }
+        return lag;
+    }
+
+    // Members of the live group left after this instance's listener stopped, once the broker has seen it leave
+    private int awaitEmptyGroup(Admin admin) {
+        long deadline = System.currentTimeMillis() + groupEmptyTimeoutMs;
+        while (true) {
+            int members = groupMembers(admin);
+            if (members == 0 || System.currentTimeMillis() > deadline) {
+                return members;
+            }
+            try {
+                Thread.sleep(GROUP_CHECK_BACKOFF.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for group " + groupId + " to empty", e);
+            }
+        }
+    }
+
+    private int groupMembers(Admin admin) {
+        try {
+            ConsumerGroupDescription group = admin.describeConsumerGroups(List.of(groupId)).describedGroups()
+                .get(groupId).get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            return group.members().size();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GroupIdNotFoundException) {
+                return 0;
+            }
+            throw new IllegalStateException("Cannot describe consumer group " + groupId + ": " + e.getCause().getMessage(), e);
+        } catch (InterruptedException | TimeoutException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("Cannot describe consumer group " + groupId, e);
+        }
+    }
+
+    // Committed through the admin client, which the broker accepts only while the group has no members
+    private void commitPositions(Admin admin, Consumer<String, TransactionMessage> consumer, List<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            offsets.put(partition, new OffsetAndMetadata(consumer.position(partition)));
+        }
+        try {
+            admin.alterConsumerGroupOffsets(groupId, offsets).all().get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot commit replay positions for group " + groupId
+                + ", which a listener has joined since the replay started: " + e.getCause().getMessage(), e);
+        } catch (InterruptedException | TimeoutException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("Cannot commit replay positions for group " + groupId, e);
+        }
+    }
+
+    private void dropIndexes() {
+        for (String index : DEFERRABLE_INDEXES.keySet()) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+        }
+        log.info("Dropped {} transaction indexes for the bulk load", DEFERRABLE_INDEXES.size());
+    }
+
+    private void createIndexes() {
+        long start = System.currentTimeMillis();
+        for (Map.Entry<String, String> index : DEFERRABLE_INDEXES.entrySet()) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + index.getKey() + " ON " + index.getValue());
+        }
+        log.info("Rebuilt {} transaction indexes in {} ms", DEFERRABLE_INDEXES.size(), System.currentTimeMillis() - start);
+    }
+
+    // Counters of the running replay; only the replay thread writes them
+    private final class Tracker {
+        private final long startNanos = System.nanoTime();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private ReplayProgress.State state = ReplayProgress.State.REPLAYING;
+        private int partitions;
+        private long target;
+        private long consumed;
+        private long applied;
+        private long duplicates;
+        private long rejected;
+
+        void begin(int partitions, long target) {
+            this.partitions = partitions;
+            this.target = target;
+            publish(ReplayProgress.State.REPLAYING, target, null);
+        }
+
+        double elapsedSeconds() {
+            return (System.nanoTime() - startNanos) / 1e9;
+        }
+
+        void publish(ReplayProgress.State state, long lag, String error) {
+            this.state = state;
+            // Records produced while replaying extend the target
+            target = Math.max(target, consumed + lag);
+            double seconds = elapsedSeconds();
+            double rate = seconds > 0 ? consumed / seconds : 0;
+            boolean finished = state == ReplayProgress.State.LIVE || state == ReplayProgress.State.FAILED;
+            progress = ReplayProgress.builder()
+                .state(state)
+                .topic(topic)
+                .partitions(partitions)
+                .target(target)
+                .consumed(consumed)
+                .applied(applied)
+                .duplicates(duplicates)
+                .rejected(rejected)
+                .lag(lag)
+                .recordsPerSecond(Math.round(rate))
+                .percentComplete(target == 0 ? 100.0 : Math.min(100.0, consumed * 100.0 / target))
+                .etaSeconds(rate > 0 && !finished ? Math.round(lag / rate) : null)
+                .startedAt(startedAt)
+                .finishedAt(finished ? LocalDateTime.now() : null)
+                .error(error)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.jpmorgan.transaction.replay;
+
+import com.jpmorgan.transaction.archive.TransactionArchive;
+import com.jpmorgan.transaction.dto.IncentiveResponse;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.service.IncentiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a batch of replayed messages in one DB transaction with batched statements, following
+ * the same rules as the live path: duplicates (in the table or the archive) are skipped, invalid
+ * messages and debits beyond the balance are rejected, and transfers write both linked sides.
+ * Incentives come from {@link IncentiveService#calculateLocalIncentive}, never the external API,
+ * and rows keep the time the message was originally produced. Outbox events are not written
+ * again; consumers saw them the first time.
+ */
+@Component
+@Slf4j
+public class LedgerReplayWriter {
+
+    static final String TRANSFER = "TRANSFER";
+    static final String TRANSFER_IN_SUFFIX = "-IN";
+
+    private static final String INSERT_TRANSACTION_SQL =
+        "INSERT INTO transactions (transaction_id, user_id, type, amount, description, linked_transaction_id, "
+            + "incentive_applied, incentive_amount, status, timestamp, updated_at, execute_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'COMPLETED', ?, ?, ?)";
+
+    private static final String UPDATE_BALANCE_SQL =
+        "UPDATE users SET balance = ?, version = version + 1, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IncentiveService incentiveService;
+    private final TransactionArchive archive;
+
+    public LedgerReplayWriter(DataSource dataSource, PlatformTransactionManager transactionManager,
+                              IncentiveService incentiveService, TransactionArchive archive) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.incentiveService = incentiveService;
+        this.archive = archive;
+    }
+
+    // A message and the time it was produced to the topic
+    public record ReplayRecord(TransactionMessage message, LocalDateTime producedAt) {
+    }
+
+    public static final class BatchResult {
+        long applied;
+        long duplicates;
+        long rejected;
+        // Still in the future: left to the live path so they are scheduled as usual
+        final List<TransactionMessage> deferred = new ArrayList<>();
+
+        public long getApplied() {
+            return applied;
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public List<TransactionMessage> getDeferred() {
+            return deferred;
+        }
+    }
+
+    public BatchResult apply(List<ReplayRecord> records) {
+        return transactionTemplate.execute(status -> applyInTransaction(records));
+    }
+
+    private BatchResult applyInTransaction(List<ReplayRecord> records) {
+        BatchResult result = new BatchResult();
+        Set<String> seen = existingTransactionIds(records);
+        Map<Long, BigDecimal> balances = balancesOf(records);
+        Set<Long> touched = new LinkedHashSet<>();
+        List<Object[]> rows = new ArrayList<>(records.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (ReplayRecord record : records) {
+            TransactionMessage message = record.message();
+            if (message.getTransactionId() == null || !seen.add(message.getTransactionId())) {
+                result.duplicates++;
+                continue;
+            }
+            if (message.getExecuteAt() != null && message.getExecuteAt().isAfter(now)) {
+                result.deferred.add(message);
+                continue;
+            }
+            // A scheduled message took effect when it fell due, not when it was sent
+            LocalDateTime timestamp = message.getExecuteAt() != null && message.getExecuteAt().isAfter(record.producedAt())
+                ? message.getExecuteAt() : record.producedAt();
+            String rejection = applyOne(message, timestamp, balances, touched, rows);
+            if (rejection == null) {
+                result.applied++;
+            } else {
+                result.rejected++;
+                log.debug("Replay rejected {}: {}", message.getTransactionId(), rejection);
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, rows);
+        }
+        if (!touched.isEmpty()) {
+            Timestamp updatedAt = Timestamp.valueOf(now);
+            List<Object[]> updates = new ArrayList<>(touched.size());
+            for (Long userId : touched) {
+                updates.add(new Object[]{balances.get(userId), updatedAt, userId});
+            }
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, updates);
+        }
+        return result;
+    }
+
+    // Returns why the message was rejected, or null once its rows and balance changes are staged
+    private String applyOne(TransactionMessage message, LocalDateTime timestamp, Map<Long, BigDecimal> balances,
+                            Set<Long> touched, List<Object[]> rows) {
+        BigDecimal amount = message.getAmount();
+        if (amount == null || amount.signum() <= 0) {
+            return "amount must be positive";
+        }
+        BigDecimal balance = balances.get(message.getUserId());
+        if (balance == null) {
+            return "unknown user " + message.getUserId();
+        }
+        Timestamp ts = Timestamp.valueOf(timestamp);
+        Timestamp executeAt = message.getExecuteAt() == null ? null : Timestamp.valueOf(message.getExecuteAt());
+
+        if (TRANSFER.equalsIgnoreCase(message.getType())) {
+            Long targetId = message.getTargetUserId();
+            if (targetId == null || targetId.equals(message.getUserId()) || !balances.containsKey(targetId)) {
+                return "invalid transfer target " + targetId;
+            }
+            if (balance.compareTo(amount) < 0) {
+                return "insufficient balance";
+            }
+            String outId = message.getTransactionId();
+            String inId = outId + TRANSFER_IN_SUFFIX;
+            rows.add(new Object[]{outId, message.getUserId(), Transaction.TransactionType.TRANSFER_OUT.name(), amount,
+                message.getDescription(), inId, false, BigDecimal.ZERO, ts, ts, executeAt});
+            rows.add(new Object[]{inId, targetId, Transaction.TransactionType.TRANSFER_IN.name(), amount,
+                message.getDescription(), outId, false, BigDecimal.ZERO, ts, ts, null});
+            balances.put(message.getUserId(), balance.subtract(amount));
+            balances.merge(targetId, amount, BigDecimal::add);
+            touched.add(message.getUserId());
+            touched.add(targetId);
+            return null;
+        }
+
+        Transaction.TransactionType type;
+        try {
+            type = Transaction.TransactionType.valueOf(String.valueOf(message.getType()).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return "invalid type " + message.getType();
+        }
+        if (type != Transaction.TransactionType.CREDIT && type != Transaction.TransactionType.DEBIT) {
+            return "invalid type " + message.getType();
+        }
+        if (type == Transaction.TransactionType.DEBIT && balance.compareTo(amount) < 0) {
+            return "insufficient balance";
+        }
+
+        IncentiveResponse incentive = incentiveService.calculateLocalIncentive(
+            message.getUserId(), amount, message.getType());
+        boolean applied = Boolean.TRUE.equals(incentive.getApplied()) && incentive.getIncentiveAmount() != null;
+        BigDecimal incentiveAmount = applied ? incentive.getIncentiveAmount() : BigDecimal.ZERO;
+        BigDecimal change = (type == Transaction.TransactionType.DEBIT ? amount.negate() : amount).add(incentiveAmount);
+
+        rows.add(new Object[]{message.getTransactionId(), message.getUserId(), type.name(), amount,
+            message.getDescription(), null, applied, incentiveAmount, ts, ts, executeAt});
+        balances.put(message.getUserId(), balance.add(change));
+        touched.add(message.getUserId());
+        return null;
+    }
+
+    private Set<String> existingTransactionIds(List<ReplayRecord> records) {
+        List<String> ids = new ArrayList<>(records.size());
+        for (ReplayRecord record : records) {
+            if (record.message().getTransactionId() != null) {
+                ids.add(record.message().getTransactionId());
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        if (!ids.isEmpty()) {
+            jdbcTemplate.query("SELECT transaction_id FROM transactions WHERE transaction_id IN (" + placeholders(ids) + ")",
+                rs -> {
+                    existing.add(rs.getString(1));
+                }, ids.toArray());
+            // Read after the table, so a row archived in between is still found
+            ids.removeAll(existing);
+            existing.addAll(archive.containing(ids));
+        }
+        return existing;
+    }
+
+    private Map<Long, BigDecimal> balancesOf(List<ReplayRecord> records) {
+        Set<Long> userIds = new HashSet<>();
+        for (ReplayRecord record : records) {
+            if (record.message().getUserId() != null) {
+                userIds.add(record.message().getUserId());
+            }
+            if (record.message().getTargetUserId() != null) {
+                userIds.add(record.message().getTargetUserId());
+            }
+        }
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            jdbcTemplate.query("SELECT id, balance FROM users WHERE id IN (" + placeholders(userIds) + ")",
+                rs -> {
+                    balances.put(rs.getLong(1), rs.getBigDecimal(2));
+                }, userIds.toArray());
+        }
+        return balances;
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return String.join(",", Collections.nCopies(values.size(), "?"));
+    }
+}
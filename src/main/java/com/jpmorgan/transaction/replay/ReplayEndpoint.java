@@ -0,0 +1,35 @@
+package com.jpmorgan.transaction.replay;
+
+import com.jpmorgan.transaction.dto.ReplayProgress;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/replay shows progress and ETA; POST starts a replay (fromOffset, or fromTimestamp as ISO-8601, default the beginning)
+@Component
+@Endpoint(id = "replay")
+@RequiredArgsConstructor
+public class ReplayEndpoint {
+
+    private final LedgerReplayJob job;
+
+    @ReadOperation
+    public ReplayProgress progress() {
+        return job.getProgress();
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable Long fromOffset, @Nullable String fromTimestamp) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("started", job.start(fromOffset, fromTimestamp == null ? null : Instant.parse(fromTimestamp)));
+        status.put("progress", job.getProgress());
+        return status;
+    }
+}
@@ -0,0 +1,18 @@
+package com.jpmorgan.transaction.repository;
+
+import com.jpmorgan.transaction.model.ArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchiveSegmentRepository extends JpaRepository<ArchiveSegment, Long> {
+
+    List<ArchiveSegment> findAllByOrderByIdAsc();
+
+    // Changes whenever a segment is added, so readers know when to reload the catalog
+    @Query("select max(s.id) from ArchiveSegment s")
+    Long findMaxId();
+}
@@ -0,0 +1,15 @@
+package com.jpmorgan.transaction.repository;
+
+import com.jpmorgan.transaction.model.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+    // Nearest checkpoint at or before the given time, from the (user_id, as_of) index
+    Optional<BalanceCheckpoint> findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(Long userId, LocalDateTime asOf);
+}
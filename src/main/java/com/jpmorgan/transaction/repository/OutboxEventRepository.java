@@ -0,0 +1,50 @@
+package com.jpmorgan.transaction.repository;
+
+import com.jpmorgan.transaction.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("select e.id from OutboxEvent e where e.publishedAt is null " +
+           "and (e.claimedUntil is null or e.claimedUntil < :now) order by e.id")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Conditional update so that two relays racing for the same rows can never both win a row
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedBy = :owner, e.claimedUntil = :until " +
+           "where e.id in :ids and e.publishedAt is null " +
+           "and (e.claimedUntil is null or e.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("owner") String owner,
+              @Param("until") LocalDateTime until,
+              @Param("now") LocalDateTime now);
+
+    List<OutboxEvent> findByClaimedByAndPublishedAtIsNullAndIdInOrderByIdAsc(String claimedBy, Collection<Long> ids);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = :publishedAt, e.claimedBy = null, e.claimedUntil = null " +
+           "where e.id in :ids and e.claimedBy = :owner")
+    int markPublished(@Param("ids") Collection<Long> ids,
+                      @Param("owner") String owner,
+                      @Param("publishedAt") LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedBy = null, e.claimedUntil = null " +
+           "where e.id in :ids and e.claimedBy = :owner")
+    int release(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    @Query("select e.id from OutboxEvent e where e.publishedAt < :cutoff order by e.id")
+    List<Long> findPublishedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    long countByPublishedAtIsNull();
+}
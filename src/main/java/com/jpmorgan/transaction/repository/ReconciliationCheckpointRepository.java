@@ -0,0 +1,9 @@
+package com.jpmorgan.transaction.repository;
+
+import com.jpmorgan.transaction.model.ReconciliationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, String> {
+}
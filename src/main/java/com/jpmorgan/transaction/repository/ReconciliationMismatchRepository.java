@@ -0,0 +1,14 @@
+package com.jpmorgan.transaction.repository;
+
+import com.jpmorgan.transaction.model.ReconciliationMismatch;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationMismatchRepository extends JpaRepository<ReconciliationMismatch, Long> {
+
+    List<ReconciliationMismatch> findByRunIdOrderByUserIdAsc(String runId, Pageable pageable);
+}
@@ -0,0 +1,15 @@
+package com.jpmorgan.transaction.repository;
+
+import com.jpmorgan.transaction.model.StatementCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StatementCheckpointRepository extends JpaRepository<StatementCheckpoint, String> {
+
+    List<StatementCheckpoint> findByPeriodOrderByPartitionIndexAsc(String period);
+
+    void deleteByPeriod(String period);
+}
@@ -2,12 +2,24 @@ package com.jpmorgan.transaction.repository;
 
 import com.jpmorgan.transaction.model.Transaction;
 import com.jpmorgan.transaction.model.Transaction.TransactionStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -23,4 +35,23 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     Optional<Transaction> findByTransactionId(String transactionId);
     
     boolean existsByTransactionId(String transactionId);
-}
\ No newline at end of file
+
+    @Query("select max(t.id) from Transaction t")
+    Long findMaxId();
+
+    @Query("select max(t.updatedAt) from Transaction t")
+    LocalDateTime findMaxUpdatedAt();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Transaction> findForUpdateById(Long id);
+
+    // Cursor over all transactions; callers must consume it inside a transaction and detach as they go
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t from Transaction t order by t.id")
+    Stream<Transaction> streamAll();
+
+    // Table scan used when the description index is unavailable; text must have LIKE wildcards escaped with '\'
+    @Query("select t from Transaction t where lower(t.description) like lower(concat('%', :text, '%')) escape '\\' "
+        + "and (:userId is null or t.user.id = :userId) order by t.id desc")
+    Page<Transaction> searchDescriptions(@Param("text") String text, @Param("userId") Long userId, Pageable pageable);
+}
@@ -3,10 +3,19 @@ package com.jpmorgan.transaction.repository;
 import com.jpmorgan.transaction.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -21,4 +30,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     @Lock(LockModeType.OPTIMISTIC)
     Optional<User> findWithLockingById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<User> findForUpdateById(Long id);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<User> findWithVersionIncrementById(Long id);
+
+    // Primary-key lookup of the version column only, used to answer conditional GETs without loading the entity
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select max(u.updatedAt) from User u")
+    LocalDateTime findMaxUpdatedAt();
+
+    // Cursor over all users; callers must consume it inside a transaction and detach as they go
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.jpmorgan.transaction.scheduling;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of transaction ids. Level 0 has one slot per tick; each higher level
+ * has one slot per full turn of the level below, and its slots are cascaded down as time reaches
+ * them. Adding a timer and firing it are O(1), and each bucket is a pair of growable primitive
+ * arrays, so millions of pending timers cost about 16 bytes each and no per-timer objects.
+ */
+final class HierarchicalTimingWheel {
+
+    private final long tickMs;
+    private final int bits;
+    private final int levels;
+    private final int mask;
+    private final Bucket[][] wheels;
+    // Timers already due, and timers beyond the top level's range
+    private final Bucket due = new Bucket();
+    private final Bucket overflow = new Bucket();
+    private long currentTick;
+    private int size;
+
+    HierarchicalTimingWheel(long tickMs, int wheelBits, int levels, long startMs) {
+        this.tickMs = tickMs;
+        this.bits = wheelBits;
+        this.levels = levels;
+        this.mask = (1 << wheelBits) - 1;
+        this.wheels = new Bucket[levels][1 << wheelBits];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    synchronized void add(long id, long deadlineMs) {
+        place(id, Math.floorDiv(deadlineMs, tickMs));
+        size++;
+    }
+
+    // Moves the wheel up to nowMs and returns every id that has come due
+    synchronized long[] advance(long nowMs) {
+        long targetTick = nowMs / tickMs;
+        Bucket fired = new Bucket();
+        fired.drainFrom(due);
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Higher levels first, so a cascade can land in the lower slot cascaded next
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * bits)) - 1)) == 0) {
+                    cascade(wheels[level][(int) (currentTick >>> (level * bits)) & mask]);
+                }
+            }
+            if ((currentTick & ((1L << (levels * bits)) - 1)) == 0) {
+                cascade(overflow);
+            }
+            fired.drainFrom(due);
+            fired.drainFrom(wheels[0][(int) currentTick & mask]);
+        }
+        size -= fired.size;
+        return Arrays.copyOf(fired.ids, fired.size);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void place(long id, long tick) {
+        if (tick <= currentTick) {
+            due.add(id, tick);
+            return;
+        }
+        // The lowest level whose current turn still contains the tick
+        for (int level = 0; level < levels; level++) {
+            int shift = (level + 1) * bits;
+            if ((tick >>> shift) == (currentTick >>> shift)) {
+                wheels[level][(int) (tick >>> (level * bits)) & mask].add(id, tick);
+                return;
+            }
+        }
+        overflow.add(id, tick);
+    }
+
+    private void cascade(Bucket bucket) {
+        if (bucket.size == 0) {
+            return;
+        }
+        long[] ids = Arrays.copyOf(bucket.ids, bucket.size);
+        long[] ticks = Arrays.copyOf(bucket.ticks, bucket.size);
+        bucket.clear();
+        for (int i = 0; i < ids.length; i++) {
+            place(ids[i], ticks[i]);
+        }
+    }
+
+    private static final class Bucket {
+        private static final long[] EMPTY = new long[0];
+
+        long[] ids = EMPTY;
+        long[] ticks = EMPTY;
+        int size;
+
+        void add(long id, long tick) {
+            if (size == ids.length) {
+                int capacity = Math.max(4, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                ticks = Arrays.copyOf(ticks, capacity);
+            }
+            ids[size] = id;
+            ticks[size] = tick;
+            size++;
+        }
+
+        void drainFrom(Bucket other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.ids[i], other.ticks[i]);
+            }
+            other.clear();
+        }
+
+        // Drops the arrays too, so a slot that once held a burst does not pin the memory
+        void clear() {
+            ids = EMPTY;
+            ticks = EMPTY;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.jpmorgan.transaction.scheduling;
+
+import com.jpmorgan.transaction.event.TransactionScheduledEvent;
+import com.jpmorgan.transaction.model.Transaction.FailureReason;
+import com.jpmorgan.transaction.service.TransactionResult;
+import com.jpmorgan.transaction.service.TransactionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs future-dated transactions when they fall due. PENDING rows are held in a timing wheel
+ * that is rebuilt from the table at startup, before Kafka listeners start; anything that fell due
+ * while the service was down fires on the first tick. Due ids are handed to
+ * {@link TransactionService#executeScheduled} in batches on worker lanes keyed by user, so one
+ * user's scheduled transactions still apply one at a time and in order. Rows scheduled on other
+ * instances are loaded every {@code scheduling.sync-ms}, so they still run if that instance dies.
+ */
+@Component
+@Slf4j
+public class ScheduledTransactionDispatcher implements SmartInitializingSingleton {
+
+    private static final String PENDING_SQL =
+        "SELECT id, execute_at FROM transactions WHERE status = 'PENDING' AND execute_at IS NOT NULL "
+            + "ORDER BY execute_at";
+
+    private static final String NEW_PENDING_SQL =
+        "SELECT id, execute_at FROM transactions WHERE status = 'PENDING' AND execute_at IS NOT NULL AND id > ?";
+
+    private final TransactionService transactionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retryDelayMs;
+    private final long catchUpMaxAgeMs;
+    private final HierarchicalTimingWheel wheel;
+    private final ExecutorService[] lanes;
+    private final Counter executedCounter;
+    private final Counter failedCounter;
+    private final Counter retriedCounter;
+
+    // Ids up to the watermark have had a full sync interval to commit and were loaded by a sync or the
+    // rebuild; ids above it already on the wheel are kept in recent, so no sync adds them twice. Guarded by this
+    private long watermark;
+    private long highestSeen;
+    private final Set<Long> recent = new HashSet<>();
+
+    public ScheduledTransactionDispatcher(
+            TransactionService transactionService,
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${scheduling.enabled:true}") boolean enabled,
+            @Value("${scheduling.tick-ms:100}") long tickMs,
+            @Value("${scheduling.batch-size:500}") int batchSize,
+            @Value("${scheduling.workers:4}") int workers,
+            @Value("${scheduling.retry-delay-ms:1000}") long retryDelayMs,
+            @Value("${scheduling.catch-up-max-age-ms:0}") long catchUpMaxAgeMs) {
+        this.transactionService = transactionService;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retryDelayMs = retryDelayMs;
+        this.catchUpMaxAgeMs = catchUpMaxAgeMs;
+        this.wheel = new HierarchicalTimingWheel(tickMs, 8, 4, System.currentTimeMillis());
+        this.lanes = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            String name = "scheduled-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.executedCounter = Counter.builder("scheduled.transactions.executed")
+            .description("Scheduled transactions applied when due")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("scheduled.transactions.failed")
+            .description("Scheduled transactions marked FAILED")
+            .register(meterRegistry);
+        this.retriedCounter = Counter.builder("scheduled.transactions.retried")
+            .description("Scheduled transactions put back on the wheel after a lock conflict")
+            .register(meterRegistry);
+        Gauge.builder("scheduled.transactions.pending", wheel, HierarchicalTimingWheel::size)
+            .description("Scheduled transactions waiting on the timing wheel")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    // Loads every PENDING row onto the wheel; overdue rows fire on the next tick unless older than the catch-up limit
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        long oldestAllowed = catchUpMaxAgeMs > 0 ? start - catchUpMaxAgeMs : Long.MIN_VALUE;
+        List<Long> expired = new ArrayList<>();
+        long[] counts = new long[3];
+        jdbcTemplate.query(PENDING_SQL, rs -> {
+            long id = rs.getLong(1);
+            long executeAt = rs.getTimestamp(2).getTime();
+            counts[2] = Math.max(counts[2], id);
+            if (executeAt < oldestAllowed) {
+                expired.add(id);
+                return;
+            }
+            wheel.add(id, executeAt);
+            counts[0]++;
+            if (executeAt <= start) {
+                counts[1]++;
+            }
+        });
+        synchronized (this) {
+            watermark = Math.max(watermark, counts[2]);
+            highestSeen = Math.max(highestSeen, watermark);
+            recent.removeIf(id -> id <= watermark);
+        }
+        for (Long id : expired) {
+            fail(id, FailureReason.EXPIRED, "missed its execution time by more than " + catchUpMaxAgeMs + " ms");
+        }
+        log.info("Loaded {} scheduled transactions ({} overdue, {} expired) in {} ms",
+            counts[0], counts[1], expired.size(), System.currentTimeMillis() - start);
+    }
+
+    // Adds the PENDING rows committed since the last sync, wherever they were scheduled; returns how many
+    @Scheduled(fixedDelayString = "${scheduling.sync-ms:10000}", initialDelayString = "${scheduling.sync-ms:10000}")
+    public int syncPending() {
+        if (!enabled) {
+            return 0;
+        }
+        long from;
+        synchronized (this) {
+            from = watermark;
+        }
+        List<long[]> rows = new ArrayList<>();
+        jdbcTemplate.query(NEW_PENDING_SQL, rs -> {
+            rows.add(new long[]{rs.getLong(1), rs.getTimestamp(2).getTime()});
+        }, from);
+        int added = 0;
+        synchronized (this) {
+            long highest = from;
+            for (long[] row : rows) {
+                highest = Math.max(highest, row[0]);
+                if (row[0] > watermark && recent.add(row[0])) {
+                    wheel.add(row[0], row[1]);
+                    added++;
+                }
+            }
+            // An id is assigned before its row commits, so only ids seen a sync ago are settled
+            watermark = Math.max(watermark, highestSeen);
+            highestSeen = Math.max(highestSeen, highest);
+            recent.removeIf(id -> id <= watermark);
+        }
+        if (added > 0) {
+            log.info("Loaded {} scheduled transactions created since the last sync", added);
+        }
+        return added;
+    }
+
+    @TransactionalEventListener
+    public void onTransactionScheduled(TransactionScheduledEvent event) {
+        if (enabled && isNew(event.getId())) {
+            wheel.add(event.getId(), toMillis(event.getExecuteAt()));
+        }
+    }
+
+    private synchronized boolean isNew(Long id) {
+        return id <= watermark || recent.add(id);
+    }
+
+    @Scheduled(fixedDelayString = "${scheduling.tick-ms:100}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        long[] due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.length; from += batchSize) {
+            dispatch(Arrays.copyOfRange(due, from, Math.min(due.length, from + batchSize)));
+        }
+    }
+
+    public int pendingCount() {
+        return wheel.size();
+    }
+
+    // Runs one batch across the lanes and waits for it, so a large backlog is applied at the lanes' pace
+    private void dispatch(long[] ids) {
+        List<List<Long>> byLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        Map<Long, Long> userIds = new HashMap<>(ids.length * 2);
+        String placeholders = String.join(",", Collections.nCopies(ids.length, "?"));
+        jdbcTemplate.query("SELECT id, user_id FROM transactions WHERE id IN (" + placeholders + ")",
+            rs -> {
+                userIds.put(rs.getLong(1), rs.getLong(2));
+            }, Arrays.stream(ids).boxed().toArray());
+        // Keep the wheel's firing order within each lane
+        for (long id : ids) {
+            Long userId = userIds.get(id);
+            if (userId != null) {
+                byLane.get((int) Math.floorMod(userId, (long) lanes.length)).add(id);
+            }
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            List<Long> laneIds = byLane.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> laneIds.forEach(this::execute), lanes[i]);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void execute(Long id) {
+        try {
+            TransactionResult result = transactionService.executeScheduled(id);
+            if (result == null) {
+                return;
+            }
+            // A rejection has already marked the row FAILED
+            (result.isRejected() ? failedCounter : executedCounter).increment();
+        } catch (ConcurrencyFailureException e) {
+            // Lost a race for the user's row; try again shortly
+            retriedCounter.increment();
+            wheel.add(id, System.currentTimeMillis() + retryDelayMs);
+        } catch (RuntimeException e) {
+            fail(id, FailureReason.ERROR, e.getMessage());
+        }
+    }
+
+    private void fail(Long id, FailureReason reason, String detail) {
+        try {
+            transactionService.failScheduled(id, reason, detail);
+            failedCounter.increment();
+        } catch (RuntimeException e) {
+            log.error("Could not mark scheduled transaction {} as FAILED: {}", id, e.getMessage(), e);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,636 @@
+package com.jpmorgan.transaction.search;
+
+import com.jpmorgan.transaction.archive.TransactionArchive;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.model.Transaction;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index from description words (and optionally their trigrams) to transaction row ids,
+ * plus a term per user so a search can be narrowed to one account. Committed transactions go
+ * into an in-memory tail, which is written out as an immutable segment file every
+ * {@code search.flush-docs} rows; segments of one level are merged in groups of
+ * {@code search.merge-factor}. On startup the segment files are mapped and only rows past the
+ * highest indexed id are read from the table; with no segments the table and the archive are
+ * indexed from scratch, in the background. A periodic catch-up from the table covers rows
+ * that commit without an event and events lost to a crash between commit and flush.
+ */
+@Component
+@Slf4j
+public class DescriptionIndex implements SmartInitializingSingleton {
+
+    private static final String CATCH_UP_SQL =
+        "SELECT id, user_id, description FROM transactions WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SUFFIX = ".txi";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final SearchProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionArchive archive;
+    private final Path dir;
+    private final Timer queryTimer;
+    private final Object lock = new Object();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "description-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by lock; readers copy the few lists they need under it
+    private Tail tail = new Tail();
+    // Replaced under lock, read without it
+    private volatile State state = new State(List.of(), null);
+    private volatile boolean ready;
+
+    // Owned by the worker thread
+    private long watermark;
+    private long nextFile;
+
+    // Mapped segments and, while it is being written, the tail that was last frozen
+    private record State(List<IndexSegment> segments, Frozen frozen) {
+    }
+
+    /**
+     * Row ids matching a query, newest first, and how many match in total. When trigrams stood in
+     * for longer words, the ids are candidates: the caller must check that each description still
+     * contains every word in {@code verify}, and the total is an upper bound.
+     */
+    public record Hits(long[] ids, long total, List<String> verify) {
+
+        public boolean approximate() {
+            return !verify.isEmpty();
+        }
+    }
+
+    public DescriptionIndex(
+            SearchProperties properties,
+            DataSource dataSource,
+            TransactionArchive archive,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.archive = archive;
+        this.dir = Paths.get(properties.getDir());
+        this.queryTimer = Timer.builder("search.query.duration")
+            .description("Time taken to evaluate a description search against the index")
+            .register(meterRegistry);
+        Gauge.builder("search.index.docs", this, DescriptionIndex::docCount)
+            .description("Transactions in the description index")
+            .register(meterRegistry);
+        Gauge.builder("search.index.segments", this, index -> index.state.segments().size())
+            .description("Segment files in the description index")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        worker.execute(this::load);
+        worker.scheduleWithFixedDelay(this::scheduledCatchUp, properties.getCatchUpIntervalMs(),
+            properties.getCatchUpIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    // False while disabled or still loading; searches should then scan the table instead
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Hits search(String query, Long userId, int limit) {
+        List<String> words = Tokenizer.words(query);
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one letter or digit");
+        }
+        // Words too short for a trigram can only match whole words
+        Set<String> terms = new LinkedHashSet<>();
+        List<String> verify = new ArrayList<>();
+        for (String word : words) {
+            if (!properties.isNgrams() || word.length() < Tokenizer.GRAM) {
+                terms.add(word);
+            } else {
+                terms.addAll(Tokenizer.grams(word));
+                if (word.length() > Tokenizer.GRAM) {
+                    verify.add(word);
+                }
+            }
+        }
+        if (userId != null) {
+            terms.add(Tokenizer.userTerm(userId));
+        }
+        return queryTimer.record(() -> evaluate(terms, limit, verify));
+    }
+
+    // Owner of an indexed row, or -1; lets callers find rows that have since moved to the archive
+    public long userOf(long id) {
+        synchronized (lock) {
+            Long userId = tail.docs.get(id);
+            if (userId != null) {
+                return userId;
+            }
+            State current = state;
+            if (current.frozen() != null) {
+                int doc = Arrays.binarySearch(current.frozen().docIds(), id);
+                if (doc >= 0) {
+                    return current.frozen().docUsers()[doc];
+                }
+            }
+            for (IndexSegment segment : current.segments()) {
+                long owner = segment.userOf(id);
+                if (owner >= 0) {
+                    return owner;
+                }
+            }
+            return -1;
+        }
+    }
+
+    @TransactionalEventListener
+    public void onTransactionCommitted(TransactionCommittedEvent event) {
+        if (properties.isEnabled()) {
+            add(event.getId(), event.getUserId(), event.getDescription());
+        }
+    }
+
+    // Replayed rows are picked up from the table rather than waiting for the next catch-up
+    @EventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        if (properties.isEnabled()) {
+            worker.execute(this::scheduledCatchUp);
+        }
+    }
+
+    // Written out so the next start maps it instead of re-reading those rows
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        worker.shutdown();
+        if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+            worker.shutdownNow();
+            return;
+        }
+        if (ready) {
+            try {
+                flush();
+            } catch (IOException e) {
+                log.warn("Could not write description index tail to {}", dir, e);
+            }
+        }
+    }
+
+    private long docCount() {
+        State current = state;
+        long docs = current.segments().stream().mapToLong(IndexSegment::docCount).sum();
+        if (current.frozen() != null) {
+            docs += current.frozen().docIds().length;
+        }
+        synchronized (lock) {
+            return docs + tail.docs.size();
+        }
+    }
+
+    private Hits evaluate(Collection<String> terms, int limit, List<String> verify) {
+        State current;
+        Map<String, PostingList> tailLists = new HashMap<>();
+        synchronized (lock) {
+            current = state;
+            for (String term : terms) {
+                tailLists.put(term, tail.postings(term));
+            }
+        }
+        List<Function<String, PostingList>> sources = new ArrayList<>(current.segments().size() + 2);
+        sources.add(tailLists::get);
+        if (current.frozen() != null) {
+            sources.add(current.frozen()::postings);
+        }
+        for (IndexSegment segment : current.segments()) {
+            sources.add(segment::postings);
+        }
+
+        long total = 0;
+        LongList candidates = new LongList();
+        for (Function<String, PostingList> source : sources) {
+            List<PostingList> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                lists.add(source.apply(term));
+            }
+            total += intersect(lists, limit, candidates);
+        }
+        long[] sorted = candidates.sorted();
+        int count = Math.min(limit, sorted.length);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = sorted[sorted.length - 1 - i];
+        }
+        return new Hits(ids, total, List.copyOf(verify));
+    }
+
+    // Counts the ids on every list and adds the largest limit of them to top; driven by the shortest list
+    private static long intersect(List<PostingList> lists, int limit, LongList top) {
+        lists.sort(Comparator.comparingInt(PostingList::count));
+        PostingList shortest = lists.get(0);
+        if (shortest.count() == 0) {
+            return 0;
+        }
+        if (lists.size() == 1) {
+            top.addAll(shortest.top(limit));
+            return shortest.count();
+        }
+        LongList matches = new LongList();
+        for (long id : shortest.all()) {
+            boolean all = true;
+            for (int i = 1; i < lists.size() && all; i++) {
+                all = lists.get(i).contains(id);
+            }
+            if (all) {
+                matches.add(id);
+            }
+        }
+        long[] ids = matches.sorted();
+        top.addAll(Arrays.copyOfRange(ids, Math.max(0, ids.length - limit), ids.length));
+        return ids.length;
+    }
+
+    private void add(long id, long userId, String description) {
+        boolean full;
+        synchronized (lock) {
+            if (tail.docs.containsKey(id) || indexed(id)) {
+                return;
+            }
+            tail.add(id, userId, Tokenizer.terms(description, userId, properties.isNgrams()));
+            full = tail.docs.size() >= properties.getFlushDocs();
+        }
+        if (full && flushQueued.compareAndSet(false, true) && !worker.isShutdown()) {
+            worker.execute(() -> {
+                flushQueued.set(false);
+                try {
+                    flush();
+                } catch (IOException e) {
+                    log.warn("Could not write description index segment to {}", dir, e);
+                }
+            });
+        }
+    }
+
+    private boolean indexed(long id) {
+        State current = state;
+        if (current.frozen() != null && current.frozen().containsDoc(id)) {
+            return true;
+        }
+        for (IndexSegment segment : current.segments()) {
+            if (segment.containsDoc(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(dir);
+            List<IndexSegment> segments = openSegments();
+            synchronized (lock) {
+                state = new State(segments, null);
+            }
+            watermark = segments.stream().mapToLong(IndexSegment::maxId).max().orElse(0);
+            if (segments.isEmpty()) {
+                // Archived rows have the lowest ids, so the table catch-up below carries on from them
+                try (Stream<Transaction> archived = archive.streamAll()) {
+                    archived.forEach(transaction -> add(transaction.getId(), transaction.getUser().getId(),
+                        transaction.getDescription()));
+                }
+                flushIfFull();
+            }
+            catchUp();
+            ready = true;
+            log.info("Description index ready with {} rows in {} segments in {} ms",
+                docCount(), state.segments().size(), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not load description index from {}; searches will scan the table", dir, e);
+        }
+    }
+
+    // Merge outputs name the files they replaced; any of those still present lost a race with shutdown
+    private List<IndexSegment> openSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.sorted().toList();
+        }
+        List<IndexSegment> opened = new ArrayList<>();
+        Set<String> replaced = new HashSet<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(TMP_SUFFIX)) {
+                Files.delete(file);
+            } else if (name.endsWith(SUFFIX)) {
+                IndexSegment segment = IndexSegment.open(file);
+                opened.add(segment);
+                replaced.addAll(segment.sources());
+                nextFile = Math.max(nextFile, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) + 1);
+            }
+        }
+        List<IndexSegment> live = new ArrayList<>(opened.size());
+        for (IndexSegment segment : opened) {
+            if (replaced.contains(segment.fileName())) {
+                Files.deleteIfExists(dir.resolve(segment.fileName()));
+            } else {
+                live.add(segment);
+            }
+        }
+        return List.copyOf(live);
+    }
+
+    private void scheduledCatchUp() {
+        if (!ready) {
+            return;
+        }
+        try {
+            catchUp();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Description index catch-up failed", e);
+        }
+    }
+
+    // Rows are re-read from a little below the highest id seen, as ids are not committed in order
+    private void catchUp() throws IOException {
+        long from = Math.max(0, watermark - properties.getCatchUpOverlap());
+        int batch = properties.getCatchUpBatch();
+        while (true) {
+            long[] last = {from};
+            int[] read = {0};
+            jdbcTemplate.query(CATCH_UP_SQL, rs -> {
+                last[0] = rs.getLong(1);
+                read[0]++;
+                add(last[0], rs.getLong(2), rs.getString(3));
+            }, from, batch);
+            watermark = Math.max(watermark, last[0]);
+            from = last[0];
+            flushIfFull();
+            if (read[0] < batch) {
+                return;
+            }
+        }
+    }
+
+    private void flushIfFull() throws IOException {
+        boolean full;
+        synchronized (lock) {
+            full = tail.docs.size() >= properties.getFlushDocs();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    // Worker thread only. A frozen tail left by a failed write is retried before the current tail.
+    private void flush() throws IOException {
+        Frozen frozen;
+        synchronized (lock) {
+            frozen = state.frozen();
+            if (frozen == null) {
+                if (tail.docs.isEmpty()) {
+                    return;
+                }
+                frozen = tail.freeze();
+                tail = new Tail();
+                state = new State(state.segments(), frozen);
+            }
+        }
+        IndexSegment segment = write(0, List.of(), frozen.docIds(), frozen.docUsers(),
+            frozen.postings().entrySet().iterator());
+        synchronized (lock) {
+            List<IndexSegment> segments = new ArrayList<>(state.segments());
+            segments.add(segment);
+            state = new State(List.copyOf(segments), null);
+        }
+        log.debug("Wrote description index segment {} with {} rows", segment.fileName(), segment.docCount());
+        merge();
+    }
+
+    // Merges the oldest merge-factor segments of the lowest level that has that many, until none does
+    private void merge() throws IOException {
+        while (true) {
+            Map<Integer, List<IndexSegment>> levels = new TreeMap<>();
+            for (IndexSegment segment : state.segments()) {
+                levels.computeIfAbsent(segment.level(), level -> new ArrayList<>()).add(segment);
+            }
+            List<IndexSegment> group = null;
+            for (List<IndexSegment> level : levels.values()) {
+                if (level.size() >= properties.getMergeFactor()) {
+                    List<IndexSegment> oldest = level.subList(0, properties.getMergeFactor());
+                    if (oldest.stream().mapToLong(IndexSegment::docCount).sum() <= properties.getMaxMergeDocs()) {
+                        group = List.copyOf(oldest);
+                        break;
+                    }
+                }
+            }
+            if (group == null) {
+                return;
+            }
+
+            long[][] docs = mergedDocs(group);
+            IndexSegment merged = write(group.get(0).level() + 1,
+                group.stream().map(IndexSegment::fileName).toList(), docs[0], docs[1], mergedTerms(group));
+            synchronized (lock) {
+                List<IndexSegment> segments = new ArrayList<>(state.segments());
+                int at = segments.indexOf(group.get(0));
+                segments.removeAll(group);
+                segments.add(at, merged);
+                state = new State(List.copyOf(segments), state.frozen());
+            }
+            // Searches still holding the old state keep reading the unlinked files through their mappings
+            for (IndexSegment segment : group) {
+                Files.deleteIfExists(dir.resolve(segment.fileName()));
+            }
+            log.debug("Merged {} description index segments into {}", group.size(), merged.fileName());
+        }
+    }
+
+    private IndexSegment write(int level, List<String> sources, long[] docIds, long[] docUsers,
+                               Iterator<Map.Entry<String, long[]>> terms) throws IOException {
+        String name = String.format("%012d%s", nextFile++, SUFFIX);
+        Path tmp = dir.resolve(name + TMP_SUFFIX);
+        Files.deleteIfExists(tmp);
+        IndexSegment.write(tmp, level, sources, docIds, docUsers, terms);
+        Path file = dir.resolve(name);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        return IndexSegment.open(file);
+    }
+
+    // The doc tables of the group merged by id
+    private static long[][] mergedDocs(List<IndexSegment> group) {
+        int total = group.stream().mapToInt(IndexSegment::docCount).sum();
+        long[] ids = new long[total];
+        long[] users = new long[total];
+        int[] positions = new int[group.size()];
+        int count = 0;
+        while (true) {
+            int next = -1;
+            for (int s = 0; s < group.size(); s++) {
+                if (positions[s] < group.get(s).docCount()
+                        && (next < 0 || group.get(s).docId(positions[s]) < group.get(next).docId(positions[next]))) {
+                    next = s;
+                }
+            }
+            if (next < 0) {
+                return new long[][]{Arrays.copyOf(ids, count), Arrays.copyOf(users, count)};
+            }
+            long id = group.get(next).docId(positions[next]);
+            if (count == 0 || ids[count - 1] != id) {
+                ids[count] = id;
+                users[count] = group.get(next).docUser(positions[next]);
+                count++;
+            }
+            positions[next]++;
+        }
+    }
+
+    // The union of the group's term dictionaries in sorted order, each term with its combined ids
+    private static Iterator<Map.Entry<String, long[]>> mergedTerms(List<IndexSegment> group) {
+        PriorityQueue<TermCursor> heads = new PriorityQueue<>(Comparator.comparing(TermCursor::term));
+        for (IndexSegment segment : group) {
+            if (segment.termCount() > 0) {
+                heads.add(new TermCursor(segment, 0, segment.term(0)));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<String, long[]> next() {
+                String term = heads.peek().term();
+                LongList ids = new LongList();
+                while (!heads.isEmpty() && heads.peek().term().equals(term)) {
+                    TermCursor cursor = heads.poll();
+                    ids.addAll(cursor.segment().postingsAt(cursor.index()).all());
+                    int following = cursor.index() + 1;
+                    if (following < cursor.segment().termCount()) {
+                        heads.add(new TermCursor(cursor.segment(), following, cursor.segment().term(following)));
+                    }
+                }
+                return Map.entry(term, ids.sorted());
+            }
+        };
+    }
+
+    private record TermCursor(IndexSegment segment, int index, String term) {
+    }
+
+    // Rows indexed since the last flush
+    private static final class Tail {
+        final Map<String, LongList> postings = new HashMap<>();
+        final Map<Long, Long> docs = new HashMap<>();
+
+        void add(long id, long userId, Collection<String> terms) {
+            docs.put(id, userId);
+            for (String term : terms) {
+                postings.computeIfAbsent(term, key -> new LongList()).add(id);
+            }
+        }
+
+        PostingList postings(String term) {
+            LongList ids = postings.get(term);
+            return ids == null ? PostingList.EMPTY : new PostingList.ArrayPostings(ids.sorted());
+        }
+
+        Frozen freeze() {
+            TreeMap<String, long[]> sorted = new TreeMap<>();
+            postings.forEach((term, ids) -> sorted.put(term, ids.sorted()));
+            long[] docIds = docs.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            long[] docUsers = new long[docIds.length];
+            for (int i = 0; i < docIds.length; i++) {
+                docUsers[i] = docs.get(docIds[i]);
+            }
+            return new Frozen(sorted, docIds, docUsers);
+        }
+    }
+
+    // A tail taken out of service for writing; immutable, so searched without the lock
+    private record Frozen(TreeMap<String, long[]> postings, long[] docIds, long[] docUsers) {
+
+        PostingList postings(String term) {
+            long[] ids = postings.get(term);
+            return ids == null ? PostingList.EMPTY : new PostingList.ArrayPostings(ids);
+        }
+
+        boolean containsDoc(long id) {
+            return Arrays.binarySearch(docIds, id) >= 0;
+        }
+    }
+
+    // Growable long array; ids arrive mostly but not always in order
+    private static final class LongList {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(long[] more) {
+            if (size + more.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(size * 2, size + more.length));
+            }
+            System.arraycopy(more, 0, values, size, more.length);
+            size += more.length;
+        }
+
+        // Sorted, distinct copy
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            int distinct = 0;
+            for (int i = 0; i < copy.length; i++) {
+                if (distinct == 0 || copy[distinct - 1] != copy[i]) {
+                    copy[distinct++] = copy[i];
+                }
+            }
+            return distinct == copy.length ? copy : Arrays.copyOf(copy, distinct);
+        }
+    }
+}
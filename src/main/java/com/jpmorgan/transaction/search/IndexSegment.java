@@ -0,0 +1,351 @@
+package com.jpmorgan.transaction.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One immutable, memory-mapped file of the description index. Layout: a header (magic, version,
+ * merge level, and the files this one replaced when it was produced by a merge); the postings of
+ * every term, each a skip table of (first id, last id, offset) per block of {@value #BLOCK} ids
+ * followed by the blocks as varint deltas; the term dictionary in sorted order; a fixed-width
+ * table of dictionary offsets for binary search; the (id, userId) doc table sorted by id; and a
+ * fixed-size footer. Looking up a term or an id touches only the pages on its search path.
+ */
+final class IndexSegment {
+
+    static final int BLOCK = 128;
+
+    private static final int MAGIC = 0x54585349; // "TXSI"
+    private static final int VERSION = 1;
+    private static final int FOOTER_BYTES = 36;
+    private static final int SKIP_BYTES = 20;
+    private static final int DOC_BYTES = 16;
+
+    private final String fileName;
+    private final MappedByteBuffer buffer;
+    private final int level;
+    private final List<String> sources;
+    private final int termTableOffset;
+    private final int termCount;
+    private final int docsOffset;
+    private final int docCount;
+    private final long minId;
+    private final long maxId;
+
+    private IndexSegment(String fileName, MappedByteBuffer buffer) {
+        this.fileName = fileName;
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_BYTES;
+        if (buffer.capacity() < 16 + FOOTER_BYTES || buffer.getInt(0) != MAGIC
+                || buffer.getInt(footer + FOOTER_BYTES - 4) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a description index segment: " + fileName);
+        }
+        this.level = buffer.getInt(8);
+        int sourceCount = buffer.getInt(12);
+        List<String> names = new ArrayList<>(sourceCount);
+        int position = 16;
+        for (int i = 0; i < sourceCount; i++) {
+            names.add(string(position));
+            position += 2 + Short.toUnsignedInt(buffer.getShort(position));
+        }
+        this.sources = List.copyOf(names);
+        this.termTableOffset = buffer.getInt(footer);
+        this.termCount = buffer.getInt(footer + 4);
+        this.docsOffset = buffer.getInt(footer + 8);
+        this.docCount = buffer.getInt(footer + 12);
+        this.minId = buffer.getLong(footer + 16);
+        this.maxId = buffer.getLong(footer + 24);
+    }
+
+    static IndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new IndexSegment(file.getFileName().toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    String fileName() {
+        return fileName;
+    }
+
+    int level() {
+        return level;
+    }
+
+    // Files merged into this one; left over only if the process stopped before deleting them
+    List<String> sources() {
+        return sources;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    long maxId() {
+        return maxId;
+    }
+
+    boolean containsDoc(long id) {
+        return findDoc(id) >= 0;
+    }
+
+    // Owning user of the row, or -1 if it is not in this segment
+    long userOf(long id) {
+        int doc = findDoc(id);
+        return doc < 0 ? -1 : buffer.getLong(docsOffset + doc * DOC_BYTES + 8);
+    }
+
+    long docId(int doc) {
+        return buffer.getLong(docsOffset + doc * DOC_BYTES);
+    }
+
+    long docUser(int doc) {
+        return buffer.getLong(docsOffset + doc * DOC_BYTES + 8);
+    }
+
+    PostingList postings(String term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = buffer.getInt(termTableOffset + mid * 4);
+            int cmp = string(entry).compareTo(term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return new SegmentPostings(buffer.getInt(entry + 2 + Short.toUnsignedInt(buffer.getShort(entry))));
+            }
+        }
+        return PostingList.EMPTY;
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    // The i-th term in sorted order, for merges
+    String term(int i) {
+        return string(buffer.getInt(termTableOffset + i * 4));
+    }
+
+    PostingList postingsAt(int i) {
+        int entry = buffer.getInt(termTableOffset + i * 4);
+        return new SegmentPostings(buffer.getInt(entry + 2 + Short.toUnsignedInt(buffer.getShort(entry))));
+    }
+
+    private int findDoc(long id) {
+        if (id < minId || id > maxId) {
+            return -1;
+        }
+        int low = 0;
+        int high = docCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long candidate = buffer.getLong(docsOffset + mid * DOC_BYTES);
+            if (candidate < id) {
+                low = mid + 1;
+            } else if (candidate > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private String string(int position) {
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        byte[] bytes = new byte[length];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // A term's postings: count, block count, skip table, then varint-delta blocks
+    private final class SegmentPostings implements PostingList {
+        private final int count;
+        private final int blocks;
+        private final int skips;
+        private final int data;
+
+        SegmentPostings(int offset) {
+            this.count = buffer.getInt(offset);
+            this.blocks = buffer.getInt(offset + 4);
+            this.skips = offset + 8;
+            this.data = skips + blocks * SKIP_BYTES;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public boolean contains(long id) {
+            int low = 0;
+            int high = blocks - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (buffer.getLong(skips + mid * SKIP_BYTES + 8) < id) {
+                    low = mid + 1;
+                } else if (buffer.getLong(skips + mid * SKIP_BYTES) > id) {
+                    high = mid - 1;
+                } else {
+                    return Arrays.binarySearch(block(mid), id) >= 0;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long[] all() {
+            long[] ids = new long[count];
+            int filled = 0;
+            for (int b = 0; b < blocks; b++) {
+                long[] block = block(b);
+                System.arraycopy(block, 0, ids, filled, block.length);
+                filled += block.length;
+            }
+            return ids;
+        }
+
+        @Override
+        public long[] top(int k) {
+            int wanted = Math.min(k, count);
+            long[] ids = new long[wanted];
+            int end = wanted;
+            for (int b = blocks - 1; b >= 0 && end > 0; b--) {
+                long[] block = block(b);
+                int take = Math.min(end, block.length);
+                System.arraycopy(block, block.length - take, ids, end - take, take);
+                end -= take;
+            }
+            return ids;
+        }
+
+        private long[] block(int b) {
+            int length = b == blocks - 1 ? count - b * BLOCK : BLOCK;
+            long[] ids = new long[length];
+            long id = buffer.getLong(skips + b * SKIP_BYTES);
+            int position = data + buffer.getInt(skips + b * SKIP_BYTES + 16);
+            ids[0] = id;
+            for (int i = 1; i < length; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte read;
+                do {
+                    read = buffer.get(position++);
+                    delta |= (long) (read & 0x7F) << shift;
+                    shift += 7;
+                } while (read < 0);
+                id += delta;
+                ids[i] = id;
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Writes a segment from terms in sorted order, each with its ascending ids, and the doc table.
+     * Offsets are ints, so callers keep segments well under 2 GB ({@code search.max-merge-docs}).
+     */
+    static void write(Path file, int level, List<String> sources, long[] docIds, long[] docUsers,
+                      Iterator<Map.Entry<String, long[]>> terms) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(level);
+            out.writeInt(sources.size());
+            for (String source : sources) {
+                writeString(out, source);
+            }
+
+            List<String> names = new ArrayList<>();
+            List<int[]> entries = new ArrayList<>();
+            byte[] scratch = new byte[BLOCK * 10];
+            while (terms.hasNext()) {
+                Map.Entry<String, long[]> term = terms.next();
+                long[] ids = term.getValue();
+                names.add(term.getKey());
+                entries.add(new int[]{out.size(), ids.length});
+                int blocks = (ids.length + BLOCK - 1) / BLOCK;
+                out.writeInt(ids.length);
+                out.writeInt(blocks);
+                // Skip table first, so encode each block's deltas up front to know its offset
+                List<byte[]> encoded = new ArrayList<>(blocks);
+                int dataOffset = 0;
+                for (int b = 0; b < blocks; b++) {
+                    int from = b * BLOCK;
+                    int to = Math.min(ids.length, from + BLOCK);
+                    int length = 0;
+                    for (int i = from + 1; i < to; i++) {
+                        long delta = ids[i] - ids[i - 1];
+                        while ((delta & ~0x7FL) != 0) {
+                            scratch[length++] = (byte) ((delta & 0x7F) | 0x80);
+                            delta >>>= 7;
+                        }
+                        scratch[length++] = (byte) delta;
+                    }
+                    out.writeLong(ids[from]);
+                    out.writeLong(ids[to - 1]);
+                    out.writeInt(dataOffset);
+                    encoded.add(Arrays.copyOf(scratch, length));
+                    dataOffset += length;
+                }
+                for (byte[] block : encoded) {
+                    out.write(block);
+                }
+            }
+
+            int[] dictionary = new int[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                dictionary[i] = out.size();
+                writeString(out, names.get(i));
+                out.writeInt(entries.get(i)[0]);
+                out.writeInt(entries.get(i)[1]);
+            }
+            int termTableOffset = out.size();
+            for (int entry : dictionary) {
+                out.writeInt(entry);
+            }
+            int docsOffset = out.size();
+            for (int i = 0; i < docIds.length; i++) {
+                out.writeLong(docIds[i]);
+                out.writeLong(docUsers[i]);
+            }
+            if (out.size() < 0) {
+                throw new IllegalStateException("Index segment exceeds 2 GB: " + file);
+            }
+            out.writeInt(termTableOffset);
+            out.writeInt(names.size());
+            out.writeInt(docsOffset);
+            out.writeInt(docIds.length);
+            out.writeLong(docIds.length == 0 ? 0 : docIds[0]);
+            out.writeLong(docIds.length == 0 ? -1 : docIds[docIds.length - 1]);
+            out.writeInt(MAGIC);
+            out.flush();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
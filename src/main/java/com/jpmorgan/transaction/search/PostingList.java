@@ -0,0 +1,42 @@
+package com.jpmorgan.transaction.search;
+
+import java.util.Arrays;
+
+// Sorted, distinct transaction row ids carrying one term
+interface PostingList {
+
+    PostingList EMPTY = new ArrayPostings(new long[0]);
+
+    int count();
+
+    boolean contains(long id);
+
+    // All ids, ascending
+    long[] all();
+
+    // The largest min(k, count) ids, ascending
+    long[] top(int k);
+
+    record ArrayPostings(long[] ids) implements PostingList {
+
+        @Override
+        public int count() {
+            return ids.length;
+        }
+
+        @Override
+        public boolean contains(long id) {
+            return Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        @Override
+        public long[] all() {
+            return ids;
+        }
+
+        @Override
+        public long[] top(int k) {
+            return Arrays.copyOfRange(ids, Math.max(0, ids.length - k), ids.length);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.jpmorgan.transaction.search;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// Description index location, term forms and segment sizing, bound from search.*
+@Component
+@ConfigurationProperties(prefix = "search")
+@Data
+public class SearchProperties {
+
+    // When off, searches fall back to a LIKE scan of the table
+    private boolean enabled = false;
+
+    private String dir = System.getProperty("java.io.tmpdir") + "/transaction-search";
+
+    // Also index the trigrams of every word so queries match inside words; roughly triples the index size
+    private boolean ngrams = false;
+
+    // Rows held in memory before they are written out as a new segment
+    private int flushDocs = 50_000;
+
+    // Segments of one level merged together into one of the next level
+    private int mergeFactor = 10;
+
+    // Merges that would produce a larger segment are skipped; keeps each file well under 2 GB
+    private int maxMergeDocs = 2_000_000;
+
+    // Rows that committed without an event (scheduled, accrued, replayed) are picked up from the table this often
+    private long catchUpIntervalMs = 5_000;
+
+    // Ids below the highest indexed one that are re-read on each catch-up, for rows that committed out of order
+    private long catchUpOverlap = 1_000;
+
+    private int catchUpBatch = 10_000;
+
+    // Deepest result (page * size + size) a search may ask for; each page costs as much as all before it
+    private int maxResultWindow = 10_000;
+}
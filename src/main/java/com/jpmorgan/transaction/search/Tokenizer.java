@@ -0,0 +1,64 @@
+package com.jpmorgan.transaction.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Splits descriptions into lower-case runs of letters and digits, plus the term forms the index stores
+final class Tokenizer {
+
+    static final int GRAM = 3;
+
+    // Control-character prefixes keep user and n-gram terms apart from words
+    private static final String USER_PREFIX = "\u0001u";
+    private static final String GRAM_PREFIX = "\u0001g";
+
+    private Tokenizer() {
+    }
+
+    static List<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return List.of();
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    // Every word, every n-gram of every word when enabled, and the owning user
+    static Set<String> terms(String description, long userId, boolean ngrams) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : words(description)) {
+            terms.add(word);
+            if (ngrams) {
+                terms.addAll(grams(word));
+            }
+        }
+        terms.add(userTerm(userId));
+        return terms;
+    }
+
+    static List<String> grams(String word) {
+        List<String> grams = new ArrayList<>(Math.max(0, word.length() - GRAM + 1));
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            grams.add(GRAM_PREFIX + word.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    static String userTerm(long userId) {
+        return USER_PREFIX + userId;
+    }
+}
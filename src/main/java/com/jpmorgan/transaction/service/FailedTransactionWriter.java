@@ -0,0 +1,211 @@
+package com.jpmorgan.transaction.service;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.Transaction.FailureReason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes rejected transaction messages as FAILED rows with their reason, batched off the consumer
+ * thread, so a burst of rejections costs one batch insert rather than a commit each. A row is only
+ * written while its user exists and its transactionId is free; duplicates and messages without a
+ * known type or an amount are counted but not written. The offsets of rejected messages are
+ * committed straight away, so rows still buffered when the process dies are lost.
+ */
+@Component
+@Slf4j
+public class FailedTransactionWriter {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO transactions (transaction_id, user_id, type, amount, description, target_user_id, "
+            + "incentive_applied, incentive_amount, status, failure_reason, timestamp, updated_at) "
+            + "SELECT ?, u.id, ?, ?, ?, ?, FALSE, 0, 'FAILED', ?, ?, ? FROM users u WHERE u.id = ? "
+            + "AND NOT EXISTS (SELECT 1 FROM transactions t WHERE t.transaction_id = ?)";
+
+    // The user's transaction list changed, so its ETag must too
+    private static final String TOUCH_SQL = "UPDATE users SET version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Map<String, Row> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final Map<FailureReason, Counter> rejections = new EnumMap<>(FailureReason.class);
+    private final Counter written;
+    private final Counter dropped;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "failed-transaction-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Row(TransactionMessage message, Transaction.TransactionType type, FailureReason reason,
+                       LocalDateTime rejectedAt) {
+    }
+
+    public FailedTransactionWriter(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${rejections.batch-size:500}") int batchSize,
+            @Value("${rejections.flush-interval-ms:200}") long flushIntervalMs) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        for (FailureReason reason : FailureReason.values()) {
+            rejections.put(reason, Counter.builder("transactions.rejected")
+                .description("Transaction messages turned away, by reason")
+                .tag("reason", reason.name())
+                .register(meterRegistry));
+        }
+        this.written = Counter.builder("transactions.rejected.written")
+            .description("FAILED rows written for rejected messages")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("transactions.rejected.dropped")
+            .description("FAILED rows that could not be written")
+            .register(meterRegistry);
+        Gauge.builder("transactions.rejected.pending", pending, Map::size)
+            .description("Rejected messages waiting to be written")
+            .register(meterRegistry);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(TransactionMessage message, FailureReason reason) {
+        rejections.get(reason).increment();
+        Transaction.TransactionType type = typeOf(message.getType());
+        if (reason == FailureReason.DUPLICATE || type == null || message.getTransactionId() == null
+                || message.getUserId() == null || message.getAmount() == null) {
+            return;
+        }
+        pending.putIfAbsent(message.getTransactionId(), new Row(message, type, reason, LocalDateTime.now()));
+        if (pending.size() >= batchSize && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // A rejection not yet written still holds its transactionId, so a redelivery counts as a duplicate
+    public boolean isPending(String transactionId) {
+        return transactionId != null && pending.containsKey(transactionId);
+    }
+
+    public synchronized void flush() {
+        flushQueued.set(false);
+        while (!pending.isEmpty()) {
+            List<Row> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            for (Row row : pending.values()) {
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    break;
+                }
+            }
+            try {
+                write(batch);
+            } catch (NonTransientDataAccessException e) {
+                // One bad row fails the whole batch, so find it by writing the rows one at a time
+                log.warn("Could not write {} FAILED rows as a batch, writing them one by one: {}", batch.size(), e.getMessage());
+                for (Row row : batch) {
+                    try {
+                        write(List.of(row));
+                    } catch (NonTransientDataAccessException rowError) {
+                        dropped.increment();
+                        pending.remove(row.message().getTransactionId(), row);
+                        log.warn("Dropped FAILED row for {}: {}", row.message().getTransactionId(), rowError.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    // Anything else, such as a lost connection, leaves the rows for the next flush
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} FAILED rows, will retry: {}", pending.size(), e.getMessage());
+        }
+    }
+
+    private void write(List<Row> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int[] inserted = jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, row) -> {
+                TransactionMessage message = row.message();
+                ps.setString(1, message.getTransactionId());
+                ps.setString(2, row.type().name());
+                ps.setBigDecimal(3, message.getAmount());
+                ps.setString(4, message.getDescription());
+                ps.setObject(5, row.type() == Transaction.TransactionType.TRANSFER_OUT ? message.getTargetUserId() : null);
+                ps.setString(6, row.reason().name());
+                ps.setTimestamp(7, Timestamp.valueOf(row.rejectedAt()));
+                ps.setTimestamp(8, now);
+                ps.setLong(9, message.getUserId());
+                ps.setString(10, message.getTransactionId());
+            })[0];
+            Set<Long> touched = new LinkedHashSet<>();
+            int rows = 0;
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] != 0) {
+                    touched.add(batch.get(i).message().getUserId());
+                    rows++;
+                }
+            }
+            if (!touched.isEmpty()) {
+                jdbcTemplate.batchUpdate(TOUCH_SQL, touched.stream().map(id -> new Object[]{id}).toList());
+            }
+            written.increment(rows);
+        });
+        for (Row row : batch) {
+            pending.remove(row.message().getTransactionId(), row);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    // The type a FAILED row is stored under, or null when the message's type is not one a client may send
+    private static Transaction.TransactionType typeOf(String type) {
+        if (type == null) {
+            return null;
+        }
+        return switch (type.toUpperCase(Locale.ROOT)) {
+            case "CREDIT" -> Transaction.TransactionType.CREDIT;
+            case "DEBIT" -> Transaction.TransactionType.DEBIT;
+            case "TRANSFER" -> Transaction.TransactionType.TRANSFER_OUT;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package com.jpmorgan.transaction.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.IncentiveResponse;
+import com.jpmorgan.transaction.dto.IncentiveRulesDefinition;
+import com.jpmorgan.transaction.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+
+/**
+ * Local incentive rules loaded from a JSON file and compiled into an {@link IncentiveRuleTable}.
+ * The file is polled for changes and a new table is swapped in atomically; a file that fails to
+ * parse or compile leaves the previous table in place.
+ */
+@Component
+@Slf4j
+public class IncentiveRuleEngine {
+
+    public enum Mode {
+        LOCAL,      // rules replace the external API
+        PREFILTER   // rules decide whether the external API is worth calling
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final boolean enabled;
+    private final Mode mode;
+    private final String location;
+
+    private volatile IncentiveRuleTable table = IncentiveRuleTable.empty();
+    private volatile long lastModified = -1;
+
+    public IncentiveRuleEngine(
+            ObjectMapper objectMapper,
+            ResourceLoader resourceLoader,
+            @Value("${incentive.rules.enabled:false}") boolean enabled,
+            @Value("${incentive.rules.mode:LOCAL}") Mode mode,
+            @Value("${incentive.rules.location:classpath:incentive-rules.json}") String location) {
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.enabled = enabled;
+        this.mode = mode;
+        this.location = location;
+    }
+
+    static IncentiveRuleEngine disabled() {
+        return new IncentiveRuleEngine(null, null, false, Mode.LOCAL, null);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        // Fail fast on startup; later reload failures only keep the old table
+        Resource resource = resourceLoader.getResource(location);
+        load(resource, lastModifiedOf(resource));
+    }
+
+    @Scheduled(fixedDelayString = "${incentive.rules.reload-interval-ms:5000}")
+    public void reloadIfChanged() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Resource resource = resourceLoader.getResource(location);
+            long modified = lastModifiedOf(resource);
+            if (modified != lastModified) {
+                load(resource, modified);
+            }
+        } catch (Exception e) {
+            log.error("Failed to reload incentive rules from {}, keeping previous rules: {}", location, e.getMessage());
+        }
+    }
+
+    private void load(Resource resource, long modified) throws IOException {
+        IncentiveRulesDefinition definition;
+        try (InputStream in = resource.getInputStream()) {
+            definition = objectMapper.readValue(in, IncentiveRulesDefinition.class);
+        }
+        table = IncentiveRuleTable.compile(definition);
+        lastModified = modified;
+        log.info("Loaded {} incentive rules and {} segments from {}",
+            definition.getRules().size(), definition.getSegments().size(), location);
+    }
+
+    private static long lastModifiedOf(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Resources inside a jar have no timestamp and are only loaded once
+            return 0;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean canApply(Long userId, BigDecimal amount, String transactionType) {
+        int type = typeOrdinal(transactionType);
+        return type >= 0 && table.findTier(userId, type, IncentiveRuleTable.toCents(amount)) != IncentiveRuleTable.NO_TIER;
+    }
+
+    public IncentiveResponse evaluate(Long userId, BigDecimal amount, String transactionType) {
+        IncentiveRuleTable current = table;
+        int type = typeOrdinal(transactionType);
+        long amountCents = IncentiveRuleTable.toCents(amount);
+        int tier = type < 0 ? IncentiveRuleTable.NO_TIER : current.findTier(userId, type, amountCents);
+        long incentiveCents = current.incentiveCents(tier, amountCents);
+        return IncentiveResponse.builder()
+            .incentiveAmount(IncentiveRuleTable.fromCents(incentiveCents))
+            .incentiveType(current.incentiveType(tier))
+            .applied(tier != IncentiveRuleTable.NO_TIER)
+            .build();
+    }
+
+    private static int typeOrdinal(String transactionType) {
+        if ("CREDIT".equalsIgnoreCase(transactionType)) {
+            return Transaction.TransactionType.CREDIT.ordinal();
+        }
+        if ("DEBIT".equalsIgnoreCase(transactionType)) {
+            return Transaction.TransactionType.DEBIT.ordinal();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,237 @@
+package com.jpmorgan.transaction.service;
+
+import com.jpmorgan.transaction.dto.IncentiveRulesDefinition;
+import com.jpmorgan.transaction.model.Transaction;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incentive rules compiled into flat primitive arrays. Each (segment, type) pair maps to a row of
+ * tiers sorted by threshold; evaluation is a binary search over segments and tiers with no
+ * allocation. Amounts and caps are in minor units (cents), percentages in parts per million.
+ */
+final class IncentiveRuleTable {
+
+    static final int NO_TIER = -1;
+    static final String DEFAULT_SEGMENT = "DEFAULT";
+
+    private static final int TYPES = Transaction.TransactionType.values().length;
+    private static final long PPM = 1_000_000L;
+
+    // Tiers of all rows, flattened; row r owns [rowStart[r], rowStart[r + 1])
+    private final long[] tierAbove;
+    private final long[] tierPpm;
+    private final long[] tierCap;
+    private final String[] tierIncentiveType;
+    private final int[] rowStart;
+
+    // segment * TYPES + type -> row
+    private final int[] rowFor;
+
+    private final long[] userIds;
+    private final int[] userSegments;
+    private final long[] rangeFrom;
+    private final long[] rangeTo;
+    private final int[] rangeSegments;
+
+    private IncentiveRuleTable(long[] tierAbove, long[] tierPpm, long[] tierCap, String[] tierIncentiveType,
+                               int[] rowStart, int[] rowFor, long[] userIds, int[] userSegments,
+                               long[] rangeFrom, long[] rangeTo, int[] rangeSegments) {
+        this.tierAbove = tierAbove;
+        this.tierPpm = tierPpm;
+        this.tierCap = tierCap;
+        this.tierIncentiveType = tierIncentiveType;
+        this.rowStart = rowStart;
+        this.rowFor = rowFor;
+        this.userIds = userIds;
+        this.userSegments = userSegments;
+        this.rangeFrom = rangeFrom;
+        this.rangeTo = rangeTo;
+        this.rangeSegments = rangeSegments;
+    }
+
+    static IncentiveRuleTable empty() {
+        return compile(new IncentiveRulesDefinition());
+    }
+
+    int findTier(long userId, int type, long amountCents) {
+        if (type < 0 || type >= TYPES) {
+            return NO_TIER;
+        }
+        int row = rowFor[segmentOf(userId) * TYPES + type];
+        if (row < 0) {
+            return NO_TIER;
+        }
+        // Highest tier whose threshold is strictly below the amount
+        int lo = rowStart[row];
+        int hi = rowStart[row + 1] - 1;
+        int found = NO_TIER;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tierAbove[mid] < amountCents) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    long incentiveCents(int tier, long amountCents) {
+        if (tier == NO_TIER) {
+            return 0;
+        }
+        long ppm = tierPpm[tier];
+        long incentive;
+        if (amountCents <= Long.MAX_VALUE / Math.max(ppm, 1) - PPM) {
+            incentive = (amountCents * ppm + PPM / 2) / PPM; // HALF_UP for positive amounts
+        } else {
+            incentive = BigInteger.valueOf(amountCents).multiply(BigInteger.valueOf(ppm))
+                .add(BigInteger.valueOf(PPM / 2)).divide(BigInteger.valueOf(PPM)).longValueExact();
+        }
+        return Math.min(incentive, tierCap[tier]);
+    }
+
+    String incentiveType(int tier) {
+        return tier == NO_TIER ? "NONE" : tierIncentiveType[tier];
+    }
+
+    int segmentOf(long userId) {
+        int idx = Arrays.binarySearch(userIds, userId);
+        if (idx >= 0) {
+            return userSegments[idx];
+        }
+        // Last range starting at or before userId
+        int lo = 0;
+        int hi = rangeFrom.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rangeFrom[mid] <= userId) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && userId <= rangeTo[found] ? rangeSegments[found] : 0;
+    }
+
+    static IncentiveRuleTable compile(IncentiveRulesDefinition definition) {
+        // Segment 0 is DEFAULT; the others keep file order
+        Map<String, Integer> segmentIndex = new LinkedHashMap<>();
+        segmentIndex.put(DEFAULT_SEGMENT, 0);
+        for (IncentiveRulesDefinition.Segment segment : definition.getSegments()) {
+            if (segment.getName() == null || segmentIndex.putIfAbsent(segment.getName(), segmentIndex.size()) != null) {
+                throw new IllegalArgumentException("Missing or duplicate segment name: " + segment.getName());
+            }
+        }
+
+        Map<Long, Integer> explicitUsers = new HashMap<>();
+        List<long[]> ranges = new ArrayList<>();
+        for (IncentiveRulesDefinition.Segment segment : definition.getSegments()) {
+            int index = segmentIndex.get(segment.getName());
+            for (Long userId : segment.getUserIds()) {
+                if (explicitUsers.put(userId, index) != null) {
+                    throw new IllegalArgumentException("User " + userId + " is listed in more than one segment");
+                }
+            }
+            for (List<Long> range : segment.getUserIdRanges()) {
+                if (range.size() != 2 || range.get(0) > range.get(1)) {
+                    throw new IllegalArgumentException("Invalid user id range " + range + " in segment " + segment.getName());
+                }
+                ranges.add(new long[]{range.get(0), range.get(1), index});
+            }
+        }
+        ranges.sort(Comparator.comparingLong(r -> r[0]));
+        for (int i = 1; i < ranges.size(); i++) {
+            if (ranges.get(i)[0] <= ranges.get(i - 1)[1]) {
+                throw new IllegalArgumentException("Overlapping user id ranges starting at " + ranges.get(i)[0]);
+            }
+        }
+
+        // Collect tiers per (segment, type) row
+        Map<Integer, List<IncentiveRulesDefinition.Tier>> tiersByKey = new HashMap<>();
+        for (IncentiveRulesDefinition.Rule rule : definition.getRules()) {
+            Integer segment = segmentIndex.get(rule.getSegment());
+            if (segment == null) {
+                throw new IllegalArgumentException("Rule references unknown segment " + rule.getSegment());
+            }
+            int type = Transaction.TransactionType.valueOf(rule.getType().toUpperCase()).ordinal();
+            List<IncentiveRulesDefinition.Tier> tiers = tiersByKey.computeIfAbsent(segment * TYPES + type, k -> new ArrayList<>());
+            tiers.addAll(rule.getTiers());
+        }
+
+        int[] rowFor = new int[segmentIndex.size() * TYPES];
+        Arrays.fill(rowFor, -1);
+        List<IncentiveRulesDefinition.Tier> flat = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        for (Map.Entry<Integer, List<IncentiveRulesDefinition.Tier>> entry : tiersByKey.entrySet()) {
+            List<IncentiveRulesDefinition.Tier> tiers = new ArrayList<>(entry.getValue());
+            tiers.sort(Comparator.comparing(IncentiveRulesDefinition.Tier::getAbove));
+            for (int i = 1; i < tiers.size(); i++) {
+                if (tiers.get(i).getAbove().compareTo(tiers.get(i - 1).getAbove()) == 0) {
+                    throw new IllegalArgumentException("Duplicate tier threshold " + tiers.get(i).getAbove());
+                }
+            }
+            rowFor[entry.getKey()] = starts.size();
+            starts.add(flat.size());
+            flat.addAll(tiers);
+        }
+        starts.add(flat.size());
+
+        // Segments without rules for a type fall back to the DEFAULT segment's row
+        for (int segment = 1; segment < segmentIndex.size(); segment++) {
+            for (int type = 0; type < TYPES; type++) {
+                if (rowFor[segment * TYPES + type] < 0) {
+                    rowFor[segment * TYPES + type] = rowFor[type];
+                }
+            }
+        }
+
+        long[] tierAbove = new long[flat.size()];
+        long[] tierPpm = new long[flat.size()];
+        long[] tierCap = new long[flat.size()];
+        String[] tierIncentiveType = new String[flat.size()];
+        for (int i = 0; i < flat.size(); i++) {
+            IncentiveRulesDefinition.Tier tier = flat.get(i);
+            if (tier.getAbove() == null || tier.getPercent() == null || tier.getPercent().signum() < 0) {
+                throw new IllegalArgumentException("Tier needs 'above' and a non-negative 'percent': " + tier);
+            }
+            tierAbove[i] = toCents(tier.getAbove());
+            tierPpm[i] = tier.getPercent().movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            tierCap[i] = tier.getCap() == null ? Long.MAX_VALUE : toCents(tier.getCap());
+            tierIncentiveType[i] = tier.getIncentiveType() == null ? "PERCENTAGE" : tier.getIncentiveType();
+        }
+
+        long[] userIds = explicitUsers.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int[] userSegments = new int[userIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            userSegments[i] = explicitUsers.get(userIds[i]);
+        }
+
+        return new IncentiveRuleTable(tierAbove, tierPpm, tierCap, tierIncentiveType,
+            starts.stream().mapToInt(Integer::intValue).toArray(), rowFor, userIds, userSegments,
+            ranges.stream().mapToLong(r -> r[0]).toArray(),
+            ranges.stream().mapToLong(r -> r[1]).toArray(),
+            ranges.stream().mapToInt(r -> (int) r[2]).toArray());
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -3,6 +3,7 @@ package com.jpmorgan.transaction.service;
 import com.jpmorgan.transaction.dto.IncentiveRequest;
 import com.jpmorgan.transaction.dto.IncentiveResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -13,6 +14,7 @@ import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -21,20 +23,41 @@ public class IncentiveService {
     private final RestTemplate restTemplate;
     private final String incentiveApiUrl;
     private final boolean incentiveApiEnabled;
+    private final IncentiveRuleEngine ruleEngine;
+    // Set by the warm-up so its synthetic transactions never reach the external API
+    private final ThreadLocal<Boolean> localOnly = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
+    public IncentiveService(String incentiveApiUrl, boolean incentiveApiEnabled) {
+        this(incentiveApiUrl, incentiveApiEnabled, IncentiveRuleEngine.disabled());
+    }
+
+    @Autowired
     public IncentiveService(
             @Value("${incentive.api.url}") String incentiveApiUrl,
-            @Value("${incentive.api.enabled}") boolean incentiveApiEnabled) {
+            @Value("${incentive.api.enabled}") boolean incentiveApiEnabled,
+            IncentiveRuleEngine ruleEngine) {
         this.restTemplate = new RestTemplate();
         this.incentiveApiUrl = incentiveApiUrl;
         this.incentiveApiEnabled = incentiveApiEnabled;
+        this.ruleEngine = ruleEngine;
     }
 
     public IncentiveResponse calculateIncentive(Long userId, BigDecimal amount, String transactionType) {
+        if (localOnly.get()) {
+            return calculateLocalIncentive(userId, amount, transactionType);
+        }
+        boolean rulesEnabled = ruleEngine.isEnabled();
+        if (rulesEnabled && (!incentiveApiEnabled || ruleEngine.getMode() == IncentiveRuleEngine.Mode.LOCAL)) {
+            return ruleEngine.evaluate(userId, amount, transactionType);
+        }
         if (!incentiveApiEnabled) {
             log.info("Incentive API disabled, using default calculation");
             return calculateDefaultIncentive(amount, transactionType);
         }
+        if (rulesEnabled && !ruleEngine.canApply(userId, amount, transactionType)) {
+            // Pre-filter: no rule matches, so the remote call cannot produce an incentive
+            return ruleEngine.evaluate(userId, amount, transactionType);
+        }
 
         try {
             IncentiveRequest request = IncentiveRequest.builder()
@@ -62,9 +85,30 @@ public class IncentiveService {
             log.error("Error calling incentive API, falling back to default calculation: {}", e.getMessage());
         }
 
+        if (rulesEnabled) {
+            return ruleEngine.evaluate(userId, amount, transactionType);
+        }
+        return calculateDefaultIncentive(amount, transactionType);
+    }
+
+    // Never calls the external API: local rules when enabled, otherwise the default calculation
+    public IncentiveResponse calculateLocalIncentive(Long userId, BigDecimal amount, String transactionType) {
+        if (ruleEngine.isEnabled()) {
+            return ruleEngine.evaluate(userId, amount, transactionType);
+        }
         return calculateDefaultIncentive(amount, transactionType);
     }
 
+    // Runs work on this thread with calculateIncentive answering from calculateLocalIncentive
+    public <T> T withLocalIncentives(Supplier<T> work) {
+        localOnly.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            localOnly.remove();
+        }
+    }
+
     private IncentiveResponse calculateDefaultIncentive(BigDecimal amount, String transactionType) {
         // Default incentive logic: 1% for CREDIT transactions above 100
         BigDecimal incentiveAmount = BigDecimal.ZERO;
@@ -0,0 +1,116 @@
+package com.jpmorgan.transaction.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.BalanceChangedEvent;
+import com.jpmorgan.transaction.dto.TransactionProcessedEvent;
+import com.jpmorgan.transaction.model.OutboxEvent;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    // Joins the caller's transaction so the events commit (or roll back) together with the balance change
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransactionProcessed(Transaction transaction, BigDecimal balanceChange, BigDecimal newBalance) {
+        Long userId = transaction.getUser().getId();
+
+        TransactionProcessedEvent processed = TransactionProcessedEvent.builder()
+            .eventType(OutboxEvent.EventType.TRANSACTION_PROCESSED.name())
+            .transactionId(transaction.getTransactionId())
+            .userId(userId)
+            .type(transaction.getType().name())
+            .amount(transaction.getAmount())
+            .incentiveAmount(transaction.getIncentiveAmount())
+            .status(transaction.getStatus().name())
+            .timestamp(transaction.getTimestamp())
+            .build();
+
+        BalanceChangedEvent balanceChanged = BalanceChangedEvent.builder()
+            .eventType(OutboxEvent.EventType.BALANCE_CHANGED.name())
+            .userId(userId)
+            .transactionId(transaction.getTransactionId())
+            .balanceChange(balanceChange)
+            .newBalance(newBalance)
+            .timestamp(transaction.getTimestamp())
+            .build();
+
+        outboxEventRepository.saveAll(List.of(
+            toOutboxEvent(userId, OutboxEvent.EventType.TRANSACTION_PROCESSED, processed),
+            toOutboxEvent(userId, OutboxEvent.EventType.BALANCE_CHANGED, balanceChanged)
+        ));
+    }
+
+    @Transactional
+    public List<OutboxEvent> claimBatch(String owner, int batchSize, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> candidates = outboxEventRepository.findClaimableIds(now, PageRequest.of(0, batchSize));
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        int claimed = outboxEventRepository.claim(candidates, owner, now.plus(lease), now);
+        if (claimed == 0) {
+            return List.of();
+        }
+        return outboxEventRepository.findByClaimedByAndPublishedAtIsNullAndIdInOrderByIdAsc(owner, candidates);
+    }
+
+    @Transactional
+    public void markPublished(String owner, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            outboxEventRepository.markPublished(ids, owner, LocalDateTime.now());
+        }
+    }
+
+    @Transactional
+    public void release(String owner, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            outboxEventRepository.release(ids, owner);
+        }
+    }
+
+    @Transactional
+    public int deletePublishedBefore(LocalDateTime cutoff, int batchSize) {
+        int deleted = 0;
+        List<Long> ids;
+        do {
+            ids = outboxEventRepository.findPublishedBefore(cutoff, PageRequest.of(0, batchSize));
+            if (!ids.isEmpty()) {
+                outboxEventRepository.deleteAllByIdInBatch(ids);
+                deleted += ids.size();
+            }
+        } while (ids.size() == batchSize);
+        return deleted;
+    }
+
+    private OutboxEvent toOutboxEvent(Long userId, OutboxEvent.EventType eventType, Object event) {
+        try {
+            return OutboxEvent.builder()
+                .aggregateId(userId)
+                .eventType(eventType)
+                .payload(objectMapper.writeValueAsString(event))
+                .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + eventType + " event for user " + userId, e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.jpmorgan.transaction.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.archive.TransactionArchive;
+import com.jpmorgan.transaction.repository.TransactionRepository;
+import com.jpmorgan.transaction.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes the users and transactions tables as a JSON array straight from a DB cursor, one element
+ * at a time, so memory stays flat however large the table is. Transactions are preceded by the
+ * archived ones, read block by block from the segment files. Compact mode swaps field names for
+ * short keys (see README) to shrink the payload further.
+ */
+@Service
+public class StreamingExportService {
+
+    private static final FieldNames USER_FIELDS = new FieldNames(
+        new String[]{"userId", "username", "email", "balance"},
+        new String[]{"u", "n", "e", "b"});
+    private static final FieldNames TRANSACTION_FIELDS = new FieldNames(
+        new String[]{"id", "transactionId", "userId", "type", "amount", "description",
+            "incentiveApplied", "incentiveAmount", "status", "timestamp", "linkedTransactionId"},
+        new String[]{"i", "t", "u", "y", "a", "d", "ia", "im", "s", "ts", "l"});
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive archive;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int flushEvery;
+
+    public StreamingExportService(
+            UserRepository userRepository,
+            TransactionRepository transactionRepository,
+            TransactionArchive archive,
+            EntityManager entityManager,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${streaming.flush-every:256}") int flushEvery) {
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.archive = archive;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.flushEvery = flushEvery;
+    }
+
+    public long writeUsers(OutputStream out, boolean compact) {
+        SerializedString[] names = USER_FIELDS.get(compact);
+        return stream(out, userRepository::streamAll, (generator, user) -> {
+            generator.writeStartObject();
+            generator.writeFieldName(names[0]);
+            generator.writeNumber(user.getId());
+            generator.writeFieldName(names[1]);
+            generator.writeString(user.getUsername());
+            generator.writeFieldName(names[2]);
+            generator.writeString(user.getEmail());
+            generator.writeFieldName(names[3]);
+            generator.writeNumber(user.getBalance());
+            generator.writeEndObject();
+        });
+    }
+
+    public long writeTransactions(OutputStream out, boolean compact) {
+        SerializedString[] names = TRANSACTION_FIELDS.get(compact);
+        // Archived rows come first; they are not entities, so detaching them is a no-op
+        return stream(out, () -> archive.streamAllWith(transactionRepository::streamAll), (generator, transaction) -> {
+            generator.writeStartObject();
+            generator.writeFieldName(names[0]);
+            generator.writeNumber(transaction.getId());
+            generator.writeFieldName(names[1]);
+            generator.writeString(transaction.getTransactionId());
+            generator.writeFieldName(names[2]);
+            generator.writeNumber(transaction.getUser().getId()); // Lazy proxy: reading the id does not load the user
+            generator.writeFieldName(names[3]);
+            generator.writeString(transaction.getType().name());
+            generator.writeFieldName(names[4]);
+            generator.writeNumber(transaction.getAmount());
+            generator.writeFieldName(names[5]);
+            generator.writeString(transaction.getDescription());
+            generator.writeFieldName(names[6]);
+            generator.writeBoolean(Boolean.TRUE.equals(transaction.getIncentiveApplied()));
+            generator.writeFieldName(names[7]);
+            generator.writeNumber(transaction.getIncentiveAmount());
+            generator.writeFieldName(names[8]);
+            generator.writeString(transaction.getStatus().name());
+            generator.writeFieldName(names[9]);
+            generator.writeString(transaction.getTimestamp() == null ? null
+                : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(transaction.getTimestamp()));
+            if (transaction.getLinkedTransactionId() != null) {
+                generator.writeFieldName(names[10]);
+                generator.writeString(transaction.getLinkedTransactionId());
+            }
+            generator.writeEndObject();
+        });
+    }
+
+    private <T> long stream(OutputStream out, Supplier<Stream<T>> query, ElementWriter<T> writer) {
+        Long count = readOnlyTransaction.execute(status -> {
+            long written = 0;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                 Stream<T> rows = query.get()) {
+                generator.writeStartArray();
+                for (T row : (Iterable<T>) rows::iterator) {
+                    writer.write(generator, row);
+                    // Detach each row so the persistence context does not grow with the result
+                    entityManager.detach(row);
+                    // Flush the first element at once so the client starts receiving immediately
+                    if (++written % flushEvery == 0 || written == 1) {
+                        generator.flush();
+                    }
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written;
+        });
+        return count == null ? 0 : count;
+    }
+
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(JsonGenerator generator, T element) throws IOException;
+    }
+
+    private static final class FieldNames {
+        private final SerializedString[] full;
+        private final SerializedString[] compact;
+
+        FieldNames(String[] full, String[] compact) {
+            this.full = serialize(full);
+            this.compact = serialize(compact);
+        }
+
+        SerializedString[] get(boolean compactNames) {
+            return compactNames ? compact : full;
+        }
+
+        private static SerializedString[] serialize(String[] names) {
+            SerializedString[] serialized = new SerializedString[names.length];
+            for (int i = 0; i < names.length; i++) {
+                serialized[i] = new SerializedString(names[i]);
+            }
+            return serialized;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.jpmorgan.transaction.service;
+
+import com.jpmorgan.transaction.exception.DuplicateTransactionException;
+import com.jpmorgan.transaction.exception.InsufficientBalanceException;
+import com.jpmorgan.transaction.exception.UserNotFoundException;
+import com.jpmorgan.transaction.exception.VelocityLimitExceededException;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.Transaction.FailureReason;
+
+/**
+ * What became of one transaction message: the completed or scheduled transaction, or the reason
+ * it was turned away. Expected rejections are values rather than exceptions, so a caller such as
+ * the Kafka consumer can record them and move on without a stack trace or a redelivery.
+ */
+public record TransactionResult(Transaction transaction, FailureReason failureReason, String message) {
+
+    static TransactionResult accepted(Transaction transaction) {
+        return new TransactionResult(transaction, null, null);
+    }
+
+    static TransactionResult rejected(FailureReason reason, String message) {
+        return new TransactionResult(null, reason, message);
+    }
+
+    public boolean isRejected() {
+        return failureReason != null;
+    }
+
+    // The transaction, or the exception processTransaction has always thrown for this rejection
+    public Transaction orThrow() {
+        if (failureReason == null) {
+            return transaction;
+        }
+        throw switch (failureReason) {
+            case DUPLICATE -> new DuplicateTransactionException(message);
+            case UNKNOWN_USER -> new UserNotFoundException(message);
+            case INSUFFICIENT_BALANCE -> new InsufficientBalanceException(message);
+            case VELOCITY_LIMIT -> new VelocityLimitExceededException(message);
+            default -> new IllegalArgumentException(message);
+        };
+    }
+}
@@ -1,87 +1,283 @@
 package com.jpmorgan.transaction.service;
 
+import com.jpmorgan.transaction.accounts.AccountStore;
+import com.jpmorgan.transaction.archive.TransactionArchive;
 import com.jpmorgan.transaction.dto.IncentiveResponse;
 import com.jpmorgan.transaction.dto.TransactionMessage;
 import com.jpmorgan.transaction.dto.TransactionResponse;
-import com.jpmorgan.transaction.exception.DuplicateTransactionException;
-import com.jpmorgan.transaction.exception.InsufficientBalanceException;
-import com.jpmorgan.transaction.exception.UserNotFoundException;
+import com.jpmorgan.transaction.dto.TransactionSearchResponse;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.event.TransactionScheduledEvent;
 import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.Transaction.FailureReason;
 import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.profiling.TransactionProfiler;
+import com.jpmorgan.transaction.profiling.TransactionProfiler.Stage;
 import com.jpmorgan.transaction.repository.TransactionRepository;
+import com.jpmorgan.transaction.search.DescriptionIndex;
+import com.jpmorgan.transaction.search.SearchProperties;
+import com.jpmorgan.transaction.velocity.VelocityLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionService {
 
+    private static final String TRANSFER = "TRANSFER";
+    private static final String TRANSFER_IN_SUFFIX = "-IN";
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    // Most trigram candidates checked for one page; rarer words than that are left unmatched
+    private static final int MAX_SEARCH_CANDIDATES = 100_000;
+
     private final TransactionRepository transactionRepository;
     private final UserService userService;
     private final IncentiveService incentiveService;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VelocityLimiter velocityLimiter;
+    private final TransactionProfiler profiler;
+    private final TransactionArchive archive;
+    private final DescriptionIndex descriptionIndex;
+    private final SearchProperties searchProperties;
+    private final AccountStore accountStore;
+    private final FailedTransactionWriter failedTransactionWriter;
 
     @Transactional
     public Transaction processTransaction(TransactionMessage message) {
-        log.info("Processing transaction: {}", message.getTransactionId());
+        return evaluate(message).orThrow();
+    }
 
-        // Check for duplicate transaction
-        if (transactionRepository.existsByTransactionId(message.getTransactionId())) {
-            throw new DuplicateTransactionException(
-                "Transaction already exists: " + message.getTransactionId()
-            );
+    /**
+     * Same as {@link #processTransaction}, but an expected rejection comes back in the result instead
+     * of as an exception, and is recorded as a FAILED row by the {@link FailedTransactionWriter}.
+     */
+    @Transactional
+    public TransactionResult submit(TransactionMessage message) {
+        TransactionResult result = evaluate(message);
+        if (result.isRejected()) {
+            failedTransactionWriter.record(message, result.failureReason());
+            log.debug("Rejected transaction {} ({}): {}",
+                message.getTransactionId(), result.failureReason(), result.message());
         }
+        return result;
+    }
 
-        // Validate user exists
-        User user = userService.findById(message.getUserId());
+    private TransactionResult evaluate(TransactionMessage message) {
+        log.debug("Processing transaction: {}", message.getTransactionId());
+        profiler.traceCommit();
 
-        // Parse transaction type
+        // Check for duplicate transaction, including ones already moved to the archive or still being recorded as FAILED
+        profiler.begin(Stage.DEDUPE);
+        boolean duplicate = transactionRepository.existsByTransactionId(message.getTransactionId())
+            || archive.contains(message.getTransactionId())
+            || failedTransactionWriter.isPending(message.getTransactionId());
+        profiler.end(Stage.DEDUPE);
+        if (duplicate) {
+            return TransactionResult.rejected(FailureReason.DUPLICATE,
+                "Transaction already exists: " + message.getTransactionId());
+        }
+
+        // Future-dated transactions are stored as PENDING and run by the scheduler when due
+        if (message.getExecuteAt() != null && message.getExecuteAt().isAfter(LocalDateTime.now())) {
+            return schedule(message);
+        }
+        return apply(message, null);
+    }
+
+    /**
+     * Runs a scheduled transaction through the normal path; returns null if it is no longer PENDING.
+     * A rejection marks it FAILED in the same DB transaction.
+     */
+    @Transactional
+    public TransactionResult executeScheduled(Long id) {
+        Transaction pending = transactionRepository.findForUpdateById(id).orElse(null);
+        if (pending == null || pending.getStatus() != Transaction.TransactionStatus.PENDING) {
+            return null;
+        }
+        TransactionMessage message = TransactionMessage.builder()
+            .transactionId(pending.getTransactionId())
+            .userId(pending.getUser().getId())
+            .targetUserId(pending.getTargetUserId())
+            .type(pending.getType() == Transaction.TransactionType.TRANSFER_OUT ? TRANSFER : pending.getType().name())
+            .amount(pending.getAmount())
+            .description(pending.getDescription())
+            .build();
+        TransactionResult result = apply(message, pending);
+        if (result.isRejected()) {
+            markFailed(pending, result.failureReason(), result.message());
+        }
+        return result;
+    }
+
+    @Transactional
+    public void failScheduled(Long id, FailureReason reason, String detail) {
+        transactionRepository.findForUpdateById(id)
+            .filter(pending -> pending.getStatus() == Transaction.TransactionStatus.PENDING)
+            .ifPresent(pending -> markFailed(pending, reason, detail));
+    }
+
+    private void markFailed(Transaction pending, FailureReason reason, String detail) {
+        pending.setStatus(Transaction.TransactionStatus.FAILED);
+        pending.setFailureReason(reason);
+        userService.touch(pending.getUser().getId());
+        log.warn("Scheduled transaction {} failed: {}", pending.getTransactionId(), detail);
+    }
+
+    private TransactionResult schedule(TransactionMessage message) {
+        Optional<User> found = userService.find(message.getUserId());
+        if (found.isEmpty()) {
+            return unknownUser(message.getUserId());
+        }
+        User user = found.get();
         Transaction.TransactionType transactionType;
-        try {
-            transactionType = Transaction.TransactionType.valueOf(message.getType().toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid transaction type: " + message.getType());
+        if (TRANSFER.equalsIgnoreCase(message.getType())) {
+            TransactionResult invalid = validateTransfer(message);
+            if (invalid != null) {
+                return invalid;
+            }
+            if (userService.find(message.getTargetUserId()).isEmpty()) {
+                return unknownUser(message.getTargetUserId());
+            }
+            transactionType = Transaction.TransactionType.TRANSFER_OUT;
+        } else {
+            transactionType = parseType(message);
+            if (transactionType == null) {
+                return invalidType(message);
+            }
+            TransactionResult invalid = validateAmount(message);
+            if (invalid != null) {
+                return invalid;
+            }
         }
 
-        // Validate amount
-        if (message.getAmount() == null || message.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Transaction amount must be positive");
+        Transaction saved = transactionRepository.save(Transaction.builder()
+            .transactionId(message.getTransactionId())
+            .user(user)
+            .targetUserId(message.getTargetUserId())
+            .type(transactionType)
+            .amount(message.getAmount())
+            .description(message.getDescription())
+            .executeAt(message.getExecuteAt())
+            .status(Transaction.TransactionStatus.PENDING)
+            .build());
+        // The user's transaction list changed, so its ETag must too
+        userService.touch(user.getId());
+        eventPublisher.publishEvent(new TransactionScheduledEvent(saved.getId(), saved.getExecuteAt()));
+        log.info("Scheduled transaction {} for user {} at {}", saved.getTransactionId(), user.getId(), saved.getExecuteAt());
+        return TransactionResult.accepted(saved);
+    }
+
+    // Turns away a debit the account store cannot cover without loading the user, once the row's version
+    // shows the entry is current; null leaves the check to the row
+    private TransactionResult checkAccountStore(TransactionMessage message) {
+        if (!accountStore.isEnabled() || parseType(message) != Transaction.TransactionType.DEBIT
+                || validateAmount(message) != null) {
+            return null;
+        }
+        Long userId = message.getUserId();
+        long cents = accountStore.balanceCents(userId);
+        if (cents == AccountStore.ABSENT || BigDecimal.valueOf(cents, 2).compareTo(message.getAmount()) >= 0) {
+            return null;
+        }
+        cents = accountStore.balanceCents(userId, userService.findVersion(userId).orElse(null));
+        if (cents == AccountStore.ABSENT || BigDecimal.valueOf(cents, 2).compareTo(message.getAmount()) >= 0) {
+            return null;
+        }
+        return insufficientBalance(BigDecimal.valueOf(cents, 2), message.getAmount());
+    }
+
+    // A store entry behind the row just read is put right, so the next pre-check can use it
+    private void correctAccountStore(User user) {
+        if (accountStore.isEnabled() && user.getVersion() != null
+                && accountStore.version(user.getId()) != user.getVersion()) {
+            accountStore.correct(user.getId(), user.getBalance(), user.getVersion());
+        }
+    }
+
+    private TransactionResult apply(TransactionMessage message, Transaction pending) {
+        if (TRANSFER.equalsIgnoreCase(message.getType())) {
+            return processTransfer(message, pending);
+        }
+
+        TransactionResult rejected = checkAccountStore(message);
+        if (rejected != null) {
+            return rejected;
+        }
+
+        // Validate user exists
+        profiler.begin(Stage.USER_LOAD);
+        Optional<User> found = userService.find(message.getUserId());
+        profiler.end(Stage.USER_LOAD);
+        if (found.isEmpty()) {
+            return unknownUser(message.getUserId());
+        }
+        User user = found.get();
+
+        Transaction.TransactionType transactionType = parseType(message);
+        if (transactionType == null) {
+            return invalidType(message);
+        }
+        TransactionResult invalid = validateAmount(message);
+        if (invalid != null) {
+            return invalid;
         }
 
         // Check balance for DEBIT transactions
         if (transactionType == Transaction.TransactionType.DEBIT) {
+            correctAccountStore(user);
             if (user.getBalance().compareTo(message.getAmount()) < 0) {
-                throw new InsufficientBalanceException(
-                    String.format("Insufficient balance. Current: %s, Required: %s",
-                        user.getBalance(), message.getAmount())
-                );
+                return insufficientBalance(user.getBalance(), message.getAmount());
+            }
+            String exceeded = velocityLimiter.exceeded(user, message.getAmount());
+            if (exceeded != null) {
+                return TransactionResult.rejected(FailureReason.VELOCITY_LIMIT, exceeded);
             }
         }
 
         // Calculate incentive
+        profiler.begin(Stage.INCENTIVE);
         IncentiveResponse incentiveResponse = incentiveService.calculateIncentive(
             message.getUserId(),
             message.getAmount(),
             message.getType()
         );
+        profiler.end(Stage.INCENTIVE);
 
-        // Create transaction
-        Transaction transaction = Transaction.builder()
+        // Create transaction, or complete the scheduled one
+        Transaction transaction = pending != null ? pending : Transaction.builder()
             .transactionId(message.getTransactionId())
             .user(user)
             .type(transactionType)
             .amount(message.getAmount())
             .description(message.getDescription())
-            .incentiveApplied(incentiveResponse.getApplied())
-            .incentiveAmount(incentiveResponse.getIncentiveAmount())
-            .status(Transaction.TransactionStatus.COMPLETED)
             .build();
+        transaction.setIncentiveApplied(incentiveResponse.getApplied());
+        transaction.setIncentiveAmount(incentiveResponse.getIncentiveAmount());
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        if (pending != null) {
+            transaction.setTimestamp(LocalDateTime.now());
+        }
 
         // Calculate balance change
         BigDecimal balanceChange = message.getAmount();
@@ -92,26 +288,182 @@ public class TransactionService {
         // Add incentive if applicable
         if (incentiveResponse.getApplied() && incentiveResponse.getIncentiveAmount() != null) {
             balanceChange = balanceChange.add(incentiveResponse.getIncentiveAmount());
-            log.info("Applied incentive of {} to transaction {}",
+            log.debug("Applied incentive of {} to transaction {}",
                 incentiveResponse.getIncentiveAmount(), message.getTransactionId());
         }
 
         // Update user balance
-        userService.updateBalance(user.getId(), balanceChange);
+        profiler.begin(Stage.BALANCE_UPDATE);
+        BigDecimal newBalance = userService.updateBalance(user.getId(), balanceChange);
+        profiler.end(Stage.BALANCE_UPDATE);
 
         // Save transaction
+        profiler.begin(Stage.SAVE);
         Transaction savedTransaction = transactionRepository.save(transaction);
+
+        // Record outbox events in the same DB transaction so downstream consumers never miss a commit
+        outboxService.recordTransactionProcessed(savedTransaction, balanceChange, newBalance);
+        profiler.end(Stage.SAVE);
+
+        publishCommitted(savedTransaction, balanceChange, newBalance);
         log.info("Successfully processed transaction {} for user {}. New balance: {}",
             savedTransaction.getTransactionId(),
             user.getId(),
             user.getBalance().add(balanceChange));
 
-        return savedTransaction;
+        return TransactionResult.accepted(savedTransaction);
+    }
+
+    // Both sides are applied in the caller's transaction: either the debit and the credit commit together or neither does
+    private TransactionResult processTransfer(TransactionMessage message, Transaction pending) {
+        TransactionResult invalid = validateTransfer(message);
+        if (invalid != null) {
+            return invalid;
+        }
+        Long sourceId = message.getUserId();
+        Long targetId = message.getTargetUserId();
+        BigDecimal amount = message.getAmount();
+
+        profiler.begin(Stage.USER_LOAD);
+        Map<Long, User> locked = userService.lockForUpdate(sourceId, targetId);
+        profiler.end(Stage.USER_LOAD);
+        User source = locked.get(sourceId);
+        User target = locked.get(targetId);
+        if (source == null || target == null) {
+            return unknownUser(source == null ? sourceId : targetId);
+        }
+        if (source.getBalance().compareTo(amount) < 0) {
+            return insufficientBalance(source.getBalance(), amount);
+        }
+        String exceeded = velocityLimiter.exceeded(source, amount);
+        if (exceeded != null) {
+            return TransactionResult.rejected(FailureReason.VELOCITY_LIMIT, exceeded);
+        }
+
+        String outId = message.getTransactionId();
+        String inId = outId + TRANSFER_IN_SUFFIX;
+        profiler.begin(Stage.SAVE);
+        Transaction outgoing;
+        if (pending != null) {
+            pending.setLinkedTransactionId(inId);
+            pending.setStatus(Transaction.TransactionStatus.COMPLETED);
+            pending.setTimestamp(LocalDateTime.now());
+            outgoing = pending;
+        } else {
+            outgoing = transactionRepository.save(transferSide(
+                outId, inId, source, Transaction.TransactionType.TRANSFER_OUT, message));
+        }
+        Transaction incoming = transactionRepository.save(transferSide(
+            inId, outId, target, Transaction.TransactionType.TRANSFER_IN, message));
+        profiler.end(Stage.SAVE);
+
+        // Locked rows are managed entities; the new balances are flushed on commit (timed as COMMIT)
+        source.setBalance(source.getBalance().subtract(amount));
+        target.setBalance(target.getBalance().add(amount));
+
+        profiler.begin(Stage.SAVE);
+        outboxService.recordTransactionProcessed(outgoing, amount.negate(), source.getBalance());
+        outboxService.recordTransactionProcessed(incoming, amount, target.getBalance());
+        profiler.end(Stage.SAVE);
+        publishCommitted(outgoing, amount.negate(), source.getBalance());
+        publishCommitted(incoming, amount, target.getBalance());
+
+        log.info("Transferred {} from user {} to user {} as {}", amount, sourceId, targetId, outId);
+        return TransactionResult.accepted(outgoing);
+    }
+
+    // The validation helpers return the rejection, or null when the message passes
+    private static TransactionResult validateTransfer(TransactionMessage message) {
+        if (message.getTargetUserId() == null) {
+            return TransactionResult.rejected(FailureReason.INVALID_TRANSFER, "Transfer requires a targetUserId");
+        }
+        if (message.getTargetUserId().equals(message.getUserId())) {
+            return TransactionResult.rejected(FailureReason.INVALID_TRANSFER, "Cannot transfer to the same user");
+        }
+        return validateAmount(message);
+    }
+
+    // Null unless the type is one a client may send; transfer sides and accruals are only ever created internally
+    private static Transaction.TransactionType parseType(TransactionMessage message) {
+        if (message.getType() == null) {
+            return null;
+        }
+        return switch (message.getType().toUpperCase(Locale.ROOT)) {
+            case "CREDIT" -> Transaction.TransactionType.CREDIT;
+            case "DEBIT" -> Transaction.TransactionType.DEBIT;
+            default -> null;
+        };
+    }
+
+    private static TransactionResult validateAmount(TransactionMessage message) {
+        if (message.getAmount() == null || message.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return TransactionResult.rejected(FailureReason.INVALID_AMOUNT, "Transaction amount must be positive");
+        }
+        return null;
+    }
+
+    private static TransactionResult invalidType(TransactionMessage message) {
+        return TransactionResult.rejected(FailureReason.INVALID_TYPE, "Invalid transaction type: " + message.getType());
+    }
+
+    private static TransactionResult unknownUser(Long userId) {
+        return TransactionResult.rejected(FailureReason.UNKNOWN_USER, "User not found with ID: " + userId);
+    }
+
+    private static TransactionResult insufficientBalance(BigDecimal balance, BigDecimal required) {
+        return TransactionResult.rejected(FailureReason.INSUFFICIENT_BALANCE,
+            "Insufficient balance. Current: " + balance + ", Required: " + required);
+    }
+
+    private Transaction transferSide(String transactionId, String linkedTransactionId, User user,
+                                     Transaction.TransactionType type, TransactionMessage message) {
+        return Transaction.builder()
+            .transactionId(transactionId)
+            .linkedTransactionId(linkedTransactionId)
+            .user(user)
+            .type(type)
+            .amount(message.getAmount())
+            .description(message.getDescription())
+            .status(Transaction.TransactionStatus.COMPLETED)
+            .build();
+    }
+
+    // In-memory views (caches, indexes) apply this once the DB transaction has committed
+    private void publishCommitted(Transaction transaction, BigDecimal balanceChange, BigDecimal newBalance) {
+        eventPublisher.publishEvent(TransactionCommittedEvent.builder()
+            .id(transaction.getId())
+            .transactionId(transaction.getTransactionId())
+            .userId(transaction.getUser().getId())
+            .type(transaction.getType())
+            .amount(transaction.getAmount())
+            .incentiveAmount(transaction.getIncentiveAmount())
+            .balanceChange(balanceChange)
+            .newBalance(newBalance)
+            .description(transaction.getDescription())
+            .linkedTransactionId(transaction.getLinkedTransactionId())
+            .timestamp(transaction.getTimestamp())
+            .build());
+    }
+
+    // Rows are inserted, or updated only when a scheduled transaction settles, which stamps updatedAt
+    @Transactional(readOnly = true)
+    public String getAllTransactionsETag() {
+        Long maxId = transactionRepository.findMaxId();
+        LocalDateTime maxUpdatedAt = transactionRepository.findMaxUpdatedAt();
+        long updatedMicros = maxUpdatedAt == null ? 0
+            : maxUpdatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + maxUpdatedAt.getNano() / 1_000;
+        return "\"txns-" + transactionRepository.count() + "-" + (maxId == null ? 0 : maxId) + "-" + updatedMicros + "\"";
+    }
+
+    // Every transaction applied to a user bumps the user's version
+    @Transactional(readOnly = true)
+    public String getUserTransactionsETag(Long userId) {
+        return "\"user-txns-" + userId + "-" + userService.getUserVersion(userId) + "\"";
     }
 
     @Transactional(readOnly = true)
     public List<TransactionResponse> getAllTransactions() {
-        return transactionRepository.findAll().stream()
+        return withArchived(transactionRepository.findAll(), archive.streamAll()).stream()
             .map(this::toTransactionResponse)
             .collect(Collectors.toList());
     }
@@ -120,12 +472,116 @@ public class TransactionService {
     public List<TransactionResponse> getTransactionsByUserId(Long userId) {
         // Verify user exists
         userService.findById(userId);
-        
-        return transactionRepository.findByUserId(userId).stream()
+
+        return withArchived(transactionRepository.findByUserId(userId), archive.findByUserId(userId).stream()).stream()
             .map(this::toTransactionResponse)
             .collect(Collectors.toList());
     }
 
+    /**
+     * Transactions whose description contains every word of the query, newest first. Answered from
+     * the description index, including archived rows; while the index is disabled or loading, by a
+     * LIKE scan of the table for the query as one phrase.
+     */
+    @Transactional(readOnly = true)
+    public TransactionSearchResponse searchTransactions(String query, Long userId, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be blank");
+        }
+        if (page < 0 || size <= 0 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("page must be non-negative and size between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        if ((long) page * size + size > searchProperties.getMaxResultWindow()) {
+            throw new IllegalArgumentException("Search results are limited to the first "
+                + searchProperties.getMaxResultWindow() + "; narrow the query instead");
+        }
+        if (userId != null) {
+            userService.findById(userId);
+        }
+        TransactionSearchResponse.TransactionSearchResponseBuilder response = TransactionSearchResponse.builder()
+            .query(query)
+            .userId(userId)
+            .page(page)
+            .size(size);
+
+        if (!descriptionIndex.isReady()) {
+            String phrase = query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            Page<Transaction> rows = transactionRepository.searchDescriptions(phrase, userId, PageRequest.of(page, size));
+            return response
+                .total(rows.getTotalElements())
+                .indexed(false)
+                .results(rows.stream().map(this::toTransactionResponse).collect(Collectors.toList()))
+                .build();
+        }
+
+        // Trigram candidates are checked against their descriptions, fetching more until the page fills
+        int wanted = (page + 1) * size;
+        int limit = wanted;
+        while (true) {
+            DescriptionIndex.Hits hits = descriptionIndex.search(query, userId, limit);
+            List<Transaction> rows = rowsById(hits.ids()).stream()
+                .filter(row -> matchesAll(row.getDescription(), hits.verify()))
+                .toList();
+            if (rows.size() >= wanted || hits.ids().length >= hits.total() || limit >= MAX_SEARCH_CANDIDATES) {
+                return response
+                    .total(hits.total())
+                    .approximate(hits.approximate())
+                    .indexed(true)
+                    .results(rows.stream().skip((long) page * size).limit(size)
+                        .map(this::toTransactionResponse).collect(Collectors.toList()))
+                    .build();
+            }
+            limit = (int) Math.min(Math.min(hits.total(), MAX_SEARCH_CANDIDATES), (long) limit * 2);
+        }
+    }
+
+    // Rows in the order given, from the table or, once archived, from the archive; ids no longer present are dropped
+    private List<Transaction> rowsById(long[] ids) {
+        Map<Long, Transaction> found = new HashMap<>(ids.length * 2);
+        List<Long> keys = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            keys.add(id);
+        }
+        transactionRepository.findAllById(keys).forEach(row -> found.put(row.getId(), row));
+        Map<Long, List<Long>> archivedByUser = new HashMap<>();
+        for (long id : ids) {
+            long userId = found.containsKey(id) ? -1 : descriptionIndex.userOf(id);
+            if (userId >= 0) {
+                archivedByUser.computeIfAbsent(userId, user -> new ArrayList<>()).add(id);
+            }
+        }
+        archivedByUser.forEach((userId, missing) -> archive.findByUserId(userId).stream()
+            .filter(row -> missing.contains(row.getId()))
+            .forEach(row -> found.put(row.getId(), row)));
+        List<Transaction> rows = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Transaction row = found.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static boolean matchesAll(String description, List<String> words) {
+        if (words.isEmpty()) {
+            return true;
+        }
+        String lower = description == null ? "" : description.toLowerCase(Locale.ROOT);
+        return words.stream().allMatch(lower::contains);
+    }
+
+    // Archived rows first, as they are older. The table is read before the catalog, so a row archived
+    // in between can show up in both; the table's copy wins.
+    private static List<Transaction> withArchived(List<Transaction> hot, Stream<Transaction> archived) {
+        Set<Long> hotIds = new HashSet<>(hot.size() * 2);
+        hot.forEach(transaction -> hotIds.add(transaction.getId()));
+        List<Transaction> merged = archived.filter(transaction -> !hotIds.contains(transaction.getId()))
+            .collect(Collectors.toCollection(ArrayList::new));
+        merged.addAll(hot);
+        return merged;
+    }
+
     private TransactionResponse toTransactionResponse(Transaction transaction) {
         return TransactionResponse.builder()
             .id(transaction.getId())
@@ -134,10 +590,13 @@ public class TransactionService {
             .type(transaction.getType().name())
             .amount(transaction.getAmount())
             .description(transaction.getDescription())
+            .linkedTransactionId(transaction.getLinkedTransactionId())
             .incentiveApplied(transaction.getIncentiveApplied())
             .incentiveAmount(transaction.getIncentiveAmount())
             .status(transaction.getStatus().name())
+            .failureReason(transaction.getFailureReason() == null ? null : transaction.getFailureReason().name())
             .timestamp(transaction.getTimestamp())
+            .executeAt(transaction.getExecuteAt())
             .build();
     }
 }
\ No newline at end of file
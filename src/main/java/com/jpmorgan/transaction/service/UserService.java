@@ -1,16 +1,27 @@
 package com.jpmorgan.transaction.service;
 
+import com.jpmorgan.transaction.accounts.AccountStore;
 import com.jpmorgan.transaction.dto.UserBalanceResponse;
+import com.jpmorgan.transaction.event.UserCreatedEvent;
 import com.jpmorgan.transaction.exception.UserNotFoundException;
 import com.jpmorgan.transaction.model.User;
 import com.jpmorgan.transaction.repository.UserRepository;
+import com.jpmorgan.transaction.sharding.ShardCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,6 +30,9 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final ShardCache shardCache;
+    private final AccountStore accountStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public User findById(Long id) {
@@ -26,17 +40,65 @@ public class UserService {
             .orElseThrow(() -> new UserNotFoundException(id));
     }
 
+    // For callers that treat an unknown user as an expected outcome rather than an error
+    @Transactional(readOnly = true)
+    public Optional<User> find(Long id) {
+        return id == null ? Optional.empty() : userRepository.findById(id);
+    }
+
+    // The balance comes from the account store while its entry is at the row's version; a stale entry is corrected from the row
     @Transactional(readOnly = true)
     public UserBalanceResponse getUserBalance(Long userId) {
+        UserBalanceResponse cached = shardCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
         User user = findById(userId);
+        BigDecimal balance = user.getBalance();
+        if (accountStore.isEnabled()) {
+            long cents = accountStore.balanceCents(userId, user.getVersion());
+            if (cents != AccountStore.ABSENT) {
+                balance = BigDecimal.valueOf(cents, 2);
+            } else {
+                accountStore.correct(userId, user.getBalance(), user.getVersion());
+            }
+        }
         return UserBalanceResponse.builder()
             .userId(user.getId())
             .username(user.getUsername())
             .email(user.getEmail())
-            .balance(user.getBalance())
+            .balance(balance)
             .build();
     }
 
+    @Transactional(readOnly = true)
+    public Long getUserVersion(Long userId) {
+        return userRepository.findVersionById(userId)
+            .orElseThrow(() -> new UserNotFoundException(userId));
+    }
+
+    // Empty for an unknown user, like find
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersion(Long userId) {
+        return userId == null ? Optional.empty() : userRepository.findVersionById(userId);
+    }
+
+    // Changes whenever updateBalance bumps the user's @Version
+    @Transactional(readOnly = true)
+    public String getBalanceETag(Long userId) {
+        return "\"user-" + userId + "-" + getUserVersion(userId) + "\"";
+    }
+
+    // High-water mark of the users table: row count plus the latest update time
+    @Transactional(readOnly = true)
+    public String getAllUsersETag() {
+        LocalDateTime maxUpdatedAt = userRepository.findMaxUpdatedAt();
+        long updatedMicros = maxUpdatedAt == null ? 0
+            : maxUpdatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + maxUpdatedAt.getNano() / 1_000;
+        return "\"users-" + userRepository.count() + "-" + updatedMicros + "\"";
+    }
+
     @Transactional(readOnly = true)
     public List<UserBalanceResponse> getAllUsers() {
         return userRepository.findAll().stream()
@@ -51,19 +113,22 @@ public class UserService {
 
     @Transactional
     public User createUser(String username, String email, BigDecimal initialBalance) {
+        BigDecimal opening = initialBalance != null ? initialBalance : BigDecimal.ZERO;
         User user = User.builder()
             .username(username)
             .email(email)
-            .balance(initialBalance != null ? initialBalance : BigDecimal.ZERO)
+            .balance(opening)
+            .openingBalance(opening)
             .build();
         
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserCreatedEvent(savedUser.getId(), savedUser.getBalance()));
         log.info("Created new user: {} with initial balance: {}", username, savedUser.getBalance());
         return savedUser;
     }
 
     @Transactional
-    public void updateBalance(Long userId, BigDecimal amount) {
+    public BigDecimal updateBalance(Long userId, BigDecimal amount) {
         User user = userRepository.findWithLockingById(userId)
             .orElseThrow(() -> new UserNotFoundException(userId));
         
@@ -71,6 +136,27 @@ public class UserService {
         user.setBalance(newBalance);
         userRepository.save(user);
         
-        log.info("Updated balance for user {}: {} -> {}", userId, user.getBalance(), newBalance);
+        log.debug("Updated balance for user {}: {} -> {}", userId, user.getBalance(), newBalance);
+        return newBalance;
+    }
+
+    // Bumps the user's version without touching the balance, so ETags over the user's transactions change
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void touch(Long userId) {
+        userRepository.findWithVersionIncrementById(userId)
+            .orElseThrow(() -> new UserNotFoundException(userId));
+    }
+
+    // Row locks are always taken in ascending id order, so transfers between the same users in
+    // opposite directions queue behind each other instead of deadlocking. Users that don't exist are left out.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, User> lockForUpdate(Long... userIds) {
+        Long[] ordered = userIds.clone();
+        Arrays.sort(ordered);
+        Map<Long, User> locked = new LinkedHashMap<>();
+        for (Long userId : ordered) {
+            userRepository.findForUpdateById(userId).ifPresent(user -> locked.put(userId, user));
+        }
+        return locked;
     }
-}
\ No newline at end of file
+}
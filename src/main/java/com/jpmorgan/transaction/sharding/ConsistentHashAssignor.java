@@ -0,0 +1,155 @@
+package com.jpmorgan.transaction.sharding;
+
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Configurable;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Assigns each partition to the instance that owns it on the consistent-hash ring, then round-robins
+ * an instance's partitions over its listener threads. The leader ships the full membership to every
+ * member in the assignment user data so each instance can route REST reads without extra lookups.
+ */
+public class ConsistentHashAssignor implements ConsumerPartitionAssignor, Configurable {
+
+    public static final String REGISTRY_CONFIG = "sharding.registry";
+    public static final String NAME = "consistent-hash";
+
+    private ShardRegistry registry;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object value = configs.get(REGISTRY_CONFIG);
+        if (!(value instanceof ShardRegistry)) {
+            throw new IllegalStateException(REGISTRY_CONFIG + " must reference the ShardRegistry bean");
+        }
+        this.registry = (ShardRegistry) value;
+    }
+
+    @Override
+    public ByteBuffer subscriptionUserData(Set<String> topics) {
+        return encode(Map.of(registry.getInstanceId(), registry.getAdvertisedUrl()), Map.of());
+    }
+
+    @Override
+    public GroupAssignment assign(Cluster metadata, GroupSubscription groupSubscription) {
+        Map<String, Subscription> subscriptions = groupSubscription.groupSubscription();
+
+        // instanceId -> sorted member ids of that instance; instanceId -> advertised url
+        Map<String, List<String>> membersByInstance = new TreeMap<>();
+        Map<String, String> instanceUrls = new TreeMap<>();
+        TreeSet<String> topics = new TreeSet<>();
+        for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
+            Decoded decoded = decode(entry.getValue().userData());
+            Map.Entry<String, String> instance = decoded.instanceUrls().entrySet().iterator().next();
+            membersByInstance.computeIfAbsent(instance.getKey(), k -> new ArrayList<>()).add(entry.getKey());
+            instanceUrls.put(instance.getKey(), instance.getValue());
+            topics.addAll(entry.getValue().topics());
+        }
+        membersByInstance.values().forEach(members -> members.sort(null));
+
+        ConsistentHashRing ring = new ConsistentHashRing(instanceUrls.keySet(), registry.getVirtualNodes());
+        Map<String, List<TopicPartition>> assignments = new HashMap<>();
+        subscriptions.keySet().forEach(memberId -> assignments.put(memberId, new ArrayList<>()));
+        Map<String, Integer> partitionCounts = new TreeMap<>();
+
+        for (String topic : topics) {
+            Integer partitionCount = metadata.partitionCountForTopic(topic);
+            if (partitionCount == null) {
+                continue;
+            }
+            partitionCounts.put(topic, partitionCount);
+            Map<String, Integer> nextMember = new HashMap<>();
+            for (int partition = 0; partition < partitionCount; partition++) {
+                String owner = ring.ownerOf(partition);
+                List<String> members = membersByInstance.get(owner);
+                int slot = nextMember.merge(owner, 1, Integer::sum) - 1;
+                String memberId = members.get(slot % members.size());
+                if (subscriptions.get(memberId).topics().contains(topic)) {
+                    assignments.get(memberId).add(new TopicPartition(topic, partition));
+                }
+            }
+        }
+
+        ByteBuffer membershipData = encode(instanceUrls, partitionCounts);
+        Map<String, Assignment> result = new HashMap<>();
+        assignments.forEach((memberId, partitions) ->
+            result.put(memberId, new Assignment(partitions, membershipData.duplicate())));
+        return new GroupAssignment(result);
+    }
+
+    @Override
+    public void onAssignment(Assignment assignment, ConsumerGroupMetadata metadata) {
+        if (assignment.userData() == null) {
+            return;
+        }
+        Decoded decoded = decode(assignment.userData());
+        int shardCount = decoded.partitionCounts().values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        registry.updateMembership(decoded.instanceUrls(), shardCount);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    private static ByteBuffer encode(Map<String, String> instanceUrls, Map<String, Integer> partitionCounts) {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(instanceUrls.size());
+            for (Map.Entry<String, String> entry : instanceUrls.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.writeInt(partitionCounts.size());
+            for (Map.Entry<String, Integer> entry : partitionCounts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+            return ByteBuffer.wrap(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Decoded decode(ByteBuffer buffer) {
+        ByteBuffer copy = buffer.duplicate();
+        byte[] data = new byte[copy.remaining()];
+        copy.get(data);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            Map<String, String> instanceUrls = new TreeMap<>();
+            int instances = in.readInt();
+            for (int i = 0; i < instances; i++) {
+                instanceUrls.put(in.readUTF(), in.readUTF());
+            }
+            Map<String, Integer> partitionCounts = new TreeMap<>();
+            int topics = in.readInt();
+            for (int i = 0; i < topics; i++) {
+                partitionCounts.put(in.readUTF(), in.readInt());
+            }
+            return new Decoded(instanceUrls, partitionCounts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Decoded(Map<String, String> instanceUrls, Map<String, Integer> partitionCounts) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.jpmorgan.transaction.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+// Immutable ring of node ids with virtual nodes; lookups are a binary search over a sorted long[]
+public final class ConsistentHashRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        // Sort so every instance builds an identical ring from the same membership
+        this.nodes = List.copyOf(new TreeSet<>(nodes));
+
+        long[][] entries = new long[this.nodes.size() * virtualNodes][2];
+        int n = 0;
+        for (int nodeIndex = 0; nodeIndex < this.nodes.size(); nodeIndex++) {
+            long nodeHash = this.nodes.get(nodeIndex).hashCode();
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[n][0] = mix((nodeHash << 32) | v);
+                entries[n][1] = nodeIndex;
+                n++;
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        this.points = new long[entries.length];
+        this.owners = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = this.nodes.get((int) entries[i][1]);
+        }
+    }
+
+    public String ownerOf(long key) {
+        if (points.length == 0) {
+            return null;
+        }
+        long h = mix(key);
+        int idx = Arrays.binarySearch(points, h);
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        return owners[idx == points.length ? 0 : idx];
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    public List<Integer> keysOwnedBy(String node, int keyCount) {
+        List<Integer> owned = new ArrayList<>();
+        for (int key = 0; key < keyCount; key++) {
+            if (node.equals(ownerOf(key))) {
+                owned.add(key);
+            }
+        }
+        return owned;
+    }
+
+    // MurmurHash3 fmix64 finalizer
+    static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
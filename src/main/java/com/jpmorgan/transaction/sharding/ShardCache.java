@@ -0,0 +1,208 @@
+package com.jpmorgan.transaction.sharding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.BalanceChangedEvent;
+import com.jpmorgan.transaction.dto.UserBalanceResponse;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.kafka.OutboxRelay;
+import com.jpmorgan.transaction.model.OutboxEvent;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Balance cache for the users of the shards this instance owns; warmed on assignment, dropped on revocation
+@Component
+@Slf4j
+public class ShardCache implements ShardOwnershipListener {
+
+    private final ShardRegistry shardRegistry;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final int warmPageSize;
+    private final Map<Integer, Map<Long, UserBalanceResponse>> shards = new ConcurrentHashMap<>();
+
+    // Users committed since the warmer's current page read began; null when no warm-up runs
+    private volatile Set<Long> touched;
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "shard-cache-warmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ShardCache(
+            ShardRegistry shardRegistry,
+            UserRepository userRepository,
+            ObjectMapper objectMapper,
+            @Value("${sharding.cache.max-entries:100000}") int maxEntries,
+            @Value("${sharding.cache.warm-page-size:1000}") int warmPageSize) {
+        this.shardRegistry = shardRegistry;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.warmPageSize = warmPageSize;
+        if (shardRegistry.isEnabled()) {
+            shardRegistry.addListener(this);
+        }
+    }
+
+    public UserBalanceResponse get(Long userId) {
+        if (!shardRegistry.isEnabled()) {
+            return null;
+        }
+        Map<Long, UserBalanceResponse> shard = shards.get(shardRegistry.shardFor(userId));
+        return shard == null ? null : shard.get(userId);
+    }
+
+    @Override
+    public void onShardsAssigned(Set<Integer> assigned) {
+        assigned.forEach(shard -> shards.putIfAbsent(shard, new ConcurrentHashMap<>()));
+        warmer.submit(() -> warm(assigned));
+    }
+
+    @Override
+    public void onShardsRevoked(Set<Integer> revoked) {
+        revoked.forEach(shards::remove);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionCommitted(TransactionCommittedEvent event) {
+        if (!shardRegistry.isEnabled()) {
+            return;
+        }
+        touch(event.getUserId());
+        Map<Long, UserBalanceResponse> shard = shards.get(shardRegistry.shardFor(event.getUserId()));
+        if (shard != null) {
+            shard.computeIfPresent(event.getUserId(), (id, cached) -> UserBalanceResponse.builder()
+                .userId(cached.getUserId())
+                .username(cached.getUsername())
+                .email(cached.getEmail())
+                .balance(event.getNewBalance())
+                .build());
+        }
+    }
+
+    // A replay rewrote balances behind the cache's back; start the owned shards over
+    @EventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        if (!shardRegistry.isEnabled()) {
+            return;
+        }
+        Set<Integer> owned = Set.copyOf(shards.keySet());
+        shards.values().forEach(Map::clear);
+        warmer.submit(() -> warm(owned));
+    }
+
+    // A transfer commits on the instance that owns its source user, so the destination's owner learns of it
+    // from the event stream; a cached balance that disagrees with a committed one is dropped and re-read
+    @KafkaListener(
+        topics = "${kafka.topic.events}",
+        groupId = "shard-cache-#{@shardRegistry.instanceId}",
+        containerFactory = "eventKafkaListenerContainerFactory",
+        autoStartup = "${sharding.enabled:false}"
+    )
+    public void onBalanceEvent(ConsumerRecord<String, String> record) {
+        Header eventType = record.headers().lastHeader(OutboxRelay.EVENT_TYPE_HEADER);
+        if (eventType == null || !OutboxEvent.EventType.BALANCE_CHANGED.name()
+                .equals(new String(eventType.value(), StandardCharsets.UTF_8))) {
+            return;
+        }
+        try {
+            BalanceChangedEvent event = objectMapper.readValue(record.value(), BalanceChangedEvent.class);
+            touch(event.getUserId());
+            Map<Long, UserBalanceResponse> shard = shards.get(shardRegistry.shardFor(event.getUserId()));
+            if (shard != null) {
+                shard.computeIfPresent(event.getUserId(),
+                    (id, cached) -> cached.getBalance().compareTo(event.getNewBalance()) == 0 ? cached : null);
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable balance event at offset {}: {}", record.offset(), e.getMessage());
+        }
+    }
+
+    private void warm(Set<Integer> assigned) {
+        long start = System.currentTimeMillis();
+        int loaded = 0;
+        int page = 0;
+        Page<User> users;
+        Set<Long> committed = ConcurrentHashMap.newKeySet();
+        touched = committed;
+        try {
+            do {
+                committed.clear();
+                users = userRepository.findAll(PageRequest.of(page++, warmPageSize, Sort.by("id")));
+                for (User user : users) {
+                    int shardId = shardRegistry.shardFor(user.getId());
+                    Map<Long, UserBalanceResponse> shard = shards.get(shardId);
+                    if (shard != null && assigned.contains(shardId) && size() < maxEntries && cache(shard, user, committed)) {
+                        loaded++;
+                    }
+                }
+            } while (users.hasNext() && size() < maxEntries);
+            log.info("Warmed shard cache for shards {} with {} users in {} ms",
+                assigned, loaded, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Shard cache warm-up for {} stopped early: {}", assigned, e.getMessage());
+        } finally {
+            touched = null;
+        }
+    }
+
+    // A user committed since the page was read may be stale in it and is left to be read on demand. The
+    // check runs under the entry's lock, so a commit recorded after it updates the cached row instead
+    private boolean cache(Map<Long, UserBalanceResponse> shard, User user, Set<Long> committed) {
+        boolean[] cached = new boolean[1];
+        shard.compute(user.getId(), (id, current) -> {
+            if (current != null || committed.contains(id)) {
+                return current;
+            }
+            cached[0] = true;
+            return toResponse(user);
+        });
+        return cached[0];
+    }
+
+    private void touch(Long userId) {
+        Set<Long> committed = touched;
+        if (committed != null) {
+            committed.add(userId);
+        }
+    }
+
+    public int size() {
+        return shards.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmer.shutdownNow();
+    }
+
+    private UserBalanceResponse toResponse(User user) {
+        return UserBalanceResponse.builder()
+            .userId(user.getId())
+            .username(user.getUsername())
+            .email(user.getEmail())
+            .balance(user.getBalance())
+            .build();
+    }
+}
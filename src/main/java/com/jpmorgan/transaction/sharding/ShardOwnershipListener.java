@@ -0,0 +1,10 @@
+package com.jpmorgan.transaction.sharding;
+
+import java.util.Set;
+
+public interface ShardOwnershipListener {
+
+    void onShardsAssigned(Set<Integer> shards);
+
+    void onShardsRevoked(Set<Integer> shards);
+}
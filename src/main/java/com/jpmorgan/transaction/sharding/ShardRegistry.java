@@ -0,0 +1,134 @@
+package com.jpmorgan.transaction.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local view of which instance owns which shard. A shard is a partition of the transactions topic,
+ * and shards are spread over live instances with a consistent-hash ring, so the instance that
+ * consumes a user's Kafka partition is also the one that serves that user's REST reads.
+ */
+@Component
+@Slf4j
+public class ShardRegistry {
+
+    private final boolean enabled;
+    private final String instanceId;
+    private final String advertisedUrl;
+    private final int virtualNodes;
+    private final List<ShardOwnershipListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Membership membership = new Membership(Map.of(), 0, null, Set.of());
+
+    public ShardRegistry(
+            @Value("${sharding.enabled:false}") boolean enabled,
+            @Value("${sharding.instance-id:}") String instanceId,
+            @Value("${sharding.advertised-url:}") String advertisedUrl,
+            @Value("${sharding.virtual-nodes:128}") int virtualNodes) {
+        this.enabled = enabled;
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.advertisedUrl = advertisedUrl;
+        this.virtualNodes = virtualNodes;
+    }
+
+    public void addListener(ShardOwnershipListener listener) {
+        listeners.add(listener);
+    }
+
+    // Called from the assignor on every consumer thread of this instance; only real changes are applied
+    public synchronized void updateMembership(Map<String, String> instanceUrls, int shardCount) {
+        Membership current = membership;
+        if (current.instanceUrls().equals(instanceUrls) && current.shardCount() == shardCount) {
+            return;
+        }
+
+        ConsistentHashRing ring = new ConsistentHashRing(instanceUrls.keySet(), virtualNodes);
+        Set<Integer> owned = new HashSet<>(ring.keysOwnedBy(instanceId, shardCount));
+        membership = new Membership(Map.copyOf(instanceUrls), shardCount, ring, Set.copyOf(owned));
+
+        Set<Integer> revoked = new HashSet<>(current.ownedShards());
+        revoked.removeAll(owned);
+        Set<Integer> assigned = new HashSet<>(owned);
+        assigned.removeAll(current.ownedShards());
+
+        log.info("Shard membership changed: instances={}, shards={}, owned={}, assigned={}, revoked={}",
+            ring.nodes(), shardCount, owned, assigned, revoked);
+
+        for (ShardOwnershipListener listener : listeners) {
+            if (!revoked.isEmpty()) {
+                listener.onShardsRevoked(revoked);
+            }
+            if (!assigned.isEmpty()) {
+                listener.onShardsAssigned(assigned);
+            }
+        }
+    }
+
+    public int shardFor(Long userId) {
+        int shardCount = membership.shardCount();
+        return shardCount == 0 ? -1 : shardFor(userId, shardCount);
+    }
+
+    // Same as Kafka's default partitioner for a String key, so records keyed by userId land on this shard
+    public static int shardFor(Long userId, int shardCount) {
+        byte[] key = String.valueOf(userId).getBytes(StandardCharsets.UTF_8);
+        return Utils.toPositive(Utils.murmur2(key)) % shardCount;
+    }
+
+    public boolean isLocal(Long userId) {
+        Membership current = membership;
+        if (!enabled || current.ring() == null || current.ring().isEmpty()) {
+            return true;
+        }
+        return current.ownedShards().contains(shardFor(userId, current.shardCount()));
+    }
+
+    public Optional<String> ownerOf(Long userId) {
+        Membership current = membership;
+        if (current.ring() == null || current.ring().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.ring().ownerOf(shardFor(userId, current.shardCount())));
+    }
+
+    public Optional<String> ownerUrl(Long userId) {
+        return ownerOf(userId)
+            .map(owner -> membership.instanceUrls().get(owner))
+            .filter(url -> !url.isBlank());
+    }
+
+    public Set<Integer> getOwnedShards() {
+        return membership.ownedShards();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public String getAdvertisedUrl() {
+        return advertisedUrl;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    private record Membership(Map<String, String> instanceUrls, int shardCount,
+                              ConsistentHashRing ring, Set<Integer> ownedShards) {
+    }
+}
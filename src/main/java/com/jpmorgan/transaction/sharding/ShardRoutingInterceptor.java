@@ -0,0 +1,60 @@
+package com.jpmorgan.transaction.sharding;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.Optional;
+
+// Redirects per-user reads to the instance that owns the user's shard
+@RequiredArgsConstructor
+public class ShardRoutingInterceptor implements HandlerInterceptor {
+
+    public static final String OWNER_HEADER = "X-Shard-Owner";
+    public static final String FORWARDED_HEADER = "X-Shard-Forwarded";
+
+    private final ShardRegistry shardRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) || request.getHeader(FORWARDED_HEADER) != null) {
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+            HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || !variables.containsKey("userId")) {
+            return true;
+        }
+
+        Long userId;
+        try {
+            userId = Long.valueOf(variables.get("userId"));
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        if (shardRegistry.isLocal(userId)) {
+            return true;
+        }
+
+        // Without a known owner url, serve locally from the shared DB rather than fail the read
+        Optional<String> ownerUrl = shardRegistry.ownerUrl(userId);
+        if (ownerUrl.isEmpty()) {
+            return true;
+        }
+
+        String query = request.getQueryString();
+        response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+        response.setHeader(OWNER_HEADER, shardRegistry.ownerOf(userId).orElse(""));
+        response.setHeader(HttpHeaders.LOCATION,
+            ownerUrl.get() + request.getRequestURI() + (query != null ? "?" + query : ""));
+        return false;
+    }
+}
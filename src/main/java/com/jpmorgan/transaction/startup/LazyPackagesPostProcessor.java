@@ -0,0 +1,69 @@
+package com.jpmorgan.transaction.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Marks beans from the packages in {@code startup.lazy-packages} (e.g. springdoc) lazy, so they
+ * are created on first use instead of during startup. Unlike global lazy initialization this
+ * leaves Kafka listeners, {@code @Scheduled} jobs and caches warmed on startup untouched. Under
+ * AOT the flag is applied at build time and carried in the generated bean definitions.
+ */
+@Component
+@Slf4j
+public class LazyPackagesPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private String[] packages = new String[0];
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        packages = Arrays.stream(environment.getProperty("startup.lazy-packages", String[].class, new String[0]))
+            .map(String::trim)
+            .filter(p -> !p.isEmpty())
+            .map(p -> p.endsWith(".") ? p : p + ".")
+            .toArray(String[]::new);
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        if (packages.length == 0) {
+            return;
+        }
+        int marked = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!definition.isLazyInit() && definition.isSingleton() && inLazyPackage(definition)) {
+                definition.setLazyInit(true);
+                marked++;
+            }
+        }
+        log.debug("Marked {} beans lazy from {}", marked, Arrays.toString(packages));
+    }
+
+    // @Bean methods have no bean class name; match the configuration class declaring them instead
+    private boolean inLazyPackage(BeanDefinition definition) {
+        String className = definition.getBeanClassName();
+        if (className == null && definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            className = factoryMethod == null ? null : factoryMethod.getDeclaringClassName();
+        }
+        if (className == null) {
+            return false;
+        }
+        for (String p : packages) {
+            if (className.startsWith(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
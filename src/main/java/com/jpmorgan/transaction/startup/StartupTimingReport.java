@@ -0,0 +1,103 @@
+package com.jpmorgan.transaction.startup;
+
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Logs where boot time went once the application is ready: context refresh and the slowest
+ * startup steps recorded by the {@link BufferingApplicationStartup} installed in {@code main}
+ * (the full timeline is at {@code /actuator/startup}). Also publishes the time from JVM start
+ * to the first committed transaction as {@code startup.first.transaction.time}.
+ */
+@Component
+@Slf4j
+public class StartupTimingReport {
+
+    private static final String CONTEXT_REFRESH = "spring.context.refresh";
+
+    private final int topSteps;
+    private final AtomicLong contextRefreshMs = new AtomicLong(-1);
+    private final AtomicLong firstTransactionMs = new AtomicLong(-1);
+    private volatile boolean firstTransactionSeen;
+
+    public StartupTimingReport(@Value("${startup.report.top-steps:10}") int topSteps, MeterRegistry meterRegistry) {
+        this.topSteps = topSteps;
+        Gauge.builder("startup.context.refresh.time", contextRefreshMs, AtomicLong::get)
+            .description("Time spent refreshing the application context; -1 if startup steps were not recorded")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        Gauge.builder("startup.first.transaction.time", firstTransactionMs, AtomicLong::get)
+            .description("Time from JVM start until the first transaction committed; -1 until then")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        long jvmStartMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        Duration ready = event.getTimeTaken();
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            log.info("Ready in {} ms ({} ms since JVM start); startup steps not recorded", millis(ready), jvmStartMs);
+            return;
+        }
+        StartupTimeline timeline = startup.getBufferedTimeline();
+        timeline.getEvents().stream()
+            .filter(e -> CONTEXT_REFRESH.equals(e.getStartupStep().getName()))
+            .findFirst()
+            .ifPresent(e -> contextRefreshMs.set(e.getDuration().toMillis()));
+        log.info("Ready in {} ms ({} ms since JVM start), context refresh {} ms; slowest steps: {}",
+            millis(ready), jvmStartMs, contextRefreshMs.get(), slowest(timeline.getEvents(), topSteps));
+    }
+
+    // After commit, so the warm-up's rolled-back transactions do not count; a volatile read once seen
+    @TransactionalEventListener
+    public void onCommitted(TransactionCommittedEvent event) {
+        if (firstTransactionSeen) {
+            return;
+        }
+        firstTransactionSeen = true;
+        if (firstTransactionMs.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime())) {
+            log.info("First transaction {} processed {} ms after JVM start", event.getTransactionId(), firstTransactionMs.get());
+        }
+    }
+
+    // Refresh is reported on its own; nested steps overlap (a bean's time includes its dependencies), so these are not additive
+    static String slowest(List<StartupTimeline.TimelineEvent> events, int limit) {
+        return events.stream()
+            .filter(e -> !CONTEXT_REFRESH.equals(e.getStartupStep().getName()))
+            .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+            .limit(limit)
+            .map(e -> describe(e.getStartupStep()) + "=" + e.getDuration().toMillis() + "ms")
+            .collect(Collectors.joining(", "));
+    }
+
+    private static String describe(StartupStep step) {
+        return StreamSupport.stream(step.getTags().spliterator(), false)
+            .filter(tag -> tag.getKey().equals("beanName"))
+            .findFirst()
+            .map(tag -> step.getName() + "[" + tag.getValue() + "]")
+            .orElse(step.getName());
+    }
+
+    private static long millis(Duration duration) {
+        return duration == null ? -1 : duration.toMillis();
+    }
+}
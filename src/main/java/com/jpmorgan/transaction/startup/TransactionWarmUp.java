@@ -0,0 +1,272 @@
+package com.jpmorgan.transaction.startup;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.kafka.TransactionConsumer;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.UserRepository;
+import com.jpmorgan.transaction.service.IncentiveService;
+import com.jpmorgan.transaction.service.TransactionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Warms the instance up before it joins the transactions consumer group. Runs as an
+ * {@link ApplicationRunner}, so the readiness probe keeps refusing traffic until it returns:
+ * the connection pool is filled, the most active users are read, and synthetic messages go
+ * through {@link TransactionService#processTransaction} and are flushed and rolled back, so the
+ * JIT compiles the hot path before real records arrive. The synthetic messages move money
+ * between throwaway users created in the same rolled-back transaction, so they never lock a
+ * row a live instance needs. Then the live
+ * listener is started (unless {@code kafka.listener.auto-startup} is false). Phase times and
+ * the synthetic latency of the first and last batches are published as {@code warmup.*} gauges.
+ */
+@Component
+@Slf4j
+public class TransactionWarmUp implements ApplicationRunner {
+
+    private static final String ACTIVE_USERS_SQL =
+        "SELECT user_id FROM transactions WHERE timestamp >= ? GROUP BY user_id ORDER BY COUNT(*) DESC LIMIT ?";
+    private static final String ANY_USERS_SQL = "SELECT id FROM users ORDER BY id LIMIT ?";
+    private static final String[] TYPES = {"CREDIT", "DEBIT", "TRANSFER"};
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionService transactionService;
+    private final UserRepository userRepository;
+    private final IncentiveService incentiveService;
+    private final TransactionTemplate rollbackTemplate;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final boolean enabled;
+    private final boolean startListener;
+    private final int connections;
+    private final int activeUsers;
+    private final int lookbackDays;
+    private final int iterations;
+    private final boolean incentiveApi;
+    private final Map<String, AtomicLong> phaseMs = new LinkedHashMap<>();
+    private final AtomicLong firstBatchMicros = new AtomicLong(-1);
+    private final AtomicLong lastBatchMicros = new AtomicLong(-1);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TransactionWarmUp(
+            DataSource dataSource,
+            TransactionService transactionService,
+            UserRepository userRepository,
+            IncentiveService incentiveService,
+            PlatformTransactionManager transactionManager,
+            KafkaListenerEndpointRegistry listenerRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${warmup.enabled:false}") boolean enabled,
+            @Value("${kafka.listener.auto-startup:true}") boolean startListener,
+            @Value("${warmup.connections:10}") int connections,
+            @Value("${warmup.active-users:200}") int activeUsers,
+            @Value("${warmup.lookback-days:7}") int lookbackDays,
+            @Value("${warmup.iterations:2000}") int iterations,
+            @Value("${warmup.incentive-api:false}") boolean incentiveApi) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionService = transactionService;
+        this.userRepository = userRepository;
+        this.incentiveService = incentiveService;
+        this.rollbackTemplate = new TransactionTemplate(transactionManager);
+        this.listenerRegistry = listenerRegistry;
+        this.enabled = enabled;
+        this.startListener = startListener;
+        this.connections = connections;
+        this.activeUsers = activeUsers;
+        this.lookbackDays = lookbackDays;
+        this.iterations = iterations;
+        this.incentiveApi = incentiveApi;
+        for (String phase : List.of("connections", "users", "transactions", "total")) {
+            AtomicLong ms = new AtomicLong(-1);
+            phaseMs.put(phase, ms);
+            Gauge.builder("warmup.phase.time", ms, AtomicLong::get)
+                .description("Time spent in each warm-up phase; -1 if it did not run")
+                .tag("phase", phase)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        }
+        Gauge.builder("warmup.transaction.latency", firstBatchMicros, AtomicLong::get)
+            .description("Mean latency of the first batch of synthetic transactions")
+            .tag("batch", "first")
+            .baseUnit("microseconds")
+            .register(meterRegistry);
+        Gauge.builder("warmup.transaction.latency", lastBatchMicros, AtomicLong::get)
+            .description("Mean latency of the last batch of synthetic transactions")
+            .tag("batch", "last")
+            .baseUnit("microseconds")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int opened = timed("connections", this::openConnections);
+            List<Long> users = timed("users", this::activeUsers);
+            int rejected = timed("transactions", this::synthesize);
+            log.info("Warm-up: {} connections in {} ms, {} users in {} ms, {} synthetic transactions ({} rejected) in {} ms, "
+                    + "mean latency {} us in the first batch and {} us in the last",
+                opened, phaseMs.get("connections").get(), users.size(), phaseMs.get("users").get(),
+                iterations, rejected, phaseMs.get("transactions").get(),
+                firstBatchMicros.get(), lastBatchMicros.get());
+        } catch (Exception e) {
+            // A failed warm-up only costs latency; the instance still joins the group
+            log.warn("Warm-up failed, starting without it: {}", e.getMessage(), e);
+        } finally {
+            phaseMs.get("total").set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        if (startListener) {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(TransactionConsumer.LISTENER_ID);
+            if (container != null && !container.isRunning()) {
+                container.start();
+            }
+        }
+        log.info("Warm-up finished in {} ms; transactions listener {}", phaseMs.get("total").get(),
+            startListener ? "started" : "left stopped (kafka.listener.auto-startup=false)");
+    }
+
+    // Held together so the pool has to open them all, then returned
+    private int openConnections() {
+        List<Connection> held = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                Connection connection = dataSource.getConnection();
+                held.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            log.warn("Warm-up opened {} of {} connections: {}", held.size(), connections, e.getMessage());
+        } finally {
+            for (Connection connection : held) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // Returned to the pool regardless
+                }
+            }
+        }
+        return held.size();
+    }
+
+    // Most transactions in the lookback window first, topped up with any users on a quiet ledger; read without locks
+    private List<Long> activeUsers() {
+        Set<Long> users = new LinkedHashSet<>(jdbcTemplate.queryForList(ACTIVE_USERS_SQL, Long.class,
+            Timestamp.valueOf(LocalDateTime.now().minusDays(lookbackDays)), activeUsers));
+        if (users.size() < activeUsers) {
+            users.addAll(jdbcTemplate.queryForList(ANY_USERS_SQL, Long.class, activeUsers));
+        }
+        List<Long> ids = new ArrayList<>(users).subList(0, Math.min(users.size(), activeUsers));
+        userRepository.findAllById(ids);
+        return ids;
+    }
+
+    // Returns how many were rejected (insufficient balance, velocity); those still exercise the failure path
+    private int synthesize() {
+        int batch = Math.max(1, Math.min(100, iterations / 10));
+        long firstNanos = 0;
+        long lastNanos = 0;
+        int rejected = 0;
+        for (int i = 0; i < iterations; i++) {
+            int iteration = i;
+            long t0 = System.nanoTime();
+            try {
+                if (incentiveApi) {
+                    processAndRollBack(iteration);
+                } else {
+                    incentiveService.withLocalIncentives(() -> processAndRollBack(iteration));
+                }
+            } catch (RuntimeException e) {
+                rejected++;
+            }
+            long elapsed = System.nanoTime() - t0;
+            if (i < batch) {
+                firstNanos += elapsed;
+            }
+            if (i >= iterations - batch) {
+                lastNanos += elapsed;
+            }
+        }
+        firstBatchMicros.set(TimeUnit.NANOSECONDS.toMicros(firstNanos / batch));
+        lastBatchMicros.set(TimeUnit.NANOSECONDS.toMicros(lastNanos / batch));
+        return rejected;
+    }
+
+    // Flushed so the inserts and updates run too; after-commit listeners never see it, nor the users it creates
+    private Object processAndRollBack(int i) {
+        return rollbackTemplate.execute(status -> {
+            status.setRollbackOnly();
+            Long source = throwawayUser().getId();
+            Long target = throwawayUser().getId();
+            transactionService.processTransaction(synthetic(i, source, target));
+            entityManager.flush();
+            return null;
+        });
+    }
+
+    private User throwawayUser() {
+        String name = "warmup-" + UUID.randomUUID();
+        BigDecimal balance = new BigDecimal("1000.00");
+        return userRepository.saveAndFlush(User.builder()
+            .username(name)
+            .email(name + "@warmup.invalid")
+            .balance(balance)
+            .openingBalance(balance)
+            .build());
+    }
+
+    private static TransactionMessage synthetic(int i, Long source, Long target) {
+        String type = TYPES[i % TYPES.length];
+        return TransactionMessage.builder()
+            .transactionId("WARMUP-" + i)
+            .userId(source)
+            .targetUserId("TRANSFER".equals(type) ? target : null)
+            .type(type)
+            .amount(new BigDecimal("1.00"))
+            .description("warm-up")
+            .build();
+    }
+
+    private <T> T timed(String phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            phaseMs.get(phase).set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+}
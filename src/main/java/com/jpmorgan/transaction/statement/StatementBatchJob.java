@@ -0,0 +1,389 @@
+package com.jpmorgan.transaction.statement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.archive.TransactionArchive;
+import com.jpmorgan.transaction.dto.StatementBatchResult;
+import com.jpmorgan.transaction.model.StatementCheckpoint;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.repository.StatementCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes one statement file per user for a calendar month. Users are split into id-range
+ * partitions processed by parallel workers; each worker makes a single pass over its users'
+ * transactions ordered by (user_id, timestamp), so transactions before the month fold into the
+ * opening balance and the month's rows are written as they stream past. Each chunk of users
+ * advances the partition's checkpoint, and a rerun for the same month resumes from there.
+ */
+@Component
+@Slf4j
+public class StatementBatchJob {
+
+    private static final String STATEMENT_SQL =
+        "SELECT u.id, u.username, u.opening_balance, t.transaction_id, t.type, t.amount, "
+            + "t.incentive_amount, t.description, t.timestamp "
+            + "FROM users u LEFT JOIN transactions t ON t.user_id = u.id "
+            + "AND t.status = 'COMPLETED' AND t.timestamp < ? "
+            + "WHERE u.id >= ? AND u.id < ? AND u.created_at < ? "
+            + "ORDER BY u.id, t.timestamp, t.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatementCheckpointRepository checkpointRepository;
+    private final TransactionArchive archive;
+    private final ObjectMapper objectMapper;
+    private final boolean scheduleEnabled;
+    private final Path outputDir;
+    private final StatementFormat format;
+    private final int partitions;
+    private final int chunkSize;
+
+    private final Counter statementsCounter;
+    private final Timer batchTimer;
+    private volatile double lastStatementsPerSecond;
+    private volatile StatementBatchResult lastResult;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "statement-batch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StatementBatchJob(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            StatementCheckpointRepository checkpointRepository,
+            TransactionArchive archive,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${statements.schedule-enabled:false}") boolean scheduleEnabled,
+            @Value("${statements.output-dir:${java.io.tmpdir}/statements}") String outputDir,
+            @Value("${statements.format:CSV}") StatementFormat format,
+            @Value("${statements.partitions:4}") int partitions,
+            @Value("${statements.chunk-size:500}") int chunkSize,
+            @Value("${statements.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.archive = archive;
+        this.objectMapper = objectMapper;
+        this.scheduleEnabled = scheduleEnabled;
+        this.outputDir = Paths.get(outputDir);
+        this.format = format;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.statementsCounter = Counter.builder("statements.generated")
+            .description("Statement files written")
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("statements.batch.duration")
+            .description("Time taken by a statement batch run")
+            .register(meterRegistry);
+        Gauge.builder("statements.throughput", this, job -> job.lastStatementsPerSecond)
+            .description("Statements per second of the most recent batch run")
+            .register(meterRegistry);
+    }
+
+    // Previous month's statements, early on the first of each month
+    @Scheduled(cron = "${statements.cron:0 0 2 1 * *}")
+    public void generatePreviousMonth() {
+        if (scheduleEnabled) {
+            start(YearMonth.now().minusMonths(1), false);
+        }
+    }
+
+    // Starts a run in the background; returns false if one is already in progress
+    public boolean start(YearMonth period, boolean restart) {
+        requireUnarchived(period);
+        if (running.get()) {
+            return false;
+        }
+        runner.submit(() -> {
+            try {
+                run(period, restart);
+            } catch (Exception e) {
+                log.error("Statement batch for {} failed: {}", period, e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    public StatementBatchResult run(YearMonth period, boolean restart) {
+        requireUnarchived(period);
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A statement batch is already running");
+        }
+        ExecutorService workers = null;
+        try {
+            String key = period.toString();
+            if (restart) {
+                transactionTemplate.executeWithoutResult(status -> checkpointRepository.deleteByPeriod(key));
+            }
+            List<StatementCheckpoint> checkpoints = checkpointRepository.findByPeriodOrderByPartitionIndexAsc(key);
+            if (checkpoints.isEmpty()) {
+                checkpoints = checkpointRepository.saveAll(planPartitions(key));
+            } else {
+                log.info("Resuming statement batch for {} from {} checkpoints", key, checkpoints.size());
+            }
+
+            Path dir = outputDir.resolve(key);
+            Files.createDirectories(dir);
+
+            long started = System.nanoTime();
+            AtomicInteger workerIndex = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(Math.max(1, checkpoints.size()),
+                r -> new Thread(r, "statement-worker-" + workerIndex.incrementAndGet()));
+            List<Future<Long>> futures = new ArrayList<>();
+            for (StatementCheckpoint checkpoint : checkpoints) {
+                futures.add(workers.submit(() -> processPartition(checkpoint, period, dir)));
+            }
+            long written = 0;
+            for (Future<Long> future : futures) {
+                written += future.get();
+            }
+
+            long elapsedNanos = System.nanoTime() - started;
+            batchTimer.record(Duration.ofNanos(elapsedNanos));
+            double perSecond = elapsedNanos == 0 ? 0 : written / (elapsedNanos / 1_000_000_000.0);
+            lastStatementsPerSecond = perSecond;
+
+            long total = checkpointRepository.findByPeriodOrderByPartitionIndexAsc(key).stream()
+                .mapToLong(StatementCheckpoint::getStatements)
+                .sum();
+            lastResult = StatementBatchResult.builder()
+                .period(key)
+                .format(format.name())
+                .outputDir(dir.toString())
+                .partitions(checkpoints.size())
+                .statements(written)
+                .totalStatements(total)
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .statementsPerSecond(perSecond)
+                .build();
+            log.info("Statement batch for {} wrote {} statements in {} ms ({} per second)",
+                key, written, lastResult.getElapsedMs(), String.format("%.1f", perSecond));
+            return lastResult;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Statement partition failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Statement batch interrupted", e);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+            running.set(false);
+        }
+    }
+
+    // A month's rows must all still be in the table; older history lives on only in opening balances and the archive
+    private void requireUnarchived(YearMonth period) {
+        LocalDateTime horizon = archive.horizon();
+        if (horizon != null && !horizon.isBefore(period.atDay(1).atStartOfDay())) {
+            throw new IllegalArgumentException(
+                "Transactions up to " + horizon + " are archived; cannot produce statements for " + period);
+        }
+    }
+
+    private List<StatementCheckpoint> planPartitions(String key) {
+        Long min = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+        List<StatementCheckpoint> planned = new ArrayList<>();
+        if (min == null || max == null) {
+            return planned;
+        }
+        long span = max - min + 1;
+        int count = (int) Math.max(1, Math.min(partitions, span));
+        long width = (span + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            long from = min + i * width;
+            planned.add(StatementCheckpoint.builder()
+                .id(key + ":" + i)
+                .period(key)
+                .partitionIndex(i)
+                .fromUserId(from)
+                .toUserId(Math.min(max + 1, from + width))
+                .statements(0L)
+                .completed(false)
+                .updatedAt(LocalDateTime.now())
+                .build());
+        }
+        return planned;
+    }
+
+    private long processPartition(StatementCheckpoint checkpoint, YearMonth period, Path dir) {
+        if (checkpoint.getCompleted()) {
+            return 0;
+        }
+        long written = 0;
+        long next = checkpoint.getLastUserId() == null ? checkpoint.getFromUserId() : checkpoint.getLastUserId() + 1;
+        while (next < checkpoint.getToUserId()) {
+            long end = Math.min(checkpoint.getToUserId(), next + chunkSize);
+            long chunk = writeChunk(period, dir, next, end);
+            written += chunk;
+            checkpoint.setLastUserId(end - 1);
+            checkpoint.setStatements(checkpoint.getStatements() + chunk);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+            next = end;
+        }
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        return written;
+    }
+
+    private long writeChunk(YearMonth period, Path dir, long fromUserId, long toUserId) {
+        Timestamp periodEnd = Timestamp.valueOf(period.plusMonths(1).atDay(1).atStartOfDay());
+        ChunkWriter chunkWriter = new ChunkWriter(period, dir);
+        jdbcTemplate.query(STATEMENT_SQL, chunkWriter, periodEnd, fromUserId, toUserId, periodEnd);
+        chunkWriter.finishUser();
+        statementsCounter.increment(chunkWriter.statements);
+        return chunkWriter.statements;
+    }
+
+    public StatementBatchResult getLastResult() {
+        return lastResult;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public List<StatementCheckpoint> getCheckpoints(YearMonth period) {
+        return checkpointRepository.findByPeriodOrderByPartitionIndexAsc(period.toString());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    // Streams the ordered rows of a chunk, keeping only the current user's running totals
+    private final class ChunkWriter implements RowCallbackHandler {
+
+        private final YearMonth period;
+        private final LocalDateTime periodStart;
+        private final Path dir;
+
+        private long userId = -1;
+        private String username;
+        private BigDecimal balance;
+        private BigDecimal incentives;
+        private StatementFormat.StatementWriter writer;
+        private Path tempFile;
+        private long statements;
+
+        ChunkWriter(YearMonth period, Path dir) {
+            this.period = period;
+            this.periodStart = period.atDay(1).atStartOfDay();
+            this.dir = dir;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowUserId = rs.getLong(1);
+            if (rowUserId != userId) {
+                finishUser();
+                userId = rowUserId;
+                username = rs.getString(2);
+                balance = rs.getBigDecimal(3);
+                incentives = BigDecimal.ZERO;
+            }
+            String transactionId = rs.getString(4);
+            if (transactionId == null) {
+                return; // user without transactions
+            }
+
+            String type = rs.getString(5);
+            BigDecimal amount = rs.getBigDecimal(6);
+            BigDecimal incentive = rs.getBigDecimal(7) == null ? BigDecimal.ZERO : rs.getBigDecimal(7);
+            LocalDateTime timestamp = rs.getTimestamp(9).toLocalDateTime();
+            boolean outgoing = Transaction.TransactionType.valueOf(type).isOutgoing();
+            BigDecimal change = (outgoing ? amount.negate() : amount).add(incentive);
+            if (timestamp.isBefore(periodStart)) {
+                balance = balance.add(change); // folds into the opening balance
+                return;
+            }
+
+            try {
+                if (writer == null) {
+                    open(balance);
+                }
+                balance = balance.add(change);
+                incentives = incentives.add(incentive);
+                writer.transaction(timestamp, transactionId, type, amount, incentive, rs.getString(8), balance);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finishUser() {
+            if (userId < 0) {
+                return;
+            }
+            try {
+                if (writer == null) {
+                    open(balance);
+                }
+                writer.end(incentives, balance);
+                writer.close();
+                writer = null;
+                // Only complete statements take the final name, so a crashed chunk leaves no partial files behind
+                Files.move(tempFile, dir.resolve("user-" + userId + "." + format.getExtension()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                statements++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                userId = -1;
+            }
+        }
+
+        private void open(BigDecimal openingBalance) throws IOException {
+            tempFile = dir.resolve("user-" + userId + "." + format.getExtension() + ".tmp");
+            OutputStream out = Files.newOutputStream(tempFile);
+            writer = format.open(out, objectMapper.getFactory());
+            writer.begin(userId, username, period, openingBalance);
+        }
+    }
+}
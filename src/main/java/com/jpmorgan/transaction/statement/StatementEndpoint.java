@@ -0,0 +1,44 @@
+package com.jpmorgan.transaction.statement;
+
+import com.jpmorgan.transaction.dto.StatementBatchResult;
+import com.jpmorgan.transaction.model.StatementCheckpoint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET /actuator/statements shows the last run; POST starts a batch for a month (default: previous month)
+@Component
+@Endpoint(id = "statements")
+@RequiredArgsConstructor
+public class StatementEndpoint {
+
+    private final StatementBatchJob job;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", job.isRunning());
+        status.put("lastResult", job.getLastResult());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable String period, @Nullable Boolean restart) {
+        YearMonth month = period == null ? YearMonth.now().minusMonths(1) : YearMonth.parse(period);
+        boolean started = job.start(month, restart != null && restart);
+        List<StatementCheckpoint> checkpoints = job.getCheckpoints(month);
+        Map<String, Object> status = status();
+        status.put("started", started);
+        status.put("period", month.toString());
+        status.put("partitions", checkpoints);
+        return status;
+    }
+}
@@ -0,0 +1,147 @@
+package com.jpmorgan.transaction.statement;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+public enum StatementFormat {
+
+    CSV("csv") {
+        @Override
+        StatementWriter open(OutputStream out, JsonFactory jsonFactory) {
+            return new CsvWriter(out);
+        }
+    },
+    JSON("json") {
+        @Override
+        StatementWriter open(OutputStream out, JsonFactory jsonFactory) throws IOException {
+            return new JsonWriter(jsonFactory.createGenerator(out, JsonEncoding.UTF8));
+        }
+    };
+
+    private final String extension;
+
+    StatementFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    abstract StatementWriter open(OutputStream out, JsonFactory jsonFactory) throws IOException;
+
+    // Writes one statement as rows arrive; nothing but the current line is buffered
+    interface StatementWriter extends AutoCloseable {
+
+        void begin(long userId, String username, YearMonth period, BigDecimal openingBalance) throws IOException;
+
+        void transaction(LocalDateTime timestamp, String transactionId, String type, BigDecimal amount,
+                         BigDecimal incentiveAmount, String description, BigDecimal balance) throws IOException;
+
+        void end(BigDecimal totalIncentives, BigDecimal closingBalance) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class CsvWriter implements StatementWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void begin(long userId, String username, YearMonth period, BigDecimal openingBalance) throws IOException {
+            writer.write("record,timestamp,transactionId,type,amount,incentiveAmount,description,balance\n");
+            writer.write("OPENING," + period.atDay(1).atStartOfDay() + ",,,,," + quote(username + " (" + userId + ")")
+                + "," + openingBalance.toPlainString() + "\n");
+        }
+
+        @Override
+        public void transaction(LocalDateTime timestamp, String transactionId, String type, BigDecimal amount,
+                                BigDecimal incentiveAmount, String description, BigDecimal balance) throws IOException {
+            writer.write("TRANSACTION," + timestamp + "," + quote(transactionId) + "," + type + ","
+                + amount.toPlainString() + "," + incentiveAmount.toPlainString() + "," + quote(description)
+                + "," + balance.toPlainString() + "\n");
+        }
+
+        @Override
+        public void end(BigDecimal totalIncentives, BigDecimal closingBalance) throws IOException {
+            writer.write("CLOSING,,,,," + totalIncentives.toPlainString() + ",," + closingBalance.toPlainString() + "\n");
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        private static String quote(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static final class JsonWriter implements StatementWriter {
+
+        private final JsonGenerator generator;
+
+        JsonWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void begin(long userId, String username, YearMonth period, BigDecimal openingBalance) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("userId", userId);
+            generator.writeStringField("username", username);
+            generator.writeStringField("period", period.toString());
+            generator.writeNumberField("openingBalance", openingBalance);
+            generator.writeArrayFieldStart("transactions");
+        }
+
+        @Override
+        public void transaction(LocalDateTime timestamp, String transactionId, String type, BigDecimal amount,
+                                BigDecimal incentiveAmount, String description, BigDecimal balance) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("timestamp", timestamp.toString());
+            generator.writeStringField("transactionId", transactionId);
+            generator.writeStringField("type", type);
+            generator.writeNumberField("amount", amount);
+            generator.writeNumberField("incentiveAmount", incentiveAmount);
+            generator.writeStringField("description", description);
+            generator.writeNumberField("balance", balance);
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void end(BigDecimal totalIncentives, BigDecimal closingBalance) throws IOException {
+            generator.writeEndArray();
+            generator.writeNumberField("totalIncentives", totalIncentives);
+            generator.writeNumberField("closingBalance", closingBalance);
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.jpmorgan.transaction.velocity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user bucketed sliding windows held in one primitive array per user. Window w owns
+ * {@code buckets} slots of three longs: the bucket's epoch (time / bucket length), its count and its
+ * amount in cents. A slot whose epoch has fallen out of the window is reused, so nothing is
+ * allocated once a user has been seen.
+ */
+class SlidingWindowCounters {
+
+    private static final int SLOT = 3;
+
+    private final long[] bucketMillis;
+    private final int buckets;
+    private final Map<Long, long[]> users = new ConcurrentHashMap<>();
+
+    SlidingWindowCounters(List<Duration> windows, int buckets) {
+        this.buckets = buckets;
+        this.bucketMillis = new long[windows.size()];
+        for (int w = 0; w < windows.size(); w++) {
+            bucketMillis[w] = Math.max(1, windows.get(w).toMillis() / buckets);
+        }
+    }
+
+    int windowCount() {
+        return bucketMillis.length;
+    }
+
+    void record(long userId, long amountCents, long timeMillis) {
+        // compute() serialises with evictIdle, so an update never lands in an array that was just dropped
+        users.compute(userId, (id, existing) -> {
+            long[] data = existing != null ? existing : newData();
+            synchronized (data) {
+                for (int w = 0; w < bucketMillis.length; w++) {
+                    long epoch = timeMillis / bucketMillis[w];
+                    int i = (w * buckets + (int) (epoch % buckets)) * SLOT;
+                    if (data[i] > epoch) {
+                        continue; // slot already holds a newer bucket, so this event is outside the window
+                    }
+                    if (data[i] != epoch) {
+                        data[i] = epoch;
+                        data[i + 1] = 0;
+                        data[i + 2] = 0;
+                    }
+                    data[i + 1]++;
+                    data[i + 2] += amountCents;
+                }
+            }
+            return data;
+        });
+    }
+
+    /**
+     * Returns the index of the first window in which one more event of {@code amountCents} would
+     * exceed {@code maxCount} or {@code maxCents}, or -1 if it fits in all of them.
+     */
+    int firstExceeded(long userId, long amountCents, long nowMillis, long[] maxCount, long[] maxCents) {
+        long[] data = users.get(userId);
+        for (int w = 0; w < bucketMillis.length; w++) {
+            long count = 0;
+            long cents = 0;
+            if (data != null) {
+                long oldest = nowMillis / bucketMillis[w] - buckets + 1;
+                synchronized (data) {
+                    for (int b = 0, i = w * buckets * SLOT; b < buckets; b++, i += SLOT) {
+                        if (data[i] >= oldest) {
+                            count += data[i + 1];
+                            cents += data[i + 2];
+                        }
+                    }
+                }
+            }
+            if (count + 1 > maxCount[w] || cents + amountCents > maxCents[w]) {
+                return w;
+            }
+        }
+        return -1;
+    }
+
+    // Drops users with no bucket inside any window
+    int evictIdle(long nowMillis) {
+        int evicted = 0;
+        for (Long userId : users.keySet()) {
+            boolean[] removed = new boolean[1];
+            users.computeIfPresent(userId, (id, data) -> {
+                synchronized (data) {
+                    removed[0] = isIdle(data, nowMillis);
+                }
+                return removed[0] ? null : data;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private boolean isIdle(long[] data, long nowMillis) {
+        for (int w = 0; w < bucketMillis.length; w++) {
+            long oldest = nowMillis / bucketMillis[w] - buckets + 1;
+            for (int b = 0, i = w * buckets * SLOT; b < buckets; b++, i += SLOT) {
+                if (data[i] >= oldest) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return users.size();
+    }
+
+    void clear() {
+        users.clear();
+    }
+
+    private long[] newData() {
+        long[] data = new long[bucketMillis.length * buckets * SLOT];
+        for (int i = 0; i < data.length; i += SLOT) {
+            data[i] = Long.MIN_VALUE;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,159 @@
+package com.jpmorgan.transaction.velocity;
+
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.exception.VelocityLimitExceededException;
+import com.jpmorgan.transaction.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rejects outgoing money (DEBIT, TRANSFER_OUT) that would push a user past their tier's count or
+ * amount limit over any configured rolling window. Counters live in memory, are fed by committed
+ * transactions and are rebuilt from the last window of history before Kafka listeners start.
+ */
+@Component
+@Slf4j
+public class VelocityLimiter implements SmartInitializingSingleton {
+
+    private static final String HISTORY_SQL =
+        "SELECT user_id, CAST(amount * 100 AS BIGINT), timestamp FROM transactions "
+            + "WHERE timestamp >= ? AND status = 'COMPLETED' AND type IN ('DEBIT', 'TRANSFER_OUT')";
+
+    private final VelocityProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Duration> windows;
+    private final SlidingWindowCounters counters;
+    // tier -> {max counts per window, max cents per window}
+    private final Map<String, long[][]> tierLimits = new HashMap<>();
+    private final Counter rejections;
+
+    public VelocityLimiter(VelocityProperties properties, DataSource dataSource, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.windows = properties.windows();
+        this.counters = new SlidingWindowCounters(windows, properties.getBucketsPerWindow());
+        properties.getTiers().forEach((tier, limits) -> tierLimits.put(tier, compile(limits)));
+        this.rejections = Counter.builder("velocity.rejections")
+            .description("Outgoing transactions rejected by velocity limits")
+            .register(meterRegistry);
+        Gauge.builder("velocity.tracked.users", counters, SlidingWindowCounters::size)
+            .description("Users with activity inside a velocity window")
+            .register(meterRegistry);
+    }
+
+    private long[][] compile(List<VelocityProperties.Limit> limits) {
+        long[] maxCount = new long[windows.size()];
+        long[] maxCents = new long[windows.size()];
+        Arrays.fill(maxCount, Long.MAX_VALUE);
+        Arrays.fill(maxCents, Long.MAX_VALUE);
+        for (VelocityProperties.Limit limit : limits) {
+            int w = windows.indexOf(limit.getWindow());
+            if (limit.getMaxCount() != null) {
+                maxCount[w] = limit.getMaxCount();
+            }
+            if (limit.getMaxAmount() != null) {
+                maxCents[w] = toCents(limit.getMaxAmount());
+            }
+        }
+        return new long[][]{maxCount, maxCents};
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (windows.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        counters.clear();
+        Timestamp since = new Timestamp(start - windows.get(windows.size() - 1).toMillis());
+        long[] rows = new long[1];
+        jdbcTemplate.query(HISTORY_SQL, rs -> {
+            counters.record(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).getTime());
+            rows[0]++;
+        }, since);
+        log.info("Rebuilt velocity windows for {} users from {} transactions in {} ms",
+            counters.size(), rows[0], System.currentTimeMillis() - start);
+    }
+
+    public void check(User user, BigDecimal amount) {
+        String exceeded = exceeded(user, amount);
+        if (exceeded != null) {
+            throw new VelocityLimitExceededException(exceeded);
+        }
+    }
+
+    // Like check, but returns why the debit is refused, or null when it is allowed
+    public String exceeded(User user, BigDecimal amount) {
+        if (!properties.isEnabled() || windows.isEmpty()) {
+            return null;
+        }
+        long[][] limits = tierLimits.getOrDefault(user.getTier(), tierLimits.get(properties.getDefaultTier()));
+        if (limits == null) {
+            return null;
+        }
+        int exceeded = counters.firstExceeded(user.getId(), toCents(amount), System.currentTimeMillis(), limits[0], limits[1]);
+        if (exceeded < 0) {
+            return null;
+        }
+        rejections.increment();
+        return String.format(
+            "User %d exceeded the %s velocity limit of tier %s", user.getId(), windows.get(exceeded), user.getTier());
+    }
+
+    // Counted only once committed, so rolled-back transactions never use up a user's allowance
+    @TransactionalEventListener
+    public void onTransactionCommitted(TransactionCommittedEvent event) {
+        if (!properties.isEnabled() || event.getType() == null || !event.getType().isOutgoing()) {
+            return;
+        }
+        long time = event.getTimestamp() == null
+            ? System.currentTimeMillis()
+            : event.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        counters.record(event.getUserId(), toCents(event.getAmount()), time);
+    }
+
+    @EventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        if (properties.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${velocity.evict-interval-ms:60000}")
+    public void evictIdle() {
+        if (properties.isEnabled()) {
+            counters.evictIdle(System.currentTimeMillis());
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
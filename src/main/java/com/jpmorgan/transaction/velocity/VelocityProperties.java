@@ -0,0 +1,46 @@
+package com.jpmorgan.transaction.velocity;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Rolling-window limits on outgoing money per user tier, bound from velocity.*
+@Component
+@ConfigurationProperties(prefix = "velocity")
+@Data
+public class VelocityProperties {
+
+    private boolean enabled = false;
+
+    // Each window is split into this many buckets; a bucket expires as a whole
+    private int bucketsPerWindow = 12;
+
+    private String defaultTier = "STANDARD";
+
+    private Map<String, List<Limit>> tiers = new LinkedHashMap<>();
+
+    @Data
+    public static class Limit {
+        private Duration window;
+        private Long maxCount;        // optional
+        private BigDecimal maxAmount; // optional
+    }
+
+    public List<Duration> windows() {
+        List<Duration> windows = new ArrayList<>();
+        tiers.values().forEach(limits -> limits.forEach(limit -> {
+            if (!windows.contains(limit.getWindow())) {
+                windows.add(limit.getWindow());
+            }
+        }));
+        windows.sort(null);
+        return windows;
+    }
+}
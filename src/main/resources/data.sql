@@ -1,8 +1,8 @@
 -- Initialize test users
-INSERT INTO users (id, username, email, balance, created_at, updated_at, version) VALUES
-(1, 'john_doe', 'john.doe@example.com', 1000.00, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0),
-(2, 'jane_smith', 'jane.smith@example.com', 2500.00, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0),
-(3, 'bob_wilson', 'bob.wilson@example.com', 500.00, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0);
+INSERT INTO users (id, username, email, balance, opening_balance, tier, created_at, updated_at, version) VALUES
+(1, 'john_doe', 'john.doe@example.com', 1000.00, 1000.00, 'STANDARD', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0),
+(2, 'jane_smith', 'jane.smith@example.com', 2500.00, 2500.00, 'PREMIUM', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0),
+(3, 'bob_wilson', 'bob.wilson@example.com', 500.00, 500.00, 'STANDARD', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0);
 
 -- Set sequence to start after initial data
 ALTER TABLE users ALTER COLUMN id RESTART WITH 4;
\ No newline at end of file
@@ -0,0 +1,153 @@
+package com.jpmorgan.transaction.accounts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jpmorgan.transaction.model.User;
+import lombok.Builder;
+import lombok.Data;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GC cost of holding {@code soak.accounts} (10M) accounts as User entities in a HashMap against
+ * the off-heap account table, under the same mix of random lookups and balance updates. Each
+ * variant writes {@code target/soak-reports/account-store-<variant>.json}: heap in use, the
+ * collections during the updates and how long a full collection takes with every account loaded.
+ * Runs with {@code mvn test -Psoak}; the heap variant needs about {@code -DargLine=-Xmx4g} at 10M.
+ */
+@Tag("soak")
+class AccountStoreGcSoakTest {
+
+    private static final int ACCOUNTS = Integer.getInteger("soak.accounts", 10_000_000);
+    private static final int OPERATIONS = Integer.getInteger("soak.account-operations", 20_000_000);
+
+    @Test
+    void heap() throws Exception {
+        Map<Long, User> users = new HashMap<>();
+        Report report = run("heap", () -> {
+            for (long id = 1; id <= ACCOUNTS; id++) {
+                users.put(id, User.builder()
+                    .id(id)
+                    .balance(BigDecimal.valueOf(id % 100_000, 2))
+                    .version(0L)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+            }
+        }, (id, delta) -> {
+            User user = users.get(id);
+            if (user.getBalance().compareTo(BigDecimal.valueOf(-delta, 2)) >= 0) {
+                user.setBalance(user.getBalance().add(BigDecimal.valueOf(delta, 2)));
+                user.setVersion(user.getVersion() + 1);
+                user.setUpdatedAt(LocalDateTime.now());
+            }
+        });
+        assertEquals(ACCOUNTS, users.size());
+        write(report);
+    }
+
+    @Test
+    void offHeap() throws Exception {
+        OffHeapAccountTable table = new OffHeapAccountTable(ACCOUNTS);
+        Report report = run("off-heap", () -> {
+            long now = System.currentTimeMillis();
+            for (long id = 1; id <= ACCOUNTS; id++) {
+                table.put(id, id % 100_000, 0, now);
+            }
+        }, (id, delta) -> {
+            long balance = table.balance(id);
+            if (balance + delta >= 0) {
+                table.update(id, balance + delta, System.currentTimeMillis());
+            }
+        });
+        report.setOffHeapBytes(table.offHeapBytes());
+        assertEquals(ACCOUNTS, table.size());
+        write(report);
+    }
+
+    private static Report run(String variant, Runnable load, Operation operation) {
+        long loadStart = System.nanoTime();
+        load.run();
+        long loadMs = (System.nanoTime() - loadStart) / 1_000_000;
+        System.gc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        // Random lookups and updates, with the short-lived garbage requests would leave behind
+        long[] before = collections();
+        SplittableRandom random = new SplittableRandom(48);
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            long id = 1 + random.nextInt(ACCOUNTS);
+            operation.apply(id, random.nextLong(-5_000, 10_000));
+            byte[] request = new byte[256];
+            request[random.nextInt(request.length)] = 1;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long[] after = collections();
+
+        long fullStart = System.nanoTime();
+        System.gc();
+        long fullGcMs = (System.nanoTime() - fullStart) / 1_000_000;
+
+        return Report.builder()
+            .variant(variant)
+            .accounts(ACCOUNTS)
+            .operations(OPERATIONS)
+            .loadMs(loadMs)
+            .heapUsedBytes(heapUsed)
+            .operationsPerSecond(OPERATIONS / (elapsedNanos / 1e9))
+            .collections(after[0] - before[0])
+            .collectionMs(after[1] - before[1])
+            .fullGcMs(fullGcMs)
+            .build();
+    }
+
+    // Count and accumulated time of all collections so far
+    private static long[] collections() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, bean.getCollectionCount());
+            totals[1] += Math.max(0, bean.getCollectionTime());
+        }
+        return totals;
+    }
+
+    private static void write(Report report) throws IOException {
+        Path dir = Path.of(System.getProperty("soak.report-dir", "target/soak-reports"));
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("account-store-" + report.getVariant() + ".json"),
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report));
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void apply(long userId, long deltaCents);
+    }
+
+    @Data
+    @Builder
+    static class Report {
+        private String variant;
+        private int accounts;
+        private int operations;
+        private long loadMs;
+        private long heapUsedBytes;     // after a full collection, with every account loaded
+        private long offHeapBytes;
+        private double operationsPerSecond;
+        private long collections;       // during the operations
+        private long collectionMs;
+        private long fullGcMs;          // one System.gc() with every account loaded
+    }
+}
@@ -0,0 +1,137 @@
+package com.jpmorgan.transaction.accounts;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.event.BalancesPostedEvent;
+import com.jpmorgan.transaction.exception.InsufficientBalanceException;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:accountstoretest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "accounts.store.enabled=true",
+    "accounts.store.initial-capacity=4"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class AccountStoreTest {
+
+    @Autowired
+    private AccountStore store;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+        store.resync();
+    }
+
+    @Test
+    void followsCommitsAndIsCorrectedByTheRow() {
+        Long alice = createUser("100.00");
+        Long bob = createUser("50.00");
+        assertEquals(10_000, store.balanceCents(alice));
+
+        process(alice, "CREDIT", "40.00", null);
+        process(alice, "DEBIT", "15.00", null);
+        process(alice, "TRANSFER", "25.00", bob);
+        assertEquals(10_000, store.balanceCents(alice));
+        assertEquals(7_500, store.balanceCents(bob));
+        assertEquals(3, store.version(alice));
+        assertTrue(store.lastActivity(alice) > 0);
+        assertEquals(AccountStore.ABSENT, store.balanceCents(bob + 1000));
+
+        // A full reload agrees with what the commits left behind
+        store.resync();
+        assertEquals(2, store.size());
+        assertEquals(10_000, store.balanceCents(alice));
+        assertEquals(7_500, store.balanceCents(bob));
+        assertEquals(userService.findById(bob).getVersion(), store.version(bob));
+
+        // A posting the store never saw, as an accrual writes it: the row decides and the store catches up
+        jdbcTemplate.update("UPDATE users SET balance = 1000.00, version = version + 1 WHERE id = ?", alice);
+        process(alice, "DEBIT", "500.00", null);
+        assertEquals(50_000, store.balanceCents(alice));
+        assertEquals(0, new BigDecimal("500.00").compareTo(userService.findById(alice).getBalance()));
+        assertEquals(userService.findById(alice).getVersion(), store.version(alice));
+
+        // The row still turns away what it can't cover
+        assertThrows(InsufficientBalanceException.class, () -> process(alice, "DEBIT", "600.00", null));
+        assertEquals(50_000, store.balanceCents(alice));
+    }
+
+    @Test
+    void answersOnlyAtTheRowsVersion() {
+        Long alice = createUser("100.00");
+        process(alice, "CREDIT", "20.00", null);
+        long version = userService.findById(alice).getVersion();
+        assertEquals(12_000, store.balanceCents(alice, version));
+        assertEquals(0, new BigDecimal("120.00").compareTo(userService.getUserBalance(alice).getBalance()));
+
+        // An accrual posting moves the entry to the row's new version
+        jdbcTemplate.update("UPDATE users SET balance = 125.00, version = version + 1 WHERE id = ?", alice);
+        store.onBalancesPosted(new BalancesPostedEvent(
+            List.of(new BalancesPostedEvent.PostedBalance(alice, new BigDecimal("125.00"), version + 1)),
+            LocalDateTime.now()));
+        assertEquals(12_500, store.balanceCents(alice, version + 1));
+        assertEquals(AccountStore.ABSENT, store.balanceCents(alice, version));
+
+        // A correction older than the entry is not applied, and not counted
+        double corrections = meterRegistry.counter("accounts.store.corrections").count();
+        store.correct(alice, new BigDecimal("1.00"), version);
+        assertEquals(12_500, store.balanceCents(alice));
+        assertEquals(corrections, meterRegistry.counter("accounts.store.corrections").count());
+
+        // A change the store never saw: the balance read falls back to the row and puts the entry right
+        jdbcTemplate.update("UPDATE users SET balance = 90.00, version = version + 1 WHERE id = ?", alice);
+        assertEquals(0, new BigDecimal("90.00").compareTo(userService.getUserBalance(alice).getBalance()));
+        assertEquals(9_000, store.balanceCents(alice, version + 2));
+        assertEquals(corrections + 1, meterRegistry.counter("accounts.store.corrections").count());
+    }
+
+    private Long createUser(String balance) {
+        String name = "store-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal(balance));
+        return user.getId();
+    }
+
+    private void process(Long userId, String type, String amount, Long targetUserId) {
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId("STORE-" + UUID.randomUUID())
+            .userId(userId)
+            .targetUserId(targetUserId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .build());
+    }
+}
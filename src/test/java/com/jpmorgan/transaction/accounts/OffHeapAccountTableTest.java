@@ -0,0 +1,60 @@
+package com.jpmorgan.transaction.accounts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapAccountTableTest {
+
+    @Test
+    void keepsEntriesAcrossGrowth() {
+        OffHeapAccountTable table = new OffHeapAccountTable(1);
+        long initialCapacity = table.capacity();
+        for (long id = 1; id <= 200_000; id++) {
+            table.put(id, id * 100, id % 5, id * 1000);
+        }
+
+        assertEquals(200_000, table.size());
+        assertTrue(table.capacity() > initialCapacity);
+        assertTrue(table.size() <= table.capacity() * 0.6);
+        assertEquals(table.capacity() * 32, table.offHeapBytes());
+        for (long id = 1; id <= 200_000; id += 997) {
+            assertEquals(id * 100, table.balance(id));
+            assertEquals(id % 5, table.version(id));
+            assertEquals(id * 1000, table.lastActivity(id));
+        }
+        assertEquals(OffHeapAccountTable.ABSENT, table.balance(200_001));
+        assertEquals(OffHeapAccountTable.ABSENT, table.balance(0));
+        assertThrows(IllegalArgumentException.class, () -> table.put(-1, 0, 0, 0));
+    }
+
+    @Test
+    void updatesBumpTheVersionAndMatchAMap() {
+        OffHeapAccountTable table = new OffHeapAccountTable(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(48);
+        for (int i = 0; i < 50_000; i++) {
+            // Sparse ids so probes run into each other
+            long id = 1 + random.nextInt(5_000) * 1_048_576L;
+            long balance = random.nextLong(-1_000_000, 1_000_000);
+            table.update(id, balance, i);
+            expected.put(id, balance);
+        }
+
+        assertEquals(expected.size(), table.size());
+        expected.forEach((id, balance) -> assertEquals(balance, table.balance(id)));
+
+        table.put(7, 500, 3, 0);
+        table.update(7, 450, 10);
+        assertEquals(4, table.version(7));
+        assertEquals(450, table.balance(7));
+        assertEquals(10, table.lastActivity(7));
+        assertEquals(450, table.balanceAt(7, 4));
+        assertEquals(OffHeapAccountTable.ABSENT, table.balanceAt(7, 3));
+        assertEquals(OffHeapAccountTable.ABSENT, table.balanceAt(8, 4));
+    }
+}
@@ -0,0 +1,171 @@
+package com.jpmorgan.transaction.accrual;
+
+import com.jpmorgan.transaction.dto.AccrualResult;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.ReconciliationCheckpoint;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.reconciliation.BalanceReconciliationJob;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Small partitions and chunks so a few users exercise partitioning and chunked batches
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:accrualtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "accrual.partitions=3",
+    "accrual.chunk-size=2",
+    "accrual.tiers.STANDARD.annual-interest-rate=0.0365",
+    "accrual.tiers.STANDARD.monthly-fee=5.00"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class AccrualJobTest {
+
+    @Autowired
+    private AccrualJob job;
+
+    @Autowired
+    private BalanceReconciliationJob reconciliationJob;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Interest at 3.65% a year on 1000.00 is 0.10 a day in a 365-day year
+    private final LocalDate day = LocalDate.of(2027, 1, 15);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void postsInterestOnceAcrossReruns() {
+        List<Long> funded = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            funded.add(createUser("1000.00"));
+        }
+        Long empty = createUser("0.00");
+
+        AccrualResult first = job.run(AccrualKind.INTEREST, day);
+        AccrualResult second = job.run(AccrualKind.INTEREST, day);
+
+        assertEquals(7, first.getPostings());
+        assertEquals(0, new BigDecimal("0.70").compareTo(first.getTotalAmount()));
+        assertEquals(0, second.getPostings());
+        for (Long userId : funded) {
+            assertEquals(0, new BigDecimal("1000.10").compareTo(userService.findById(userId).getBalance()));
+            assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE transaction_id = ? AND type = 'INTEREST'",
+                Integer.class, "INT-20270115-" + userId));
+        }
+        assertEquals(0, new BigDecimal("0.00").compareTo(userService.findById(empty).getBalance()));
+        // TRANSACTION_PROCESSED and BALANCE_CHANGED per posting
+        assertEquals(14, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Integer.class));
+        assertEquals(0, reconciliationJob.run(false).getMismatches());
+    }
+
+    @Test
+    void feesNeverOverdraw() {
+        Long rich = createUser("100.00");
+        Long poor = createUser("3.00");
+
+        AccrualResult result = job.run(AccrualKind.FEE, day);
+
+        assertEquals(2, result.getPostings());
+        assertEquals(0, new BigDecimal("95.00").compareTo(userService.findById(rich).getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(userService.findById(poor).getBalance()));
+        assertEquals(0, reconciliationJob.run(false).getMismatches());
+    }
+
+    @Test
+    void liveTransactionsKeepFlowingDuringRun() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            userIds.add(createUser("1000.00"));
+        }
+
+        AtomicBoolean accruing = new AtomicBoolean(true);
+        ExecutorService live = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> producers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            producers.add(live.submit(() -> {
+                int processed = 0;
+                for (int i = 0; accruing.get() || i < 50; i++) {
+                    if (credit(userIds.get(i % userIds.size()))) {
+                        processed++;
+                    }
+                }
+                return processed;
+            }));
+        }
+
+        long unresolved;
+        int runs = 0;
+        do {
+            unresolved = job.run(AccrualKind.INTEREST, day).getUnresolved();
+        } while (unresolved > 0 && ++runs < 10);
+        accruing.set(false);
+        int processed = 0;
+        for (Future<Integer> producer : producers) {
+            processed += producer.get();
+        }
+        live.shutdown();
+
+        assertTrue(processed > 0);
+        assertEquals(0, unresolved);
+        assertEquals(userIds.size(), jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE type = 'INTEREST'", Integer.class));
+        ReconciliationCheckpoint reconciliation = reconciliationJob.run(false);
+        assertEquals(0, reconciliation.getMismatches());
+    }
+
+    private boolean credit(Long userId) {
+        try {
+            transactionService.processTransaction(TransactionMessage.builder()
+                .transactionId("LIVE-" + UUID.randomUUID())
+                .userId(userId)
+                .type("CREDIT")
+                .amount(new BigDecimal("1.00"))
+                .build());
+            return true;
+        } catch (ConcurrencyFailureException e) {
+            // The Kafka consumer would redeliver; the test just moves on
+            return false;
+        }
+    }
+
+    private Long createUser(String balance) {
+        String name = "accrual-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal(balance));
+        return user.getId();
+    }
+}
@@ -0,0 +1,105 @@
+package com.jpmorgan.transaction.archive;
+
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 2, 3, 4, 5, 123_456_000);
+
+    @Test
+    void roundTripsRowsPerUser(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("segment.txa");
+        try (SegmentWriter writer = new SegmentWriter(file)) {
+            for (long userId = 1; userId <= 50; userId++) {
+                for (int i = 0; i < 20; i++) {
+                    writer.add(row(userId * 100 + i, userId, i));
+                }
+            }
+            writer.add(Transaction.builder()
+                .id(99_999L)
+                .transactionId("TXN-OUT")
+                .linkedTransactionId("TXN-OUT-IN")
+                .user(User.builder().id(51L).build())
+                .type(Transaction.TransactionType.TRANSFER_OUT)
+                .amount(new BigDecimal("10.50"))
+                .description(null)
+                .targetUserId(7L)
+                .executeAt(BASE.plusDays(1))
+                .incentiveApplied(false)
+                .incentiveAmount(null)
+                .status(Transaction.TransactionStatus.COMPLETED)
+                .timestamp(BASE.plusDays(1))
+                .updatedAt(BASE.plusDays(1))
+                .build());
+            assertEquals(1001, writer.records());
+            writer.finish();
+        }
+
+        Segment segment = Segment.open(file);
+        assertEquals(1001, segment.records());
+
+        List<Transaction> rows = segment.forUser(17);
+        assertEquals(20, rows.size());
+        Transaction third = rows.get(3);
+        assertEquals(1703L, third.getId());
+        assertEquals("TXN-17-3", third.getTransactionId());
+        assertEquals(17L, third.getUser().getId());
+        assertEquals(Transaction.TransactionType.CREDIT, third.getType());
+        assertEquals(new BigDecimal("3.25"), third.getAmount());
+        assertEquals(new BigDecimal("0.03"), third.getIncentiveAmount());
+        assertTrue(third.getIncentiveApplied());
+        assertEquals("credit 3", third.getDescription());
+        assertEquals(BASE.plusMinutes(3), third.getTimestamp());
+        assertNull(third.getLinkedTransactionId());
+        assertNull(third.getExecuteAt());
+
+        Transaction transfer = segment.forUser(51).get(0);
+        assertEquals("TXN-OUT-IN", transfer.getLinkedTransactionId());
+        assertEquals(7L, transfer.getTargetUserId());
+        assertEquals(BASE.plusDays(1), transfer.getExecuteAt());
+        assertNull(transfer.getDescription());
+        assertNull(transfer.getIncentiveAmount());
+
+        assertTrue(segment.forUser(0).isEmpty());
+        assertTrue(segment.forUser(52).isEmpty());
+        assertTrue(segment.contains("TXN-50-19"));
+        assertTrue(segment.contains("TXN-OUT"));
+        assertFalse(segment.contains("TXN-OUT-IN"));
+        assertFalse(segment.contains("TXN-51-0"));
+        assertEquals(1001, segment.stream().count());
+    }
+
+    @Test
+    void rejectsRowsOutOfUserOrder(@TempDir Path dir) throws Exception {
+        try (SegmentWriter writer = new SegmentWriter(dir.resolve("segment.txa"))) {
+            writer.add(row(1, 2, 0));
+            assertThrows(IllegalArgumentException.class, () -> writer.add(row(2, 1, 0)));
+        }
+    }
+
+    private static Transaction row(long id, long userId, int i) {
+        return Transaction.builder()
+            .id(id)
+            .transactionId("TXN-" + userId + "-" + i)
+            .user(User.builder().id(userId).build())
+            .type(Transaction.TransactionType.CREDIT)
+            .amount(new BigDecimal(i + ".25"))
+            .description("credit " + i)
+            .incentiveApplied(true)
+            .incentiveAmount(new BigDecimal("0.0" + (i % 10)))
+            .status(Transaction.TransactionStatus.COMPLETED)
+            .timestamp(BASE.plusMinutes(i))
+            .updatedAt(BASE.plusMinutes(i))
+            .build();
+    }
+}
@@ -0,0 +1,225 @@
+package com.jpmorgan.transaction.archive;
+
+import com.jpmorgan.transaction.dto.ArchiveResult;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.dto.TransactionResponse;
+import com.jpmorgan.transaction.exception.DuplicateTransactionException;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.reconciliation.BalanceReconciliationJob;
+import com.jpmorgan.transaction.repository.ArchiveSegmentRepository;
+import com.jpmorgan.transaction.service.StreamingExportService;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import com.jpmorgan.transaction.statement.StatementBatchJob;
+import com.jpmorgan.transaction.velocity.VelocityProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Three rows per segment, so a handful of old transactions spans several files
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:archivetest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "archive.retention-days=30",
+    "archive.segment-size=3"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TransactionArchiveJobTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveDir(DynamicPropertyRegistry registry) {
+        registry.add("archive.dir", () -> archiveDir.toString());
+    }
+
+    @Autowired
+    private TransactionArchiveJob job;
+
+    @Autowired
+    private TransactionArchive archive;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private StreamingExportService streamingExportService;
+
+    @Autowired
+    private BalanceReconciliationJob reconciliationJob;
+
+    @Autowired
+    private StatementBatchJob statementBatchJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArchiveProperties properties;
+
+    @Autowired
+    private ArchiveSegmentRepository catalog;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VelocityProperties velocityProperties;
+
+    @Test
+    @Order(1)
+    void movesOldTransactionsAndKeepsHistoryComplete() throws Exception {
+        Long alice = createUser("100.00");
+        Long bob = createUser("100.00");
+        LocalDateTime old = LocalDateTime.now().minusDays(60);
+
+        String credit = process(alice, "CREDIT", "50.00", null, null);
+        String debit = process(alice, "DEBIT", "20.00", null, null);
+        String transfer = process(alice, "TRANSFER", "10.00", bob, null);
+        String recent = process(alice, "CREDIT", "200.00", null, null);   // 2.00 incentive
+        String scheduled = process(alice, "CREDIT", "5.00", null, LocalDateTime.now().plusDays(1));
+        for (String transactionId : List.of(credit, debit, transfer, transfer + "-IN", scheduled)) {
+            jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE transaction_id = ?",
+                Timestamp.valueOf(old), transactionId);
+        }
+
+        ArchiveResult result = job.run();
+
+        assertEquals(4, result.getRecords());
+        assertEquals(2, result.getSegments());
+        assertEquals(LocalDateTime.now().toLocalDate().minusDays(30).atStartOfDay(), result.getCutoff());
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            assertEquals(2, files.filter(file -> file.toString().endsWith(".txa")).count());
+        }
+
+        // Only the recent and the still-pending rows are left in the table
+        assertEquals(List.of(recent, scheduled), jdbcTemplate.queryForList(
+            "SELECT transaction_id FROM transactions ORDER BY id", String.class));
+        assertEquals(0, new BigDecimal("120.00").compareTo(openingBalance(alice)));
+        assertEquals(0, new BigDecimal("110.00").compareTo(openingBalance(bob)));
+        assertEquals(0, reconciliationJob.run(false).getMismatches());
+
+        // History reads merge the archive in front of the table
+        List<TransactionResponse> history = transactionService.getTransactionsByUserId(alice);
+        assertEquals(List.of(credit, debit, transfer, recent, scheduled),
+            history.stream().map(TransactionResponse::getTransactionId).toList());
+        assertEquals("TRANSFER_OUT", history.get(2).getType());
+        assertEquals(transfer + "-IN", history.get(2).getLinkedTransactionId());
+        assertEquals(0, new BigDecimal("20.00").compareTo(history.get(1).getAmount()));
+        assertEquals(6, transactionService.getAllTransactions().size());
+        assertEquals(6, streamingExportService.writeTransactions(new ByteArrayOutputStream(), false));
+
+        // Archived ids still count as duplicates
+        assertTrue(archive.contains(debit));
+        assertThrows(DuplicateTransactionException.class, () -> transactionService.processTransaction(
+            TransactionMessage.builder().transactionId(debit).userId(alice).type("DEBIT")
+                .amount(new BigDecimal("20.00")).build()));
+
+        // Statements need the month's rows in the table
+        assertThrows(IllegalArgumentException.class, () -> statementBatchJob.run(YearMonth.from(old), true));
+
+        assertEquals(0, job.run().getRecords());
+        assertEquals(2, archive.segmentCount());
+    }
+
+    @Test
+    @Order(2)
+    void overlappingRunsArchiveEachRowOnce() throws Exception {
+        Long carol = createUser("1000.00");
+        LocalDateTime old = LocalDateTime.now().minusDays(60);
+        for (int i = 0; i < 30; i++) {
+            String credit = process(carol, "CREDIT", "1.00", null, null);
+            jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE transaction_id = ?", Timestamp.valueOf(old), credit);
+        }
+        long archivedBefore = archive.archivedRecords();
+        BigDecimal openingBefore = openingBalance(carol);
+        BigDecimal credited = jdbcTemplate.queryForObject(
+            "SELECT SUM(amount + incentive_amount) FROM transactions WHERE user_id = ?", BigDecimal.class, carol);
+
+        // The same job on another instance, sharing the DB and the archive directory
+        TransactionArchiveJob other = new TransactionArchiveJob(properties, archive, catalog, dataSource,
+            transactionManager, velocityProperties, new SimpleMeterRegistry());
+        CountDownLatch start = new CountDownLatch(1);
+        CompletableFuture<ArchiveResult> first = CompletableFuture.supplyAsync(() -> awaitAndRun(start, job));
+        CompletableFuture<ArchiveResult> second = CompletableFuture.supplyAsync(() -> awaitAndRun(start, other));
+        start.countDown();
+        long records = first.get().getRecords() + second.get().getRecords() + job.run().getRecords();
+        other.shutdown();
+
+        assertEquals(30, records);
+        assertEquals(30, archive.archivedRecords() - archivedBefore);
+        assertEquals(30, archive.findByUserId(carol).size());
+        // Folded once, however the rows were split between the runs
+        assertEquals(0, credited.compareTo(openingBalance(carol).subtract(openingBefore)));
+        assertEquals(0, reconciliationJob.run(false).getMismatches());
+    }
+
+    private static ArchiveResult awaitAndRun(CountDownLatch start, TransactionArchiveJob job) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return job.run();
+    }
+
+    private BigDecimal openingBalance(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT opening_balance FROM users WHERE id = ?", BigDecimal.class, userId);
+    }
+
+    private Long createUser(String balance) {
+        String name = "archive-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal(balance));
+        return user.getId();
+    }
+
+    private String process(Long userId, String type, String amount, Long targetUserId, LocalDateTime executeAt) {
+        String transactionId = "ARCH-" + UUID.randomUUID();
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId(transactionId)
+            .userId(userId)
+            .targetUserId(targetUserId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .executeAt(executeAt)
+            .build());
+        return transactionId;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jpmorgan.transaction.archive;
+
+import com.jpmorgan.transaction.model.ArchiveSegment;
+import com.jpmorgan.transaction.repository.ArchiveSegmentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionArchiveTest {
+
+    @Test
+    void refusesToStartWithoutTheCatalogedSegments(@TempDir Path dir) {
+        ArchiveSegmentRepository catalog = mock(ArchiveSegmentRepository.class);
+        when(catalog.findMaxId()).thenReturn(1L);
+        // Written by another instance into its own directory
+        when(catalog.findAllByOrderByIdAsc()).thenReturn(List.of(ArchiveSegment.builder()
+            .id(1L)
+            .fileName("segment-20260101-1.txa")
+            .maxTimestamp(LocalDateTime.now().minusDays(60))
+            .build()));
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setDir(dir.toString());
+
+        TransactionArchive archive = new TransactionArchive(catalog, properties);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, archive::afterSingletonsInstantiated);
+        assertTrue(e.getMessage().contains("shared by every instance"));
+    }
+
+    @Test
+    void startsWithAnEmptyCatalog(@TempDir Path dir) {
+        ArchiveSegmentRepository catalog = mock(ArchiveSegmentRepository.class);
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setDir(dir.toString());
+
+        TransactionArchive archive = new TransactionArchive(catalog, properties);
+        archive.afterSingletonsInstantiated();
+
+        assertEquals(0, archive.segmentCount());
+        assertNull(archive.horizon());
+    }
+}
@@ -0,0 +1,188 @@
+package com.jpmorgan.transaction.checkpoint;
+
+import com.jpmorgan.transaction.archive.TransactionArchiveJob;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.event.LedgerRebuiltEvent;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A checkpoint after every fifth transaction of a user, taken straight away
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:checkpointtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "archive.retention-days=30",
+    "checkpoints.every-transactions=5",
+    "checkpoints.settle-ms=0"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class BalanceCheckpointJobTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveDir(DynamicPropertyRegistry registry) {
+        registry.add("archive.dir", () -> archiveDir.toString());
+    }
+
+    @Autowired
+    private BalanceCheckpointJob job;
+
+    @Autowired
+    private BalanceHistory history;
+
+    @Autowired
+    private TransactionArchiveJob archiveJob;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void answersFromCheckpointsTheArchiveAndTheTable() {
+        LocalDateTime now = LocalDateTime.now();
+        Long alice = createUser("100.00", now.minusDays(100));
+        Long bob = createUser("100.00", now.minusDays(100));
+        String credit = process(alice, "CREDIT", "50.00", null);
+        String debit = process(alice, "DEBIT", "20.00", null);
+        String transfer = process(alice, "TRANSFER", "10.00", bob);
+        moveTo(now.minusDays(60), credit);
+        moveTo(now.minusDays(59), debit);
+        moveTo(now.minusDays(58), transfer, transfer + "-IN");
+        process(alice, "CREDIT", "30.00", null);
+        BigDecimal current = userService.findById(alice).getBalance();
+
+        // Neither PENDING nor FAILED rows count
+        process(alice, "CREDIT", "5.00", null, now.plusDays(1));
+        jdbcTemplate.update("UPDATE transactions SET status = 'FAILED' WHERE transaction_id = ?",
+            process(bob, "CREDIT", "7.00", null));
+
+        assertBalances(alice, now, current);
+        assertEquals(0, new BigDecimal("110.00").compareTo(history.balanceAt(bob, now.minusDays(1))));
+
+        // Once archived, the opening balance carries the old rows
+        assertEquals(4, archiveJob.run().getRecords());
+        assertEquals(0, new BigDecimal("120.00").compareTo(
+            jdbcTemplate.queryForObject("SELECT opening_balance FROM users WHERE id = ?", BigDecimal.class, alice)));
+        assertBalances(alice, now, current);
+
+        assertTrue(job.checkpointAll(now.minusDays(59).minusHours(12)) >= 2);
+        assertTrue(job.checkpointAll(now.minusMinutes(1)) >= 2);
+        assertEquals(List.of(new BigDecimal("150.00"), new BigDecimal("120.00")), checkpoints(alice));
+        assertBalances(alice, now, current);
+
+        // Nothing new since the last checkpoint
+        job.checkpointAll(now.minusSeconds(30));
+        assertEquals(2, checkpoints(alice).size());
+
+        // Later queries start from the latest checkpoint instead of replaying from the opening balance
+        jdbcTemplate.update("UPDATE balance_checkpoints SET balance = balance + 1000 WHERE user_id = ? AND balance = 120.00", alice);
+        assertEquals(0, current.add(new BigDecimal("1000")).compareTo(history.balanceAt(alice, LocalDateTime.now())));
+        assertEquals(0, new BigDecimal("130.00").compareTo(history.balanceAt(alice, now.minusDays(58).minusHours(12))));
+
+        eventPublisher.publishEvent(new LedgerRebuiltEvent(0));
+        assertEquals(List.of(), checkpoints(alice));
+        assertBalances(alice, now, current);
+
+        assertEquals(0, new BigDecimal("150.00").compareTo(
+            history.getUserBalanceAsOf(alice, now.minusDays(59).minusHours(12)).getBalance()));
+        assertThrows(IllegalArgumentException.class, () -> history.getUserBalanceAsOf(alice, now.plusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> history.getUserBalanceAsOf(alice, now.minusDays(101)));
+    }
+
+    @Test
+    void checkpointsAfterEveryFewTransactions() throws InterruptedException {
+        Long carol = createUser("10.00", LocalDateTime.now().minusDays(1));
+        for (int i = 0; i < 5; i++) {
+            process(carol, "CREDIT", "1.00", null);
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (checkpoints(carol).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, checkpoints(carol).size());
+        LocalDateTime asOf = jdbcTemplate.queryForObject(
+            "SELECT as_of FROM balance_checkpoints WHERE user_id = ?", LocalDateTime.class, carol);
+        jdbcTemplate.update("DELETE FROM balance_checkpoints WHERE user_id = ?", carol);
+        assertEquals(0, checkpoints(carol).size());
+        assertTrue(job.checkpoint(carol, asOf));
+        assertFalse(job.checkpoint(carol, asOf));
+        assertEquals(0, userService.findById(carol).getBalance().compareTo(history.balanceAt(carol, LocalDateTime.now())));
+    }
+
+    // Before the old rows, between each of them, and now
+    private void assertBalances(Long userId, LocalDateTime now, BigDecimal current) {
+        assertEquals(0, new BigDecimal("100.00").compareTo(history.balanceAt(userId, now.minusDays(61))));
+        assertEquals(0, new BigDecimal("150.00").compareTo(history.balanceAt(userId, now.minusDays(59).minusHours(12))));
+        assertEquals(0, new BigDecimal("130.00").compareTo(history.balanceAt(userId, now.minusDays(58).minusHours(12))));
+        assertEquals(0, new BigDecimal("120.00").compareTo(history.balanceAt(userId, now.minusDays(1))));
+        assertEquals(0, current.compareTo(history.balanceAt(userId, LocalDateTime.now())));
+    }
+
+    private List<BigDecimal> checkpoints(Long userId) {
+        return jdbcTemplate.queryForList(
+            "SELECT balance FROM balance_checkpoints WHERE user_id = ? ORDER BY as_of", BigDecimal.class, userId);
+    }
+
+    private void moveTo(LocalDateTime timestamp, String... transactionIds) {
+        for (String transactionId : transactionIds) {
+            jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE transaction_id = ?",
+                Timestamp.valueOf(timestamp), transactionId);
+        }
+    }
+
+    private Long createUser(String balance, LocalDateTime createdAt) {
+        String name = "checkpoint-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal(balance));
+        jdbcTemplate.update("UPDATE users SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), user.getId());
+        return user.getId();
+    }
+
+    private String process(Long userId, String type, String amount, Long targetUserId) {
+        return process(userId, type, amount, targetUserId, null);
+    }
+
+    private String process(Long userId, String type, String amount, Long targetUserId, LocalDateTime executeAt) {
+        String transactionId = "CKPT-" + UUID.randomUUID();
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId(transactionId)
+            .userId(userId)
+            .targetUserId(targetUserId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .executeAt(executeAt)
+            .build());
+        return transactionId;
+    }
+}
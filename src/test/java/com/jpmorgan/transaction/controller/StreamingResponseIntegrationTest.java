@@ -0,0 +1,140 @@
+package com.jpmorgan.transaction.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:streamingtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext
+class StreamingResponseIntegrationTest {
+
+    private static final int USERS = 300;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static boolean seeded;
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        for (int i = 0; i < USERS; i++) {
+            User user = userService.createUser("stream_user_" + i, "stream" + i + "@example.com", new BigDecimal("100.00"));
+            transactionService.processTransaction(TransactionMessage.builder()
+                .transactionId("stream-txn-" + i)
+                .userId(user.getId())
+                .type("CREDIT")
+                .amount(new BigDecimal("10.00"))
+                .description("Streamed " + i)
+                .build());
+        }
+        seeded = true;
+    }
+
+    @Test
+    void testStreamedUsersMatchBufferedResponse() throws Exception {
+        JsonNode buffered = objectMapper.readTree(mockMvc.perform(get("/api/users"))
+            .andReturn().getResponse().getContentAsByteArray());
+        JsonNode streamed = objectMapper.readTree(streamBody("/api/users?stream=true", null));
+
+        assertEquals(USERS, streamed.size());
+        assertEquals(buffered, streamed);
+    }
+
+    @Test
+    void testStreamedTransactionsAreGzipCompressed() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/transactions?stream=true").header("Accept-Encoding", "gzip, deflate"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andExpect(header().exists("ETag"))
+            .andReturn();
+
+        byte[] compressed = result.getResponse().getContentAsByteArray();
+        JsonNode transactions = objectMapper.readTree(decompress(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+
+        assertEquals(USERS, transactions.size());
+        assertEquals("stream-txn-0", transactions.get(0).get("transactionId").asText());
+        assertEquals("COMPLETED", transactions.get(0).get("status").asText());
+    }
+
+    @Test
+    void testCompactDeflateStream() throws Exception {
+        byte[] body = streamBody("/api/transactions?stream=true&compact=true", "deflate");
+        JsonNode transactions = objectMapper.readTree(decompress(new InflaterInputStream(new ByteArrayInputStream(body))));
+
+        assertEquals(USERS, transactions.size());
+        assertEquals("stream-txn-0", transactions.get(0).get("t").asText());
+        assertEquals(0, new BigDecimal("10.00").compareTo(transactions.get(0).get("a").decimalValue()));
+        assertNull(transactions.get(0).get("transactionId"));
+    }
+
+    @Test
+    void testNegotiation() {
+        assertEquals("gzip", StreamingResponses.negotiate("deflate, gzip"));
+        assertEquals("deflate", StreamingResponses.negotiate("gzip;q=0, deflate"));
+        assertEquals("deflate", StreamingResponses.negotiate("gzip;q=0.2, deflate;q=0.8"));
+        assertEquals("gzip", StreamingResponses.negotiate("*"));
+        assertNull(StreamingResponses.negotiate("identity"));
+        assertNull(StreamingResponses.negotiate(null));
+    }
+
+    private byte[] streamBody(String url, String acceptEncoding) throws Exception {
+        var request = get(url);
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        MvcResult started = mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private byte[] decompress(InputStream in) throws Exception {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.jpmorgan.transaction.controller;
+
+import com.jpmorgan.transaction.dto.TransactionResponse;
+import com.jpmorgan.transaction.service.StreamingExportService;
+import com.jpmorgan.transaction.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TransactionController.class)
+class TransactionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionService transactionService;
+
+    @MockBean
+    private StreamingExportService streamingExportService;
+
+    @Test
+    void testGetUserTransactions() throws Exception {
+        TransactionResponse transaction = TransactionResponse.builder()
+            .id(1L)
+            .transactionId("txn-001")
+            .userId(1L)
+            .type("CREDIT")
+            .amount(new BigDecimal("150.00"))
+            .build();
+
+        when(transactionService.getUserTransactionsETag(1L)).thenReturn("\"user-txns-1-2\"");
+        when(transactionService.getTransactionsByUserId(1L)).thenReturn(List.of(transaction));
+
+        mockMvc.perform(get("/api/transactions/user/1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"user-txns-1-2\""))
+            .andExpect(jsonPath("$[0].transactionId").value("txn-001"));
+    }
+
+    @Test
+    void testGetUserTransactions_NotModified() throws Exception {
+        when(transactionService.getUserTransactionsETag(1L)).thenReturn("\"user-txns-1-2\"");
+
+        mockMvc.perform(get("/api/transactions/user/1").header("If-None-Match", "\"user-txns-1-2\""))
+            .andExpect(status().isNotModified());
+
+        verify(transactionService, never()).getTransactionsByUserId(any());
+    }
+
+    @Test
+    void testGetAllTransactions_NotModified() throws Exception {
+        when(transactionService.getAllTransactionsETag()).thenReturn("\"txns-10-10\"");
+
+        mockMvc.perform(get("/api/transactions").header("If-None-Match", "\"txns-9-9\", \"txns-10-10\""))
+            .andExpect(status().isNotModified());
+
+        verify(transactionService, never()).getAllTransactions();
+    }
+}
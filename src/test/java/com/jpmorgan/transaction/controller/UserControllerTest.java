@@ -1,6 +1,10 @@
 package com.jpmorgan.transaction.controller;
 
+import com.jpmorgan.transaction.checkpoint.BalanceHistory;
+import com.jpmorgan.transaction.dto.LeaderboardEntry;
 import com.jpmorgan.transaction.dto.UserBalanceResponse;
+import com.jpmorgan.transaction.leaderboard.AccountLeaderboard;
+import com.jpmorgan.transaction.service.StreamingExportService;
 import com.jpmorgan.transaction.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,8 +13,13 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -24,6 +33,15 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private StreamingExportService streamingExportService;
+
+    @MockBean
+    private AccountLeaderboard leaderboard;
+
+    @MockBean
+    private BalanceHistory balanceHistory;
+
     @Test
     void testGetUserBalance() throws Exception {
         UserBalanceResponse response = UserBalanceResponse.builder()
@@ -33,15 +51,35 @@ class UserControllerTest {
             .balance(new BigDecimal("1000.00"))
             .build();
 
+        when(userService.getBalanceETag(1L)).thenReturn("\"user-1-3\"");
         when(userService.getUserBalance(1L)).thenReturn(response);
 
         mockMvc.perform(get("/api/users/1/balance"))
             .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"user-1-3\""))
             .andExpect(jsonPath("$.userId").value(1))
             .andExpect(jsonPath("$.username").value("testuser"))
             .andExpect(jsonPath("$.balance").value(1000.00));
     }
 
+    @Test
+    void testGetUserBalanceAsOf() throws Exception {
+        LocalDateTime asOf = LocalDateTime.of(2026, 9, 30, 23, 59, 59);
+        when(balanceHistory.getUserBalanceAsOf(1L, asOf)).thenReturn(UserBalanceResponse.builder()
+            .userId(1L)
+            .username("testuser")
+            .balance(new BigDecimal("750.25"))
+            .asOf(asOf)
+            .build());
+
+        mockMvc.perform(get("/api/users/1/balance").param("asOf", "2026-09-30T23:59:59"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("ETag"))
+            .andExpect(jsonPath("$.balance").value(750.25))
+            .andExpect(jsonPath("$.asOf").value("2026-09-30T23:59:59"));
+        verify(userService, never()).getUserBalance(any());
+    }
+
     @Test
     void testGetAllUsers() throws Exception {
         UserBalanceResponse user1 = UserBalanceResponse.builder()
@@ -58,6 +96,7 @@ class UserControllerTest {
             .balance(new BigDecimal("2000.00"))
             .build();
 
+        when(userService.getAllUsersETag()).thenReturn("\"users-2-100\"");
         when(userService.getAllUsers()).thenReturn(Arrays.asList(user1, user2));
 
         mockMvc.perform(get("/api/users"))
@@ -65,4 +104,61 @@ class UserControllerTest {
             .andExpect(jsonPath("$[0].userId").value(1))
             .andExpect(jsonPath("$[1].userId").value(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetUserBalance_NotModified() throws Exception {
+        when(userService.getBalanceETag(1L)).thenReturn("\"user-1-3\"");
+
+        mockMvc.perform(get("/api/users/1/balance").header("If-None-Match", "\"user-1-3\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"user-1-3\""))
+            .andExpect(content().string(""));
+
+        verify(userService, never()).getUserBalance(any());
+    }
+
+    @Test
+    void testGetUserBalance_StaleETag() throws Exception {
+        when(userService.getBalanceETag(1L)).thenReturn("\"user-1-4\"");
+        when(userService.getUserBalance(1L)).thenReturn(UserBalanceResponse.builder()
+            .userId(1L)
+            .balance(new BigDecimal("1200.00"))
+            .build());
+
+        mockMvc.perform(get("/api/users/1/balance").header("If-None-Match", "\"user-1-3\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"user-1-4\""))
+            .andExpect(jsonPath("$.balance").value(1200.00));
+    }
+
+    @Test
+    void testGetAllUsers_NotModified() throws Exception {
+        when(userService.getAllUsersETag()).thenReturn("\"users-2-100\"");
+
+        mockMvc.perform(get("/api/users").header("If-None-Match", "W/\"users-2-100\""))
+            .andExpect(status().isNotModified());
+
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void testGetTopUsers() throws Exception {
+        when(leaderboard.top(AccountLeaderboard.Metric.VOLUME, 2)).thenReturn(Arrays.asList(
+            LeaderboardEntry.builder().rank(1).userId(3L).value(new BigDecimal("900.00")).build(),
+            LeaderboardEntry.builder().rank(2).userId(1L).value(new BigDecimal("150.00")).build()));
+
+        mockMvc.perform(get("/api/users/top").param("by", "volume").param("n", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].rank").value(1))
+            .andExpect(jsonPath("$[0].userId").value(3))
+            .andExpect(jsonPath("$[1].value").value(150.00));
+    }
+
+    @Test
+    void testGetTopUsers_UnknownMetric() throws Exception {
+        mockMvc.perform(get("/api/users/top").param("by", "age"))
+            .andExpect(status().isBadRequest());
+
+        verify(leaderboard, never()).top(any(), anyInt());
+    }
+}
@@ -0,0 +1,105 @@
+package com.jpmorgan.transaction.dashboard;
+
+import com.jpmorgan.transaction.dto.DashboardResponse;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.dto.TransactionResponse;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:dashboardtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "dashboard.recent-size=3"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class DashboardSnapshotTest {
+
+    @Autowired
+    private DashboardSnapshot snapshot;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+        snapshot.resync();
+    }
+
+    @Test
+    void followsCommitsAndMatchesAFullReload() {
+        String before = snapshot.etag();
+        Long alice = createUser("100.00");
+        Long bob = createUser("50.00");
+        process(alice, "CREDIT", "40.00", null);
+        process(alice, "DEBIT", "15.00", null);
+        String transfer = process(alice, "TRANSFER", "25.00", bob);
+        String last = process(bob, "CREDIT", "10.00", null);
+
+        DashboardResponse live = snapshot.current();
+        assertNotEquals(before, snapshot.etag());
+        assertSame(live, snapshot.current());
+        assertEquals(2, live.getUserCount());
+        assertEquals(0, new BigDecimal("185.00").compareTo(live.getTotalBalance()));
+        assertEquals(2, live.getTodayByType().get("CREDIT").getCount());
+        assertEquals(0, new BigDecimal("50.00").compareTo(live.getTodayByType().get("CREDIT").getAmount()));
+        assertEquals(1, live.getTodayByType().get("TRANSFER_IN").getCount());
+        assertEquals(List.of(last, transfer + "-IN", transfer),
+            live.getRecentTransactions().stream().map(TransactionResponse::getTransactionId).toList());
+        assertEquals(transfer, live.getRecentTransactions().get(1).getLinkedTransactionId());
+
+        snapshot.resync();
+        DashboardResponse reloaded = snapshot.current();
+        assertEquals(live.getUserCount(), reloaded.getUserCount());
+        assertEquals(0, live.getTotalBalance().compareTo(reloaded.getTotalBalance()));
+        assertEquals(live.getTodayByType().keySet(), reloaded.getTodayByType().keySet());
+        live.getTodayByType().forEach((type, total) -> {
+            assertEquals(total.getCount(), reloaded.getTodayByType().get(type).getCount());
+            assertEquals(0, total.getAmount().compareTo(reloaded.getTodayByType().get(type).getAmount()));
+        });
+        assertEquals(live.getRecentTransactions().stream().map(TransactionResponse::getId).toList(),
+            reloaded.getRecentTransactions().stream().map(TransactionResponse::getId).toList());
+    }
+
+    private Long createUser(String balance) {
+        String name = "dash-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal(balance));
+        return user.getId();
+    }
+
+    private String process(Long userId, String type, String amount, Long targetUserId) {
+        String transactionId = "DASH-" + UUID.randomUUID();
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId(transactionId)
+            .userId(userId)
+            .targetUserId(targetUserId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .build());
+        return transactionId;
+    }
+}
@@ -0,0 +1,126 @@
+package com.jpmorgan.transaction.datasource;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A second in-memory H2 database stands in for the replica; it is never replicated to, so the
+// balance a read returns tells which pool served it
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:routing-primary",
+    "datasource.replica.enabled=true",
+    "datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+    "datasource.replica.max-lag-ms=60000",
+    "datasource.replica.heartbeat-interval-ms=3600000",
+    "datasource.replica.read-your-writes-ms=60000",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class ReadWriteRoutingIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, username VARCHAR(50), "
+            + "email VARCHAR(100), balance DECIMAL(19,2), opening_balance DECIMAL(19,2), tier VARCHAR(20), created_at TIMESTAMP, updated_at TIMESTAMP, version BIGINT)");
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT PRIMARY KEY, beat_at TIMESTAMP)");
+        replica.update("DELETE FROM users");
+        stampReplicaHeartbeat(LocalDateTime.now());
+        replicaLagMonitor.checkLag();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadRoutingContext.clear();
+    }
+
+    @Test
+    void testReadOnlyQueriesUseReplicaAndWritesUsePrimary() {
+        User user = userService.createUser("routing_user", "routing@example.com", new BigDecimal("100.00"));
+        copyToReplica(user.getId(), new BigDecimal("999.00"));
+
+        assertEquals(new BigDecimal("999.00"), userService.getUserBalance(user.getId()).getBalance());
+        assertEquals(0, new BigDecimal("100.00").compareTo(primaryBalance(user.getId())));
+
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId("routing-txn-001")
+            .userId(user.getId())
+            .type("CREDIT")
+            .amount(new BigDecimal("50.00"))
+            .build());
+
+        assertEquals(0, new BigDecimal("150.00").compareTo(primaryBalance(user.getId())));
+
+        // Another user's read is unaffected by the write and still goes to the replica
+        ReadRoutingContext.setUserId(user.getId() + 1000);
+        assertEquals(new BigDecimal("999.00"), userService.getUserBalance(user.getId()).getBalance());
+
+        // The writer reads its own write from the primary
+        ReadRoutingContext.setUserId(user.getId());
+        assertEquals(0, new BigDecimal("150.00").compareTo(userService.getUserBalance(user.getId()).getBalance()));
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        User user = userService.createUser("lagging_user", "lagging@example.com", new BigDecimal("100.00"));
+        copyToReplica(user.getId(), new BigDecimal("999.00"));
+
+        stampReplicaHeartbeat(LocalDateTime.now().minusMinutes(10));
+        replicaLagMonitor.checkLag();
+
+        assertFalse(replicaLagMonitor.isHealthy());
+        assertEquals(0, new BigDecimal("100.00").compareTo(userService.getUserBalance(user.getId()).getBalance()));
+    }
+
+    private BigDecimal primaryBalance(Long userId) {
+        return new JdbcTemplate(primaryDataSource).queryForObject(
+            "SELECT balance FROM users WHERE id = ?", BigDecimal.class, userId);
+    }
+
+    private void copyToReplica(Long userId, BigDecimal balance) {
+        replica.update("INSERT INTO users (id, username, email, balance, opening_balance, tier, created_at, updated_at, version) "
+            + "VALUES (?, 'replica', 'replica@example.com', ?, 0, 'STANDARD', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0)", userId, balance);
+    }
+
+    private void stampReplicaHeartbeat(LocalDateTime beatAt) {
+        replica.update("MERGE INTO replica_heartbeat (id, beat_at) KEY (id) VALUES (1, ?)", Timestamp.valueOf(beatAt));
+    }
+}
@@ -0,0 +1,126 @@
+package com.jpmorgan.transaction.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.OutboxEvent;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.OutboxEventRepository;
+import com.jpmorgan.transaction.service.OutboxService;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:outboxtest",
+    "outbox.relay.enabled=false",
+    "incentive.api.enabled=false",
+    "kafka.topic.events=outbox-test-events"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+@EmbeddedKafka(partitions = 1, topics = {"transaction-topic", "outbox-test-events"})
+class OutboxRelayIntegrationTest {
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+    }
+
+    @Test
+    void testProcessedTransactionIsPublishedFromOutbox() throws Exception {
+        User user = userService.createUser("outbox_user", "outbox@example.com", new BigDecimal("500.00"));
+
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId("outbox-txn-001")
+            .userId(user.getId())
+            .type("CREDIT")
+            .amount(new BigDecimal("200.00"))
+            .description("Outbox test")
+            .build());
+
+        assertEquals(2, outboxEventRepository.countByPublishedAtIsNull());
+        assertEquals(2, outboxRelay.publishBatch());
+        assertEquals(0, outboxEventRepository.countByPublishedAtIsNull());
+
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-test-group", "true", embeddedKafka);
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(
+                props, new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "outbox-test-events");
+            ConsumerRecords<String, String> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(10), 2);
+
+            List<JsonNode> events = new ArrayList<>();
+            for (ConsumerRecord<String, String> record : records) {
+                assertEquals(String.valueOf(user.getId()), record.key());
+                events.add(objectMapper.readTree(record.value()));
+            }
+            assertEquals(2, events.size());
+            assertEquals("TRANSACTION_PROCESSED", events.get(0).get("eventType").asText());
+            assertEquals("outbox-txn-001", events.get(0).get("transactionId").asText());
+            assertEquals("BALANCE_CHANGED", events.get(1).get("eventType").asText());
+            assertEquals(0, new BigDecimal("702.00").compareTo(events.get(1).get("newBalance").decimalValue()));
+        }
+    }
+
+    @Test
+    void testClaimedEventsAreNotClaimedByAnotherInstance() {
+        User user = userService.createUser("outbox_claim", "outbox.claim@example.com", new BigDecimal("500.00"));
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId("outbox-txn-002")
+            .userId(user.getId())
+            .type("DEBIT")
+            .amount(new BigDecimal("50.00"))
+            .build());
+
+        List<OutboxEvent> first = outboxService.claimBatch("instance-a", 100, Duration.ofMinutes(1));
+        List<OutboxEvent> second = outboxService.claimBatch("instance-b", 100, Duration.ofMinutes(1));
+
+        assertEquals(2, first.size());
+        assertTrue(second.isEmpty());
+
+        outboxService.release("instance-a", first.stream().map(OutboxEvent::getId).toList());
+        assertEquals(2, outboxService.claimBatch("instance-b", 100, Duration.ofMinutes(1)).size());
+    }
+}
@@ -74,6 +74,6 @@ class TransactionConsumerIntegrationTest {
         // Wait for async processing
         TimeUnit.SECONDS.sleep(3);
 
-        verify(transactionService, atLeastOnce()).processTransaction(any(TransactionMessage.class));
+        verify(transactionService, atLeastOnce()).submit(any(TransactionMessage.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.jpmorgan.transaction.leaderboard;
+
+import com.jpmorgan.transaction.accrual.AccrualJob;
+import com.jpmorgan.transaction.accrual.AccrualKind;
+import com.jpmorgan.transaction.dto.LeaderboardEntry;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:leaderboardtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "accrual.tiers.STANDARD.annual-interest-rate=0.0365"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class AccountLeaderboardTest {
+
+    @Autowired
+    private AccountLeaderboard leaderboard;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccrualJob accrualJob;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long small;
+    private Long medium;
+    private Long large;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+        small = createUser("10.00");
+        medium = createUser("5000.00");
+        large = createUser("90000.00");
+        leaderboard.rebuild();
+    }
+
+    @Test
+    void rebuildRanksExistingBalances() {
+        List<LeaderboardEntry> top = leaderboard.top(AccountLeaderboard.Metric.BALANCE, 2);
+
+        assertEquals(2, top.size());
+        assertEquals(large, top.get(0).getUserId());
+        assertEquals(medium, top.get(1).getUserId());
+        assertEquals(2, top.get(1).getRank());
+        assertEquals(0, new BigDecimal("5000.00").compareTo(top.get(1).getValue()));
+        assertTrue(leaderboard.top(AccountLeaderboard.Metric.VOLUME, 10).isEmpty());
+    }
+
+    @Test
+    void followsCommittedTransactions() {
+        process(small, "CREDIT", "95000.00");
+        process(medium, "DEBIT", "40.00");
+        transfer(large, medium, "60.00");
+
+        List<LeaderboardEntry> byBalance = leaderboard.top(AccountLeaderboard.Metric.BALANCE, 3);
+        assertEquals(small, byBalance.get(0).getUserId());
+        assertEquals(0, userService.findById(small).getBalance().compareTo(byBalance.get(0).getValue()));
+        assertEquals(0, userService.findById(medium).getBalance().compareTo(byBalance.get(2).getValue()));
+
+        // Both sides of the transfer move money today
+        List<LeaderboardEntry> byVolume = leaderboard.top(AccountLeaderboard.Metric.VOLUME, 3);
+        assertEquals(List.of(small, medium, large), byVolume.stream().map(LeaderboardEntry::getUserId).toList());
+        assertEquals(0, new BigDecimal("100.00").compareTo(byVolume.get(1).getValue()));
+
+        // A rebuild from the DB agrees with the incrementally maintained rankings
+        leaderboard.rebuild();
+        assertEquals(byBalance, leaderboard.top(AccountLeaderboard.Metric.BALANCE, 3));
+        assertEquals(byVolume, leaderboard.top(AccountLeaderboard.Metric.VOLUME, 3));
+    }
+
+    @Test
+    void followsAccrualPostings() {
+        // Interest at 3.65% a year is 9.00 a day on 90000.00; accruals write the rows with plain JDBC
+        accrualJob.run(AccrualKind.INTEREST, LocalDate.of(2027, 1, 15));
+        assertEquals(0, new BigDecimal("90009.00").compareTo(userService.findById(large).getBalance()));
+
+        List<LeaderboardEntry> top = leaderboard.top(AccountLeaderboard.Metric.BALANCE, 3);
+        assertEquals(List.of(large, medium, small), top.stream().map(LeaderboardEntry::getUserId).toList());
+        for (LeaderboardEntry entry : top) {
+            assertEquals(0, userService.findById(entry.getUserId()).getBalance().compareTo(entry.getValue()));
+        }
+        assertTrue(leaderboard.top(AccountLeaderboard.Metric.VOLUME, 10).isEmpty());
+    }
+
+    @Test
+    void rejectsOutOfRangeN() {
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.top(AccountLeaderboard.Metric.BALANCE, 0));
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.top(AccountLeaderboard.Metric.BALANCE, 1_000_000));
+    }
+
+    private void process(Long userId, String type, String amount) {
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId("LB-" + UUID.randomUUID())
+            .userId(userId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .build());
+    }
+
+    private void transfer(Long from, Long to, String amount) {
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId("LB-" + UUID.randomUUID())
+            .userId(from)
+            .targetUserId(to)
+            .type("TRANSFER")
+            .amount(new BigDecimal(amount))
+            .build());
+    }
+
+    private Long createUser(String balance) {
+        String name = "lb-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal(balance));
+        return user.getId();
+    }
+}
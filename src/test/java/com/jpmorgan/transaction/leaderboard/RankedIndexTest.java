@@ -0,0 +1,65 @@
+package com.jpmorgan.transaction.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedIndexTest {
+
+    @Test
+    void keepsHighestScoresFirstAcrossUpdates() {
+        RankedIndex index = new RankedIndex();
+        index.set(1, 500);
+        index.set(2, 900);
+        index.set(3, 700);
+        index.set(2, 100);      // drops to last
+        index.add(1, 300);      // 800 overtakes user 3
+
+        assertEquals(List.of(new RankedIndex.Entry(800, 1), new RankedIndex.Entry(700, 3)), index.top(2));
+        assertEquals(3, index.top(10).size());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void tiesOrderByUserId() {
+        RankedIndex index = new RankedIndex();
+        index.set(9, 100);
+        index.set(4, 100);
+        index.set(6, 100);
+
+        assertEquals(List.of(4L, 6L, 9L), index.top(3).stream().map(RankedIndex.Entry::userId).toList());
+    }
+
+    @Test
+    void concurrentAddsKeepOneEntryPerUser() {
+        RankedIndex index = new RankedIndex();
+        IntStream.range(0, 40_000).parallel().forEach(i -> index.add(i % 100, 1));
+
+        List<RankedIndex.Entry> top = index.top(1_000);
+        assertEquals(100, top.size());
+        top.forEach(entry -> assertEquals(400, entry.score()));
+    }
+
+    @Test
+    void matchesFullSortOfRandomScores() {
+        RankedIndex index = new RankedIndex();
+        Random random = new Random(7);
+        long[] scores = new long[500];
+        for (int i = 0; i < 5_000; i++) {
+            int user = random.nextInt(scores.length);
+            scores[user] = random.nextInt(1_000_000);
+            index.set(user, scores[user]);
+        }
+
+        List<RankedIndex.Entry> expected = IntStream.range(0, scores.length)
+            .mapToObj(user -> new RankedIndex.Entry(scores[user], user))
+            .sorted((a, b) -> a.score() != b.score() ? Long.compare(b.score(), a.score()) : Long.compare(a.userId(), b.userId()))
+            .limit(50)
+            .toList();
+        assertEquals(expected, index.top(50));
+    }
+}
@@ -0,0 +1,41 @@
+package com.jpmorgan.transaction.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    @Test
+    void capsInfoPerLoggerButKeepsWarningsAndOtherCategories() {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setCategories("com.jpmorgan.transaction.service, com.jpmorgan.transaction.kafka");
+        filter.setMaxPerSecond(3);
+        Logger service = context.getLogger("com.jpmorgan.transaction.service.TransactionService");
+        Logger user = context.getLogger("com.jpmorgan.transaction.service.UserService");
+        Logger other = context.getLogger("com.jpmorgan.transaction.replay.LedgerReplayJob");
+
+        int passed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (filter.decide(null, service, Level.INFO, "Processed {}", new Object[]{i}, null) == FilterReply.NEUTRAL) {
+                passed++;
+            }
+        }
+        // A test straddling a second boundary may see a fresh window
+        assertTrue(passed >= 3 && passed <= 6, "passed " + passed);
+        assertTrue(filter.getDropped() >= 4);
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, service, Level.ERROR, "Failed", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, service, Level.WARN, "Slow", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, user, Level.INFO, "Updated", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, other, Level.INFO, "Replayed", null, null));
+        // Level checks carry no format and never use up the budget
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, service, Level.DEBUG, null, null, null));
+    }
+}
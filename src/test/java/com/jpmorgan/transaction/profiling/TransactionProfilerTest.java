@@ -0,0 +1,123 @@
+package com.jpmorgan.transaction.profiling;
+
+import com.jpmorgan.transaction.dto.SlowTransaction;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionProfilerTest {
+
+    @Test
+    void keepsSlowMessageWithItsStages() throws Exception {
+        TransactionProfiler profiler = new TransactionProfiler(20, 4, 60_000);
+
+        profiler.start("TXN-SLOW", 2, 41);
+        profiler.begin(TransactionProfiler.Stage.DEDUPE);
+        profiler.end(TransactionProfiler.Stage.DEDUPE);
+        profiler.begin(TransactionProfiler.Stage.INCENTIVE);
+        Thread.sleep(30);
+        profiler.end(TransactionProfiler.Stage.INCENTIVE);
+        profiler.finish("COMPLETED");
+
+        List<SlowTransaction> slowest = profiler.slowest();
+        assertEquals(1, slowest.size());
+        SlowTransaction slow = slowest.get(0);
+        assertEquals("TXN-SLOW", slow.getTransactionId());
+        assertEquals(2, slow.getPartition());
+        assertEquals(41, slow.getOffset());
+        assertEquals("COMPLETED", slow.getOutcome());
+        assertTrue(slow.getTotalMs() >= 30);
+        assertTrue(slow.getStagesMs().get("INCENTIVE") >= 30);
+        assertFalse(slow.getStagesMs().containsKey("SAVE"));
+
+        profiler.clearSlowest();
+        assertTrue(profiler.slowest().isEmpty());
+    }
+
+    @Test
+    void ignoresFastMessagesAndCallsOutsideATrace() {
+        TransactionProfiler profiler = new TransactionProfiler(10_000, 4, 60_000);
+
+        // REST and scheduler paths never start a trace
+        profiler.begin(TransactionProfiler.Stage.SAVE);
+        profiler.end(TransactionProfiler.Stage.SAVE);
+        profiler.finish("COMPLETED");
+
+        profiler.start("TXN-FAST", 0, 1);
+        profiler.begin(TransactionProfiler.Stage.SAVE);
+        profiler.end(TransactionProfiler.Stage.SAVE);
+        profiler.finish("COMPLETED");
+
+        assertTrue(profiler.slowest().isEmpty());
+    }
+
+    @Test
+    void logKeepsTheSlowestWithinTheWindow() {
+        SlowTransactionLog log = new SlowTransactionLog(3, 1_000);
+        for (int ms : new int[]{50, 10, 40, 30, 20}) {
+            log.offer(slow("TXN-" + ms, ms), 0);
+        }
+        assertEquals(List.of("TXN-50", "TXN-40", "TXN-30"),
+            log.snapshot(0).stream().map(SlowTransaction::getTransactionId).toList());
+
+        // Once the window has passed, even a faster message takes an expired slot
+        assertTrue(log.offer(slow("TXN-5", 5), 2_000));
+        assertEquals(List.of("TXN-5"), log.snapshot(2_000).stream().map(SlowTransaction::getTransactionId).toList());
+    }
+
+    @Test
+    void concurrentOffersKeepDistinctEntries() {
+        SlowTransactionLog log = new SlowTransactionLog(16, 60_000);
+        IntStream.range(0, 10_000).parallel().forEach(i -> log.offer(slow("TXN-" + i, i), 0));
+
+        List<SlowTransaction> snapshot = log.snapshot(0);
+        assertEquals(16, snapshot.size());
+        assertEquals(16, snapshot.stream().map(SlowTransaction::getTransactionId).distinct().count());
+        assertEquals(9_999, snapshot.get(0).getTotalMs());
+    }
+
+    @Test
+    void emitsFlightRecorderEvents(@TempDir Path dir) throws Exception {
+        TransactionProfiler profiler = new TransactionProfiler(10_000, 4, 60_000);
+        Path file = dir.resolve("txn.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.jpmorgan.transaction.TransactionProcessed");
+            recording.enable("com.jpmorgan.transaction.TransactionStage");
+            recording.start();
+
+            profiler.start("TXN-JFR", 1, 7);
+            profiler.begin(TransactionProfiler.Stage.BALANCE_UPDATE);
+            profiler.end(TransactionProfiler.Stage.BALANCE_UPDATE);
+            profiler.finish("DuplicateTransactionException");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent processed = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.jpmorgan.transaction.TransactionProcessed"))
+            .findFirst().orElseThrow();
+        assertEquals("TXN-JFR", processed.getString("transactionId"));
+        assertEquals(7, processed.getLong("offset"));
+        assertEquals("DuplicateTransactionException", processed.getString("outcome"));
+
+        RecordedEvent stage = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.jpmorgan.transaction.TransactionStage"))
+            .findFirst().orElseThrow();
+        assertEquals("BALANCE_UPDATE", stage.getString("stage"));
+        assertEquals(1, stage.getInt("partition"));
+    }
+
+    private static SlowTransaction slow(String transactionId, double totalMs) {
+        return SlowTransaction.builder().transactionId(transactionId).totalMs(totalMs).build();
+    }
+}
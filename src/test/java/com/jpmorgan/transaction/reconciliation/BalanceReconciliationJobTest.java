@@ -0,0 +1,120 @@
+package com.jpmorgan.transaction.reconciliation;
+
+import com.jpmorgan.transaction.dto.ReconciliationReport;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.ReconciliationCheckpoint;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.ReconciliationCheckpointRepository;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tiny leaves and checkpoint ranges so a handful of users exercises splitting and resuming
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:reconciliationtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "reconciliation.leaf-size=2",
+    "reconciliation.checkpoint-every=3"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class BalanceReconciliationJobTest {
+
+    @Autowired
+    private BalanceReconciliationJob job;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        checkpointRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM reconciliation_mismatches");
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+        userIds.clear();
+        for (int i = 0; i < 8; i++) {
+            String name = "recon-" + UUID.randomUUID().toString().substring(0, 8);
+            User user = userService.createUser(name, name + "@example.com", new BigDecimal("500.00"));
+            userIds.add(user.getId());
+            process(user.getId(), "CREDIT", "250.00");  // earns a 2.50 incentive
+            process(user.getId(), "DEBIT", "75.25");
+        }
+    }
+
+    @Test
+    void reportsOnlyDriftedBalances() {
+        Long drifted = userIds.get(5);
+        jdbcTemplate.update("UPDATE users SET balance = balance + 0.01 WHERE id = ?", drifted);
+
+        ReconciliationCheckpoint result = job.run(false);
+
+        assertEquals(ReconciliationCheckpoint.Status.COMPLETED, result.getStatus());
+        assertEquals(userIds.size(), result.getUsersChecked());
+        ReconciliationReport report = job.report();
+        assertEquals(1L, report.getMismatchCount());
+        ReconciliationReport.Mismatch mismatch = report.getMismatches().get(0);
+        assertEquals(drifted, mismatch.getUserId());
+        assertEquals(0, new BigDecimal("0.01").compareTo(mismatch.getDifference()));
+        assertEquals(0, new BigDecimal("677.25").compareTo(mismatch.getExpectedBalance()));
+    }
+
+    @Test
+    void resumesFromCheckpoint() {
+        ReconciliationCheckpoint first = job.run(false);
+        // Simulate a run that stopped half way, then drift users on both sides of the checkpoint
+        long checkpointAt = userIds.get(3);
+        first.setStatus(ReconciliationCheckpoint.Status.FAILED);
+        first.setLastUserId(checkpointAt);
+        first.setUsersChecked(0L);
+        checkpointRepository.save(first);
+        jdbcTemplate.update("UPDATE users SET balance = balance - 1 WHERE id IN (?, ?)", userIds.get(1), userIds.get(6));
+
+        ReconciliationCheckpoint resumed = job.run(true);
+
+        assertEquals(first.getRunId(), resumed.getRunId());
+        assertEquals(ReconciliationCheckpoint.Status.COMPLETED, resumed.getStatus());
+        assertEquals(1L, resumed.getMismatches());
+        assertEquals(userIds.get(6), job.report().getMismatches().get(0).getUserId());
+
+        // A completed run is not resumed; a new one covers every user
+        ReconciliationCheckpoint fresh = job.run(true);
+        assertNotEquals(first.getRunId(), fresh.getRunId());
+        assertEquals(2L, fresh.getMismatches());
+    }
+
+    private void process(Long userId, String type, String amount) {
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId("RECON-" + UUID.randomUUID())
+            .userId(userId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .build());
+    }
+}
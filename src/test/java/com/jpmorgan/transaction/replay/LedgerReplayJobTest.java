@@ -0,0 +1,201 @@
+package com.jpmorgan.transaction.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.ReplayProgress;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.kafka.TransactionConsumer;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.reconciliation.BalanceReconciliationJob;
+import com.jpmorgan.transaction.service.UserService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Small batches so a handful of records spans several DB transactions; the live listener starts only after a replay
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:replaytest",
+    "spring.kafka.consumer.group-id=replay-test-group",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "kafka.topic.transactions=replay-test-transactions",
+    "kafka.listener.auto-startup=false",
+    "replay.batch-size=2",
+    "replay.catch-up-lag=0",
+    "replay.group-empty-timeout-ms=3000"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+@EmbeddedKafka(partitions = 2, topics = {"replay-test-transactions"})
+class LedgerReplayJobTest {
+
+    private static final String TOPIC = "replay-test-transactions";
+
+    @Autowired
+    private LedgerReplayJob job;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BalanceReconciliationJob reconciliationJob;
+
+    @Autowired
+    private KafkaTemplate<String, String> eventKafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @BeforeEach
+    void setUp() {
+        // A previous test's replay handed over to the live listener
+        listenerRegistry.getListenerContainer(TransactionConsumer.LISTENER_ID).stop();
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void rebuildsLedgerThenHandsOverToLiveListener() throws Exception {
+        Instant from = Instant.now();
+        Long alice = createUser("100.00");
+        Long bob = createUser("0.00");
+        String firstCredit = send(message(alice, "CREDIT", "200.00").build());
+        send(message(alice, "DEBIT", "50.00").build());
+        send(message(alice, "TRANSFER", "30.00").targetUserId(bob).build());
+        send(message(bob, "DEBIT", "1000.00").build());
+        send(message(alice, "CREDIT", "200.00").transactionId(firstCredit).build());
+
+        ReplayProgress progress = replay(from);
+
+        assertEquals(ReplayProgress.State.LIVE, progress.getState());
+        assertEquals(5, progress.getConsumed());
+        assertEquals(3, progress.getApplied());
+        assertEquals(1, progress.getDuplicates());
+        assertEquals(1, progress.getRejected());
+        assertEquals(0, progress.getLag());
+        assertEquals(100.0, progress.getPercentComplete());
+        // 1% default incentive on the credit, none on the debit
+        assertEquals(0, new BigDecimal("222.00").compareTo(userService.findById(alice).getBalance()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(userService.findById(bob).getBalance()));
+        assertEquals(0, new BigDecimal("2.00").compareTo(jdbcTemplate.queryForObject(
+            "SELECT incentive_amount FROM transactions WHERE transaction_id = ?", BigDecimal.class, firstCredit)));
+        assertEquals(0, reconciliationJob.run(false).getMismatches());
+        assertEquals(3, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE LOWER(INDEX_NAME) IN "
+                + "('idx_transactions_user_timestamp', 'idx_transactions_status_execute_at', 'idx_transactions_updated_at')",
+            Integer.class));
+
+        // The live listener resumes after the replayed records rather than processing them again
+        send(message(bob, "CREDIT", "5.00").build());
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (userService.findById(bob).getBalance().compareTo(new BigDecimal("35.00")) != 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, new BigDecimal("35.00").compareTo(userService.findById(bob).getBalance()));
+        assertEquals(0, new BigDecimal("222.00").compareTo(userService.findById(alice).getBalance()));
+    }
+
+    @Test
+    void replayingAgainChangesNothing() {
+        Instant from = Instant.now();
+        Long carol = createUser("10.00");
+        for (int i = 0; i < 5; i++) {
+            send(message(carol, "CREDIT", "1.00").build());
+        }
+
+        ReplayProgress first = replay(from);
+        ReplayProgress second = replay(from);
+        ReplayProgress later = replay(Instant.now().plusSeconds(60));
+
+        assertEquals(5, first.getApplied());
+        assertEquals(0, second.getApplied());
+        assertEquals(5, second.getDuplicates());
+        assertEquals(0, later.getConsumed());
+        assertEquals(0, new BigDecimal("15.00").compareTo(userService.findById(carol).getBalance()));
+    }
+
+    @Test
+    void refusesWhileAnotherInstanceConsumes() {
+        Instant from = Instant.now();
+        Long dave = createUser("10.00");
+        send(message(dave, "CREDIT", "1.00").build());
+
+        // Another instance's listener, still a member of the live group
+        try (Consumer<String, String> other = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps("replay-test-group", "false", broker),
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            other.subscribe(List.of(TOPIC));
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (other.assignment().isEmpty() && System.currentTimeMillis() < deadline) {
+                other.poll(Duration.ofMillis(100));
+            }
+
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> job.run(null, from));
+            assertTrue(e.getMessage().contains("is not empty (1 members)"));
+            assertEquals(ReplayProgress.State.FAILED, job.getProgress().getState());
+            assertEquals(0, new BigDecimal("10.00").compareTo(userService.findById(dave).getBalance()));
+        }
+    }
+
+    // Waits for the live listener to join its group; stopping it mid-join leaves members the broker only expires later
+    private ReplayProgress replay(Instant from) {
+        ReplayProgress progress = job.run(null, from);
+        ContainerTestUtils.waitForAssignment(listenerRegistry.getListenerContainer(TransactionConsumer.LISTENER_ID), 2);
+        return progress;
+    }
+
+    private TransactionMessage.TransactionMessageBuilder message(Long userId, String type, String amount) {
+        return TransactionMessage.builder()
+            .transactionId("RP-" + UUID.randomUUID())
+            .userId(userId)
+            .type(type)
+            .amount(new BigDecimal(amount));
+    }
+
+    // Keyed by user like the producers, so each user's messages stay ordered within one partition
+    private String send(TransactionMessage message) {
+        try {
+            eventKafkaTemplate.send(TOPIC, String.valueOf(message.getUserId()), objectMapper.writeValueAsString(message)).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return message.getTransactionId();
+    }
+
+    private Long createUser(String balance) {
+        String name = "replay-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal(balance));
+        return user.getId();
+    }
+}
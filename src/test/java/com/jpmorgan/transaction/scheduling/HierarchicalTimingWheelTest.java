@@ -0,0 +1,75 @@
+package com.jpmorgan.transaction.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void firesEachTimerOnItsTick() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 8, 4, 0);
+        wheel.add(1, 15);
+        wheel.add(2, 30);
+        wheel.add(3, 30_000);   // lands on the second level
+
+        assertEquals(0, wheel.advance(9).length);
+        assertArrayEquals(new long[]{1}, wheel.advance(19));
+        assertEquals(0, wheel.advance(29).length);
+        assertArrayEquals(new long[]{2}, wheel.advance(30));
+        assertEquals(0, wheel.advance(29_999).length);
+        assertArrayEquals(new long[]{3}, wheel.advance(30_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overdueTimersFireOnNextAdvance() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(100, 8, 4, 1_000_000);
+        wheel.add(7, 5);
+        wheel.add(8, 1_000_000);
+
+        assertArrayEquals(new long[]{7, 8}, wheel.advance(1_000_000));
+    }
+
+    @Test
+    void cascadesAcrossLevelsAndOverflow() {
+        // 2 levels of 4 slots cover 16 ticks; anything further waits in overflow
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 2, 0);
+        Random random = new Random(42);
+        long[] deadlines = new long[2_000];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = 1 + random.nextInt(200);
+            wheel.add(i, deadlines[i]);
+        }
+        assertEquals(deadlines.length, wheel.size());
+
+        int fired = 0;
+        for (long now = 1; now <= 200; now++) {
+            long[] due = wheel.advance(now);
+            for (long id : due) {
+                assertEquals(now, deadlines[(int) id], "timer " + id + " fired on the wrong tick");
+            }
+            fired += due.length;
+        }
+        assertEquals(deadlines.length, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void largeJumpFiresEverythingPassed() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 8, 4, 0);
+        for (int i = 0; i < 1_000; i++) {
+            wheel.add(i, i * 97L);
+        }
+        wheel.add(5_000, 10_000_000);
+
+        long[] due = wheel.advance(100_000);
+        Arrays.sort(due);
+        assertEquals(1_000, due.length);
+        assertEquals(999, due[due.length - 1]);
+        assertEquals(1, wheel.size());
+    }
+}
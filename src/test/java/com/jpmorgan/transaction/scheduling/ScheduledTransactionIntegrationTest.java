@@ -0,0 +1,145 @@
+package com.jpmorgan.transaction.scheduling;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.TransactionRepository;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:schedulingtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "scheduling.tick-ms=20",
+    "scheduling.sync-ms=600000"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class ScheduledTransactionIntegrationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ScheduledTransactionDispatcher dispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        String name = "sched-" + UUID.randomUUID().toString().substring(0, 8);
+        user = userService.createUser(name, name + "@example.com", new BigDecimal("100.00"));
+    }
+
+    @Test
+    void pendingTransactionRunsWhenDue() throws InterruptedException {
+        Transaction scheduled = transactionService.processTransaction(
+            message("DEBIT", "40.00", LocalDateTime.now().plusNanos(300_000_000)));
+
+        assertEquals(Transaction.TransactionStatus.PENDING, scheduled.getStatus());
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance()));
+
+        Transaction done = awaitSettled(scheduled.getId());
+        assertEquals(Transaction.TransactionStatus.COMPLETED, done.getStatus());
+        assertEquals(0, new BigDecimal("60.00").compareTo(balance()));
+    }
+
+    @Test
+    void insufficientBalanceAtExecutionMarksFailed() throws InterruptedException {
+        Transaction scheduled = transactionService.processTransaction(
+            message("DEBIT", "250.00", LocalDateTime.now().plusNanos(200_000_000)));
+
+        Transaction done = awaitSettled(scheduled.getId());
+        assertEquals(Transaction.TransactionStatus.FAILED, done.getStatus());
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance()));
+    }
+
+    @Test
+    void rebuildCatchesUpOnMissedTransactions() throws InterruptedException {
+        Transaction scheduled = transactionService.processTransaction(
+            message("CREDIT", "10.00", LocalDateTime.now().plusHours(1)));
+        // As if the service had been down while the row fell due
+        jdbcTemplate.update("UPDATE transactions SET execute_at = ? WHERE id = ?",
+            Timestamp.valueOf(LocalDateTime.now().minusMinutes(5)), scheduled.getId());
+
+        dispatcher.rebuild();
+
+        Transaction done = awaitSettled(scheduled.getId());
+        assertEquals(Transaction.TransactionStatus.COMPLETED, done.getStatus());
+        assertTrue(balance().compareTo(new BigDecimal("110.00")) >= 0);
+    }
+
+    @Test
+    void syncPicksUpRowsScheduledElsewhere() throws InterruptedException {
+        Transaction local = transactionService.processTransaction(
+            message("CREDIT", "5.00", LocalDateTime.now().plusHours(1)));
+        // Written by another instance, so no event put it on this one's wheel
+        String transactionId = "SCHED-" + UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO transactions (user_id, transaction_id, type, amount, execute_at, incentive_applied, "
+                + "incentive_amount, status, timestamp, updated_at) VALUES (?, ?, 'CREDIT', 20.00, ?, FALSE, 0, 'PENDING', ?, ?)",
+            user.getId(), transactionId, Timestamp.valueOf(LocalDateTime.now().plusNanos(200_000_000)),
+            Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()));
+        Long remote = transactionRepository.findByTransactionId(transactionId).orElseThrow().getId();
+
+        assertEquals(1, dispatcher.syncPending());
+        assertEquals(0, dispatcher.syncPending());
+
+        Transaction done = awaitSettled(remote);
+        assertEquals(Transaction.TransactionStatus.COMPLETED, done.getStatus());
+        assertEquals(0, new BigDecimal("120.00").compareTo(balance()));
+        assertEquals(Transaction.TransactionStatus.PENDING, transactionRepository.findById(local.getId()).orElseThrow().getStatus());
+    }
+
+    private TransactionMessage message(String type, String amount, LocalDateTime executeAt) {
+        return TransactionMessage.builder()
+            .transactionId("SCHED-" + UUID.randomUUID())
+            .userId(user.getId())
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .executeAt(executeAt)
+            .build();
+    }
+
+    private Transaction awaitSettled(Long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            Transaction transaction = transactionRepository.findById(id).orElseThrow();
+            if (transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+                return transaction;
+            }
+            Thread.sleep(20);
+        }
+        fail("scheduled transaction " + id + " never ran");
+        return null;
+    }
+
+    private BigDecimal balance() {
+        return userService.findById(user.getId()).getBalance();
+    }
+}
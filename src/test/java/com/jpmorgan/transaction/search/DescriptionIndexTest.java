@@ -0,0 +1,146 @@
+package com.jpmorgan.transaction.search;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.dto.TransactionResponse;
+import com.jpmorgan.transaction.dto.TransactionSearchResponse;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two rows per segment and merges of two, so a few transactions exercise flushing and merging
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:searchtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "search.enabled=true",
+    "search.ngrams=true",
+    "search.flush-docs=2",
+    "search.merge-factor=2",
+    "search.catch-up-interval-ms=100"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class DescriptionIndexTest {
+
+    @TempDir
+    static Path searchDir;
+
+    @DynamicPropertySource
+    static void searchDir(DynamicPropertyRegistry registry) {
+        registry.add("search.dir", () -> searchDir.toString());
+    }
+
+    @Autowired
+    private DescriptionIndex index;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void findsCommittedTransactionsByDescriptionWords() throws Exception {
+        awaitReady();
+        Long alice = createUser();
+        Long bob = createUser();
+        String aliceCoffee = process(alice, "Coffee shop downtown");
+        process(alice, "Grocery store");
+        String bobCoffee = process(bob, "coffee beans online");
+        process(bob, "Rent payment");
+        String latest = process(alice, "Coffee refill");
+
+        assertEquals(List.of(latest, bobCoffee, aliceCoffee), ids(search("coffee", null, 0, 10)));
+        assertEquals(List.of(latest, aliceCoffee), ids(search("COFFEE", alice, 0, 10)));
+        assertEquals(List.of(aliceCoffee), ids(search("shop coffee", null, 0, 10)));
+
+        // With trigrams, words longer than three letters are checked against the description
+        TransactionSearchResponse firstPage = search("coffee", null, 0, 2);
+        assertTrue(firstPage.isIndexed());
+        assertTrue(firstPage.isApproximate());
+        assertEquals(3, firstPage.getTotal());
+        assertEquals(List.of(latest, bobCoffee), ids(firstPage));
+        assertEquals(List.of(aliceCoffee), ids(search("coffee", null, 1, 2)));
+
+        // and match inside words
+        assertEquals(List.of(latest, bobCoffee, aliceCoffee), ids(search("ffee", null, 0, 10)));
+        assertFalse(search("ren", null, 0, 10).isApproximate());
+        assertEquals(1, search("ren", null, 0, 10).getTotal());
+        assertEquals(List.of(), ids(search("coffeeshop", null, 0, 10)));
+        assertEquals(List.of(), ids(search("rent", alice, 0, 10)));
+
+        // Rows written without a commit event are picked up by the catch-up
+        jdbcTemplate.update("INSERT INTO transactions (transaction_id, user_id, type, amount, description, status, "
+                + "incentive_applied, timestamp, updated_at) VALUES (?, ?, 'CREDIT', 1.00, 'Coffee voucher', 'COMPLETED', "
+                + "false, ?, ?)", "SEARCH-" + UUID.randomUUID(), bob,
+            Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (search("voucher", bob, 0, 10).getResults().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, search("voucher", bob, 0, 10).getTotal());
+
+        try (Stream<Path> files = Files.list(searchDir)) {
+            assertTrue(files.anyMatch(file -> file.toString().endsWith(".txi")));
+        }
+        assertThrows(IllegalArgumentException.class, () -> search("--", null, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> search("coffee", null, 0, 101));
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!index.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(index.isReady());
+    }
+
+    private TransactionSearchResponse search(String query, Long userId, int page, int size) {
+        return transactionService.searchTransactions(query, userId, page, size);
+    }
+
+    private static List<String> ids(TransactionSearchResponse response) {
+        return response.getResults().stream().map(TransactionResponse::getTransactionId).toList();
+    }
+
+    private Long createUser() {
+        String name = "search-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userService.createUser(name, name + "@example.com", new BigDecimal("100.00"));
+        return user.getId();
+    }
+
+    private String process(Long userId, String description) {
+        String transactionId = "SEARCH-" + UUID.randomUUID();
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId(transactionId)
+            .userId(userId)
+            .type("CREDIT")
+            .amount(new BigDecimal("5.00"))
+            .description(description)
+            .build());
+        return transactionId;
+    }
+}
@@ -0,0 +1,63 @@
+package com.jpmorgan.transaction.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSegmentTest {
+
+    @Test
+    void tokenizesIntoLowerCaseWordsGramsAndUser() {
+        assertEquals(List.of("coffee", "shop", "42nd", "st"), Tokenizer.words("Coffee-shop, 42nd St. COFFEE"));
+        assertEquals(List.of(), Tokenizer.words("  -- "));
+        Set<String> terms = Tokenizer.terms("Coffee", 7, true);
+        assertTrue(terms.containsAll(List.of("coffee", Tokenizer.userTerm(7))));
+        assertTrue(terms.containsAll(Tokenizer.grams("coffee")));
+        assertEquals(4, Tokenizer.grams("coffee").size());
+        assertEquals(2, Tokenizer.terms("Coffee", 7, false).size());
+    }
+
+    @Test
+    void readsBackBlockedPostingsAndDocs(@TempDir Path dir) throws Exception {
+        // Enough ids for several skip blocks, with gaps wider than one varint byte
+        long[] common = LongStream.range(0, 1000).map(i -> 10 + i * 300).toArray();
+        long[] rare = {310, 150_010, 299_710};
+        TreeMap<String, long[]> terms = new TreeMap<>(Map.of("common", common, "rare", rare, "été", new long[]{10}));
+        long[] users = LongStream.of(common).map(id -> id % 7).toArray();
+        Path file = dir.resolve("000000000001.txi");
+        IndexSegment.write(file, 2, List.of("a.txi", "b.txi"), common, users, terms.entrySet().iterator());
+
+        IndexSegment segment = IndexSegment.open(file);
+        assertEquals(2, segment.level());
+        assertEquals(List.of("a.txi", "b.txi"), segment.sources());
+        assertEquals(1000, segment.docCount());
+        assertEquals(common[999], segment.maxId());
+        assertEquals(3, segment.termCount());
+
+        PostingList postings = segment.postings("common");
+        assertEquals(1000, postings.count());
+        assertArrayEquals(common, postings.all());
+        assertArrayEquals(new long[]{common[997], common[998], common[999]}, postings.top(3));
+        assertArrayEquals(common, postings.top(5000));
+        assertTrue(postings.contains(common[500]));
+        assertFalse(postings.contains(common[500] + 1));
+        assertFalse(postings.contains(1));
+
+        assertArrayEquals(rare, segment.postings("rare").all());
+        assertEquals(1, segment.postings("été").count());
+        assertEquals(0, segment.postings("missing").count());
+
+        assertTrue(segment.containsDoc(common[123]));
+        assertFalse(segment.containsDoc(11));
+        assertEquals(common[123] % 7, segment.userOf(common[123]));
+        assertEquals(-1, segment.userOf(11));
+    }
+}
@@ -0,0 +1,90 @@
+package com.jpmorgan.transaction.service;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.dto.TransactionResponse;
+import com.jpmorgan.transaction.model.Transaction.FailureReason;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:failedtransactiontest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "rejections.flush-interval-ms=600000"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class FailedTransactionWriterTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private FailedTransactionWriter writer;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rejectionsAreWrittenAsFailedRowsInOneFlush() {
+        String name = "rejected-" + UUID.randomUUID().toString().substring(0, 8);
+        Long userId = userService.createUser(name, name + "@example.com", new BigDecimal("100.00")).getId();
+        long version = userService.getUserVersion(userId);
+
+        TransactionMessage overdraft = message("REJ-1", userId, "DEBIT", "500.00", null);
+        assertEquals(FailureReason.INSUFFICIENT_BALANCE, transactionService.submit(overdraft).failureReason());
+        assertEquals(FailureReason.INVALID_TRANSFER,
+            transactionService.submit(message("REJ-2", userId, "TRANSFER", "10.00", userId)).failureReason());
+        assertEquals(FailureReason.INVALID_TYPE,
+            transactionService.submit(message("REJ-3", userId, "BOGUS", "10.00", null)).failureReason());
+        assertEquals(FailureReason.UNKNOWN_USER,
+            transactionService.submit(message("REJ-4", userId + 1000, "CREDIT", "10.00", null)).failureReason());
+
+        // Still buffered, yet a redelivery is already a duplicate
+        assertTrue(writer.isPending("REJ-1"));
+        assertFalse(writer.isPending("REJ-3"));
+        assertEquals(FailureReason.DUPLICATE, transactionService.submit(overdraft).failureReason());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions", Integer.class));
+
+        writer.flush();
+
+        assertFalse(writer.isPending("REJ-1"));
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT transaction_id, type, status, failure_reason FROM transactions ORDER BY transaction_id");
+        assertEquals(2, rows.size());
+        assertEquals(List.of("REJ-1", "DEBIT", "FAILED", "INSUFFICIENT_BALANCE"), List.copyOf(rows.get(0).values()));
+        assertEquals(List.of("REJ-2", "TRANSFER_OUT", "FAILED", "INVALID_TRANSFER"), List.copyOf(rows.get(1).values()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(userService.findById(userId).getBalance()));
+        assertTrue(userService.getUserVersion(userId) > version);
+
+        TransactionResponse failed = transactionService.getTransactionsByUserId(userId).stream()
+            .filter(t -> "REJ-1".equals(t.getTransactionId()))
+            .findFirst().orElseThrow();
+        assertEquals("INSUFFICIENT_BALANCE", failed.getFailureReason());
+        assertEquals(FailureReason.DUPLICATE, transactionService.submit(overdraft).failureReason());
+    }
+
+    private static TransactionMessage message(String id, Long userId, String type, String amount, Long targetUserId) {
+        return TransactionMessage.builder()
+            .transactionId(id)
+            .userId(userId)
+            .targetUserId(targetUserId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.jpmorgan.transaction.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.IncentiveResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncentiveRuleEngineTest {
+
+    private static final String TIERED_RULES = """
+        {
+          "segments": [
+            { "name": "VIP", "userIds": [7], "userIdRanges": [[1000, 1999]] }
+          ],
+          "rules": [
+            { "type": "CREDIT", "tiers": [
+                { "above": 100.00, "percent": 1.0 },
+                { "above": 1000.00, "percent": 2.0, "cap": 30.00 }
+            ] },
+            { "segment": "VIP", "type": "CREDIT", "tiers": [
+                { "above": 0, "percent": 5.0, "incentiveType": "VIP_BONUS" }
+            ] }
+          ]
+        }
+        """;
+
+    @TempDir
+    Path dir;
+
+    private IncentiveRuleEngine engine(Path file, IncentiveRuleEngine.Mode mode) throws IOException {
+        IncentiveRuleEngine engine = new IncentiveRuleEngine(
+            new ObjectMapper(), new DefaultResourceLoader(), true, mode, file.toUri().toString());
+        engine.init();
+        return engine;
+    }
+
+    @Test
+    void evaluatesTiersCapsAndSegments() throws IOException {
+        Path file = Files.writeString(dir.resolve("rules.json"), TIERED_RULES);
+        IncentiveRuleEngine engine = engine(file, IncentiveRuleEngine.Mode.LOCAL);
+
+        assertFalse(engine.evaluate(1L, new BigDecimal("100.00"), "CREDIT").getApplied());
+        assertEquals(new BigDecimal("1.50"), engine.evaluate(1L, new BigDecimal("150.00"), "CREDIT").getIncentiveAmount());
+        assertEquals(new BigDecimal("24.00"), engine.evaluate(1L, new BigDecimal("1200.00"), "CREDIT").getIncentiveAmount());
+        assertEquals(new BigDecimal("30.00"), engine.evaluate(1L, new BigDecimal("5000.00"), "CREDIT").getIncentiveAmount());
+
+        IncentiveResponse vip = engine.evaluate(1500L, new BigDecimal("10.00"), "CREDIT");
+        assertTrue(vip.getApplied());
+        assertEquals(new BigDecimal("0.50"), vip.getIncentiveAmount());
+        assertEquals("VIP_BONUS", vip.getIncentiveType());
+        assertEquals("VIP_BONUS", engine.evaluate(7L, new BigDecimal("10.00"), "CREDIT").getIncentiveType());
+
+        // No DEBIT rules anywhere, VIP falls back to DEFAULT
+        assertFalse(engine.canApply(7L, new BigDecimal("5000.00"), "DEBIT"));
+        assertEquals(BigDecimal.ZERO.setScale(2), engine.evaluate(7L, new BigDecimal("5000.00"), "DEBIT").getIncentiveAmount());
+    }
+
+    @Test
+    void reloadsChangedFileAndKeepsPreviousRulesOnError() throws IOException {
+        Path file = Files.writeString(dir.resolve("rules.json"), TIERED_RULES);
+        IncentiveRuleEngine engine = engine(file, IncentiveRuleEngine.Mode.LOCAL);
+        assertFalse(engine.canApply(1L, new BigDecimal("50.00"), "CREDIT"));
+
+        Files.writeString(file, """
+            { "rules": [ { "type": "CREDIT", "tiers": [ { "above": 10.00, "percent": 3.0 } ] } ] }
+            """);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        engine.reloadIfChanged();
+        assertEquals(new BigDecimal("1.50"), engine.evaluate(1L, new BigDecimal("50.00"), "CREDIT").getIncentiveAmount());
+
+        Files.writeString(file, "{ \"rules\": [ { \"segment\": \"MISSING\", \"type\": \"CREDIT\" } ] }");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        engine.reloadIfChanged();
+        assertEquals(new BigDecimal("1.50"), engine.evaluate(1L, new BigDecimal("50.00"), "CREDIT").getIncentiveAmount());
+    }
+
+    @Test
+    void rejectsOverlappingRanges() throws IOException {
+        Path file = Files.writeString(dir.resolve("rules.json"), """
+            { "segments": [
+                { "name": "A", "userIdRanges": [[1, 100]] },
+                { "name": "B", "userIdRanges": [[50, 150]] }
+            ] }
+            """);
+        assertThrows(IllegalArgumentException.class, () -> engine(file, IncentiveRuleEngine.Mode.LOCAL));
+    }
+
+    @Test
+    void prefilterSkipsApiCallWhenNoRuleApplies() throws IOException {
+        Path file = Files.writeString(dir.resolve("rules.json"), TIERED_RULES);
+        // Unreachable URL: any HTTP call falls back, but the pre-filter answers before calling
+        IncentiveService service = new IncentiveService("http://localhost:1/unused", true,
+            engine(file, IncentiveRuleEngine.Mode.PREFILTER));
+
+        IncentiveResponse response = service.calculateIncentive(1L, new BigDecimal("50.00"), "CREDIT");
+        assertFalse(response.getApplied());
+        assertEquals("NONE", response.getIncentiveType());
+        assertEquals(new BigDecimal("1.50"), service.calculateIncentive(1L, new BigDecimal("150.00"), "CREDIT").getIncentiveAmount());
+    }
+}
@@ -1,20 +1,32 @@
 package com.jpmorgan.transaction.service;
 
+import com.jpmorgan.transaction.accounts.AccountStore;
+import com.jpmorgan.transaction.archive.TransactionArchive;
 import com.jpmorgan.transaction.dto.IncentiveResponse;
 import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.event.TransactionScheduledEvent;
 import com.jpmorgan.transaction.exception.DuplicateTransactionException;
 import com.jpmorgan.transaction.exception.InsufficientBalanceException;
 import com.jpmorgan.transaction.model.Transaction;
 import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.profiling.TransactionProfiler;
 import com.jpmorgan.transaction.repository.TransactionRepository;
+import com.jpmorgan.transaction.search.DescriptionIndex;
+import com.jpmorgan.transaction.search.SearchProperties;
+import com.jpmorgan.transaction.velocity.VelocityLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,6 +44,33 @@ class TransactionServiceTest {
     @Mock
     private IncentiveService incentiveService;
 
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private VelocityLimiter velocityLimiter;
+
+    @Mock
+    private TransactionProfiler profiler;
+
+    @Mock
+    private TransactionArchive archive;
+
+    @Mock
+    private DescriptionIndex descriptionIndex;
+
+    @Mock
+    private SearchProperties searchProperties;
+
+    @Mock
+    private AccountStore accountStore;
+
+    @Mock
+    private FailedTransactionWriter failedTransactionWriter;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -66,7 +105,7 @@ class TransactionServiceTest {
     @Test
     void testProcessTransaction_Credit_Success() {
         when(transactionRepository.existsByTransactionId("txn-123")).thenReturn(false);
-        when(userService.findById(1L)).thenReturn(testUser);
+        when(userService.find(1L)).thenReturn(Optional.of(testUser));
         when(incentiveService.calculateIncentive(any(), any(), any())).thenReturn(testIncentiveResponse);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
 
@@ -77,6 +116,25 @@ class TransactionServiceTest {
         assertEquals(Transaction.TransactionType.CREDIT, result.getType());
         verify(userService, times(1)).updateBalance(eq(1L), any(BigDecimal.class));
         verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(outboxService, times(1)).recordTransactionProcessed(any(Transaction.class), any(), any());
+        verify(eventPublisher, times(1)).publishEvent(any(TransactionCommittedEvent.class));
+    }
+
+    @Test
+    void testProcessTransaction_FutureDated_StoredAsPending() {
+        testMessage.setExecuteAt(LocalDateTime.now().plusDays(1));
+        when(transactionRepository.existsByTransactionId("txn-123")).thenReturn(false);
+        when(userService.find(1L)).thenReturn(Optional.of(testUser));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.processTransaction(testMessage);
+
+        assertEquals(Transaction.TransactionStatus.PENDING, result.getStatus());
+        assertEquals(testMessage.getExecuteAt(), result.getExecuteAt());
+        verify(userService).touch(1L);
+        verify(userService, never()).updateBalance(any(), any());
+        verifyNoInteractions(incentiveService, outboxService);
+        verify(eventPublisher).publishEvent(any(TransactionScheduledEvent.class));
     }
 
     @Test
@@ -87,6 +145,7 @@ class TransactionServiceTest {
             () -> transactionService.processTransaction(testMessage));
 
         verify(transactionRepository, never()).save(any(Transaction.class));
+        verifyNoInteractions(outboxService);
     }
 
     @Test
@@ -100,11 +159,61 @@ class TransactionServiceTest {
             .build();
 
         when(transactionRepository.existsByTransactionId("txn-124")).thenReturn(false);
-        when(userService.findById(1L)).thenReturn(testUser);
+        when(userService.find(1L)).thenReturn(Optional.of(testUser));
+
+        assertThrows(InsufficientBalanceException.class,
+            () -> transactionService.processTransaction(debitMessage));
+
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void testProcessTransaction_AccountStoreBehindRow() {
+        TransactionMessage debitMessage = TransactionMessage.builder()
+            .transactionId("txn-125")
+            .userId(1L)
+            .type("DEBIT")
+            .amount(new BigDecimal("800.00"))
+            .build();
+        testUser.setVersion(3L);
+
+        when(transactionRepository.existsByTransactionId("txn-125")).thenReturn(false);
+        when(accountStore.isEnabled()).thenReturn(true);
+        when(accountStore.balanceCents(1L)).thenReturn(50_000L);
+        when(userService.findVersion(1L)).thenReturn(Optional.of(3L));
+        when(accountStore.balanceCents(1L, 3L)).thenReturn(AccountStore.ABSENT);
+        when(accountStore.version(1L)).thenReturn(2L);
+        when(userService.find(1L)).thenReturn(Optional.of(testUser));
+        when(incentiveService.calculateIncentive(any(), any(), any())).thenReturn(testIncentiveResponse);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        // The store has missed a posting; the row covers the debit, so it goes through and the store is put right
+        Transaction result = transactionService.processTransaction(debitMessage);
+
+        assertEquals(Transaction.TransactionStatus.COMPLETED, result.getStatus());
+        verify(accountStore).correct(1L, new BigDecimal("1000.00"), 3L);
+    }
+
+    @Test
+    void testProcessTransaction_AccountStoreRejectsDebit() {
+        TransactionMessage debitMessage = TransactionMessage.builder()
+            .transactionId("txn-126")
+            .userId(1L)
+            .type("DEBIT")
+            .amount(new BigDecimal("800.00"))
+            .build();
+
+        when(transactionRepository.existsByTransactionId("txn-126")).thenReturn(false);
+        when(accountStore.isEnabled()).thenReturn(true);
+        when(accountStore.balanceCents(1L)).thenReturn(50_000L);
+        when(userService.findVersion(1L)).thenReturn(Optional.of(3L));
+        when(accountStore.balanceCents(1L, 3L)).thenReturn(50_000L);
 
+        // The entry is at the row's version, so the store turns the debit away without loading the user
         assertThrows(InsufficientBalanceException.class,
             () -> transactionService.processTransaction(debitMessage));
 
+        verify(userService, never()).find(any());
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
@@ -119,9 +228,80 @@ class TransactionServiceTest {
             .build();
 
         when(transactionRepository.existsByTransactionId("txn-125")).thenReturn(false);
-        when(userService.findById(1L)).thenReturn(testUser);
+        when(userService.find(1L)).thenReturn(Optional.of(testUser));
 
         assertThrows(IllegalArgumentException.class,
             () -> transactionService.processTransaction(invalidMessage));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testProcessTransaction_Transfer_Success() {
+        User target = User.builder().id(2L).username("target").email("target@example.com")
+            .balance(new BigDecimal("10.00")).build();
+        TransactionMessage transfer = TransactionMessage.builder()
+            .transactionId("txn-200")
+            .userId(1L)
+            .targetUserId(2L)
+            .type("TRANSFER")
+            .amount(new BigDecimal("250.00"))
+            .build();
+
+        when(transactionRepository.existsByTransactionId("txn-200")).thenReturn(false);
+        when(userService.lockForUpdate(1L, 2L)).thenReturn(Map.of(1L, testUser, 2L, target));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.processTransaction(transfer);
+
+        assertEquals(Transaction.TransactionType.TRANSFER_OUT, result.getType());
+        assertEquals("txn-200-IN", result.getLinkedTransactionId());
+        assertEquals(new BigDecimal("750.00"), testUser.getBalance());
+        assertEquals(new BigDecimal("260.00"), target.getBalance());
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
+        verify(outboxService, times(2)).recordTransactionProcessed(any(Transaction.class), any(), any());
+        verify(eventPublisher, times(2)).publishEvent(any(TransactionCommittedEvent.class));
+        verifyNoInteractions(incentiveService);
+    }
+
+    @Test
+    void testProcessTransaction_Transfer_Rejected() {
+        TransactionMessage toSelf = TransactionMessage.builder()
+            .transactionId("txn-201").userId(1L).targetUserId(1L).type("TRANSFER").amount(BigDecimal.TEN).build();
+        TransactionMessage tooLarge = TransactionMessage.builder()
+            .transactionId("txn-202").userId(1L).targetUserId(2L).type("TRANSFER").amount(new BigDecimal("5000.00")).build();
+        User target = User.builder().id(2L).balance(BigDecimal.ZERO).build();
+        when(userService.lockForUpdate(1L, 2L)).thenReturn(Map.of(1L, testUser, 2L, target));
+
+        assertThrows(IllegalArgumentException.class, () -> transactionService.processTransaction(toSelf));
+        assertThrows(InsufficientBalanceException.class, () -> transactionService.processTransaction(tooLarge));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void testSubmit_RejectionReturnedAndRecorded() {
+        TransactionMessage debitMessage = TransactionMessage.builder()
+            .transactionId("txn-300")
+            .userId(1L)
+            .type("DEBIT")
+            .amount(new BigDecimal("2000.00"))
+            .build();
+        TransactionMessage unknownUser = TransactionMessage.builder()
+            .transactionId("txn-301")
+            .userId(9L)
+            .type("CREDIT")
+            .amount(BigDecimal.TEN)
+            .build();
+        when(userService.find(1L)).thenReturn(Optional.of(testUser));
+
+        TransactionResult result = transactionService.submit(debitMessage);
+        TransactionResult unknown = transactionService.submit(unknownUser);
+
+        assertTrue(result.isRejected());
+        assertEquals(Transaction.FailureReason.INSUFFICIENT_BALANCE, result.failureReason());
+        assertEquals("Insufficient balance. Current: 1000.00, Required: 2000.00", result.message());
+        assertEquals(Transaction.FailureReason.UNKNOWN_USER, unknown.failureReason());
+        verify(failedTransactionWriter).record(debitMessage, Transaction.FailureReason.INSUFFICIENT_BALANCE);
+        verify(failedTransactionWriter).record(unknownUser, Transaction.FailureReason.UNKNOWN_USER);
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verifyNoInteractions(outboxService);
+    }
+}
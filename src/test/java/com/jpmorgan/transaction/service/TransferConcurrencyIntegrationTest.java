@@ -0,0 +1,106 @@
+package com.jpmorgan.transaction.service;
+
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.exception.InsufficientBalanceException;
+import com.jpmorgan.transaction.reconciliation.BalanceReconciliationJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Random transfers between a small pool of users so that many run in opposite directions at once
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:transfertest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class TransferConcurrencyIntegrationTest {
+
+    private static final int USERS = 10;
+    private static final int TRANSFERS = 2000;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BalanceReconciliationJob reconciliationJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentTransfersConserveMoneyWithoutDeadlocks() throws InterruptedException {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            String name = "xfer-" + UUID.randomUUID().toString().substring(0, 8);
+            userIds.add(userService.createUser(name, name + "@example.com", new BigDecimal("500.00")).getId());
+        }
+        BigDecimal totalBefore = total();
+
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger insufficient = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Long source = userIds.get(random.nextInt(USERS));
+                Long target = userIds.get(random.nextInt(USERS));
+                while (target.equals(source)) {
+                    target = userIds.get(random.nextInt(USERS));
+                }
+                try {
+                    transactionService.processTransaction(TransactionMessage.builder()
+                        .transactionId("XFER-" + UUID.randomUUID())
+                        .userId(source)
+                        .targetUserId(target)
+                        .type("TRANSFER")
+                        .amount(BigDecimal.valueOf(random.nextInt(1, 20_000), 2))
+                        .build());
+                    applied.incrementAndGet();
+                } catch (InsufficientBalanceException e) {
+                    insufficient.incrementAndGet();
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES), "transfers did not finish");
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " transfers failed, first: " + failures.peek());
+        assertEquals(TRANSFERS, applied.get() + insufficient.get());
+        assertTrue(applied.get() > TRANSFERS / 2);
+        assertEquals(0, totalBefore.compareTo(total()), "money was created or destroyed");
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE balance < 0", Integer.class));
+        assertEquals(applied.get() * 2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE type IN ('TRANSFER_IN', 'TRANSFER_OUT')", Integer.class));
+        assertEquals(0L, reconciliationJob.run(false).getMismatches());
+    }
+
+    private BigDecimal total() {
+        return jdbcTemplate.queryForObject("SELECT SUM(balance) FROM users", BigDecimal.class);
+    }
+}
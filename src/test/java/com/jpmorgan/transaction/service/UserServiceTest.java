@@ -1,15 +1,18 @@
 package com.jpmorgan.transaction.service;
 
+import com.jpmorgan.transaction.accounts.AccountStore;
 import com.jpmorgan.transaction.dto.UserBalanceResponse;
 import com.jpmorgan.transaction.exception.UserNotFoundException;
 import com.jpmorgan.transaction.model.User;
 import com.jpmorgan.transaction.repository.UserRepository;
+import com.jpmorgan.transaction.sharding.ShardCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.util.Optional;
@@ -24,6 +27,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ShardCache shardCache;
+
+    @Mock
+    private AccountStore accountStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -0,0 +1,52 @@
+package com.jpmorgan.transaction.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    @Test
+    void testOwnershipIsIndependentOfNodeOrder() {
+        ConsistentHashRing ring1 = new ConsistentHashRing(List.of("a", "b", "c"), 64);
+        ConsistentHashRing ring2 = new ConsistentHashRing(List.of("c", "a", "b"), 64);
+
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals(ring1.ownerOf(key), ring2.ownerOf(key));
+        }
+    }
+
+    @Test
+    void testKeysAreSpreadAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long key = 0; key < 100_000; key++) {
+            counts.merge(ring.ownerOf(key), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 15_000, "skewed distribution: " + counts));
+    }
+
+    @Test
+    void testRemovingNodeOnlyMovesItsKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b"), 128);
+
+        for (long key = 0; key < 10_000; key++) {
+            String owner = before.ownerOf(key);
+            if (!"c".equals(owner)) {
+                assertEquals(owner, after.ownerOf(key));
+            }
+        }
+    }
+
+    @Test
+    void testEmptyRingHasNoOwner() {
+        assertNull(new ConsistentHashRing(List.of(), 16).ownerOf(42));
+    }
+}
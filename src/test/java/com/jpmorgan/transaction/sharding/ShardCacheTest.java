@@ -0,0 +1,86 @@
+package com.jpmorgan.transaction.sharding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ShardCacheTest {
+
+    private final ShardRegistry registry = new ShardRegistry(true, "instance-a", "http://a:8080", 16);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ShardCache cache = new ShardCache(registry, userRepository, new ObjectMapper(), 1000, 2);
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void warmsEveryPageWhileCommitsKeepLanding() throws InterruptedException {
+        List<User> users = LongStream.rangeClosed(1, 6).mapToObj(id -> user(id, "100.00")).toList();
+        List<Long> reads = new CopyOnWriteArrayList<>();
+        when(userRepository.findAll(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(0);
+            int from = (int) pageable.getOffset();
+            List<User> content = users.subList(from, Math.min(from + pageable.getPageSize(), users.size()));
+            // Every page read overlaps a commit: one for a user on it, one for a user elsewhere
+            Long onPage = content.get(0).getId();
+            reads.add(onPage);
+            cache.onTransactionCommitted(committed(onPage, "150.00"));
+            cache.onTransactionCommitted(committed(6L - onPage, "175.00"));
+            return new PageImpl<>(content, pageable, users.size());
+        });
+
+        // A single instance owns every shard
+        registry.updateMembership(Map.of("instance-a", "http://a:8080"), 1);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (reads.size() < 3 || cache.size() < 3) {
+            assertTrue(System.currentTimeMillis() < deadline, "warm-up did not finish in time");
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+
+        // Only the users committed during their own page's read are left out, as they may be stale in it
+        assertEquals(List.of(1L, 3L, 5L), reads);
+        assertEquals(3, cache.size());
+        for (long id : new long[]{2, 4, 6}) {
+            assertNotNull(cache.get(id), "user " + id);
+        }
+        assertNull(cache.get(1L));
+
+        // A commit after warm-up moves the cached balance along
+        cache.onTransactionCommitted(committed(2L, "80.00"));
+        assertEquals(0, new BigDecimal("80.00").compareTo(cache.get(2L).getBalance()));
+    }
+
+    private static User user(long id, String balance) {
+        return User.builder()
+            .id(id)
+            .username("user-" + id)
+            .email("user-" + id + "@example.com")
+            .balance(new BigDecimal(balance))
+            .build();
+    }
+
+    private static TransactionCommittedEvent committed(Long userId, String newBalance) {
+        return TransactionCommittedEvent.builder()
+            .userId(userId)
+            .newBalance(new BigDecimal(newBalance))
+            .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.jpmorgan.transaction.sharding;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two "instances" (registry + consumer each) sharing one consumer group on an embedded broker
+@EmbeddedKafka(partitions = 6, topics = {ShardingIntegrationTest.TOPIC})
+class ShardingIntegrationTest {
+
+    static final String TOPIC = "sharding-test-topic";
+
+    @Test
+    void testInstancesSplitShardsAndHandOffOnRebalance(EmbeddedKafkaBroker broker) throws Exception {
+        ShardRegistry registryA = new ShardRegistry(true, "instance-a", "http://a:8080", 64);
+        ShardRegistry registryB = new ShardRegistry(true, "instance-b", "http://b:8080", 64);
+        Set<Integer> assignedToA = ConcurrentHashMap.newKeySet();
+        registryA.addListener(new ShardOwnershipListener() {
+            @Override
+            public void onShardsAssigned(Set<Integer> shards) {
+                assignedToA.addAll(shards);
+            }
+
+            @Override
+            public void onShardsRevoked(Set<Integer> shards) {
+                assignedToA.removeAll(shards);
+            }
+        });
+
+        Consumer<String, String> consumerA = createConsumer(broker, registryA);
+        Consumer<String, String> consumerB = createConsumer(broker, registryB);
+        try {
+            consumerA.subscribe(List.of(TOPIC));
+            consumerB.subscribe(List.of(TOPIC));
+            pollUntil(() -> consumerA.assignment().size() + consumerB.assignment().size() == 6
+                && !consumerA.assignment().isEmpty() && !consumerB.assignment().isEmpty()
+                && registryA.getOwnedShards().size() + registryB.getOwnedShards().size() == 6,
+                consumerA, consumerB);
+
+            // Kafka assignment matches the ring, and the two registries agree on every user's owner
+            assertEquals(partitions(consumerA.assignment()), registryA.getOwnedShards());
+            assertEquals(partitions(consumerB.assignment()), registryB.getOwnedShards());
+            assertEquals(registryA.getOwnedShards(), assignedToA);
+            for (long userId = 1; userId <= 1_000; userId++) {
+                assertEquals(registryA.ownerOf(userId), registryB.ownerOf(userId));
+                assertNotEquals(registryA.isLocal(userId), registryB.isLocal(userId));
+            }
+            long remoteUser = firstUserNotLocalTo(registryA);
+            assertEquals("http://b:8080", registryA.ownerUrl(remoteUser).orElseThrow());
+
+            // A record keyed by userId is produced to the partition of the instance that owns the user
+            try (KafkaProducer<String, String> producer = new KafkaProducer<>(
+                    KafkaTestUtils.producerProps(broker), new StringSerializer(), new StringSerializer())) {
+                RecordMetadata metadata = producer.send(
+                    new ProducerRecord<>(TOPIC, String.valueOf(remoteUser), "{}")).get();
+                assertTrue(registryB.getOwnedShards().contains(metadata.partition()));
+                assertEquals(registryA.shardFor(remoteUser), metadata.partition());
+            }
+        } finally {
+            consumerB.close();
+        }
+
+        // Instance B leaves: A takes over every shard and is told which ones are new
+        pollUntil(() -> consumerA.assignment().size() == 6, consumerA);
+        assertEquals(Set.of(0, 1, 2, 3, 4, 5), registryA.getOwnedShards());
+        assertEquals(Set.of(0, 1, 2, 3, 4, 5), assignedToA);
+        assertTrue(registryA.isLocal(firstUserNotLocalTo(registryB)));
+        consumerA.close();
+    }
+
+    private Consumer<String, String> createConsumer(EmbeddedKafkaBroker broker, ShardRegistry registry) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("sharding-test-group", "false", broker);
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, ConsistentHashAssignor.class.getName());
+        props.put(ConsistentHashAssignor.REGISTRY_CONFIG, registry);
+        props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 10_000);
+        return new KafkaConsumer<>(props, new StringDeserializer(), new StringDeserializer());
+    }
+
+    @SafeVarargs
+    private void pollUntil(BooleanSupplier condition, Consumer<String, String>... consumers) {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "rebalance did not complete in time");
+            for (Consumer<String, String> consumer : consumers) {
+                consumer.poll(Duration.ofMillis(100));
+            }
+        }
+    }
+
+    private Set<Integer> partitions(Set<TopicPartition> assignment) {
+        Set<Integer> partitions = new HashSet<>();
+        assignment.forEach(tp -> partitions.add(tp.partition()));
+        return partitions;
+    }
+
+    private long firstUserNotLocalTo(ShardRegistry registry) {
+        for (long userId = 1; ; userId++) {
+            if (!registry.isLocal(userId)) {
+                return userId;
+            }
+        }
+    }
+}
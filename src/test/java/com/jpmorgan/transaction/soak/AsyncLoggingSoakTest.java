@@ -0,0 +1,19 @@
+package com.jpmorgan.transaction.soak;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+// The async-logging profile at the new default levels; compare with VerboseLoggingSoakTest
+@ActiveProfiles("async-logging")
+@TestPropertySource(properties = {
+    "logging.level.com.jpmorgan.transaction=INFO",
+    "logging.level.org.springframework.kafka=INFO"
+})
+class AsyncLoggingSoakTest extends SoakTestSupport {
+
+    @Test
+    void soak() throws Exception {
+        run(SoakScenario.UNIFORM, "async-logging");
+    }
+}
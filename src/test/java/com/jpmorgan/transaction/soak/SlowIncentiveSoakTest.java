@@ -0,0 +1,83 @@
+package com.jpmorgan.transaction.soak;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+// Every credit and debit calls the external incentive API, here a local stub that answers after a delay
+@TestPropertySource(properties = "incentive.api.enabled=true")
+class SlowIncentiveSoakTest extends SoakTestSupport {
+
+    private static final IncentiveStub INCENTIVE_STUB = IncentiveStub.start(SoakScenario.SLOW_INCENTIVE.incentiveDelayMs);
+
+    @DynamicPropertySource
+    static void incentiveApi(DynamicPropertyRegistry registry) {
+        registry.add("incentive.api.url", INCENTIVE_STUB::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        INCENTIVE_STUB.stop();
+    }
+
+    @Test
+    void soak() throws Exception {
+        run(SoakScenario.SLOW_INCENTIVE);
+    }
+
+    // Answers "no incentive" after the configured delay
+    static final class IncentiveStub {
+        private static final byte[] RESPONSE =
+            "{\"incentiveAmount\":0,\"incentiveType\":\"NONE\",\"applied\":false}".getBytes(StandardCharsets.UTF_8);
+
+        private final HttpServer server;
+        private final long delayMs;
+
+        private IncentiveStub(HttpServer server, long delayMs) {
+            this.server = server;
+            this.delayMs = delayMs;
+        }
+
+        static IncentiveStub start(long delayMs) {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                IncentiveStub stub = new IncentiveStub(server, delayMs);
+                server.createContext("/incentives", exchange -> {
+                    try (exchange; OutputStream body = exchange.getResponseBody()) {
+                        exchange.getRequestBody().readAllBytes();
+                        if (stub.delayMs > 0) {
+                            Thread.sleep(stub.delayMs);
+                        }
+                        exchange.getResponseHeaders().add("Content-Type", "application/json");
+                        exchange.sendResponseHeaders(200, RESPONSE.length);
+                        body.write(RESPONSE);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                server.setExecutor(Executors.newCachedThreadPool());
+                server.start();
+                return stub;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/incentives";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+    }
+}
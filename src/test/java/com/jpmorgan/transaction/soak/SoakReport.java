@@ -0,0 +1,68 @@
+package com.jpmorgan.transaction.soak;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Arrays;
+
+// The machine-readable result of one scenario, written as JSON next to the surefire reports
+@Data
+@Builder
+class SoakReport {
+
+    private String scenario;
+    private String variant;
+    private boolean completed;
+    private long uncommitted;       // unique transactions not committed before the timeout
+    private int users;
+    private int messagesSent;
+    private int uniqueMessages;
+    private double duplicateRatio;
+    private double rejectionRatio;
+    private int rejectedMessages;
+    private long failedRowsWritten;
+    private double hotShare;
+    private long incentiveDelayMs;
+    private long durationMs;
+    private double messagesPerSecond;
+    private Latency latencyMs;
+    private Gc gc;
+
+    // End-to-end: from handing the message to the producer until its transaction committed
+    @Data
+    @Builder
+    static class Latency {
+        private double p50;
+        private double p99;
+        private double p999;
+        private double max;
+
+        static Latency of(long[] nanos) {
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            return Latency.builder()
+                .p50(percentile(sorted, 0.50))
+                .p99(percentile(sorted, 0.99))
+                .p999(percentile(sorted, 0.999))
+                .max(sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6)
+                .build();
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+
+    // Stop-the-world collections during the scenario; concurrent cycles are not counted
+    @Data
+    @Builder
+    static class Gc {
+        private long pauses;
+        private long totalPauseMs;
+        private long maxPauseMs;
+    }
+}
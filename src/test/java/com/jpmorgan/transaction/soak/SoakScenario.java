@@ -0,0 +1,51 @@
+package com.jpmorgan.transaction.soak;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load shapes for {@link TransactionSoakTest}. Sizes default to a run of a few seconds and can be
+ * raised with system properties, e.g. {@code -Dsoak.messages=200000 -Dsoak.users=10000}.
+ */
+enum SoakScenario {
+
+    // Every user equally likely
+    UNIFORM(0.0, 0.0, 0, 0.0),
+    // Most traffic goes to a handful of users, so one partition and a few rows run hot
+    HOT_USERS(0.8, 0.0, 0, 0.0),
+    // Redeliveries and client retries: a large share of messages repeat an earlier transactionId
+    DUPLICATES(0.0, 0.3, 0, 0.0),
+    // Every credit and debit waits on the external incentive API
+    SLOW_INCENTIVE(0.0, 0.0, Long.getLong("soak.incentive-delay-ms", 20), 0.0),
+    // Overdrafts, unknown types and unknown users, which are recorded as FAILED rows without an exception
+    REJECTIONS(0.0, 0.0, 0, 0.3);
+
+    private static final int HOT_USERS_COUNT = 5;
+
+    final double hotShare;
+    final double duplicateRatio;
+    final long incentiveDelayMs;
+    final double rejectionRatio;
+
+    SoakScenario(double hotShare, double duplicateRatio, long incentiveDelayMs, double rejectionRatio) {
+        this.hotShare = hotShare;
+        this.duplicateRatio = duplicateRatio;
+        this.incentiveDelayMs = incentiveDelayMs;
+        this.rejectionRatio = rejectionRatio;
+    }
+
+    int messages() {
+        return Integer.getInteger("soak.messages", 5000);
+    }
+
+    int users() {
+        return Integer.getInteger("soak.users", 500);
+    }
+
+    // Index into the scenario's users for the next message
+    int pickUser(ThreadLocalRandom random) {
+        if (hotShare > 0 && random.nextDouble() < hotShare) {
+            return random.nextInt(Math.min(HOT_USERS_COUNT, users()));
+        }
+        return random.nextInt(users());
+    }
+}
@@ -0,0 +1,313 @@
+package com.jpmorgan.transaction.soak;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.service.FailedTransactionWriter;
+import com.jpmorgan.transaction.service.UserService;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the whole service against EmbeddedKafka and H2 under a {@link SoakScenario} and writes
+ * throughput, end-to-end latency percentiles and GC pauses to {@code target/soak-reports}, also
+ * when the run times out. Soak tests only run with {@code mvn test -Psoak}. Setting
+ * {@code soak.min-messages-per-second} or {@code soak.max-p99-ms} turns the report into a gate.
+ */
+@Tag("soak")
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:soaktest",
+    "spring.kafka.consumer.group-id=soak-test-group",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "kafka.topic.transactions=soak-transactions"
+})
+// Quiet by default; the logging benchmarks override these
+@TestPropertySource(properties = {
+    "spring.jpa.show-sql=false",
+    "logging.level.com.jpmorgan.transaction=WARN",
+    "logging.level.org.springframework.kafka=WARN",
+    "logging.level.org.apache.kafka=WARN",
+    "logging.level.org.hibernate.SQL=WARN"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+@Import(SoakTestSupport.ProbeConfig.class)
+@EmbeddedKafka(partitions = 3, topics = {"soak-transactions"})
+abstract class SoakTestSupport {
+
+    private static final String TOPIC = "soak-transactions";
+    private static final String REJECTED_PREFIX = "SOAK-REJ-";
+    private static final long TIMEOUT_MS = Long.getLong("soak.timeout-ms", 300_000);
+
+    @Configuration
+    static class ProbeConfig {
+        @Bean
+        CommitProbe commitProbe() {
+            return new CommitProbe();
+        }
+    }
+
+    // Stamps each transaction's commit time against the time it was sent
+    static class CommitProbe {
+        final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+        final Map<String, Long> latencies = new ConcurrentHashMap<>();
+        volatile CountDownLatch remaining = new CountDownLatch(0);
+
+        @TransactionalEventListener
+        public void onCommitted(TransactionCommittedEvent event) {
+            Long sent = sentAt.get(event.getTransactionId());
+            if (sent != null && latencies.putIfAbsent(event.getTransactionId(), System.nanoTime() - sent) == null) {
+                remaining.countDown();
+            }
+        }
+    }
+
+    @Autowired
+    private CommitProbe probe;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private KafkaTemplate<String, String> eventKafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FailedTransactionWriter failedTransactionWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+        probe.sentAt.clear();
+        probe.latencies.clear();
+    }
+
+    protected void run(SoakScenario scenario) throws Exception {
+        run(scenario, null);
+    }
+
+    // A variant names what the subclass changed (e.g. the logging setup) and is part of the report's file name
+    protected void run(SoakScenario scenario, String variant) throws Exception {
+        List<Long> userIds = new ArrayList<>(scenario.users());
+        for (int i = 0; i < scenario.users(); i++) {
+            String name = "soak-" + UUID.randomUUID().toString().substring(0, 12);
+            User user = userService.createUser(name, name + "@example.com", new BigDecimal("1000000.00"));
+            userIds.add(user.getId());
+        }
+        List<TransactionMessage> messages = messagesFor(scenario, userIds);
+        long unique = messages.stream().map(TransactionMessage::getTransactionId).distinct().count();
+        int rejected = (int) messages.stream().filter(m -> m.getTransactionId().startsWith(REJECTED_PREFIX)).count();
+        // Rejections never commit, so they are waited for on the rejection counter instead
+        probe.remaining = new CountDownLatch((int) unique - rejected);
+        double rejectedBefore = rejectedSoFar();
+
+        GcPauses gc = GcPauses.start();
+        long start = System.nanoTime();
+        for (TransactionMessage message : messages) {
+            probe.sentAt.putIfAbsent(message.getTransactionId(), System.nanoTime());
+            eventKafkaTemplate.send(TOPIC, String.valueOf(message.getUserId()), objectMapper.writeValueAsString(message));
+        }
+        eventKafkaTemplate.flush();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        boolean finished = probe.remaining.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        while (finished && rejectedSoFar() - rejectedBefore < rejected) {
+            finished = System.currentTimeMillis() < deadline;
+            Thread.sleep(10);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        SoakReport.Gc pauses = gc.stop();
+        failedTransactionWriter.flush();
+
+        SoakReport report = SoakReport.builder()
+            .scenario(scenario.name())
+            .variant(variant)
+            .completed(finished)
+            .uncommitted(probe.remaining.getCount())
+            .users(scenario.users())
+            .messagesSent(messages.size())
+            .uniqueMessages((int) unique)
+            .duplicateRatio(scenario.duplicateRatio)
+            .rejectionRatio(scenario.rejectionRatio)
+            .rejectedMessages(rejected)
+            .failedRowsWritten(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE status = 'FAILED'", Long.class))
+            .hotShare(scenario.hotShare)
+            .incentiveDelayMs(scenario.incentiveDelayMs)
+            .durationMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+            .messagesPerSecond(messages.size() / (elapsedNanos / 1e9))
+            .latencyMs(SoakReport.Latency.of(probe.latencies.values().stream().mapToLong(Long::longValue).toArray()))
+            .gc(pauses)
+            .build();
+        write(report);
+
+        assertTrue(finished, probe.remaining.getCount() + " transactions were not committed in time");
+        Double minThroughput = doubleProperty("soak.min-messages-per-second");
+        if (minThroughput != null) {
+            assertTrue(report.getMessagesPerSecond() >= minThroughput,
+                scenario + " ran at " + report.getMessagesPerSecond() + " messages/s");
+        }
+        Double maxP99 = doubleProperty("soak.max-p99-ms");
+        if (maxP99 != null) {
+            assertTrue(report.getLatencyMs().getP99() <= maxP99,
+                scenario + " had a p99 of " + report.getLatencyMs().getP99() + " ms");
+        }
+    }
+
+    // Mostly small credits with some debits; duplicates reuse an id already sent
+    private List<TransactionMessage> messagesFor(SoakScenario scenario, List<Long> userIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TransactionMessage> messages = new ArrayList<>(scenario.messages());
+        for (int i = 0; i < scenario.messages(); i++) {
+            if (!messages.isEmpty() && random.nextDouble() < scenario.duplicateRatio) {
+                messages.add(messages.get(random.nextInt(messages.size())));
+                continue;
+            }
+            if (random.nextDouble() < scenario.rejectionRatio) {
+                messages.add(rejected(scenario, userIds, random));
+                continue;
+            }
+            boolean credit = random.nextInt(5) > 0;
+            messages.add(TransactionMessage.builder()
+                .transactionId("SOAK-" + UUID.randomUUID())
+                .userId(userIds.get(scenario.pickUser(random)))
+                .type(credit ? "CREDIT" : "DEBIT")
+                .amount(BigDecimal.valueOf(random.nextInt(1, 50_000), 2))
+                .description("soak " + scenario.name().toLowerCase())
+                .build());
+        }
+        return messages;
+    }
+
+    // One of the rejections a client can cause: a debit beyond any balance, an unknown type or an unknown user
+    private static TransactionMessage rejected(SoakScenario scenario, List<Long> userIds, ThreadLocalRandom random) {
+        Long userId = userIds.get(scenario.pickUser(random));
+        TransactionMessage.TransactionMessageBuilder message = TransactionMessage.builder()
+            .transactionId(REJECTED_PREFIX + UUID.randomUUID())
+            .userId(userId)
+            .type("DEBIT")
+            .amount(new BigDecimal("100000000.00"))
+            .description("soak " + scenario.name().toLowerCase());
+        switch (random.nextInt(3)) {
+            case 1 -> message.type("REFUND").amount(BigDecimal.TEN);
+            case 2 -> message.userId(userId + 1_000_000_000L).type("CREDIT").amount(BigDecimal.TEN);
+            default -> { }
+        }
+        return message.build();
+    }
+
+    private double rejectedSoFar() {
+        return meterRegistry.find("transactions.rejected").counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private void write(SoakReport report) throws IOException {
+        Path dir = Path.of(System.getProperty("soak.report-dir", "target/soak-reports"));
+        Files.createDirectories(dir);
+        String name = report.getScenario().toLowerCase() + (report.getVariant() == null ? "" : "-" + report.getVariant());
+        Path file = dir.resolve(name + ".json");
+        Files.writeString(file, objectMapper.copy()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValueAsString(report));
+    }
+
+    private static Double doubleProperty(String name) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? null : Double.valueOf(value);
+    }
+
+    // Collects GC pause durations from the platform's collection notifications
+    static final class GcPauses {
+        private final AtomicLong pauses = new AtomicLong();
+        private final AtomicLong totalMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+        private final NotificationListener listener = (notification, handback) -> {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (info.getGcName().contains("Concurrent")) {
+                return;
+            }
+            long duration = info.getGcInfo().getDuration();
+            pauses.incrementAndGet();
+            totalMs.addAndGet(duration);
+            maxMs.accumulateAndGet(duration, Math::max);
+        };
+
+        static GcPauses start() {
+            GcPauses gc = new GcPauses();
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener(gc.listener, null, null);
+                    gc.emitters.add(emitter);
+                }
+            }
+            return gc;
+        }
+
+        SoakReport.Gc stop() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (Exception ignored) {
+                    // Already removed
+                }
+            }
+            return SoakReport.Gc.builder()
+                .pauses(pauses.get())
+                .totalPauseMs(totalMs.get())
+                .maxPauseMs(maxMs.get())
+                .build();
+        }
+    }
+}
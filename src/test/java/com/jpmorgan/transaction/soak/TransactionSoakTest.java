@@ -0,0 +1,14 @@
+package com.jpmorgan.transaction.soak;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+// Scenarios run against the default incentive calculation, so only the service itself is measured
+class TransactionSoakTest extends SoakTestSupport {
+
+    @ParameterizedTest
+    @EnumSource(value = SoakScenario.class, names = {"UNIFORM", "HOT_USERS", "DUPLICATES", "REJECTIONS"})
+    void soak(SoakScenario scenario) throws Exception {
+        run(scenario);
+    }
+}
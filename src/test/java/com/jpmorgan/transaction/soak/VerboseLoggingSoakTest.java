@@ -0,0 +1,20 @@
+package com.jpmorgan.transaction.soak;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+// Baseline for AsyncLoggingSoakTest: the previous defaults, INFO per message plus SQL and bind logging on the console
+@TestPropertySource(properties = {
+    "logging.level.com.jpmorgan.transaction=INFO",
+    "logging.level.org.springframework.kafka=INFO",
+    "logging.level.org.hibernate.SQL=DEBUG",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=TRACE",
+    "spring.jpa.show-sql=true"
+})
+class VerboseLoggingSoakTest extends SoakTestSupport {
+
+    @Test
+    void soak() throws Exception {
+        run(SoakScenario.UNIFORM, "verbose-logging");
+    }
+}
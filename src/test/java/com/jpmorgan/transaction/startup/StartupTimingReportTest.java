@@ -0,0 +1,46 @@
+package com.jpmorgan.transaction.startup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupTimingReportTest {
+
+    @Test
+    void listsSlowestStepsWithBeanNamesExcludingRefresh() throws Exception {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(16);
+        StartupStep refresh = startup.start("spring.context.refresh");
+        StartupStep slow = startup.start("spring.beans.instantiate").tag("beanName", "entityManagerFactory");
+        Thread.sleep(30);
+        slow.end();
+        StartupStep fast = startup.start("spring.beans.instantiate").tag("beanName", "userService");
+        fast.end();
+        refresh.end();
+
+        String report = StartupTimingReport.slowest(startup.getBufferedTimeline().getEvents(), 1);
+
+        assertTrue(report.startsWith("spring.beans.instantiate[entityManagerFactory]="), report);
+        assertFalse(report.contains("userService"));
+        assertFalse(report.contains("spring.context.refresh"));
+    }
+
+    @Test
+    void marksOnlyBeansFromLazyPackagesLazy() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AnnotatedBeanDefinitionReader reader = new AnnotatedBeanDefinitionReader(beanFactory);
+        reader.registerBean(StartupTimingReportTest.class, "eager");
+        reader.registerBean(String.class, "lazyByClass");
+        LazyPackagesPostProcessor processor = new LazyPackagesPostProcessor();
+        processor.setEnvironment(new MockEnvironment().withProperty("startup.lazy-packages", "java.lang, org.springdoc"));
+
+        processor.postProcessBeanFactory(beanFactory);
+
+        assertTrue(beanFactory.getBeanDefinition("lazyByClass").isLazyInit());
+        assertFalse(beanFactory.getBeanDefinition("eager").isLazyInit());
+    }
+}
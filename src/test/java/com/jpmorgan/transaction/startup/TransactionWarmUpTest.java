@@ -0,0 +1,91 @@
+package com.jpmorgan.transaction.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.kafka.TransactionConsumer;
+import com.jpmorgan.transaction.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// data.sql seeds three users; synthetic transactions must leave them untouched
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:warmuptest",
+    "spring.sql.init.mode=always",
+    "spring.kafka.consumer.group-id=warmup-test-group",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "kafka.topic.transactions=warmup-test-transactions",
+    "warmup.enabled=true",
+    "warmup.iterations=300"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+@EmbeddedKafka(partitions = 1, topics = {"warmup-test-transactions"})
+class TransactionWarmUpTest {
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private KafkaTemplate<String, String> eventKafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void warmsUpWithoutTraceThenStartsListener() throws Exception {
+        assertTrue(listenerRegistry.getListenerContainer(TransactionConsumer.LISTENER_ID).isRunning());
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+        assertTrue(meterRegistry.get("warmup.phase.time").tag("phase", "transactions").gauge().value() >= 0);
+        assertTrue(meterRegistry.get("warmup.transaction.latency").tag("batch", "last").gauge().value() > 0);
+
+        // Every synthetic transaction was rolled back, along with the throwaway users it moved money between
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Integer.class));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(userService.findById(1L).getBalance()));
+        assertEquals(0, new BigDecimal("2500.00").compareTo(userService.findById(2L).getBalance()));
+        assertEquals(0L, userService.getUserVersion(1L));
+        assertEquals(0L, userService.getUserVersion(2L));
+
+        TransactionMessage message = TransactionMessage.builder()
+            .transactionId("WU-LIVE-1")
+            .userId(3L)
+            .type("CREDIT")
+            .amount(new BigDecimal("50.00"))
+            .build();
+        eventKafkaTemplate.send("warmup-test-transactions", "3", objectMapper.writeValueAsString(message)).get();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (userService.findById(3L).getBalance().compareTo(new BigDecimal("550.00")) != 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, new BigDecimal("550.00").compareTo(userService.findById(3L).getBalance()));
+    }
+}
@@ -0,0 +1,150 @@
+package com.jpmorgan.transaction.statement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpmorgan.transaction.dto.StatementBatchResult;
+import com.jpmorgan.transaction.dto.TransactionMessage;
+import com.jpmorgan.transaction.model.StatementCheckpoint;
+import com.jpmorgan.transaction.model.User;
+import com.jpmorgan.transaction.repository.StatementCheckpointRepository;
+import com.jpmorgan.transaction.service.TransactionService;
+import com.jpmorgan.transaction.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:statementtest",
+    "incentive.api.enabled=false",
+    "outbox.relay.enabled=false",
+    "statements.format=JSON",
+    "statements.partitions=3",
+    "statements.chunk-size=2"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class StatementBatchJobTest {
+
+    @TempDir
+    static Path outputDir;
+
+    @DynamicPropertySource
+    static void outputDir(DynamicPropertyRegistry registry) {
+        registry.add("statements.output-dir", () -> outputDir.toString());
+    }
+
+    @Autowired
+    private StatementBatchJob job;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private StatementCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final YearMonth period = YearMonth.now();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        checkpointRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM users");
+        userIds.clear();
+        for (int i = 0; i < 7; i++) {
+            String name = "stmt-" + UUID.randomUUID().toString().substring(0, 8);
+            User user = userService.createUser(name, name + "@example.com", new BigDecimal("100.00"));
+            // Back-date the account so it exists before the statement period
+            jdbcTemplate.update("UPDATE users SET created_at = ? WHERE id = ?",
+                Timestamp.valueOf(period.minusMonths(1).atDay(1).atStartOfDay()), user.getId());
+            userIds.add(user.getId());
+        }
+    }
+
+    @Test
+    void writesOpeningTransactionsAndClosingPerUser() throws IOException {
+        Long userId = userIds.get(0);
+        String earlier = process(userId, "CREDIT", "50.00");
+        process(userId, "CREDIT", "200.00");   // 2.00 incentive
+        process(userId, "DEBIT", "30.00");
+        jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE transaction_id = ?",
+            Timestamp.valueOf(period.minusMonths(1).atDay(15).atStartOfDay()), earlier);
+
+        StatementBatchResult result = job.run(period, true);
+
+        assertEquals(3, result.getPartitions());
+        assertEquals(userIds.size(), result.getStatements());
+        assertTrue(result.getStatementsPerSecond() > 0);
+
+        JsonNode statement = objectMapper.readTree(outputDir.resolve(period + "/user-" + userId + ".json").toFile());
+        assertEquals(0, new BigDecimal("150.00").compareTo(statement.get("openingBalance").decimalValue()));
+        assertEquals(2, statement.get("transactions").size());
+        assertEquals(0, new BigDecimal("2.00").compareTo(statement.get("totalIncentives").decimalValue()));
+        assertEquals(0, new BigDecimal("322.00").compareTo(statement.get("closingBalance").decimalValue()));
+
+        JsonNode quiet = objectMapper.readTree(outputDir.resolve(period + "/user-" + userIds.get(1) + ".json").toFile());
+        assertEquals(0, quiet.get("transactions").size());
+        assertEquals(0, new BigDecimal("100.00").compareTo(quiet.get("closingBalance").decimalValue()));
+    }
+
+    @Test
+    void resumesFromPartitionCheckpoints() {
+        StatementBatchResult first = job.run(period, true);
+        List<StatementCheckpoint> checkpoints = checkpointRepository.findByPeriodOrderByPartitionIndexAsc(period.toString());
+        assertTrue(checkpoints.stream().allMatch(StatementCheckpoint::getCompleted));
+
+        // Pretend the last partition crashed before finishing
+        StatementCheckpoint last = checkpoints.get(checkpoints.size() - 1);
+        last.setCompleted(false);
+        last.setLastUserId(null);
+        last.setStatements(0L);
+        checkpointRepository.save(last);
+
+        StatementBatchResult resumed = job.run(period, false);
+
+        long lastPartitionUsers = userIds.stream()
+            .filter(id -> id >= last.getFromUserId() && id < last.getToUserId())
+            .count();
+        assertEquals(lastPartitionUsers, resumed.getStatements());
+        assertEquals(first.getTotalStatements(), resumed.getTotalStatements());
+    }
+
+    private String process(Long userId, String type, String amount) {
+        String transactionId = "STMT-" + UUID.randomUUID();
+        transactionService.processTransaction(TransactionMessage.builder()
+            .transactionId(transactionId)
+            .userId(userId)
+            .type(type)
+            .amount(new BigDecimal(amount))
+            .build());
+        return transactionId;
+    }
+}
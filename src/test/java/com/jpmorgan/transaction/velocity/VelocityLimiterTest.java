@@ -0,0 +1,95 @@
+package com.jpmorgan.transaction.velocity;
+
+import com.jpmorgan.transaction.event.TransactionCommittedEvent;
+import com.jpmorgan.transaction.exception.VelocityLimitExceededException;
+import com.jpmorgan.transaction.model.Transaction;
+import com.jpmorgan.transaction.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VelocityLimiterTest {
+
+    private final User standard = User.builder().id(1L).tier("STANDARD").build();
+    private final User premium = User.builder().id(2L).tier("PREMIUM").build();
+
+    private DriverManagerDataSource dataSource;
+    private VelocityProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:velocity-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(dataSource).execute("CREATE TABLE transactions (user_id BIGINT, type VARCHAR(20), "
+            + "status VARCHAR(20), amount DECIMAL(19,2), timestamp TIMESTAMP)");
+
+        properties = new VelocityProperties();
+        properties.setEnabled(true);
+        properties.setTiers(Map.of(
+            "STANDARD", List.of(limit(Duration.ofMinutes(1), 3L, null), limit(Duration.ofDays(1), null, "500.00")),
+            "PREMIUM", List.of(limit(Duration.ofMinutes(1), 10L, null))));
+    }
+
+    @Test
+    void rejectsWhenCountOrAmountWindowIsFull() {
+        VelocityLimiter limiter = new VelocityLimiter(properties, dataSource, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 3; i++) {
+            limiter.check(standard, new BigDecimal("10.00"));
+            limiter.onTransactionCommitted(debit(standard.getId(), "10.00", LocalDateTime.now()));
+        }
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.check(standard, new BigDecimal("10.00")));
+        assertTrue(limiter.exceeded(standard, new BigDecimal("10.00")).contains("velocity limit of tier STANDARD"));
+        // Premium allows more per minute and has no daily amount limit
+        assertNull(limiter.exceeded(premium, new BigDecimal("600.00")));
+
+        // Old activity counts toward the day but not the minute
+        User other = User.builder().id(3L).tier("STANDARD").build();
+        limiter.onTransactionCommitted(debit(other.getId(), "480.00", LocalDateTime.now().minusHours(2)));
+        limiter.check(other, new BigDecimal("20.00"));
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.check(other, new BigDecimal("20.01")));
+    }
+
+    @Test
+    void rebuildsWindowsFromRecentHistory() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Timestamp recent = Timestamp.valueOf(LocalDateTime.now().minusSeconds(10));
+        for (int i = 0; i < 3; i++) {
+            jdbc.update("INSERT INTO transactions VALUES (1, 'DEBIT', 'COMPLETED', 5.00, ?)", recent);
+        }
+        jdbc.update("INSERT INTO transactions VALUES (2, 'CREDIT', 'COMPLETED', 5.00, ?)", recent);
+
+        VelocityLimiter limiter = new VelocityLimiter(properties, dataSource, new SimpleMeterRegistry());
+        limiter.afterSingletonsInstantiated();
+
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.check(standard, BigDecimal.ONE));
+        limiter.check(User.builder().id(2L).tier("STANDARD").build(), BigDecimal.ONE);
+    }
+
+    private static VelocityProperties.Limit limit(Duration window, Long maxCount, String maxAmount) {
+        VelocityProperties.Limit limit = new VelocityProperties.Limit();
+        limit.setWindow(window);
+        limit.setMaxCount(maxCount);
+        limit.setMaxAmount(maxAmount == null ? null : new BigDecimal(maxAmount));
+        return limit;
+    }
+
+    private static TransactionCommittedEvent debit(Long userId, String amount, LocalDateTime timestamp) {
+        return TransactionCommittedEvent.builder()
+            .userId(userId)
+            .type(Transaction.TransactionType.DEBIT)
+            .amount(new BigDecimal(amount))
+            .timestamp(timestamp)
+            .build();
+    }
+}